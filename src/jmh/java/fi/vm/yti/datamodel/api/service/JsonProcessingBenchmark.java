@@ -0,0 +1,190 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonBuilderFactory;
+import javax.json.JsonObjectBuilder;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.riot.JsonLDWriteContext;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.WriterGraphRIOT;
+import org.apache.jena.riot.system.ErrorHandlerFactory;
+import org.apache.jena.riot.system.PrefixMap;
+import org.apache.jena.riot.system.RiotLib;
+import org.apache.jena.sparql.graph.GraphFactory;
+import org.apache.jena.vocabulary.DCTerms;
+import org.apache.jena.vocabulary.OWL;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.jsonldjava.core.JsonLdOptions;
+import com.github.jsonldjava.utils.JsonUtils;
+
+import fi.vm.yti.datamodel.api.utils.CompiledFrame;
+import fi.vm.yti.datamodel.api.utils.Frames;
+import fi.vm.yti.datamodel.api.utils.LDHelper;
+
+/**
+ * Compares the shared JSON and JSON-LD processing of {@link ModelManager} to the previous implementations that
+ * created mappers and options per call, wrote framed JSON-LD out and parsed it back, and parsed posted JSON-LD
+ * twice. Allocation per operation is reported as gc.alloc.rate.norm by the gc profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonProcessingBenchmark {
+
+    private static final CompiledFrame ES_CLASS_FRAME = new CompiledFrame(Frames.esClassFrame);
+
+    @Param({ "10", "1000" })
+    public int resources;
+
+    private final ModelManager modelManager = new ModelManager();
+    private final JsonBuilderFactory jsonBuilderFactory = Json.createBuilderFactory(null);
+    private Model model;
+    private String jsonld;
+    private JsonNode framed;
+
+    @Setup
+    public void setup() throws IOException {
+        String namespace = "http://uri.suomi.fi/datamodel/ns/bench";
+        model = ModelFactory.createDefaultModel();
+        model.setNsPrefix("bench", namespace + "#");
+        Resource library = model.createResource(namespace);
+        for (int i = 0; i < resources; i++) {
+            Resource resource = model.createResource(namespace + "#Class" + i);
+            resource.addProperty(RDF.type, RDFS.Class);
+            resource.addProperty(RDFS.isDefinedBy, library);
+            resource.addProperty(LDHelper.curieToProperty("sh:name"), "Luokka " + i, "fi");
+            resource.addProperty(LDHelper.curieToProperty("sh:name"), "Class " + i, "en");
+            resource.addProperty(LDHelper.curieToProperty("sh:description"), "Kuvaus " + i, "fi");
+            resource.addProperty(OWL.versionInfo, "DRAFT");
+            resource.addProperty(DCTerms.modified, model.createTypedLiteral(java.util.Calendar.getInstance()));
+        }
+        jsonld = modelManager.writeModelToJSONLDString(model);
+        framed = modelManager.toFramedJsonNode(model, ES_CLASS_FRAME);
+    }
+
+    @Benchmark
+    public JsonNode framedJsonNodeShared() throws IOException {
+        return modelManager.toFramedJsonNode(model, ES_CLASS_FRAME);
+    }
+
+    @Benchmark
+    public JsonNode framedJsonNodeLegacy() throws IOException {
+        return legacyToFramedJsonNode(model, copyFrame(Frames.esClassFrame));
+    }
+
+    @Benchmark
+    public Model parseJsonLdShared() {
+        return modelManager.createJenaModelFromJSONLDString(jsonld);
+    }
+
+    @Benchmark
+    public Model parseJsonLdLegacy() throws IOException {
+        return legacyCreateJenaModelFromJSONLDString(jsonld);
+    }
+
+    @Benchmark
+    public String plainJsonShared() throws IOException {
+        return modelManager.toPlainJsonString(framed);
+    }
+
+    @Benchmark
+    public String plainJsonLegacy() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(framed.get("@graph"));
+    }
+
+    @Benchmark
+    public Object schemaBuildersShared() {
+        JsonArrayBuilder properties = jsonBuilderFactory.createArrayBuilder();
+        for (int i = 0; i < resources; i++) {
+            JsonObjectBuilder property = jsonBuilderFactory.createObjectBuilder();
+            property.add("title", jsonBuilderFactory.createObjectBuilder().add("fi", "Ominaisuus " + i));
+            properties.add(property.add("type", "string"));
+        }
+        return properties.build();
+    }
+
+    @Benchmark
+    public Object schemaBuildersLegacy() {
+        JsonArrayBuilder properties = Json.createArrayBuilder();
+        for (int i = 0; i < resources; i++) {
+            JsonObjectBuilder property = Json.createObjectBuilder();
+            property.add("title", Json.createObjectBuilder().add("fi", "Ominaisuus " + i));
+            properties.add(property.add("type", "string"));
+        }
+        return properties.build();
+    }
+
+    private static LinkedHashMap<String, Object> copyFrame(Map<String, Object> frame) {
+        LinkedHashMap<String, Object> copy = new LinkedHashMap<>(frame);
+        copy.put("@context", new LinkedHashMap<>((Map<String, Object>) frame.get("@context")));
+        return copy;
+    }
+
+    private JsonNode legacyToFramedJsonNode(Model model,
+                                            LinkedHashMap<String, Object> frame) throws IOException {
+        WriterGraphRIOT gw = RDFDataMgr.createGraphWriter(RDFFormat.JSONLD_FRAME_PRETTY);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PrefixMap pm = modelManager.cleanUpPrefixes(RiotLib.prefixMap(model.getGraph()));
+        pm.putAll(LDHelper.PREFIX_MAP);
+        ((LinkedHashMap<String, Object>) frame.get("@context")).putAll(pm.getMappingCopyStr());
+        JsonLdOptions opts = new JsonLdOptions();
+        opts.setProcessingMode(JsonLdOptions.JSON_LD_1_1);
+        opts.useNamespaces = true;
+        opts.setCompactArrays(true);
+        opts.setUseNativeTypes(Boolean.TRUE);
+        JsonLDWriteContext ctx = new JsonLDWriteContext();
+        ctx.setFrame(frame);
+        ctx.setOptions(opts);
+        gw.write(baos, model.getGraph(), pm, null, ctx);
+        ObjectMapper objectMapper = new ObjectMapper();
+        return objectMapper.readTree(baos.toByteArray());
+    }
+
+    private static Model legacyCreateJenaModelFromJSONLDString(String modelString) throws IOException {
+        Graph graph = GraphFactory.createDefaultGraph();
+        Map<String, String> prefixes = new LinkedHashMap<>();
+        Map jsonObject = (Map) JsonUtils.fromString(modelString);
+        ((Map<String, Object>) jsonObject.get("@context")).forEach((key, value) -> {
+            if (value instanceof String && !LDHelper.isInvalidIRI((String) value)) {
+                prefixes.put(key, (String) value);
+            }
+        });
+        try (InputStream in = new ByteArrayInputStream(modelString.getBytes("UTF-8"))) {
+            RDFParser.create()
+                .source(in)
+                .lang(Lang.JSONLD)
+                .errorHandler(ErrorHandlerFactory.errorHandlerStrict)
+                .parse(graph);
+        }
+        return ModelFactory.createModelForGraph(graph).setNsPrefixes(prefixes);
+    }
+}
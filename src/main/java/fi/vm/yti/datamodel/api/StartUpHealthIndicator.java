@@ -0,0 +1,96 @@
+package fi.vm.yti.datamodel.api;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports startup stages run by {@link StartUpListener} in actuator health.
+ * <p>
+ * Health is OUT_OF_SERVICE until every required stage has finished, so that instances are not taken into use
+ * before search indexes, organizations and users are initialized. Failed stages are reported in the details
+ * but do not keep the instance out of service, as the stages are retried by scheduled tasks or reindexing.
+ */
+@Component
+public class StartUpHealthIndicator implements HealthIndicator {
+
+    enum StageState {
+        PENDING,
+        RUNNING,
+        DONE,
+        FAILED,
+        SKIPPED
+    }
+
+    private static final class Stage {
+
+        private final boolean required;
+        private StageState state = StageState.PENDING;
+        private long durationMillis;
+        private String error;
+
+        Stage(boolean required) {
+            this.required = required;
+        }
+
+        boolean isFinished() {
+            return state == StageState.DONE || state == StageState.FAILED || state == StageState.SKIPPED;
+        }
+    }
+
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+
+    synchronized void register(String name,
+                               boolean required) {
+        stages.put(name, new Stage(required));
+    }
+
+    synchronized void started(String name) {
+        stages.get(name).state = StageState.RUNNING;
+    }
+
+    synchronized void finished(String name,
+                               long durationMillis) {
+        Stage stage = stages.get(name);
+        stage.state = StageState.DONE;
+        stage.durationMillis = durationMillis;
+    }
+
+    synchronized void failed(String name,
+                             long durationMillis,
+                             Throwable error) {
+        Stage stage = stages.get(name);
+        stage.state = StageState.FAILED;
+        stage.durationMillis = durationMillis;
+        stage.error = error.getMessage();
+    }
+
+    synchronized void skipped(String name) {
+        stages.get(name).state = StageState.SKIPPED;
+    }
+
+    public synchronized boolean isReady() {
+        return stages.values().stream().filter(stage -> stage.required).allMatch(Stage::isFinished);
+    }
+
+    @Override
+    public synchronized Health health() {
+        Health.Builder builder = isReady() ? Health.up() : Health.outOfService();
+        stages.forEach((name, stage) -> {
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("state", stage.state);
+            details.put("required", stage.required);
+            if (stage.isFinished()) {
+                details.put("durationMillis", stage.durationMillis);
+            }
+            if (stage.error != null) {
+                details.put("error", stage.error);
+            }
+            builder.withDetail(name, details);
+        });
+        return builder.build();
+    }
+}
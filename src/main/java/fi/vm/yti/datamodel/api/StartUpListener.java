@@ -1,6 +1,9 @@
 package fi.vm.yti.datamodel.api;
 
-import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -11,13 +14,20 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import fi.vm.yti.datamodel.api.index.ElasticConnector;
 import fi.vm.yti.datamodel.api.index.FrameManager;
 import fi.vm.yti.datamodel.api.index.SearchIndexManager;
+import fi.vm.yti.datamodel.api.migration.BatchedMigrationRunner;
+import fi.vm.yti.datamodel.api.service.CountManager;
 import fi.vm.yti.datamodel.api.service.GraphManager;
 import fi.vm.yti.datamodel.api.service.GroupManagementService;
+import fi.vm.yti.datamodel.api.service.ModelDeletionManager;
 import fi.vm.yti.datamodel.api.service.NamespaceManager;
 import fi.vm.yti.datamodel.api.service.RHPOrganizationManager;
+import fi.vm.yti.datamodel.api.service.ReferenceIndex;
+import fi.vm.yti.datamodel.api.service.StatusChangeManager;
 import fi.vm.yti.migration.MigrationInitializer;
 
 @Component
@@ -32,6 +42,22 @@ public class StartUpListener {
     private final FrameManager frameManager;
     private final SearchIndexManager searchIndexManager;
     private final GroupManagementService groupManagementService;
+    private final ReferenceIndex referenceIndex;
+    private final ModelDeletionManager modelDeletionManager;
+    private final StatusChangeManager statusChangeManager;
+    private final BatchedMigrationRunner batchedMigrationRunner;
+    private final CountManager countManager;
+    private final StartUpHealthIndicator startUpHealth;
+    private final ExecutorService executor = Executors.newFixedThreadPool(4, new ThreadFactoryBuilder().setNameFormat("startup-%d").setDaemon(true).build());
+
+    /**
+     * Startup stage that may throw checked exceptions
+     */
+    @FunctionalInterface
+    private interface StageTask {
+
+        void run() throws Exception;
+    }
 
     @Autowired
     StartUpListener(RHPOrganizationManager rhpOrganizationManager,
@@ -41,7 +67,13 @@ public class StartUpListener {
                     FrameManager frameManager,
                     SearchIndexManager searchIndexManager,
                     MigrationInitializer migrationInitializer,
-                    GroupManagementService groupManagementService
+                    GroupManagementService groupManagementService,
+                    ReferenceIndex referenceIndex,
+                    ModelDeletionManager modelDeletionManager,
+                    StatusChangeManager statusChangeManager,
+                    BatchedMigrationRunner batchedMigrationRunner,
+                    CountManager countManager,
+                    StartUpHealthIndicator startUpHealth
                     /* XXX: dependency to enforce init order */) {
 
         this.rhpOrganizationManager = rhpOrganizationManager;
@@ -51,21 +83,76 @@ public class StartUpListener {
         this.frameManager = frameManager;
         this.searchIndexManager = searchIndexManager;
         this.groupManagementService = groupManagementService;
+        this.referenceIndex = referenceIndex;
+        this.modelDeletionManager = modelDeletionManager;
+        this.statusChangeManager = statusChangeManager;
+        this.batchedMigrationRunner = batchedMigrationRunner;
+        this.countManager = countManager;
+        this.startUpHealth = startUpHealth;
     }
 
+    /**
+     * Runs startup stages in background so that independent stages overlap and the application context does not
+     * wait for them. Readiness is reported by {@link StartUpHealthIndicator}.
+     */
     @PostConstruct
     public void contextInitialized() {
         logger.info("System is starting ...");
-
-        initDefaultNamespaces();
-        initRHPOrganizations();
-        initElasticsearchIndices();
-        groupManagementService.updateUsers();
+        final long start = System.currentTimeMillis();
+
+        CompletableFuture<Void> namespaces = stage("namespaces", true, this::initDefaultNamespaces);
+        CompletableFuture<Void> organizations = stage("organizations", true, this::initRHPOrganizations);
+        CompletableFuture<Void> users = stage("users", true, groupManagementService::updateUsers);
+        CompletableFuture<Void> elasticsearch = stage("elasticsearch", true, elasticConnector::waitForESNodes);
+        CompletableFuture<Void> frames = stage("frames", false, () -> frameManager.cleanCachedFrames(true), elasticsearch);
+        CompletableFuture<Void> searchIndex = stage("searchIndex", true, searchIndexManager::reindex, frames);
+        CompletableFuture<Void> references = stage("references", true, referenceIndex::rebuildIfEmpty);
+        CompletableFuture<Void> modelDeletions = stage("modelDeletions", false, modelDeletionManager::resumeUnfinishedJobs, searchIndex);
+        CompletableFuture<Void> statusChanges = stage("statusChanges", false, statusChangeManager::resumeUnfinishedJobs, searchIndex);
+        CompletableFuture<Void> migrations = stage("migrations", false, batchedMigrationRunner::resumeUnfinishedJobs);
+        CompletableFuture<Void> counts = stage("counts", false, countManager::reconcile);
+
+        CompletableFuture.allOf(namespaces, organizations, users, elasticsearch, frames, searchIndex, references, modelDeletions, statusChanges, migrations, counts)
+            .whenComplete((result, ex) -> {
+                logger.info("System startup finished in " + (System.currentTimeMillis() - start) + " ms");
+                executor.shutdown();
+            });
     }
 
     @PreDestroy
     public void contextDestroyed() {
         logger.info("System is closing ...");
+        executor.shutdownNow();
+    }
+
+    private CompletableFuture<Void> stage(String name,
+                                          boolean required,
+                                          StageTask task,
+                                          CompletableFuture<?>... dependencies) {
+        startUpHealth.register(name, required);
+        return CompletableFuture.allOf(dependencies)
+            .whenComplete((result, ex) -> {
+                if (ex != null) {
+                    logger.warn("Startup stage " + name + " skipped because a stage it depends on failed");
+                    startUpHealth.skipped(name);
+                }
+            })
+            .thenRunAsync(() -> {
+                logger.info("Startup stage " + name + " started");
+                startUpHealth.started(name);
+                long stageStart = System.currentTimeMillis();
+                try {
+                    task.run();
+                    long duration = System.currentTimeMillis() - stageStart;
+                    logger.info("Startup stage " + name + " finished in " + duration + " ms");
+                    startUpHealth.finished(name, duration);
+                } catch (Exception ex) {
+                    long duration = System.currentTimeMillis() - stageStart;
+                    logger.warn("Startup stage " + name + " failed in " + duration + " ms", ex);
+                    startUpHealth.failed(name, duration, ex);
+                    throw new CompletionException(ex);
+                }
+            }, executor);
     }
 
     @Scheduled(cron = "0 */5 * * * *")
@@ -80,14 +167,4 @@ public class StartUpListener {
     private void initDefaultNamespaces() {
         namespaceManager.resolveDefaultNamespaceToTheCore();
     }
-
-    private void initElasticsearchIndices() {
-        try {
-            elasticConnector.waitForESNodes();
-            frameManager.cleanCachedFrames(true);
-            searchIndexManager.reindex();
-        } catch (IOException e) {
-            logger.warn("Elasticsearch initialization failed!", e);
-        }
-    }
 }
@@ -0,0 +1,44 @@
+package fi.vm.yti.datamodel.api;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import fi.vm.yti.datamodel.api.service.ReadRouter;
+import fi.vm.yti.datamodel.api.service.UpstreamGuard;
+
+/**
+ * Actuator endpoint reporting circuit state, concurrency and rejected calls of every upstream service
+ * guarded by {@link UpstreamGuard}, and health of the Fuseki read endpoints used by {@link ReadRouter}.
+ * <p>
+ * Unlike health, an open circuit does not take the instance out of service, as requests that do not need
+ * the failing upstream can still be served.
+ */
+@Component
+@Endpoint(id = "upstreams")
+public class UpstreamsEndpoint {
+
+    private final UpstreamGuard upstreamGuard;
+    private final ReadRouter readRouter;
+
+    @Autowired
+    UpstreamsEndpoint(UpstreamGuard upstreamGuard,
+                      ReadRouter readRouter) {
+        this.upstreamGuard = upstreamGuard;
+        this.readRouter = readRouter;
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> upstreams() {
+        Map<String, Map<String, Object>> states = upstreamGuard.getStates();
+        Map<String, Map<String, Boolean>> replicas = readRouter.getStates();
+        if (!replicas.isEmpty()) {
+            states.put("fuseki-replicas", new LinkedHashMap<>(replicas));
+        }
+        return states;
+    }
+}
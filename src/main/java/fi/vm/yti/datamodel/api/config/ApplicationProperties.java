@@ -1,6 +1,11 @@
 
 package fi.vm.yti.datamodel.api.config;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 @ConfigurationProperties
@@ -25,10 +30,26 @@ public final class ApplicationProperties {
     private String elasticHttpPort;
     private String elasticHttpScheme;
     private boolean allowComplexElasticQueries;
+    private List<String> searchLanguages = Arrays.asList("fi", "sv", "en");
     private String defaultSuomiCodeServerAPI;
     private boolean devMode;
     private boolean messagingEnabled;
     private String env;
+    private long slowQueryThreshold = 1000;
+    private int queryStatisticsSize = 500;
+    private Map<String, String> cachePolicies = new HashMap<>();
+    private long resolverCacheTtl = 300;
+    private long modelAccessCacheTtl = 60;
+    private int namespaceResolverThreads = 4;
+    private long namespaceRevalidateAfter = 86400;
+    private long namespaceRetryBackoff = 60;
+    private int modelDeletionBatchSize = 100;
+    private long modelDeletionJobRetention = 2592000;
+    private int migrationBatchSize = 100;
+    private long migrationBatchDelay = 0;
+    private int bulkResourcesMaxBatchSize = 200;
+    private Map<String, UpstreamPolicy> upstreamPolicies = new HashMap<>();
+    private ReadRouting readRouting = new ReadRouting();
 
     public String getEndpoint() {
         return endpoint;
@@ -182,6 +203,14 @@ public final class ApplicationProperties {
         this.allowComplexElasticQueries = allowComplexElasticQueries;
     }
 
+    public List<String> getSearchLanguages() {
+        return searchLanguages;
+    }
+
+    public void setSearchLanguages(final List<String> searchLanguages) {
+        this.searchLanguages = searchLanguages;
+    }
+
     public String getDefaultSuomiCodeServerAPI() {
         return this.defaultSuomiCodeServerAPI;
     }
@@ -213,4 +242,133 @@ public final class ApplicationProperties {
     public void setMessagingEnabled(final boolean messagingEnabled) {
         this.messagingEnabled = messagingEnabled;
     }
+
+    public long getSlowQueryThreshold() {
+        return slowQueryThreshold;
+    }
+
+    public void setSlowQueryThreshold(final long slowQueryThreshold) {
+        this.slowQueryThreshold = slowQueryThreshold;
+    }
+
+    public int getQueryStatisticsSize() {
+        return queryStatisticsSize;
+    }
+
+    public void setQueryStatisticsSize(final int queryStatisticsSize) {
+        this.queryStatisticsSize = queryStatisticsSize;
+    }
+
+    public Map<String, String> getCachePolicies() {
+        return cachePolicies;
+    }
+
+    public void setCachePolicies(final Map<String, String> cachePolicies) {
+        this.cachePolicies = cachePolicies;
+    }
+
+    public long getResolverCacheTtl() {
+        return resolverCacheTtl;
+    }
+
+    public void setResolverCacheTtl(final long resolverCacheTtl) {
+        this.resolverCacheTtl = resolverCacheTtl;
+    }
+
+    public long getModelAccessCacheTtl() {
+        return modelAccessCacheTtl;
+    }
+
+    public void setModelAccessCacheTtl(final long modelAccessCacheTtl) {
+        this.modelAccessCacheTtl = modelAccessCacheTtl;
+    }
+
+    public int getNamespaceResolverThreads() {
+        return namespaceResolverThreads;
+    }
+
+    public void setNamespaceResolverThreads(final int namespaceResolverThreads) {
+        this.namespaceResolverThreads = namespaceResolverThreads;
+    }
+
+    public long getNamespaceRevalidateAfter() {
+        return namespaceRevalidateAfter;
+    }
+
+    public void setNamespaceRevalidateAfter(final long namespaceRevalidateAfter) {
+        this.namespaceRevalidateAfter = namespaceRevalidateAfter;
+    }
+
+    public long getNamespaceRetryBackoff() {
+        return namespaceRetryBackoff;
+    }
+
+    public void setNamespaceRetryBackoff(final long namespaceRetryBackoff) {
+        this.namespaceRetryBackoff = namespaceRetryBackoff;
+    }
+
+    public int getModelDeletionBatchSize() {
+        return modelDeletionBatchSize;
+    }
+
+    public void setModelDeletionBatchSize(final int modelDeletionBatchSize) {
+        this.modelDeletionBatchSize = modelDeletionBatchSize;
+    }
+
+    public long getModelDeletionJobRetention() {
+        return modelDeletionJobRetention;
+    }
+
+    public void setModelDeletionJobRetention(final long modelDeletionJobRetention) {
+        this.modelDeletionJobRetention = modelDeletionJobRetention;
+    }
+
+    public int getMigrationBatchSize() {
+        return migrationBatchSize;
+    }
+
+    public void setMigrationBatchSize(final int migrationBatchSize) {
+        this.migrationBatchSize = migrationBatchSize;
+    }
+
+    public long getMigrationBatchDelay() {
+        return migrationBatchDelay;
+    }
+
+    public void setMigrationBatchDelay(final long migrationBatchDelay) {
+        this.migrationBatchDelay = migrationBatchDelay;
+    }
+
+    public int getBulkResourcesMaxBatchSize() {
+        return bulkResourcesMaxBatchSize;
+    }
+
+    public void setBulkResourcesMaxBatchSize(final int bulkResourcesMaxBatchSize) {
+        this.bulkResourcesMaxBatchSize = bulkResourcesMaxBatchSize;
+    }
+
+    public Map<String, UpstreamPolicy> getUpstreamPolicies() {
+        return upstreamPolicies;
+    }
+
+    public void setUpstreamPolicies(final Map<String, UpstreamPolicy> upstreamPolicies) {
+        this.upstreamPolicies = upstreamPolicies;
+    }
+
+    /**
+     * @param upstream Upstream name, see {@link fi.vm.yti.datamodel.api.service.UpstreamMetrics}
+     * @return Configured policy or the default policy
+     */
+    public UpstreamPolicy getUpstreamPolicy(String upstream) {
+        UpstreamPolicy policy = upstreamPolicies.get(upstream);
+        return policy != null ? policy : new UpstreamPolicy();
+    }
+
+    public ReadRouting getReadRouting() {
+        return readRouting;
+    }
+
+    public void setReadRouting(final ReadRouting readRouting) {
+        this.readRouting = readRouting;
+    }
 }
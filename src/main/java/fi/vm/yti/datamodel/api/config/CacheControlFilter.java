@@ -0,0 +1,69 @@
+package fi.vm.yti.datamodel.api.config;
+
+import java.lang.reflect.Method;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+
+import fi.vm.yti.datamodel.api.service.HttpCacheManager;
+
+/**
+ * Adds Cache-Control and CORS headers to all responses. Cache-Control is taken from the {@link CachePolicy}
+ * of the matched resource unless the resource has already set the header itself. Vary is added to cacheable
+ * responses in either case.
+ */
+class CacheControlFilter implements ContainerResponseFilter {
+
+    private final HttpCacheManager httpCacheManager;
+
+    @Context
+    private ResourceInfo resourceInfo;
+
+    CacheControlFilter(HttpCacheManager httpCacheManager) {
+        this.httpCacheManager = httpCacheManager;
+    }
+
+    @Override
+    public void filter(ContainerRequestContext req,
+                       ContainerResponseContext resp) {
+        MultivaluedMap<String, Object> headers = resp.getHeaders();
+
+        CachePolicy policy = findPolicy();
+        boolean cacheable = policy != null
+            && (HttpMethod.GET.equals(req.getMethod()) || HttpMethod.HEAD.equals(req.getMethod()))
+            && resp.getStatus() < 400;
+
+        if (cacheable && policy.vary().length > 0 && !headers.containsKey(HttpHeaders.VARY)) {
+            headers.add(HttpHeaders.VARY, String.join(", ", policy.vary()));
+        }
+
+        if (!headers.containsKey(HttpHeaders.CACHE_CONTROL)) {
+            if (cacheable) {
+                headers.add(HttpHeaders.CACHE_CONTROL, httpCacheManager.getCacheControl(policy.value()));
+            } else {
+                headers.add(HttpHeaders.CACHE_CONTROL, httpCacheManager.getCacheControl(CachePolicy.NO_STORE));
+                headers.add("Pragma", "no-cache");
+                headers.add(HttpHeaders.EXPIRES, "0");
+            }
+        }
+
+        headers.add("Access-Control-Allow-Origin", "*");
+        headers.add("Access-Control-Allow-Headers", "content-type");
+        headers.add("Access-Control-Allow-Methods", "GET");
+    }
+
+    private CachePolicy findPolicy() {
+        if (resourceInfo == null || resourceInfo.getResourceMethod() == null) {
+            return null;
+        }
+        Method method = resourceInfo.getResourceMethod();
+        CachePolicy policy = method.getAnnotation(CachePolicy.class);
+        return policy != null ? policy : resourceInfo.getResourceClass().getAnnotation(CachePolicy.class);
+    }
+}
@@ -0,0 +1,33 @@
+package fi.vm.yti.datamodel.api.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Selects the Cache-Control policy of successful GET responses of a resource class or method.
+ * Policies are configured with cachePolicies.&lt;name&gt; properties. Responses without policy are not cached.
+ */
+@Target({ ElementType.TYPE, ElementType.METHOD })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CachePolicy {
+
+    /* Content that must never be stored */
+    String NO_STORE = "noStore";
+    /* Content that may be stored but has to be revalidated with ETag or Last-Modified on every use */
+    String REVALIDATE = "revalidate";
+    /* Listings that change when models are created or removed */
+    String SHORT_LIVED = "shortLived";
+    /* Published content such as exports of VALID models */
+    String PUBLISHED = "published";
+    /* Content that changes only with new releases */
+    String STATIC = "static";
+
+    String value();
+
+    /**
+     * Request headers that select the response variant and are added to the Vary header.
+     */
+    String[] vary() default {};
+}
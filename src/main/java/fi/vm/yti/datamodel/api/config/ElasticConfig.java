@@ -14,6 +14,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import fi.vm.yti.datamodel.api.service.UpstreamMetrics;
+
 /**
  * @author amiika
  */
@@ -31,13 +33,19 @@ public class ElasticConfig {
     @Bean
     @SuppressWarnings("resource")
     protected RestHighLevelClient elasticSearchClient() {
+        UpstreamPolicy policy = config.getUpstreamPolicy(UpstreamMetrics.ELASTIC);
+        int connections = Math.max(1, policy.getMaxConcurrent());
         RestHighLevelClient client = new RestHighLevelClient(RestClient.builder(
             new HttpHost(config.getElasticHost(), Integer.parseInt(config.getElasticHttpPort()), config.getElasticHttpScheme())
         ).setRequestConfigCallback(
             requestConfigBuilder -> requestConfigBuilder
-                .setConnectTimeout(5000)
-                .setSocketTimeout(60000))
-            .setMaxRetryTimeoutMillis(60000)
+                .setConnectTimeout(policy.getConnectTimeout())
+                .setSocketTimeout(policy.getTimeout()))
+            .setHttpClientConfigCallback(
+                httpClientBuilder -> httpClientBuilder
+                    .setMaxConnPerRoute(connections)
+                    .setMaxConnTotal(connections))
+            .setMaxRetryTimeoutMillis(policy.getTimeout())
         );
         return client;
     }
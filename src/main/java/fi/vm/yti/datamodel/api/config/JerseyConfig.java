@@ -1,5 +1,6 @@
 package fi.vm.yti.datamodel.api.config;
 
+import fi.vm.yti.datamodel.api.service.HttpCacheManager;
 import io.swagger.v3.jaxrs2.integration.resources.OpenApiResource;
 import io.swagger.v3.oas.annotations.OpenAPIDefinition;
 import io.swagger.v3.oas.annotations.info.Contact;
@@ -16,7 +17,6 @@ import org.springframework.context.annotation.Configuration;
 
 import javax.ws.rs.ApplicationPath;
 import javax.ws.rs.Path;
-import javax.ws.rs.container.ContainerResponseFilter;
 
 @Configuration
 @OpenAPIDefinition(
@@ -40,7 +40,7 @@ import javax.ws.rs.container.ContainerResponseFilter;
 public class JerseyConfig extends ResourceConfig {
 
     @Autowired
-    public JerseyConfig() {
+    public JerseyConfig(HttpCacheManager httpCacheManager) {
 
         // https://github.com/spring-projects/spring-boot/issues/1468
         // FIXME packages("fi.vm.yti.datamodel.api.endpoint"); should work but it doesn't
@@ -52,15 +52,9 @@ public class JerseyConfig extends ResourceConfig {
         register(DeflateEncoder.class);
         register(JsonParseExceptionMapper.class);
         register(IllegalArgumentExceptionMapper.class);
-        register((ContainerResponseFilter) (req, resp) -> {
-            resp.getHeaders().add("Cache-Control", "no-cache, no-store, must-revalidate");
-            resp.getHeaders().add("Pragma", "no-cache");
-            resp.getHeaders().add("Expires", "0");
-
-            resp.getHeaders().add("Access-Control-Allow-Origin", "*");
-            resp.getHeaders().add("Access-Control-Allow-Headers", "content-type");
-            resp.getHeaders().add("Access-Control-Allow-Methods", "GET");
-        });
+        register(UpstreamUnavailableExceptionMapper.class);
+        register(ModelMessageBodyWriter.class);
+        register(new CacheControlFilter(httpCacheManager));
 
     }
 
@@ -4,6 +4,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import javax.json.Json;
+import javax.json.JsonBuilderFactory;
 import javax.json.JsonWriterFactory;
 import javax.json.stream.JsonGenerator;
 
@@ -20,5 +21,11 @@ public class JsonConfig {
         return Json.createWriterFactory(config);
     }
 
+    /* Json.createObjectBuilder() looks up the JSON provider on every call */
+    @Bean
+    JsonBuilderFactory jsonBuilderFactory() {
+        return Json.createBuilderFactory(null);
+    }
+
     /* JSON serialization and deserialization configuration under RestConfig */
 }
@@ -0,0 +1,65 @@
+package fi.vm.yti.datamodel.api.config;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFFormat;
+
+/**
+ * Writes Jena models returned as response entities straight to the response stream.
+ * <p>
+ * The format follows the media type negotiated by Jersey, so resources that list RDF media types in
+ * {@link Produces} serve the model as JSON-LD, Turtle, N-Triples or RDF Thrift depending on the Accept header.
+ * JSON-LD is written like {@link fi.vm.yti.datamodel.api.service.ModelManager#writeModelToJSONLDString(Model)},
+ * and Turtle is written in blocks so that large models are not analysed as a whole before the first byte.
+ */
+@Provider
+@Produces({ "application/ld+json", "application/json", "text/turtle", "application/n-triples", "application/rdf+thrift" })
+public class ModelMessageBodyWriter implements MessageBodyWriter<Model> {
+
+    @Override
+    public boolean isWriteable(Class<?> type,
+                               Type genericType,
+                               Annotation[] annotations,
+                               MediaType mediaType) {
+        return Model.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public void writeTo(Model model,
+                        Class<?> type,
+                        Type genericType,
+                        Annotation[] annotations,
+                        MediaType mediaType,
+                        MultivaluedMap<String, Object> httpHeaders,
+                        OutputStream entityStream) throws IOException {
+        RDFDataMgr.write(entityStream, model, getFormat(mediaType));
+        entityStream.flush();
+    }
+
+    static RDFFormat getFormat(MediaType mediaType) {
+        if (mediaType != null) {
+            switch (mediaType.getType() + "/" + mediaType.getSubtype()) {
+                case "text/turtle":
+                    return RDFFormat.TURTLE_BLOCKS;
+                case "application/n-triples":
+                    return RDFFormat.NTRIPLES;
+                case "application/rdf+thrift":
+                    return RDFFormat.RDF_THRIFT;
+                default:
+                    break;
+            }
+        }
+        return RDFFormat.JSONLD;
+    }
+}
@@ -0,0 +1,80 @@
+package fi.vm.yti.datamodel.api.config;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read endpoints of the Fuseki datasets and the routing of reads to them.
+ * Configured with readRouting.&lt;setting&gt; properties, for example
+ * readRouting.replicas.core=http://fuseki-read-1:3030,http://fuseki-read-2:3030. Writes always go to the
+ * primary endpoint, and without replicas all reads go there as well.
+ */
+public class ReadRouting {
+
+    public enum Target {
+        PRIMARY,
+        REPLICA
+    }
+
+    /* Base addresses of the read endpoints of each dataset, in the same form as the primary endpoint */
+    private Map<String, List<String>> replicas = new HashMap<>();
+    /* Where reads made while serving API requests go */
+    private Target interactive = Target.REPLICA;
+    /* Where reads of exports, reindexing and other bulk operations go */
+    private Target bulk = Target.REPLICA;
+    /* Seconds reads of a user go to the primary after the user has written */
+    private long stickiness = 10;
+    /* Milliseconds between health checks of the replicas */
+    private long healthCheckInterval = 10000;
+
+    public Map<String, List<String>> getReplicas() {
+        return replicas;
+    }
+
+    public void setReplicas(final Map<String, List<String>> replicas) {
+        this.replicas = replicas;
+    }
+
+    /**
+     * @param dataset Dataset name, for example core
+     * @return Configured read endpoints of the dataset, possibly empty
+     */
+    public List<String> getReplicas(String dataset) {
+        List<String> endpoints = replicas.get(dataset);
+        return endpoints != null ? endpoints : new ArrayList<>();
+    }
+
+    public Target getInteractive() {
+        return interactive;
+    }
+
+    public void setInteractive(final Target interactive) {
+        this.interactive = interactive;
+    }
+
+    public Target getBulk() {
+        return bulk;
+    }
+
+    public void setBulk(final Target bulk) {
+        this.bulk = bulk;
+    }
+
+    public long getStickiness() {
+        return stickiness;
+    }
+
+    public void setStickiness(final long stickiness) {
+        this.stickiness = stickiness;
+    }
+
+    public long getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+
+    public void setHealthCheckInterval(final long healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+    }
+}
@@ -0,0 +1,70 @@
+package fi.vm.yti.datamodel.api.config;
+
+/**
+ * Concurrency limit, timeouts and circuit breaker settings of an upstream service.
+ * Configured with upstreamPolicies.&lt;upstream&gt;.&lt;setting&gt; properties, for example
+ * upstreamPolicies.fuseki.maxConcurrent=50. Upstreams without configuration use the defaults.
+ */
+public class UpstreamPolicy {
+
+    /* Calls that may be in flight at the same time */
+    private int maxConcurrent = 20;
+    /* Milliseconds a call waits for a free slot before it is rejected */
+    private long acquireTimeout = 1000;
+    /* Connect timeout in milliseconds */
+    private int connectTimeout = 5000;
+    /* Read timeout in milliseconds */
+    private int timeout = 30000;
+    /* Consecutive failures that open the circuit */
+    private int failureThreshold = 5;
+    /* Seconds the circuit stays open before a trial call is let through */
+    private long openDuration = 30;
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public void setMaxConcurrent(final int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+    }
+
+    public long getAcquireTimeout() {
+        return acquireTimeout;
+    }
+
+    public void setAcquireTimeout(final long acquireTimeout) {
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(final int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(final int timeout) {
+        this.timeout = timeout;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public void setFailureThreshold(final int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public long getOpenDuration() {
+        return openDuration;
+    }
+
+    public void setOpenDuration(final long openDuration) {
+        this.openDuration = openDuration;
+    }
+}
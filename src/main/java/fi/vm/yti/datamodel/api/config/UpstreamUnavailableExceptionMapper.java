@@ -0,0 +1,19 @@
+package fi.vm.yti.datamodel.api.config;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.ExceptionMapper;
+import javax.ws.rs.ext.Provider;
+
+import fi.vm.yti.datamodel.api.service.UpstreamUnavailableException;
+
+@Provider
+class UpstreamUnavailableExceptionMapper implements ExceptionMapper<UpstreamUnavailableException> {
+    @Override
+    public Response toResponse(final UpstreamUnavailableException ex) {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, ex.getRetryAfterSeconds())
+            .entity(ex.getMessage())
+            .type("text/plain").build();
+    }
+}
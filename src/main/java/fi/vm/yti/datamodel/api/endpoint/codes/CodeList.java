@@ -29,20 +29,26 @@ import javax.ws.rs.core.Response;
 @Tag(name = "Codes")
 public class CodeList {
 
-    private final EndpointServices endpointServices;
+    private final JenaClient jenaClient;
     private final ApplicationProperties applicationProperties;
     private final JerseyResponseManager jerseyResponseManager;
     private final CodeSchemeManager codeSchemeManager;
+    private final UpstreamMetrics upstreamMetrics;
+    private final UpstreamGuard upstreamGuard;
 
     @Autowired
-    CodeList(EndpointServices endpointServices,
+    CodeList(JenaClient jenaClient,
              ApplicationProperties applicationProperties,
              CodeSchemeManager codeSchemeManager,
-             JerseyResponseManager jerseyResponseManager) {
-        this.endpointServices = endpointServices;
+             JerseyResponseManager jerseyResponseManager,
+             UpstreamMetrics upstreamMetrics,
+             UpstreamGuard upstreamGuard) {
+        this.jenaClient = jenaClient;
         this.applicationProperties = applicationProperties;
         this.jerseyResponseManager = jerseyResponseManager;
         this.codeSchemeManager = codeSchemeManager;
+        this.upstreamMetrics = upstreamMetrics;
+        this.upstreamGuard = upstreamGuard;
     }
 
     @GET
@@ -61,10 +67,10 @@ public class CodeList {
         }
 
         if (uri.startsWith("https://koodistot.suomi.fi")) {
-            SuomiCodeServer suomiCodeServer = new SuomiCodeServer("https://koodistot.suomi.fi", applicationProperties.getDefaultSuomiCodeServerAPI(), endpointServices, codeSchemeManager);
+            SuomiCodeServer suomiCodeServer = new SuomiCodeServer("https://koodistot.suomi.fi", applicationProperties.getDefaultSuomiCodeServerAPI(), jenaClient, codeSchemeManager, upstreamMetrics, upstreamGuard);
             suomiCodeServer.updateCodeSchemeList();
         } else if (uri.startsWith("https://virkailija.opintopolku.fi")) {
-            OPHCodeServer codeServer = new OPHCodeServer("https://virkailija.opintopolku.fi/koodisto-service/rest/json/", endpointServices);
+            OPHCodeServer codeServer = new OPHCodeServer("https://virkailija.opintopolku.fi/koodisto-service/rest/json/", jenaClient, upstreamMetrics, upstreamGuard);
             codeServer.updateCodelistsFromServer();
         } else {
             return jerseyResponseManager.invalidParameter();
@@ -27,20 +27,26 @@ import javax.ws.rs.core.Response.ResponseBuilder;
 @Tag(name = "Codes")
 public class Codes {
 
-    private final EndpointServices endpointServices;
+    private final JenaClient jenaClient;
     private final JerseyResponseManager jerseyResponseManager;
     private final ApplicationProperties applicationProperties;
     private final CodeSchemeManager codeSchemeManager;
+    private final UpstreamMetrics upstreamMetrics;
+    private final UpstreamGuard upstreamGuard;
 
     @Autowired
-    Codes(EndpointServices endpointServices,
+    Codes(JenaClient jenaClient,
           JerseyResponseManager jerseyResponseManager,
           ApplicationProperties applicationProperties,
-          CodeSchemeManager codeSchemeManager) {
-        this.endpointServices = endpointServices;
+          CodeSchemeManager codeSchemeManager,
+          UpstreamMetrics upstreamMetrics,
+          UpstreamGuard upstreamGuard) {
+        this.jenaClient = jenaClient;
         this.jerseyResponseManager = jerseyResponseManager;
         this.applicationProperties = applicationProperties;
         this.codeSchemeManager = codeSchemeManager;
+        this.upstreamMetrics = upstreamMetrics;
+        this.upstreamGuard = upstreamGuard;
     }
 
     @GET
@@ -55,10 +61,10 @@ public class Codes {
         @Parameter(description = "uri", required = true)
         @QueryParam("uri") String uri) {
         if (uri.startsWith("http://uri.suomi.fi")) {
-            SuomiCodeServer codeServer = new SuomiCodeServer("https://koodistot.suomi.fi", applicationProperties.getDefaultSuomiCodeServerAPI(), endpointServices, codeSchemeManager);
+            SuomiCodeServer codeServer = new SuomiCodeServer("https://koodistot.suomi.fi", applicationProperties.getDefaultSuomiCodeServerAPI(), jenaClient, codeSchemeManager, upstreamMetrics, upstreamGuard);
             codeServer.updateCodes(uri);
         } else if (uri.startsWith("https://virkailija.opintopolku.fi")) {
-            OPHCodeServer codeServer = new OPHCodeServer("https://virkailija.opintopolku.fi/koodisto-service/rest/json/", endpointServices);
+            OPHCodeServer codeServer = new OPHCodeServer("https://virkailija.opintopolku.fi/koodisto-service/rest/json/", jenaClient, upstreamMetrics, upstreamGuard);
             if (!codeServer.containsCodeList(uri)) {
                 codeServer.updateCodes(uri);
             }
@@ -91,9 +97,9 @@ public class Codes {
         ResponseBuilder rb;
 
         if (uri.startsWith("http://uri.suomi.fi")) {
-            SuomiCodeServer codeServer = new SuomiCodeServer("https://koodistot.suomi.fi", applicationProperties.getDefaultSuomiCodeServerAPI(), endpointServices, codeSchemeManager);
+            SuomiCodeServer codeServer = new SuomiCodeServer("https://koodistot.suomi.fi", applicationProperties.getDefaultSuomiCodeServerAPI(), jenaClient, codeSchemeManager, upstreamMetrics, upstreamGuard);
         } else if (uri.startsWith("https://virkailija.opintopolku.fi")) {
-            OPHCodeServer codeServer = new OPHCodeServer("https://virkailija.opintopolku.fi/koodisto-service/rest/json/", endpointServices);
+            OPHCodeServer codeServer = new OPHCodeServer("https://virkailija.opintopolku.fi/koodisto-service/rest/json/", jenaClient, upstreamMetrics, upstreamGuard);
             codeServer.updateCodes(uri);
         } else {
             return jerseyResponseManager.invalidParameter();
@@ -1,5 +1,6 @@
 package fi.vm.yti.datamodel.api.endpoint.genericapi;
 
+import fi.vm.yti.datamodel.api.config.CachePolicy;
 import fi.vm.yti.datamodel.api.service.JerseyResponseManager;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -31,6 +32,7 @@ public class Config {
     ServletContext context;
 
     @GET
+    @CachePolicy(CachePolicy.STATIC)
     @Operation(description = "Returns API config")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "OK")
@@ -1,32 +1,25 @@
 package fi.vm.yti.datamodel.api.endpoint.genericapi;
 
-import java.io.ByteArrayOutputStream;
-import java.io.OutputStream;
-import java.util.HashMap;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.Response;
 
-import org.apache.jena.query.Query;
-import org.apache.jena.query.QueryExecution;
-import org.apache.jena.query.QueryExecutionFactory;
-import org.apache.jena.query.QueryFactory;
-import org.apache.jena.query.QuerySolution;
-import org.apache.jena.query.ResultSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-import fi.vm.yti.datamodel.api.service.EndpointServices;
-import fi.vm.yti.datamodel.api.utils.LDHelper;
+import fi.vm.yti.datamodel.api.service.CountManager;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -36,69 +29,59 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 @Tag(name = "System")
 public class Count {
 
-    private final EndpointServices endpointServices;
     private final ObjectMapper objectMapper;
+    private final CountManager countManager;
     private static final Logger logger = LoggerFactory.getLogger(Count.class.getName());
 
     @Autowired
-    Count(EndpointServices endpointServices,
-          ObjectMapper objectMapper) {
-        this.endpointServices = endpointServices;
+    Count(ObjectMapper objectMapper,
+          CountManager countManager) {
         this.objectMapper = objectMapper;
+        this.countManager = countManager;
     }
 
     @GET
     @Produces("application/json")
     @Operation(description = "Counts objects in database")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "400", description = "Query parse error"),
+        @ApiResponse(responseCode = "400", description = "Unknown count dimension"),
         @ApiResponse(responseCode = "500", description = "Query exception"),
+        @ApiResponse(responseCode = "503", description = "Counts have not been loaded yet"),
         @ApiResponse(responseCode = "200", description = "OK")
     })
-    public Response counts() {
-
-        String queryString = LDHelper.prefix + "SELECT ?type (COUNT(?g) as ?gc) " +
-            "WHERE { " +
-            "GRAPH ?g { " +
-            "?g a ?type . " +
-            "VALUES ?type { " +
-            "dcap:DCAP dcap:MetadataVocabulary " +
-            "rdfs:Class sh:NodeShape " +
-            "owl:ObjectProperty owl:DatatypeProperty } " +
-            "}} GROUP BY ?type";
-
-        Query query = QueryFactory.create(queryString);
-
-        Map mapping = new HashMap<String,String>();
-        mapping.put(LDHelper.curieToURI("dcap:DCAP"),"profiles");
-        mapping.put(LDHelper.curieToURI("dcap:MetadataVocabulary"),"libraries");
-        mapping.put(LDHelper.curieToURI("rdfs:Class"),"classes");
-        mapping.put(LDHelper.curieToURI("sh:NodeShape"),"shapes");
-        mapping.put(LDHelper.curieToURI("owl:ObjectProperty"),"associations");
-        mapping.put(LDHelper.curieToURI("owl:DatatypeProperty"),"attributes");
-
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), query)) {
-            ResultSet results = qexec.execSelect();
-            List<String> resultVars = results.getResultVars();
-
-            Map object = new HashMap<String, String>();
-            OutputStream outs = new ByteArrayOutputStream();
-
-            while(results.hasNext()) {
-                QuerySolution soln = results.next();
-                String key = (String) mapping.get(soln.get("type").asResource().getURI());
-                String val = soln.get("gc").asLiteral().getString();
-                object.put(key,val);
+    public Response counts(
+        @Parameter(description = "Count only given model and its resources") @QueryParam("model") String model,
+        @Parameter(description = "Count only given status") @QueryParam("status") String status,
+        @Parameter(description = "Count only models and resources of given organization UUID") @QueryParam("organization") String organization,
+        @Parameter(description = "Group counts by model, status or organization") @QueryParam("by") String by) {
+
+        try {
+            Object object;
+
+            if (by != null && !by.isEmpty()) {
+                Map<String, Map<String, String>> grouped = new LinkedHashMap<>();
+                countManager.getCountsBy(by, model, status, organization).forEach((key, counts) -> grouped.put(key, asStrings(counts)));
+                object = grouped;
+            } else {
+                object = asStrings(countManager.getCounts(model, status, organization));
             }
 
             return Response
                 .ok(objectMapper.writeValueAsString(object), "application/json")
                 .build();
 
-        } catch (Exception ex) {
+        } catch (JsonProcessingException ex) {
             logger.warn(ex.getMessage());
             return Response.status(500).build();
         }
     }
 
+    /**
+     * Counts have been returned as strings since they were read from SPARQL results
+     */
+    private static Map<String, String> asStrings(Map<String, Long> counts) {
+        Map<String, String> object = new LinkedHashMap<>();
+        counts.forEach((type, count) -> object.put(type, count.toString()));
+        return object;
+    }
 }
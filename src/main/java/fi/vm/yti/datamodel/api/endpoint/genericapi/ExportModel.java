@@ -1,5 +1,6 @@
 package fi.vm.yti.datamodel.api.endpoint.genericapi;
 
+import fi.vm.yti.datamodel.api.config.CachePolicy;
 import fi.vm.yti.datamodel.api.service.*;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -11,9 +12,14 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.Date;
+
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 
 import org.slf4j.Logger;
@@ -33,6 +39,9 @@ public class ExportModel {
     private final JsonSchemaWriter jsonSchemaWriter;
     private final OpenAPIWriter openAPIWriter;
     private final XMLSchemaWriter xmlSchemaWriter;
+    private final GraphManager graphManager;
+    private final HttpCacheManager httpCacheManager;
+    private final ReadRouter readRouter;
     private final String rawContentType = "text/plain;charset=utf-8";
 
     @Autowired
@@ -42,7 +51,10 @@ public class ExportModel {
                 ContextWriter contextWriter,
                 JsonSchemaWriter jsonSchemaWriter,
                 OpenAPIWriter openAPIWriter,
-                XMLSchemaWriter xmlSchemaWriter) {
+                XMLSchemaWriter xmlSchemaWriter,
+                GraphManager graphManager,
+                HttpCacheManager httpCacheManager,
+                ReadRouter readRouter) {
         this.idManager = idManager;
         this.jerseyResponseManager = jerseyResponseManager;
         this.jerseyClient = jerseyClient;
@@ -50,6 +62,9 @@ public class ExportModel {
         this.jsonSchemaWriter = jsonSchemaWriter;
         this.openAPIWriter = openAPIWriter;
         this.xmlSchemaWriter = xmlSchemaWriter;
+        this.graphManager = graphManager;
+        this.httpCacheManager = httpCacheManager;
+        this.readRouter = readRouter;
     }
 
     @GET
@@ -60,11 +75,13 @@ public class ExportModel {
         @ApiResponse(responseCode = "404", description = "Service not found"),
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
+    @SuppressWarnings("try")
     public Response getExportModel(
         @Parameter(description = "Requested resource", schema = @Schema(defaultValue = "default")) @QueryParam("graph") String graph,
         @Parameter(description = "Raw / PlainText boolean", schema = @Schema(defaultValue = "false")) @QueryParam("raw") boolean raw,
         @Parameter(description = "Languages to export") @QueryParam("lang") String lang,
-        @Parameter(description = "Content-type", required = true, schema = @Schema(allowableValues = {"application/ld+json","text/turtle","application/rdf+xml","application/ld+json+context","application/schema+json","application/xml","application/vnd.oai.openapi+json"})) @QueryParam("content-type") String ctype) {
+        @Parameter(description = "Content-type", required = true, schema = @Schema(allowableValues = {"application/ld+json","text/turtle","application/rdf+xml","application/ld+json+context","application/schema+json","application/xml","application/vnd.oai.openapi+json"})) @QueryParam("content-type") String ctype,
+        @Context Request request) {
 
         /* Check that URIs are valid */
         if (idManager.isInvalid(graph)) {
@@ -81,6 +98,25 @@ public class ExportModel {
 
         logger.info("Exporting format: " + ctype);
 
+        /* Exports of VALID models rarely change and can be cached, others are revalidated on every request */
+        Date modified = graphManager.graphModified(graph);
+        EntityTag etag = httpCacheManager.entityTag(modified, graph, raw, lang, ctype);
+        String cachePolicy = "VALID".equals(graphManager.getModelStatus(graph)) ? CachePolicy.PUBLISHED : CachePolicy.REVALIDATE;
+
+        Response notModified = httpCacheManager.notModified(request, modified, etag, cachePolicy);
+        if (notModified != null) {
+            return notModified;
+        }
+
+        try (ReadRouter.Scope scope = readRouter.bulkReads()) {
+            return httpCacheManager.withValidators(export(graph, raw, lang, ctype), modified, etag, cachePolicy);
+        }
+    }
+
+    private Response export(String graph,
+                            boolean raw,
+                            String lang,
+                            String ctype) {
         if (ctype.equals("application/ld+json+context")) {
             String context = contextWriter.newModelContext(graph);
             if (context != null) {
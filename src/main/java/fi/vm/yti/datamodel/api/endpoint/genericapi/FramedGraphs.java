@@ -3,8 +3,10 @@
  */
 package fi.vm.yti.datamodel.api.endpoint.genericapi;
 
+import fi.vm.yti.datamodel.api.config.CachePolicy;
 import fi.vm.yti.datamodel.api.index.FrameManager;
 import fi.vm.yti.datamodel.api.service.GraphManager;
+import fi.vm.yti.datamodel.api.service.HttpCacheManager;
 import fi.vm.yti.datamodel.api.service.IDManager;
 import fi.vm.yti.datamodel.api.service.JerseyResponseManager;
 import io.swagger.v3.oas.annotations.Operation;
@@ -20,6 +22,9 @@ import javax.ws.rs.NotFoundException;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 
 import org.slf4j.Logger;
@@ -36,17 +41,20 @@ public class FramedGraphs {
     private final JerseyResponseManager jerseyResponseManager;
     private final FrameManager frameManager;
     private final GraphManager graphManager;
+    private final HttpCacheManager httpCacheManager;
     Logger logger = LoggerFactory.getLogger(FramedGraphs.class);
 
     @Autowired
     FramedGraphs(IDManager idManager,
                  JerseyResponseManager jerseyResponseManager,
                  FrameManager frameManager,
-                 GraphManager graphManager) {
+                 GraphManager graphManager,
+                 HttpCacheManager httpCacheManager) {
         this.idManager = idManager;
         this.jerseyResponseManager = jerseyResponseManager;
         this.frameManager = frameManager;
         this.graphManager = graphManager;
+        this.httpCacheManager = httpCacheManager;
     }
 
     @GET
@@ -58,7 +66,8 @@ public class FramedGraphs {
     })
     public Response getFramedGraphs(
         @Parameter(description = "Graph id")
-        @QueryParam("graph") String graph) {
+        @QueryParam("graph") String graph,
+        @Context Request request) {
 
         /* Check that URI is valid */
         if (idManager.isInvalid(graph)) {
@@ -66,9 +75,16 @@ public class FramedGraphs {
         }
         try {
             Date contentModified = graphManager.modelContentModified(graph);
+            EntityTag etag = httpCacheManager.entityTag(contentModified, graph);
+
+            Response notModified = httpCacheManager.notModified(request, contentModified, etag, CachePolicy.REVALIDATE);
+            if (notModified != null) {
+                return notModified;
+            }
+
             String frame = frameManager.getCachedClassVisualizationFrame(graph, contentModified);
 
-            return Response.ok(frame, "application/json").build();
+            return httpCacheManager.withValidators(Response.ok(frame, "application/json").build(), contentModified, etag, CachePolicy.REVALIDATE);
         } catch (NotFoundException fex) {
             return Response.status(Response.Status.BAD_REQUEST).build();
         } catch (Exception ex) {
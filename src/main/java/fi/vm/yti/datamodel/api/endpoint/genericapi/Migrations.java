@@ -0,0 +1,77 @@
+package fi.vm.yti.datamodel.api.endpoint.genericapi;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Response;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fi.vm.yti.datamodel.api.migration.BatchedMigrationRunner;
+import fi.vm.yti.datamodel.api.model.MigrationJobDTO;
+import fi.vm.yti.datamodel.api.security.AuthorizationManager;
+import fi.vm.yti.datamodel.api.service.JerseyResponseManager;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@Component
+@Path("v1/migrations")
+@Tag(name = "Admin")
+public class Migrations {
+
+    private static final Logger logger = LoggerFactory.getLogger(Migrations.class.getName());
+
+    private final BatchedMigrationRunner batchedMigrationRunner;
+    private final AuthorizationManager authorizationManager;
+    private final JerseyResponseManager jerseyResponseManager;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    Migrations(BatchedMigrationRunner batchedMigrationRunner,
+               AuthorizationManager authorizationManager,
+               JerseyResponseManager jerseyResponseManager,
+               ObjectMapper objectMapper) {
+        this.batchedMigrationRunner = batchedMigrationRunner;
+        this.authorizationManager = authorizationManager;
+        this.jerseyResponseManager = jerseyResponseManager;
+        this.objectMapper = objectMapper;
+    }
+
+    @GET
+    @Produces("application/json")
+    @Operation(description = "Returns progress of batched migrations")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "OK"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "404", description = "Migration not found")
+    })
+    public Response getMigrations(@Parameter(description = "Migration task name") @QueryParam("name") String name) {
+        if (!authorizationManager.hasRightToDoMigration()) {
+            return jerseyResponseManager.unauthorized();
+        }
+
+        try {
+            if (name != null) {
+                MigrationJobDTO job = batchedMigrationRunner.getJob(name);
+                if (job == null) {
+                    return jerseyResponseManager.notFound();
+                }
+                return Response.ok(objectMapper.writeValueAsString(job), "application/json").build();
+            }
+            return Response.ok(objectMapper.writeValueAsString(batchedMigrationRunner.getJobs()), "application/json").build();
+        } catch (JsonProcessingException ex) {
+            logger.warn(ex.getMessage());
+            return jerseyResponseManager.serverError();
+        }
+    }
+}
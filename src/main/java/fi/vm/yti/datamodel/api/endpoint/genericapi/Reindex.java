@@ -1,10 +1,14 @@
 package fi.vm.yti.datamodel.api.endpoint.genericapi;
 
+import java.io.IOException;
+
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Response;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -13,6 +17,7 @@ import fi.vm.yti.datamodel.api.security.AuthorizationManager;
 import fi.vm.yti.datamodel.api.security.AuthorizationManagerImpl;
 import fi.vm.yti.datamodel.api.service.JerseyResponseManager;
 import fi.vm.yti.datamodel.api.service.RHPOrganizationManager;
+import fi.vm.yti.datamodel.api.service.ReferenceIndex;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
@@ -23,36 +28,64 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 @Tag(name = "Admin")
 public class Reindex {
 
+    private static final Logger logger = LoggerFactory.getLogger(Reindex.class.getName());
+
     private final SearchIndexManager searchIndexManager;
     private final RHPOrganizationManager rhpOrganizationManager;
     private final AuthorizationManager authorizationManager;
     private final JerseyResponseManager jerseyResponseManager;
+    private final ReferenceIndex referenceIndex;
 
     @Autowired
     Reindex(SearchIndexManager searchIndexManager,
             RHPOrganizationManager rhpOrganizationManager,
             AuthorizationManager authorizationManager,
-            JerseyResponseManager jerseyResponseManager) {
+            JerseyResponseManager jerseyResponseManager,
+            ReferenceIndex referenceIndex) {
         this.searchIndexManager = searchIndexManager;
         this.rhpOrganizationManager = rhpOrganizationManager;
         this.authorizationManager = authorizationManager;
         this.jerseyResponseManager = jerseyResponseManager;
+        this.referenceIndex = referenceIndex;
     }
 
     @GET
     @Produces("application/json")
     @Operation(description = "Starts ES reindexing")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "200", description = "OK")
+        @ApiResponse(responseCode = "200", description = "OK"),
+        @ApiResponse(responseCode = "500", description = "Indexes could not be re-created")
     })
     public Response reIndexElasticSearchIndexes() {
         if (!authorizationManager.hasRightToDropDatabase()) {
             return jerseyResponseManager.unauthorized();
         }
 
-        searchIndexManager.reindex();
+        try {
+            searchIndexManager.reindex();
+        } catch (IOException ex) {
+            logger.warn("Reindex failed!", ex);
+            return jerseyResponseManager.serverError();
+        }
 
         return Response.ok().build();
 
     }
+
+    @GET
+    @Path("references")
+    @Produces("application/json")
+    @Operation(description = "Rebuilds reverse reference index used by usage queries")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "OK")
+    })
+    public Response reIndexReferences() {
+        if (!authorizationManager.hasRightToDropDatabase()) {
+            return jerseyResponseManager.unauthorized();
+        }
+
+        referenceIndex.rebuild();
+
+        return Response.ok().build();
+    }
 }
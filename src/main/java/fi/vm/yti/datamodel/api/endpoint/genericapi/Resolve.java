@@ -1,8 +1,10 @@
 package fi.vm.yti.datamodel.api.endpoint.genericapi;
 
 import fi.vm.yti.datamodel.api.config.ApplicationProperties;
-import fi.vm.yti.datamodel.api.service.GraphManager;
+import fi.vm.yti.datamodel.api.config.CachePolicy;
 import fi.vm.yti.datamodel.api.service.JerseyResponseManager;
+import fi.vm.yti.datamodel.api.service.ModelResolverIndex;
+import fi.vm.yti.datamodel.api.service.ModelResolverIndex.ResolvedModel;
 import fi.vm.yti.datamodel.api.utils.LDHelper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -38,15 +40,15 @@ public class Resolve {
     private static final Logger logger = LoggerFactory.getLogger(Resolve.class);
     private static final String SUOMI_URI_HOST = "uri.suomi.fi";
     private static final String API_PATH_DATAMODEL = "/datamodel/ns/";
-    private final GraphManager graphManager;
+    private final ModelResolverIndex modelResolverIndex;
     private final JerseyResponseManager jerseyResponseManager;
     private final ApplicationProperties applicationProperties;
 
     @Autowired
-    Resolve(GraphManager graphManager,
+    Resolve(ModelResolverIndex modelResolverIndex,
             JerseyResponseManager jerseyResponseManager,
             ApplicationProperties applicationProperties) {
-        this.graphManager = graphManager;
+        this.modelResolverIndex = modelResolverIndex;
         this.jerseyResponseManager = jerseyResponseManager;
         this.applicationProperties = applicationProperties;
 
@@ -56,6 +58,7 @@ public class Resolve {
     UriInfo uriInfo;
 
     @GET
+    @CachePolicy(value = CachePolicy.SHORT_LIVED, vary = { "Accept", "Accept-Language" })
     @Operation(description = "Redirect URI resource.")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "303", description = "Does a redirect from datamodel resource URI to datamodel API or frontend."),
@@ -79,13 +82,16 @@ public class Resolve {
 
         logger.debug("Resolving: " + uri);
 
-        final String graphName = graphManager.getServiceGraphNameWithPrefix(graphPrefix);
+        final ResolvedModel resolvedModel = modelResolverIndex.resolve(graphPrefix);
 
-        if (graphName == null) {
-            logger.info("Graph not found: " + graphName);
+        if (resolvedModel == null) {
+            logger.info("Graph not found: " + graphPrefix);
             return Response.status(404).build();
         }
 
+        final String graphName = resolvedModel.getGraph();
+        final Date modified = resolvedModel.getModified();
+
         if (ifModifiedSince != null) {
             logger.debug("If-Modified-Since: " + ifModifiedSince);
             Date modifiedSince = DateUtils.parseDate(ifModifiedSince);
@@ -93,11 +99,9 @@ public class Resolve {
                 logger.warn("Could not parse If-Modified-Since");
                 return jerseyResponseManager.invalidParameter();
             }
-            Date modified = graphManager.modelContentModified(graphName);
-            if (modified != null) {
-                if (modifiedSince.after(modified)) {
-                    return Response.notModified().header("Last-Modified", DateUtils.formatDate(modified)).build();
-                }
+            /* HTTP dates have second precision */
+            if (modified != null && modified.getTime() / 1000 <= modifiedSince.getTime() / 1000) {
+                return Response.notModified().header("Last-Modified", DateUtils.formatDate(modified)).build();
             }
         }
 
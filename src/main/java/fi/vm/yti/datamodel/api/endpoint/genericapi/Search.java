@@ -38,7 +38,7 @@ public class Search {
     }
 
     @GET
-    @Produces("application/ld+json")
+    @Produces({ "application/ld+json", "text/turtle", "application/n-triples", "application/rdf+thrift" })
     @Operation(description = "Search resources")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "400", description = "Query parse error"),
@@ -1,5 +1,6 @@
 package fi.vm.yti.datamodel.api.endpoint.genericapi;
 
+import fi.vm.yti.datamodel.api.config.CachePolicy;
 import fi.vm.yti.datamodel.api.service.EndpointServices;
 import fi.vm.yti.datamodel.api.model.ServiceCategory;
 import fi.vm.yti.datamodel.api.service.JerseyClient;
@@ -35,6 +36,7 @@ public class ServiceCategories {
     }
 
     @GET
+    @CachePolicy(value = CachePolicy.STATIC, vary = "Accept")
     @Produces({ "application/json", "application/ld+json" })
     @Operation(description = "Returns list of service categories")
     @ApiResponses(value = {
@@ -0,0 +1,90 @@
+package fi.vm.yti.datamodel.api.endpoint.genericapi;
+
+import javax.ws.rs.DELETE;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Response;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fi.vm.yti.datamodel.api.security.AuthorizationManager;
+import fi.vm.yti.datamodel.api.service.JerseyResponseManager;
+import fi.vm.yti.datamodel.api.service.SparqlQueryLog;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@Component
+@Path("v1/slowQueries")
+@Tag(name = "Admin")
+public class SlowQueries {
+
+    private static final Logger logger = LoggerFactory.getLogger(SlowQueries.class.getName());
+
+    private final SparqlQueryLog sparqlQueryLog;
+    private final AuthorizationManager authorizationManager;
+    private final JerseyResponseManager jerseyResponseManager;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    SlowQueries(SparqlQueryLog sparqlQueryLog,
+                AuthorizationManager authorizationManager,
+                JerseyResponseManager jerseyResponseManager,
+                ObjectMapper objectMapper) {
+        this.sparqlQueryLog = sparqlQueryLog;
+        this.authorizationManager = authorizationManager;
+        this.jerseyResponseManager = jerseyResponseManager;
+        this.objectMapper = objectMapper;
+    }
+
+    @GET
+    @Produces("application/json")
+    @Operation(description = "Returns SPARQL query templates with the highest execution times")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "OK"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public Response getSlowQueries(
+        @Parameter(description = "Number of query templates") @QueryParam("limit") @DefaultValue("20") int limit,
+        @Parameter(description = "Sort by total, max, mean or count") @QueryParam("sortBy") @DefaultValue("total") String sortBy) {
+        if (!authorizationManager.hasRightToDropDatabase()) {
+            return jerseyResponseManager.unauthorized();
+        }
+
+        try {
+            return Response
+                .ok(objectMapper.writeValueAsString(sparqlQueryLog.getTopQueries(limit, sortBy)), "application/json")
+                .build();
+        } catch (JsonProcessingException ex) {
+            logger.warn(ex.getMessage());
+            return jerseyResponseManager.serverError();
+        }
+    }
+
+    @DELETE
+    @Operation(description = "Clears collected SPARQL query statistics")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "OK"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    public Response resetSlowQueries() {
+        if (!authorizationManager.hasRightToDropDatabase()) {
+            return jerseyResponseManager.unauthorized();
+        }
+
+        sparqlQueryLog.reset();
+
+        return Response.ok().build();
+    }
+}
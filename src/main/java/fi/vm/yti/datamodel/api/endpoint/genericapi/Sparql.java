@@ -2,6 +2,7 @@ package fi.vm.yti.datamodel.api.endpoint.genericapi;
 
 import fi.vm.yti.datamodel.api.security.AuthorizationManager;
 import fi.vm.yti.datamodel.api.service.EndpointServices;
+import fi.vm.yti.datamodel.api.service.JenaClient;
 import fi.vm.yti.datamodel.api.security.AuthorizationManagerImpl;
 import fi.vm.yti.datamodel.api.service.JerseyResponseManager;
 import fi.vm.yti.datamodel.api.utils.LDHelper;
@@ -35,14 +36,17 @@ public class Sparql {
     private final AuthorizationManager authorizationManager;
     private final EndpointServices endpointServices;
     private final JerseyResponseManager jerseyResponseManager;
+    private final JenaClient jenaClient;
 
     @Autowired
     Sparql(AuthorizationManager authorizationManager,
            EndpointServices endpointServices,
-           JerseyResponseManager jerseyResponseManager) {
+           JerseyResponseManager jerseyResponseManager,
+           JenaClient jenaClient) {
         this.authorizationManager = authorizationManager;
         this.endpointServices = endpointServices;
         this.jerseyResponseManager = jerseyResponseManager;
+        this.jenaClient = jenaClient;
     }
 
     @GET
@@ -72,7 +76,7 @@ public class Sparql {
             return Response.status(400).build();
         }
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getSparqlAddress(service), query)) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getSparqlAddress(service), query)) {
 
             OutputStream outs = new ByteArrayOutputStream();
             ResultSet results = qexec.execSelect();
@@ -120,7 +124,7 @@ public class Sparql {
             return Response.status(400).build();
         }
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getSparqlAddress(service), query)) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getSparqlAddress(service), query)) {
 
             OutputStream outs = new ByteArrayOutputStream();
             Model results = qexec.execConstruct();
@@ -161,8 +165,7 @@ public class Sparql {
 
         try {
             UpdateRequest queryObj = UpdateFactory.create(query);
-            UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getSparqlUpdateAddress(service));
-            qexec.execute();
+            jenaClient.updateToService(queryObj, endpointServices.getSparqlUpdateAddress(service));
         } catch (UpdateException | QueryParseException ex) {
             return Response.status(400).build();
         }
@@ -76,6 +76,7 @@ public class Containers {
         @Parameter(description = "Search") @QueryParam("searchTerm") String search,
         @Parameter(description = "Pagesize") @QueryParam("pageSize") Integer pageSize,
         @Parameter(description = "From") @QueryParam("from") Integer from,
+        @Parameter(description = "Continuation token from previous page or * to start paging with cursor") @QueryParam("cursor") String cursor,
         @Parameter(description = "Include incomplete") @QueryParam("includeIncomplete") boolean includeIncomplete,
         @Parameter(description = "Include incomplete from organization") @QueryParam("includeIncompleteFrom") String includeIncompleteFrom) {
 
@@ -92,6 +93,7 @@ public class Containers {
         }
 
         IntegrationContainerRequest req = new IntegrationContainerRequest(searchIndexManager.parseStringList(uri), search, lang, searchIndexManager.parseStringList(status), type, afterDate, beforeDate, null, pageSize, from, includeIncomplete, searchIndexManager.parseStringList(includeIncompleteFrom));
+        req.setCursor(cursor);
         IntegrationAPIResponse resp = searchIndexManager.searchContainers(req,path);
         return jerseyResponseManager.ok(objectMapper.valueToTree(resp));
 
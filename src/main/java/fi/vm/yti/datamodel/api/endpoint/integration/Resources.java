@@ -74,7 +74,8 @@ public class Resources {
         @Parameter(description = "Before as ISO8601 Timestamp") @QueryParam("before") String before,
         @Parameter(description = "Search") @QueryParam("searchTerm") String search,
         @Parameter(description = "Pagesize") @QueryParam("pageSize") Integer pageSize,
-        @Parameter(description = "From") @QueryParam("from") Integer from) {
+        @Parameter(description = "From") @QueryParam("from") Integer from,
+        @Parameter(description = "Continuation token from previous page or * to start paging with cursor") @QueryParam("cursor") String cursor) {
 
         Date afterDate = null;
         if(after!=null && !after.isEmpty()) {
@@ -88,6 +89,7 @@ public class Resources {
 
         String path = uriInfo.getAbsolutePath().toString();
         IntegrationResourceRequest req = new IntegrationResourceRequest(searchIndexManager.parseStringList(uri), search,lang,searchIndexManager.parseStringList(container),searchIndexManager.parseStringList(status),type,afterDate,beforeDate,null,pageSize,from);
+        req.setCursor(cursor);
         IntegrationAPIResponse apiResp = searchIndexManager.searchResources(req,path);
         return jerseyResponseManager.ok(objectMapper.valueToTree(apiResp));
 
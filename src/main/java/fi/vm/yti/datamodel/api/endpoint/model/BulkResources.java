@@ -0,0 +1,241 @@
+/*
+ * Licensed under the European Union Public Licence (EUPL) V.1.1
+ */
+package fi.vm.yti.datamodel.api.endpoint.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Response;
+
+import org.apache.jena.iri.IRI;
+import org.apache.jena.iri.IRIException;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.shared.PropertyNotFoundException;
+import org.apache.jena.vocabulary.OWL;
+import org.apache.jena.vocabulary.RDF;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+import fi.vm.yti.datamodel.api.index.SearchIndexManager;
+import fi.vm.yti.datamodel.api.model.AbstractClass;
+import fi.vm.yti.datamodel.api.model.AbstractPredicate;
+import fi.vm.yti.datamodel.api.model.AbstractResource;
+import fi.vm.yti.datamodel.api.model.DataModel;
+import fi.vm.yti.datamodel.api.model.ReusableClass;
+import fi.vm.yti.datamodel.api.model.ReusablePredicate;
+import fi.vm.yti.datamodel.api.security.AuthorizationManager;
+import fi.vm.yti.datamodel.api.service.GraphManager;
+import fi.vm.yti.datamodel.api.service.IDManager;
+import fi.vm.yti.datamodel.api.service.JerseyResponseManager;
+import fi.vm.yti.datamodel.api.service.ModelManager;
+import fi.vm.yti.datamodel.api.service.ProvenanceManager;
+import fi.vm.yti.security.AuthenticatedUserProvider;
+import fi.vm.yti.security.YtiUser;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+/**
+ * Updates many existing classes and predicates of one model in a single request. Authorization is checked once
+ * for the model, resource graphs and the export graph are written with one update, provenance with another and
+ * the search index with one bulk request. Batches larger than bulkResourcesMaxBatchSize are rejected, as they are
+ * built into a single update request.
+ */
+@Component
+@Path("v1/bulkResources")
+@Tag(name = "Model")
+public class BulkResources {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkResources.class.getName());
+
+    private final AuthorizationManager authorizationManager;
+    private final AuthenticatedUserProvider userProvider;
+    private final IDManager idManager;
+    private final JerseyResponseManager jerseyResponseManager;
+    private final GraphManager graphManager;
+    private final ProvenanceManager provenanceManager;
+    private final ModelManager modelManager;
+    private final SearchIndexManager searchIndexManager;
+    private final ObjectMapper objectMapper;
+    private final int maxBatchSize;
+
+    @Autowired
+    BulkResources(AuthorizationManager authorizationManager,
+                  AuthenticatedUserProvider userProvider,
+                  IDManager idManager,
+                  JerseyResponseManager jerseyResponseManager,
+                  GraphManager graphManager,
+                  ProvenanceManager provenanceManager,
+                  ModelManager modelManager,
+                  SearchIndexManager searchIndexManager,
+                  ObjectMapper objectMapper,
+                  ApplicationProperties properties) {
+
+        this.authorizationManager = authorizationManager;
+        this.userProvider = userProvider;
+        this.idManager = idManager;
+        this.jerseyResponseManager = jerseyResponseManager;
+        this.graphManager = graphManager;
+        this.provenanceManager = provenanceManager;
+        this.modelManager = modelManager;
+        this.searchIndexManager = searchIndexManager;
+        this.objectMapper = objectMapper;
+        this.maxBatchSize = properties.getBulkResourcesMaxBatchSize();
+    }
+
+    @POST
+    @Consumes("application/json")
+    @Produces("application/json")
+    @Operation(description = "Update existing classes and predicates of a model")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Resources were updated, returns IDs and provenance IDs"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "403", description = "Invalid model or resource graphs"),
+        @ApiResponse(responseCode = "404", description = "Resource not found"),
+        @ApiResponse(responseCode = "406", description = "Resource graph could not be parsed"),
+        @ApiResponse(responseCode = "413", description = "Too many resources in the batch")
+    })
+    public Response postResources(
+        @Parameter(description = "JSON array of class and predicate graphs in application/ld+json", required = true) String body,
+        @Parameter(description = "Model ID", required = true)
+        @QueryParam("model") String model) {
+
+        IRI modelIRI;
+
+        try {
+            modelIRI = idManager.constructIRI(model);
+        } catch (NullPointerException e) {
+            return jerseyResponseManager.invalidParameter();
+        } catch (IRIException e) {
+            return jerseyResponseManager.invalidIRI();
+        }
+
+        if (!graphManager.isExistingModel(modelIRI)) {
+            return jerseyResponseManager.notFound();
+        }
+
+        if (!authorizationManager.hasRightToEditModel(modelIRI)) {
+            return jerseyResponseManager.unauthorized();
+        }
+
+        DataModel dataModel = new DataModel(modelIRI, graphManager);
+
+        YtiUser user = userProvider.getUser();
+        List<AbstractResource> resources = new ArrayList<>();
+        Map<String, String> provUUIDs = new LinkedHashMap<>();
+
+        try {
+            JsonNode graphs = objectMapper.readTree(body);
+
+            if (graphs == null || !graphs.isArray() || graphs.size() == 0) {
+                return jerseyResponseManager.invalidParameter();
+            }
+
+            if (graphs.size() > maxBatchSize) {
+                logger.warn("Batch of " + graphs.size() + " resources exceeds the limit of " + maxBatchSize);
+                return jerseyResponseManager.tooLarge();
+            }
+
+            for (JsonNode graph : graphs) {
+                Model parsedModel = modelManager.createJenaModelFromJSONLDString(objectMapper.writeValueAsString(graph));
+
+                if (parsedModel.size() == 0) {
+                    return jerseyResponseManager.notAcceptable();
+                }
+
+                AbstractResource resource;
+                String provUUID;
+
+                if (parsedModel.contains(null, RDF.type, OWL.ObjectProperty) || parsedModel.contains(null, RDF.type, OWL.DatatypeProperty)) {
+                    AbstractPredicate predicate = new ReusablePredicate(parsedModel, graphManager, dataModel);
+                    resource = predicate;
+                    provUUID = predicate.getProvUUID();
+                } else {
+                    AbstractClass classResource = new ReusableClass(parsedModel, graphManager, dataModel);
+                    resource = classResource;
+                    provUUID = classResource.getProvUUID();
+                }
+
+                if (provUUIDs.put(resource.getId(), provUUID) != null) {
+                    logger.warn(resource.getId() + " is in the batch more than once");
+                    return jerseyResponseManager.invalidParameter();
+                }
+
+                resources.add(resource);
+            }
+
+            Map<String, Model> oldGraphs = graphManager.getCoreGraphs(provUUIDs.keySet());
+
+            for (AbstractResource resource : resources) {
+                Model oldGraph = oldGraphs.get(resource.getId());
+
+                if (oldGraph == null) {
+                    logger.warn(resource.getId() + " not found");
+                    return jerseyResponseManager.notFound();
+                }
+
+                Statement oldStatus = oldGraph.getProperty(ResourceFactory.createResource(resource.getId()), OWL.versionInfo);
+
+                if (oldStatus == null || !Objects.equals(oldStatus.getString(), resource.getStatus())) {
+                    resource.setStatusModified();
+                }
+            }
+
+            graphManager.updateResources(model, resources, oldGraphs);
+
+        } catch (IOException | RiotException ex) {
+            logger.warn(ex.toString());
+            return jerseyResponseManager.notAcceptable();
+        } catch (IllegalArgumentException | PropertyNotFoundException ex) {
+            logger.warn(ex.toString());
+            return jerseyResponseManager.invalidParameter();
+        }
+
+        searchIndexManager.updateIndexResources(resources);
+        searchIndexManager.updateIndexModel(model);
+
+        if (provenanceManager.getProvMode()) {
+            Map<String, Model> graphs = new LinkedHashMap<>();
+            resources.forEach(resource -> graphs.put(resource.getId(), resource.asGraph()));
+            provenanceManager.createProvEntityBundles(graphs, provUUIDs, user.getId());
+        }
+
+        logger.info("Updated " + resources.size() + " resources in " + model);
+
+        List<Map<String, String>> result = new ArrayList<>();
+        provUUIDs.forEach((id, provUUID) -> {
+            Map<String, String> item = new LinkedHashMap<>();
+            item.put("@id", id);
+            item.put("identifier", provUUID);
+            result.add(item);
+        });
+
+        try {
+            return Response.ok(objectMapper.writeValueAsString(result), "application/json").build();
+        } catch (IOException ex) {
+            logger.warn(ex.getMessage());
+            return jerseyResponseManager.serverError();
+        }
+    }
+}
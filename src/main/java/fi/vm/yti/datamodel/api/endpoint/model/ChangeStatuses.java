@@ -3,6 +3,7 @@
  */
 package fi.vm.yti.datamodel.api.endpoint.model;
 
+import javax.ws.rs.GET;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
@@ -16,13 +17,15 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import fi.vm.yti.datamodel.api.index.SearchIndexManager;
-import fi.vm.yti.datamodel.api.model.DataModel;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fi.vm.yti.datamodel.api.model.StatusChangeJobDTO;
 import fi.vm.yti.datamodel.api.security.AuthorizationManager;
-import fi.vm.yti.datamodel.api.security.AuthorizationManagerImpl;
 import fi.vm.yti.datamodel.api.service.GraphManager;
 import fi.vm.yti.datamodel.api.service.IDManager;
 import fi.vm.yti.datamodel.api.service.JerseyResponseManager;
+import fi.vm.yti.datamodel.api.service.StatusChangeManager;
 import fi.vm.yti.security.AuthenticatedUserProvider;
 import fi.vm.yti.security.YtiUser;
 import io.swagger.v3.oas.annotations.Operation;
@@ -43,7 +46,8 @@ public class ChangeStatuses {
     private final IDManager idManager;
     private final JerseyResponseManager jerseyResponseManager;
     private final GraphManager graphManager;
-    private final SearchIndexManager searchIndexManager;
+    private final StatusChangeManager statusChangeManager;
+    private final ObjectMapper objectMapper;
 
     @Autowired
     ChangeStatuses(AuthorizationManager authManager,
@@ -51,21 +55,54 @@ public class ChangeStatuses {
                    IDManager idManager,
                    JerseyResponseManager jerseyResponseManager,
                    GraphManager graphManager,
-                   SearchIndexManager searchIndexManager) {
+                   StatusChangeManager statusChangeManager,
+                   ObjectMapper objectMapper) {
 
         this.authorizationManager = authManager;
         this.userProvider = userProvider;
         this.idManager = idManager;
         this.jerseyResponseManager = jerseyResponseManager;
         this.graphManager = graphManager;
-        this.searchIndexManager = searchIndexManager;
+        this.statusChangeManager = statusChangeManager;
+        this.objectMapper = objectMapper;
+    }
+
+    @GET
+    @Produces("application/json")
+    @Operation(description = "Returns progress of status changes")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Status change job or list of status change jobs"),
+        @ApiResponse(responseCode = "404", description = "No such status change job")
+    })
+    public Response getStatusChanges(
+        @Parameter(description = "Status change job ID") @QueryParam("id") String id,
+        @Parameter(description = "Model ID") @QueryParam("model") String model) {
+
+        Object result;
+
+        if (id != null && !id.isEmpty()) {
+            StatusChangeJobDTO job = statusChangeManager.getJob(id);
+            if (job == null) {
+                return jerseyResponseManager.notFound();
+            }
+            result = job;
+        } else {
+            result = statusChangeManager.getJobs(model != null && !model.isEmpty() ? model : null);
+        }
+
+        try {
+            return Response.ok(objectMapper.writeValueAsString(result), "application/json").build();
+        } catch (JsonProcessingException ex) {
+            logger.warn(ex.getMessage());
+            return jerseyResponseManager.serverError();
+        }
     }
 
     @PUT
-    @Produces("application/ld+json")
-    @Operation(description = "Change statuses")
+    @Produces("application/json")
+    @Operation(description = "Change statuses of the resources of a model in a background job")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "200", description = "Statuses were changed"),
+        @ApiResponse(responseCode = "202", description = "Status change was started, returns the status change job"),
         @ApiResponse(responseCode = "400", description = "Invalid ID supplied"),
         @ApiResponse(responseCode = "403", description = "Invalid IRI in parameter"),
         @ApiResponse(responseCode = "404", description = "Service not found") })
@@ -84,27 +121,30 @@ public class ChangeStatuses {
             return jerseyResponseManager.invalidIRI();
         }
 
-        if(!graphManager.isExistingGraph(modelIRI)) {
-            return jerseyResponseManager.invalidParameter();
+        if (!graphManager.isExistingModel(modelIRI)) {
+            return jerseyResponseManager.notFound();
         }
 
         YtiUser user = userProvider.getUser();
-        DataModel dataModel = new DataModel(modelIRI,graphManager);
 
-        if (!user.isSuperuser() && !authorizationManager.hasRightToEdit(dataModel)) {
+        if (!authorizationManager.hasRightToEditModel(modelIRI)) {
             return jerseyResponseManager.unauthorized();
         }
 
-        if(user.isSuperuser()) {
-            graphManager.changeStatusesAsSuperUser(model, initialStatus, endStatus);
-        } else {
-            graphManager.changeStatuses(model, initialStatus, endStatus);
-        }
+        StatusChangeJobDTO job;
 
-        logger.info("Updating resource indexes for "+model);
-        searchIndexManager.initPredicateIndexFromModel(model);
-        searchIndexManager.initClassIndexFromModel(model);
+        try {
+            job = statusChangeManager.changeStatuses(model, initialStatus, endStatus, user.isSuperuser());
+        } catch (IllegalArgumentException ex) {
+            logger.warn(ex.getMessage());
+            return jerseyResponseManager.invalidParameter();
+        }
 
-        return jerseyResponseManager.ok();
+        try {
+            return Response.status(202).entity(objectMapper.writeValueAsString(job)).type("application/json").build();
+        } catch (JsonProcessingException ex) {
+            logger.warn(ex.getMessage());
+            return jerseyResponseManager.serverError();
+        }
     }
 }
@@ -3,6 +3,7 @@
  */
 package fi.vm.yti.datamodel.api.endpoint.model;
 
+import fi.vm.yti.datamodel.api.config.CachePolicy;
 import fi.vm.yti.datamodel.api.index.SearchIndexManager;
 import fi.vm.yti.datamodel.api.model.ReusableClass;
 import fi.vm.yti.datamodel.api.security.AuthorizationManager;
@@ -27,8 +28,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 
+import java.util.Date;
 import java.util.Map;
 
 import org.slf4j.Logger;
@@ -57,6 +63,7 @@ public class Class {
     private final ModelManager modelManager;
     private final SearchIndexManager searchIndexManager;
     private final ObjectMapper objectMapper;
+    private final HttpCacheManager httpCacheManager;
 
     @Autowired
     Class(AuthorizationManager authorizationManager,
@@ -70,7 +77,8 @@ public class Class {
           ProvenanceManager provenanceManager,
           ModelManager modelManager,
           SearchIndexManager searchIndexManager,
-          ObjectMapper objectMapper) {
+          ObjectMapper objectMapper,
+          HttpCacheManager httpCacheManager) {
 
         this.authorizationManager = authorizationManager;
         this.userProvider = userProvider;
@@ -84,10 +92,12 @@ public class Class {
         this.modelManager = modelManager;
         this.searchIndexManager = searchIndexManager;
         this.objectMapper = objectMapper;
+        this.httpCacheManager = httpCacheManager;
     }
 
     @GET
-    @Produces("application/ld+json")
+    @Produces({ "application/ld+json", "text/turtle", "application/n-triples", "application/rdf+thrift" })
+    @CachePolicy(value = CachePolicy.REVALIDATE, vary = "Accept")
     @Operation(description = "Get class from model")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "404", description = "No such resource"),
@@ -98,7 +108,9 @@ public class Class {
     public Response getClass(
         @Parameter(description = "Class id") @QueryParam("id") String id,
         @Parameter(description = "Model id") @QueryParam("model") String model,
-        @Parameter(description = "Required by model id") @QueryParam("requiredBy") String requiredBy) {
+        @Parameter(description = "Required by model id") @QueryParam("requiredBy") String requiredBy,
+        @Context Request request,
+        @Context ResourceInfo resourceInfo) {
 
         if (id == null || id.equals("undefined") || id.equals("default")) {
 
@@ -136,6 +148,14 @@ public class Class {
                 return jerseyClient.getGraphResponseFromService(id, endpointServices.getProvReadWriteAddress());
             }
 
+            Date modified = graphManager.resourceModified(id, model);
+            EntityTag etag = httpCacheManager.entityTag(modified, id, model, httpCacheManager.negotiatedMediaType(request, resourceInfo));
+
+            Response notModified = httpCacheManager.notModified(request, modified, etag, CachePolicy.REVALIDATE);
+            if (notModified != null) {
+                return notModified;
+            }
+
             ParameterizedSparqlString pss = new ParameterizedSparqlString();
 
             /* Get Map of namespaces from id-graph */
@@ -157,7 +177,7 @@ public class Class {
                 pss.setIri("library", model);
             }
 
-            return jerseyClient.constructNonEmptyGraphFromService(pss.toString(), endpointServices.getCoreSparqlAddress());
+            return httpCacheManager.withValidators(jerseyClient.constructNonEmptyGraphFromService(pss.toString(), endpointServices.getCoreSparqlAddress()), modified, etag, CachePolicy.REVALIDATE);
         }
     }
 
@@ -167,6 +187,7 @@ public class Class {
         @ApiResponse(responseCode = "201", description = "Graph is created"),
         @ApiResponse(responseCode = "204", description = "Graph is saved"),
         @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "404", description = "No such model"),
         @ApiResponse(responseCode = "405", description = "Update not allowed"),
         @ApiResponse(responseCode = "403", description = "Illegal graph parameter"),
         @ApiResponse(responseCode = "400", description = "Invalid graph supplied"),
@@ -205,6 +226,14 @@ public class Class {
 
             if (isNotEmpty(body)) {
 
+                if (!graphManager.isExistingModel(modelIRI)) {
+                    return jerseyResponseManager.notFound();
+                }
+
+                if (!authorizationManager.hasRightToEditModel(modelIRI)) {
+                    return jerseyResponseManager.unauthorized();
+                }
+
                 Model parsedModel = modelManager.createJenaModelFromJSONLDString(body);
 
                 if (parsedModel.size() == 0) {
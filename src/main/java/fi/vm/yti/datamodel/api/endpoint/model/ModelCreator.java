@@ -46,7 +46,6 @@ public class ModelCreator {
     private final RHPOrganizationManager rhpOrganizationManager;
     private final JerseyClient jerseyClient;
     private final IDManager idManager;
-    private final EndpointServices endpointServices;
     private final ApplicationProperties applicationProperties;
 
     @Autowired
@@ -55,7 +54,6 @@ public class ModelCreator {
                  RHPOrganizationManager rhpOrganizationManager,
                  JerseyClient jerseyClient,
                  IDManager idManager,
-                 EndpointServices endpointServices,
                  ApplicationProperties applicationProperties) {
 
         this.jerseyResponseManager = jerseyResponseManager;
@@ -63,7 +61,6 @@ public class ModelCreator {
         this.rhpOrganizationManager = rhpOrganizationManager;
         this.jerseyClient = jerseyClient;
         this.idManager = idManager;
-        this.endpointServices = endpointServices;
         this.applicationProperties = applicationProperties;
     }
 
@@ -137,7 +134,7 @@ public class ModelCreator {
         }
 
         try {
-            DataModel newModel = new DataModel(prefix, namespaceIRI, label, lang, allowedLang, serviceList, orgList, graphManager, endpointServices);
+            DataModel newModel = new DataModel(prefix, namespaceIRI, label, lang, allowedLang, serviceList, orgList, graphManager);
             return jerseyClient.constructResponseFromGraph(newModel.asGraph());
         } catch (IllegalArgumentException ex) {
             return jerseyResponseManager.invalidParameter();
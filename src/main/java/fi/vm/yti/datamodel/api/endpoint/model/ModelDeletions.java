@@ -0,0 +1,76 @@
+package fi.vm.yti.datamodel.api.endpoint.model;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.Response;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fi.vm.yti.datamodel.api.model.ModelDeletionJobDTO;
+import fi.vm.yti.datamodel.api.service.JerseyResponseManager;
+import fi.vm.yti.datamodel.api.service.ModelDeletionManager;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@Component
+@Path("v1/modelDeletions")
+@Tag(name = "Model")
+public class ModelDeletions {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelDeletions.class.getName());
+
+    private final ModelDeletionManager modelDeletionManager;
+    private final JerseyResponseManager jerseyResponseManager;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    ModelDeletions(ModelDeletionManager modelDeletionManager,
+                   JerseyResponseManager jerseyResponseManager,
+                   ObjectMapper objectMapper) {
+        this.modelDeletionManager = modelDeletionManager;
+        this.jerseyResponseManager = jerseyResponseManager;
+        this.objectMapper = objectMapper;
+    }
+
+    @GET
+    @Produces("application/json")
+    @Operation(description = "Returns progress of model deletions")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Deletion job or list of deletion jobs"),
+        @ApiResponse(responseCode = "404", description = "No such deletion job")
+    })
+    public Response getModelDeletions(
+        @Parameter(description = "Deletion job ID") @QueryParam("id") String id,
+        @Parameter(description = "Model ID") @QueryParam("model") String model) {
+
+        Object result;
+
+        if (id != null && !id.isEmpty()) {
+            ModelDeletionJobDTO job = modelDeletionManager.getJob(id);
+            if (job == null) {
+                return jerseyResponseManager.notFound();
+            }
+            result = job;
+        } else {
+            result = modelDeletionManager.getJobs(model != null && !model.isEmpty() ? model : null);
+        }
+
+        try {
+            return Response.ok(objectMapper.writeValueAsString(result), "application/json").build();
+        } catch (JsonProcessingException ex) {
+            logger.warn(ex.getMessage());
+            return jerseyResponseManager.serverError();
+        }
+    }
+}
@@ -3,10 +3,10 @@
  */
 package fi.vm.yti.datamodel.api.endpoint.model;
 
-import fi.vm.yti.datamodel.api.model.DataModel;
 import fi.vm.yti.datamodel.api.security.AuthorizationManager;
 import fi.vm.yti.datamodel.api.security.AuthorizationManagerImpl;
 import fi.vm.yti.datamodel.api.service.*;
+import fi.vm.yti.datamodel.api.utils.LDHelper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -17,10 +17,13 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.apache.jena.iri.IRI;
 import org.apache.jena.iri.IRIException;
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Statement;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.ws.rs.*;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.Response;
 
 import org.slf4j.Logger;
@@ -34,28 +37,24 @@ public class ModelPositions {
     private static final Logger logger = LoggerFactory.getLogger(ModelPositions.class.getName());
 
     private final AuthorizationManager authorizationManager;
-    private final JerseyClient jerseyClient;
     private final JerseyResponseManager jerseyResponseManager;
-    private final EndpointServices endpointServices;
     private final JenaClient jenaClient;
     private final ModelManager modelManager;
     private final IDManager idManager;
     private final GraphManager graphManager;
+    private final Property positionVersion = LDHelper.curieToProperty("iow:positionVersion");
+    private final Property appliedPositionVersion = LDHelper.curieToProperty("iow:appliedPositionVersion");
 
     @Autowired
     ModelPositions(AuthorizationManager authorizationManager,
-                   JerseyClient jerseyClient,
                    JerseyResponseManager jerseyResponseManager,
-                   EndpointServices endpointServices,
                    JenaClient jenaClient,
                    ModelManager modelManager,
                    IDManager idManager,
                    GraphManager graphManager) {
 
         this.authorizationManager = authorizationManager;
-        this.jerseyClient = jerseyClient;
         this.jerseyResponseManager = jerseyResponseManager;
-        this.endpointServices = endpointServices;
         this.jenaClient = jenaClient;
         this.modelManager = modelManager;
         this.idManager = idManager;
@@ -74,19 +73,32 @@ public class ModelPositions {
         @Parameter(description = "Graph id", schema = @Schema(defaultValue = "default"))
         @QueryParam("model") String model) {
 
-        return jerseyClient.getNonEmptyGraphResponseFromService(model + "#PositionGraph", endpointServices.getCoreReadAddress(), "application/ld+json", false);
+        String positionGraph = model + "#PositionGraph";
+        Model positions = jenaClient.getModelFromCore(positionGraph);
 
+        if (positions == null) {
+            return jerseyResponseManager.okNoContent();
+        }
+
+        Statement version = positions.getResource(positionGraph).getProperty(positionVersion);
+        positions.removeAll(null, positionVersion, null);
+        positions.removeAll(null, appliedPositionVersion, null);
+
+        Response response = jerseyResponseManager.okModel(positions);
+        if (version == null) {
+            return response;
+        }
+        return Response.fromResponse(response).tag(version.getString()).build();
     }
 
     @PUT
-    @Operation(description = "Updates model coordinates")
+    @Operation(description = "Replaces model coordinates")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "201", description = "Graph is created"),
-        @ApiResponse(responseCode = "204", description = "Graph is saved"),
+        @ApiResponse(responseCode = "200", description = "Graph is saved"),
         @ApiResponse(responseCode = "401", description = "Unauthorized"),
-        @ApiResponse(responseCode = "405", description = "Update not allowed"),
+        @ApiResponse(responseCode = "404", description = "No such model"),
         @ApiResponse(responseCode = "403", description = "Illegal graph parameter"),
-        @ApiResponse(responseCode = "400", description = "Invalid graph supplied"),
+        @ApiResponse(responseCode = "412", description = "Positions have been modified since the version in If-Match"),
         @ApiResponse(responseCode = "500", description = "Bad data?")
     })
     public Response putModelPositions(
@@ -94,7 +106,39 @@ public class ModelPositions {
             String body,
         @Parameter(description = "Model ID", required = true)
         @QueryParam("model")
-            String model) {
+            String model,
+        @Parameter(description = "ETag of the positions the update is based on")
+        @HeaderParam("If-Match")
+            String ifMatch) {
+        return updateModelPositions(body, model, ifMatch, true);
+    }
+
+    @PATCH
+    @Operation(description = "Updates coordinates of the given nodes and keeps the other positions")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Positions are saved"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "404", description = "No such model"),
+        @ApiResponse(responseCode = "403", description = "Illegal graph parameter"),
+        @ApiResponse(responseCode = "412", description = "Positions have been modified since the version in If-Match"),
+        @ApiResponse(responseCode = "500", description = "Bad data?")
+    })
+    public Response patchModelPositions(
+        @Parameter(description = "Changed nodes in application/ld+json", required = true)
+            String body,
+        @Parameter(description = "Model ID", required = true)
+        @QueryParam("model")
+            String model,
+        @Parameter(description = "ETag of the positions the update is based on")
+        @HeaderParam("If-Match")
+            String ifMatch) {
+        return updateModelPositions(body, model, ifMatch, false);
+    }
+
+    private Response updateModelPositions(String body,
+                                          String model,
+                                          String ifMatch,
+                                          boolean replace) {
 
         if (model.equals("default")) {
             return jerseyResponseManager.invalidIRI();
@@ -109,23 +153,38 @@ public class ModelPositions {
             return jerseyResponseManager.invalidIRI();
         }
 
-        DataModel checkModel = new DataModel(modelIRI, graphManager);
+        if (!graphManager.isExistingModel(modelIRI)) {
+            return jerseyResponseManager.notFound();
+        }
 
-        if (!authorizationManager.hasRightToEdit(checkModel)) {
+        if (!authorizationManager.hasRightToEditModel(modelIRI)) {
             return jerseyResponseManager.unauthorized();
         }
 
         Model newPositions = modelManager.createJenaModelFromJSONLDString(body);
+        newPositions.removeAll(null, positionVersion, null);
+        newPositions.removeAll(null, appliedPositionVersion, null);
 
         if (newPositions.size() < 1) {
             return jerseyResponseManager.invalidParameter();
         }
 
-        // TODO: Does this fix the strange duplication bug?
-        jenaClient.deleteModelFromCore(model+"#PositionGraph");
+        String expectedVersion = null;
+
+        if (ifMatch != null && !ifMatch.trim().equals("*")) {
+            try {
+                expectedVersion = EntityTag.valueOf(ifMatch.trim()).getValue();
+            } catch (IllegalArgumentException ex) {
+                return jerseyResponseManager.invalidParameter();
+            }
+        }
 
-        jenaClient.putModelToCore(model + "#PositionGraph", newPositions);
+        String version = graphManager.updatePositions(model, newPositions, replace, expectedVersion);
+
+        if (version == null) {
+            return jerseyResponseManager.preconditionFailed();
+        }
 
-        return jerseyResponseManager.okEmptyContent();
+        return Response.fromResponse(jerseyResponseManager.okEmptyContent()).tag(version).build();
     }
 }
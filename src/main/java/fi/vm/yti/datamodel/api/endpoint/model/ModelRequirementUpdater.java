@@ -13,13 +13,11 @@ import org.apache.jena.iri.IRIException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import fi.vm.yti.datamodel.api.model.DataModel;
 import fi.vm.yti.datamodel.api.security.AuthorizationManager;
 import fi.vm.yti.datamodel.api.security.AuthorizationManagerImpl;
 import fi.vm.yti.datamodel.api.service.GraphManager;
 import fi.vm.yti.datamodel.api.service.IDManager;
 import fi.vm.yti.datamodel.api.service.JerseyResponseManager;
-import fi.vm.yti.security.AuthenticatedUserProvider;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -35,16 +33,13 @@ public class ModelRequirementUpdater {
     private final JerseyResponseManager jerseyResponseManager;
     private final GraphManager graphManager;
     private final AuthorizationManager authorizationManager;
-    private final AuthenticatedUserProvider userProvider;
 
     @Autowired
     ModelRequirementUpdater(AuthorizationManager authorizationManager,
-                            AuthenticatedUserProvider userProvider,
                             IDManager idManager,
                             JerseyResponseManager jerseyResponseManager,
                             GraphManager graphManager) {
         this.authorizationManager = authorizationManager;
-        this.userProvider = userProvider;
         this.idManager = idManager;
         this.jerseyResponseManager = jerseyResponseManager;
         this.graphManager = graphManager;
@@ -85,9 +80,11 @@ public class ModelRequirementUpdater {
             return jerseyResponseManager.invalidIRI();
         }
 
-        DataModel dm = new DataModel(modelIRI,graphManager);
+        if (!graphManager.isExistingModel(modelIRI)) {
+            return jerseyResponseManager.notFound();
+        }
 
-        if(userProvider.getUser().isSuperuser() || authorizationManager.hasRightToEdit(dm)) {
+        if(authorizationManager.hasRightToEditModel(modelIRI)) {
             graphManager.addResourceNamespaceToModel(modelIRI, resourceIRI);
             return jerseyResponseManager.ok();
         } else {
@@ -3,6 +3,7 @@
  */
 package fi.vm.yti.datamodel.api.endpoint.model;
 
+import java.util.Date;
 import java.util.Set;
 import java.util.UUID;
 
@@ -13,12 +14,14 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 
 import org.apache.jena.iri.IRI;
 import org.apache.jena.iri.IRIException;
-import org.apache.jena.query.DatasetAccessor;
-import org.apache.jena.query.DatasetAccessorFactory;
 import org.apache.jena.query.ParameterizedSparqlString;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.Property;
@@ -32,18 +35,24 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import fi.vm.yti.datamodel.api.config.CachePolicy;
 import fi.vm.yti.datamodel.api.index.SearchIndexManager;
 import fi.vm.yti.datamodel.api.model.DataModel;
+import fi.vm.yti.datamodel.api.model.ModelDeletionJobDTO;
 import fi.vm.yti.datamodel.api.security.AuthorizationManager;
 import fi.vm.yti.datamodel.api.security.AuthorizationManagerImpl;
 import fi.vm.yti.datamodel.api.service.EndpointServices;
 import fi.vm.yti.datamodel.api.service.GraphManager;
+import fi.vm.yti.datamodel.api.service.HttpCacheManager;
 import fi.vm.yti.datamodel.api.service.IDManager;
 import fi.vm.yti.datamodel.api.service.JerseyClient;
 import fi.vm.yti.datamodel.api.service.JerseyResponseManager;
+import fi.vm.yti.datamodel.api.service.ModelDeletionManager;
 import fi.vm.yti.datamodel.api.service.ModelManager;
+import fi.vm.yti.datamodel.api.service.ModelResolverIndex;
 import fi.vm.yti.datamodel.api.service.ProvenanceManager;
 import fi.vm.yti.datamodel.api.service.RHPOrganizationManager;
 import fi.vm.yti.datamodel.api.service.ServiceDescriptionManager;
@@ -79,6 +88,9 @@ public class Models {
     private final Property status = OWL.versionInfo;
     private final SearchIndexManager searchIndexManager;
     private final ObjectMapper objectMapper;
+    private final HttpCacheManager httpCacheManager;
+    private final ModelResolverIndex modelResolverIndex;
+    private final ModelDeletionManager modelDeletionManager;
 
     @Autowired
     Models(AuthorizationManager authorizationManager,
@@ -93,7 +105,10 @@ public class Models {
            RHPOrganizationManager rhpOrganizationManager,
            ModelManager modelManager,
            SearchIndexManager searchIndexManager,
-           ObjectMapper objectMapper) {
+           ObjectMapper objectMapper,
+           HttpCacheManager httpCacheManager,
+           ModelResolverIndex modelResolverIndex,
+           ModelDeletionManager modelDeletionManager) {
 
         this.searchIndexManager = searchIndexManager;
         this.authorizationManager = authorizationManager;
@@ -108,10 +123,14 @@ public class Models {
         this.rhpOrganizationManager = rhpOrganizationManager;
         this.modelManager = modelManager;
         this.objectMapper = objectMapper;
+        this.httpCacheManager = httpCacheManager;
+        this.modelResolverIndex = modelResolverIndex;
+        this.modelDeletionManager = modelDeletionManager;
     }
 
     @GET
-    @Produces("application/ld+json")
+    @Produces({ "application/ld+json", "text/turtle", "application/n-triples", "application/rdf+thrift" })
+    @CachePolicy(value = CachePolicy.REVALIDATE, vary = "Accept")
     @Operation(description = "Get model from service")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "400", description = "Invalid model supplied"),
@@ -121,7 +140,9 @@ public class Models {
     public Response getModels(
         @Parameter(description = "Graph id") @QueryParam("id") String id,
         @Parameter(description = "Service category") @QueryParam("serviceCategory") String group,
-        @Parameter(description = "prefix") @QueryParam("prefix") String prefix) {
+        @Parameter(description = "prefix") @QueryParam("prefix") String prefix,
+        @Context Request request,
+        @Context ResourceInfo resourceInfo) {
 
         YtiUser user = userProvider.getUser();
 
@@ -131,11 +152,12 @@ public class Models {
 
         if ((id == null || id.equals("undefined")) && (prefix != null && !prefix.equals("undefined"))) {
             logger.info("Resolving prefix: " + prefix);
-            id = graphManager.getServiceGraphNameWithPrefix(prefix);
-            if (id == null) {
+            ModelResolverIndex.ResolvedModel resolvedModel = modelResolverIndex.resolve(prefix);
+            if (resolvedModel == null) {
                 logger.warn("Invalid prefix: " + prefix);
                 return jerseyResponseManager.invalidIRI();
             }
+            id = resolvedModel.getGraph();
         }
 
         if ((group == null || group.equals("undefined")) && (id != null && !id.equals("undefined") && !id.equals("default"))) {
@@ -153,12 +175,18 @@ public class Models {
                 return jerseyClient.getGraphResponseFromService(id, endpointServices.getProvReadWriteAddress());
             }
 
+            Date modified = graphManager.graphModified(id);
+            EntityTag etag = httpCacheManager.entityTag(modified, id, httpCacheManager.negotiatedMediaType(request, resourceInfo));
+
+            Response notModified = httpCacheManager.notModified(request, modified, etag, CachePolicy.REVALIDATE);
+            if (notModified != null) {
+                return notModified;
+            }
+
             String sparqlService = endpointServices.getCoreSparqlAddress();
-            String graphService = endpointServices.getCoreReadWriteAddress();
 
             /* TODO: Create Namespace service? */
-            DatasetAccessor accessor = DatasetAccessorFactory.createHTTP(graphService);
-            Model model = accessor.getModel(id);
+            Model model = graphManager.getCoreGraph(id);
 
             if (model == null) {
                 return jerseyResponseManager.notFound();
@@ -170,7 +198,7 @@ public class Models {
 
             pss.setCommandText(queryString);
 
-            return jerseyClient.constructGraphFromService(pss.toString(), sparqlService);
+            return httpCacheManager.withValidators(jerseyClient.constructGraphFromService(pss.toString(), sparqlService), modified, etag, CachePolicy.REVALIDATE);
 
         } else {
 
@@ -351,7 +379,7 @@ public class Models {
     @DELETE
     @Operation(description = "Delete graph from service and service description")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "204", description = "Graph is deleted"),
+        @ApiResponse(responseCode = "202", description = "Model deletion is started. Returns the deletion job."),
         @ApiResponse(responseCode = "403", description = "Illegal graph parameter"),
         @ApiResponse(responseCode = "404", description = "No such graph"),
         @ApiResponse(responseCode = "401", description = "Unauthorized"),
@@ -373,28 +401,25 @@ public class Models {
 
         YtiUser user = userProvider.getUser();
 
-        if (!graphManager.isExistingGraph(modelIRI)) {
+        if (!graphManager.isExistingModel(modelIRI)) {
             return jerseyResponseManager.notFound();
         }
 
+        if (!authorizationManager.hasRightToEditModel(modelIRI)) {
+            return jerseyResponseManager.unauthorized();
+        }
+
         if (!user.isSuperuser() && graphManager.modelStatusRestrictsRemoving(modelIRI)) {
             return jerseyResponseManager.cannotRemove();
         }
 
-        DataModel deleteModel = new DataModel(modelIRI, graphManager);
+        ModelDeletionJobDTO job = modelDeletionManager.deleteModel(modelIRI.toString());
 
-        if (!authorizationManager.hasRightToEdit(deleteModel)) {
-            return jerseyResponseManager.unauthorized();
+        try {
+            return Response.status(202).entity(objectMapper.writeValueAsString(job)).type("application/json").build();
+        } catch (JsonProcessingException ex) {
+            logger.warn(ex.getMessage());
+            return jerseyResponseManager.serverError();
         }
-
-        searchIndexManager.removeModel(deleteModel.getId());
-
-        provenanceManager.deleteProvenanceFromModel(deleteModel.getId());
-
-        graphManager.deleteVersionLinks(deleteModel.getId());
-
-        graphManager.deleteModel(deleteModel);
-
-        return jerseyResponseManager.ok();
     }
 }
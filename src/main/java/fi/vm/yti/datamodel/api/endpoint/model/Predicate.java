@@ -3,6 +3,7 @@
  */
 package fi.vm.yti.datamodel.api.endpoint.model;
 
+import fi.vm.yti.datamodel.api.config.CachePolicy;
 import fi.vm.yti.datamodel.api.index.SearchIndexManager;
 import fi.vm.yti.datamodel.api.model.ReusablePredicate;
 import fi.vm.yti.datamodel.api.security.AuthorizationManager;
@@ -26,7 +27,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.ws.rs.*;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import java.util.Date;
 import java.util.Map;
 
 import org.slf4j.Logger;
@@ -51,6 +57,7 @@ public class Predicate {
     private final ProvenanceManager provenanceManager;
     private final ModelManager modelManager;
     private final SearchIndexManager searchIndexManager;
+    private final HttpCacheManager httpCacheManager;
 
     @Autowired
     Predicate(AuthorizationManager authorizationManager,
@@ -63,7 +70,8 @@ public class Predicate {
               GraphManager graphManager,
               ProvenanceManager provenanceManager,
               ModelManager modelManager,
-              SearchIndexManager searchIndexManager) {
+              SearchIndexManager searchIndexManager,
+              HttpCacheManager httpCacheManager) {
 
         this.authorizationManager = authorizationManager;
         this.userProvider = userProvider;
@@ -76,10 +84,12 @@ public class Predicate {
         this.provenanceManager = provenanceManager;
         this.modelManager = modelManager;
         this.searchIndexManager = searchIndexManager;
+        this.httpCacheManager = httpCacheManager;
     }
 
     @GET
-    @Produces("application/ld+json")
+    @Produces({ "application/ld+json", "text/turtle", "application/n-triples", "application/rdf+thrift" })
+    @CachePolicy(value = CachePolicy.REVALIDATE, vary = "Accept")
     @Operation(description = "Get property from model")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "400", description = "Invalid model supplied"),
@@ -89,7 +99,9 @@ public class Predicate {
     public Response getPredicate(
         @Parameter(description = "Property id") @QueryParam("id") String id,
         @Parameter(description = "Model id") @QueryParam("model") String model,
-        @Parameter(description = "Required by model id") @QueryParam("requiredBy") String requiredBy) {
+        @Parameter(description = "Required by model id") @QueryParam("requiredBy") String requiredBy,
+        @Context Request request,
+        @Context ResourceInfo resourceInfo) {
 
         if (id == null || id.equals("undefined") || id.equals("default")) {
 
@@ -126,6 +138,14 @@ public class Predicate {
                 return jerseyClient.getGraphResponseFromService(id, endpointServices.getProvReadWriteAddress());
             }
 
+            Date modified = graphManager.resourceModified(id, model);
+            EntityTag etag = httpCacheManager.entityTag(modified, id, model, httpCacheManager.negotiatedMediaType(request, resourceInfo));
+
+            Response notModified = httpCacheManager.notModified(request, modified, etag, CachePolicy.REVALIDATE);
+            if (notModified != null) {
+                return notModified;
+            }
+
             ParameterizedSparqlString pss = new ParameterizedSparqlString();
 
             /* Get Map of namespaces from id-graph */
@@ -148,7 +168,7 @@ public class Predicate {
                 pss.setIri("library", model);
             }
 
-            return jerseyClient.constructNonEmptyGraphFromService(pss.toString(), endpointServices.getCoreSparqlAddress());
+            return httpCacheManager.withValidators(jerseyClient.constructNonEmptyGraphFromService(pss.toString(), endpointServices.getCoreSparqlAddress()), modified, etag, CachePolicy.REVALIDATE);
 
         }
 
@@ -160,6 +180,7 @@ public class Predicate {
         @ApiResponse(responseCode = "201", description = "Graph is created"),
         @ApiResponse(responseCode = "204", description = "Graph is saved"),
         @ApiResponse(responseCode = "401", description = "Unauthorized"),
+        @ApiResponse(responseCode = "404", description = "No such model"),
         @ApiResponse(responseCode = "405", description = "Update not allowed"),
         @ApiResponse(responseCode = "403", description = "Illegal graph parameter"),
         @ApiResponse(responseCode = "400", description = "Invalid graph supplied"),
@@ -202,6 +223,14 @@ public class Predicate {
 
             if (isNotEmpty(body)) {
 
+                if (!graphManager.isExistingModel(modelIRI)) {
+                    return jerseyResponseManager.notFound();
+                }
+
+                if (!authorizationManager.hasRightToEditModel(modelIRI)) {
+                    return jerseyResponseManager.unauthorized();
+                }
+
                 YtiUser user = userProvider.getUser();
 
                 Model parsedModel = modelManager.createJenaModelFromJSONLDString(body);
@@ -3,6 +3,7 @@
  */
 package fi.vm.yti.datamodel.api.endpoint.model;
 
+import fi.vm.yti.datamodel.api.config.CachePolicy;
 import fi.vm.yti.datamodel.api.service.EndpointServices;
 import fi.vm.yti.datamodel.api.service.JerseyClient;
 import fi.vm.yti.datamodel.api.utils.LDHelper;
@@ -37,6 +38,7 @@ public class RequiredNamespaces {
     }
 
     @GET
+    @CachePolicy(CachePolicy.SHORT_LIVED)
     @Produces("application/ld+json")
     @Operation(description = "Get available namespaces from service")
     @ApiResponses(value = {
@@ -8,6 +8,7 @@ import fi.vm.yti.datamodel.api.service.IDManager;
 import fi.vm.yti.datamodel.api.service.JerseyClient;
 import fi.vm.yti.datamodel.api.service.JerseyResponseManager;
 import fi.vm.yti.datamodel.api.service.NamespaceManager;
+import fi.vm.yti.datamodel.api.service.ReferenceIndex;
 import fi.vm.yti.datamodel.api.utils.LDHelper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -29,7 +30,8 @@ import javax.ws.rs.core.Response;
 
 import java.util.Map;
 
-// Returns all known references to the given resource. Resource ID and Model ID are alternative parameters
+// Returns all known references to the given resource. Resource ID and Model ID are alternative parameters.
+// References are read from the reverse reference index maintained by ReferenceIndex.
 
 @Component
 @Path("v1/usage")
@@ -57,7 +59,7 @@ public class Usage {
     }
 
     @GET
-    @Produces("application/ld+json")
+    @Produces({ "application/ld+json", "text/turtle", "application/n-triples", "application/rdf+thrift" })
     @Operation(description = "Get related resources with resource, model or concept uri")
     @ApiResponses(value = { @ApiResponse(responseCode = "200", description = "Usage message returned"),
         @ApiResponse(responseCode = "400", description = "Invalid ID supplied"),
@@ -99,6 +101,7 @@ public class Usage {
             + "?resourceModel dcap:preferredXMLNamespaceName ?namespace . "
             + "?resourceModel dcap:preferredXMLNamespacePrefix ?prefix . "
             + "} WHERE { "
+            + "GRAPH ?referencesGraph { ?concept dcterms:isReferencedBy ?resource . } "
             + "GRAPH ?resource { "
             + "?resource dcterms:subject ?concept . "
             + "?resource a ?type . "
@@ -142,8 +145,8 @@ public class Usage {
             + "?resourceModel dcap:preferredXMLNamespaceName ?namespace . "
             + "?resourceModel dcap:preferredXMLNamespacePrefix ?prefix . "
             + "}"
+            + "GRAPH ?referencesGraph { ?resource dcterms:isReferencedBy ?usage . } "
             + "GRAPH ?usage { "
-            + "?subject ?property ?resource . "
             + "?usage a ?usageType . "
             + "?usage ?usageNamePredicate ?usageLabel . "
             + "VALUES ?usageNamePredicate { rdfs:label sh:name }"
@@ -155,7 +158,7 @@ public class Usage {
             + "?usageModel dcap:preferredXMLNamespaceName ?usageNamespace . "
             + "?usageModel dcap:preferredXMLNamespacePrefix ?usagePrefix . "
             + "}}"
-            + "FILTER(?usage!=?resource && ?subject!=?resource && ?usage!=?usageModel)"
+            + "FILTER(?usage!=?resource && ?usage!=?usageModel)"
             + "}";
 
         String modelQueryString = "CONSTRUCT  { "
@@ -185,14 +188,14 @@ public class Usage {
             + "?resourceModel dcap:preferredXMLNamespaceName ?namespace . "
             + "?resourceModel dcap:preferredXMLNamespacePrefix ?prefix . "
             + "}"
+            + "GRAPH ?referencesGraph { ?resource dcterms:isReferencedBy ?usage . } "
             + "GRAPH ?usage { "
-            + "?subject ?property ?resource . "
             + "?usage a ?usageType . "
             + "?usage ?usageLabelPredicate ?usageLabel . "
             + "VALUES ?usageLabelPredicate { rdfs:label sh:name }"
             + "?usage rdfs:isDefinedBy ?usageModel . "
             + "}"
-            + "FILTER(?usageModel!=?resourceModel && ?subject!=?resource)"
+            + "FILTER(?usageModel!=?resourceModel)"
             + "GRAPH ?usageModel {"
             + "?usageModel a ?usageModelType . "
             + "?usageModel rdfs:label ?usageModelLabel . "
@@ -212,6 +215,8 @@ public class Usage {
             pss.setIri("concept", conceptIRI);
         } else return jerseyResponseManager.invalidParameter();
 
+        pss.setIri("referencesGraph", ReferenceIndex.REFERENCES_GRAPH);
+
         return jerseyClient.constructGraphFromService(pss.toString(), endpointServices.getCoreSparqlAddress());
     }
 }
@@ -45,15 +45,13 @@ public class ProfileCreator {
     private final RHPOrganizationManager rhpOrganizationManager;
     private final IDManager idManager;
     private final JerseyClient jerseyClient;
-    private final EndpointServices endpointServices;
 
     ProfileCreator(ApplicationProperties properties,
                    JerseyResponseManager jerseyResponseManager,
                    GraphManager graphManager,
                    RHPOrganizationManager rhpOrganizationManager,
                    IDManager idManager,
-                   JerseyClient jerseyClient,
-                   EndpointServices endpointServices) {
+                   JerseyClient jerseyClient) {
 
         this.defaultNamespace = properties.getDefaultNamespace();
         this.jerseyResponseManager = jerseyResponseManager;
@@ -61,7 +59,6 @@ public class ProfileCreator {
         this.rhpOrganizationManager = rhpOrganizationManager;
         this.idManager = idManager;
         this.jerseyClient = jerseyClient;
-        this.endpointServices = endpointServices;
     }
 
     @GET
@@ -134,7 +131,7 @@ public class ProfileCreator {
             return jerseyResponseManager.invalidParameter();
         }
 
-        ApplicationProfile newModel = new ApplicationProfile(prefix, namespaceIRI, label, lang, allowedLang, serviceList, orgList, graphManager, endpointServices);
+        ApplicationProfile newModel = new ApplicationProfile(prefix, namespaceIRI, label, lang, allowedLang, serviceList, orgList, graphManager);
 
         return jerseyClient.constructResponseFromGraph(newModel.asGraph());
     }
@@ -14,7 +14,6 @@ import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
-import org.elasticsearch.index.query.QueryStringQueryBuilder;
 import org.elasticsearch.script.Script;
 import org.elasticsearch.script.ScriptType;
 import org.elasticsearch.search.SearchHit;
@@ -61,16 +60,14 @@ public class DeepResourceQueryFactory {
                                      String sortLang,
                                      Set<String> modelIds) {
 
-        QueryStringQueryBuilder queryStringQuery = luceneQueryFactory.buildPrefixSuffixQuery(query).field("label.*");
-        if (sortLang != null && sortLangPattern.matcher(sortLang).matches()) {
-            queryStringQuery = queryStringQuery.field("label." + sortLang, 10);
-        }
+        String boostLang = sortLang != null && sortLangPattern.matcher(sortLang).matches() ? sortLang : null;
+        QueryBuilder labelQuery = luceneQueryFactory.buildPrefixSuffixQuery(query, "label", boostLang);
 
         QueryBuilder finalQuery = modelIds != null ? QueryBuilders.boolQuery()
             .must(ElasticUtils.createStatusAndModelQuery("isDefinedBy", modelIds))
-            .must(queryStringQuery) :
+            .must(labelQuery) :
             QueryBuilders.boolQuery()
-                .must(queryStringQuery);
+                .must(labelQuery);
 
         SearchRequest sr = new SearchRequest("dm_resources")
             .source(new SearchSourceBuilder()
@@ -86,6 +83,7 @@ public class DeepResourceQueryFactory {
                         .subAggregation(AggregationBuilders.topHits("top_resource_hits")
                             .sort(SortBuilders.scoreSort().order(SortOrder.DESC))
                             .size(6)
+                            .highlighter(ElasticUtils.createLabelHighlight())
                             .fetchSource(sourceIncludes))
                         .subAggregation(AggregationBuilders.max("best_class_hit")
                             .script(topHitScript)))));
@@ -115,7 +113,7 @@ public class DeepResourceQueryFactory {
 
                         for (SearchHit hit : hits.getHits()) {
                             IndexResourceDTO indexResource = objectMapper.readValue(hit.getSourceAsString(), IndexResourceDTO.class);
-                            indexResource.highlightLabels(request.getQuery());
+                            indexResource.highlightLabels(ElasticUtils.getHighlightedLabels(hit));
                             topHits.add(indexResource);
                         }
                     }
@@ -11,10 +11,16 @@ import org.elasticsearch.action.admin.indices.create.CreateIndexResponse;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
 import org.elasticsearch.action.admin.indices.get.GetIndexRequest;
 import org.elasticsearch.action.admin.indices.mapping.put.PutMappingRequest;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.delete.DeleteResponse;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.support.WriteRequest;
 import org.elasticsearch.action.support.master.AcknowledgedResponse;
 import org.elasticsearch.action.update.UpdateRequest;
@@ -22,6 +28,9 @@ import org.elasticsearch.action.update.UpdateResponse;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.reindex.BulkByScrollResponse;
+import org.elasticsearch.index.reindex.DeleteByQueryRequest;
+import org.elasticsearch.index.reindex.UpdateByQueryRequest;
 import org.elasticsearch.transport.NodeDisconnectedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,8 +39,13 @@ import org.springframework.stereotype.Service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import fi.vm.yti.datamodel.api.service.UpstreamGuard;
+import fi.vm.yti.datamodel.api.service.UpstreamMetrics;
+import fi.vm.yti.datamodel.api.service.UpstreamMetrics.UpstreamCall;
 import fi.vm.yti.datamodel.api.utils.LDHelper;
 
+import static fi.vm.yti.datamodel.api.service.UpstreamMetrics.ELASTIC;
+
 @Singleton
 @Service
 public class ElasticConnector {
@@ -41,28 +55,88 @@ public class ElasticConnector {
 
     private final RestHighLevelClient esClient;
     private final ObjectMapper objectMapper;
-
+    private final UpstreamMetrics metrics;
+    private final UpstreamGuard guard;
 
     @Autowired
     public ElasticConnector(final RestHighLevelClient esClient,
-                            final ObjectMapper objectMapper) {
+                            final ObjectMapper objectMapper,
+                            final UpstreamMetrics metrics,
+                            final UpstreamGuard guard) {
         this.esClient = esClient;
         this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.guard = guard;
     }
 
     public RestHighLevelClient getEsClient() {
         return esClient;
     }
 
+    public UpstreamMetrics getMetrics() {
+        return metrics;
+    }
+
     public boolean indexExists(String index) throws IOException {
-        return esClient.indices().exists(new GetIndexRequest().indices(index), RequestOptions.DEFAULT);
+        return record(index, "exists", () -> esClient.indices().exists(new GetIndexRequest().indices(index), RequestOptions.DEFAULT));
+    }
+
+    /**
+     * Executes a search and records its latency and hit count against the given index.
+     */
+    public SearchResponse search(String index,
+                                 SearchRequest request) throws IOException {
+        SearchResponse response = record(index, "search", () -> esClient.search(request, RequestOptions.DEFAULT));
+        metrics.recordItems(ELASTIC, index, "search", response.getHits().getHits().length);
+        return response;
+    }
+
+    public BulkResponse bulk(String index,
+                             BulkRequest request) throws IOException {
+        metrics.recordItems(ELASTIC, index, "bulk", request.numberOfActions());
+        metrics.recordBytes(ELASTIC, index, "bulk", request.estimatedSizeInBytes());
+        return record(index, "bulk", () -> esClient.bulk(request, RequestOptions.DEFAULT));
+    }
+
+    public BulkByScrollResponse deleteByQuery(String index,
+                                              DeleteByQueryRequest request) throws IOException {
+        BulkByScrollResponse response = record(index, "deleteByQuery", () -> esClient.deleteByQuery(request, RequestOptions.DEFAULT));
+        metrics.recordItems(ELASTIC, index, "deleteByQuery", response.getDeleted());
+        return response;
+    }
+
+    public BulkByScrollResponse updateByQuery(String index,
+                                              UpdateByQueryRequest request) throws IOException {
+        BulkByScrollResponse response = record(index, "updateByQuery", () -> esClient.updateByQuery(request, RequestOptions.DEFAULT));
+        metrics.recordItems(ELASTIC, index, "updateByQuery", response.getUpdated());
+        return response;
+    }
+
+    public GetResponse get(String index,
+                           GetRequest request) throws IOException {
+        return record(index, "get", () -> esClient.get(request, RequestOptions.DEFAULT));
+    }
+
+    public IndexResponse index(String index,
+                               IndexRequest request) throws IOException {
+        metrics.recordBytes(ELASTIC, index, "index", request.source().length());
+        return record(index, "index", () -> esClient.index(request, RequestOptions.DEFAULT));
+    }
+
+    /**
+     * Executes the call in a slot of the Elasticsearch bulkhead and records it to metrics
+     */
+    private <T> T record(String index,
+                         String operation,
+                         UpstreamCall<T, IOException> call) throws IOException {
+        return guard.call(ELASTIC, () -> metrics.record(ELASTIC, index, operation, call));
     }
 
     public void waitForESNodes() {
         logger.info("Waiting for ES (timeout " + ES_TIMEOUT + "s)");
         try {
             for (int i = 0; i < ES_TIMEOUT; i++) {
-                if (esClient.ping(RequestOptions.DEFAULT)) {
+                if (metrics.record(ELASTIC, "cluster", "ping", () -> esClient.ping(RequestOptions.DEFAULT))) {
                     logger.info("ES online");
                     try {
                         indexExists("dm_does_not_exist");
@@ -88,7 +162,7 @@ public class ElasticConnector {
         boolean exists = indexExists(index);
         if (exists) {
             logger.info("Cleaning index: " + index);
-            this.esClient.indices().delete(new DeleteIndexRequest(index), RequestOptions.DEFAULT);
+            record(index, "deleteIndex", () -> this.esClient.indices().delete(new DeleteIndexRequest(index), RequestOptions.DEFAULT));
         }
         return exists;
     }
@@ -104,7 +178,7 @@ public class ElasticConnector {
             if (mapping != null && !mapping.isEmpty()) {
                 request.source(mapping, XContentType.JSON);
             }
-            CreateIndexResponse createIndexResponse = esClient.indices().create(request, RequestOptions.DEFAULT);
+            CreateIndexResponse createIndexResponse = record(index, "createIndex", () -> esClient.indices().create(request, RequestOptions.DEFAULT));
             logger.debug("Index \"" + index + "\" created: " + createIndexResponse.isAcknowledged());
         } catch (IOException ex) {
             logger.warn("Index creation failed for \"" + index + "\"", ex);
@@ -117,7 +191,7 @@ public class ElasticConnector {
         request.type("doc");
         try {
             request.source(mapping);
-            AcknowledgedResponse putMappingResponse = esClient.indices().putMapping(request, RequestOptions.DEFAULT);
+            AcknowledgedResponse putMappingResponse = record(index, "putMapping", () -> esClient.indices().putMapping(request, RequestOptions.DEFAULT));
             logger.debug("Mapping updated for \"" + index + "\": " + putMappingResponse.isAcknowledged());
         } catch (IOException ex) {
             logger.warn("Mapping update failed for \"" + index + "\"", ex);
@@ -132,7 +206,7 @@ public class ElasticConnector {
             IndexRequest indexReq = new IndexRequest(index, "doc", encId);
             indexReq.source(objectMapper.convertValue(obj, Map.class), XContentType.JSON);
             indexReq.opType(DocWriteRequest.OpType.CREATE);
-            IndexResponse resp = esClient.index(indexReq, RequestOptions.DEFAULT);
+            IndexResponse resp = index(index, indexReq);
             logger.info("Indexed \"" + id + "\" to \"" + index + "\": " + resp.status().getStatus());
         } catch (IOException e) {
             logger.warn("Could not add to index: " + id);
@@ -150,7 +224,7 @@ public class ElasticConnector {
             updateReq.type("doc");
             updateReq.id(encId);
             updateReq.doc(objectMapper.convertValue(obj, Map.class), XContentType.JSON);
-            UpdateResponse resp = esClient.update(updateReq, RequestOptions.DEFAULT);
+            UpdateResponse resp = record(index, "update", () -> esClient.update(updateReq, RequestOptions.DEFAULT));
             logger.info("Updated \"" + id + "\" to \"" + index + "\": " + resp.status().getStatus());
         } catch (IOException e) {
             logger.warn("Could not update to index: " + id);
@@ -158,6 +232,36 @@ public class ElasticConnector {
         }
     }
 
+    /**
+     * Updates documents with one bulk request
+     *
+     * @param index Name of the index
+     * @param docs  Documents by id
+     */
+    public void bulkUpdateToIndex(String index,
+                                  Map<String, Object> docs) {
+        if (docs.isEmpty()) {
+            return;
+        }
+        BulkRequest bulkRequest = new BulkRequest();
+        docs.forEach((id, obj) -> {
+            UpdateRequest updateReq = new UpdateRequest(index, "doc", LDHelper.encode(id));
+            updateReq.doc(objectMapper.convertValue(obj, Map.class), XContentType.JSON);
+            bulkRequest.add(updateReq);
+        });
+        try {
+            BulkResponse resp = bulk(index, bulkRequest);
+            if (resp.hasFailures()) {
+                logger.warn("Could not update all documents to index: " + resp.buildFailureMessage());
+            } else {
+                logger.info("Updated " + docs.size() + " documents to \"" + index + "\"");
+            }
+        } catch (IOException e) {
+            logger.warn("Could not update to index: " + docs.keySet());
+            logger.warn(e.getMessage());
+        }
+    }
+
     public DeleteResponse removeFromIndex(String id,
                                           String index) {
         String encId = LDHelper.encode(id);
@@ -166,7 +270,7 @@ public class ElasticConnector {
             final long startTime = System.currentTimeMillis();
             DeleteRequest req = new DeleteRequest(index, "doc", encId)
                 .setRefreshPolicy(WriteRequest.RefreshPolicy.WAIT_UNTIL);
-            DeleteResponse resp = esClient.delete(req, RequestOptions.DEFAULT);
+            DeleteResponse resp = record(index, "delete", () -> esClient.delete(req, RequestOptions.DEFAULT));
             logger.info("Removed \"" + id + "\" from \"" + index + "\": " + resp.status().getStatus() + " (took " + (System.currentTimeMillis() - startTime) + " ms)");
             return resp;
         } catch (IOException e) {
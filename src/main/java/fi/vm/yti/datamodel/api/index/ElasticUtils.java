@@ -1,15 +1,56 @@
 package fi.vm.yti.datamodel.api.index;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
+import org.elasticsearch.common.text.Text;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.fetch.subphase.highlight.HighlightBuilder;
+import org.elasticsearch.search.fetch.subphase.highlight.HighlightField;
 
 public final class ElasticUtils {
 
+    private static final String LABEL_PREFIX = "label.";
+
     private ElasticUtils() {
     }
 
+    /**
+     * Highlights matching words in all label languages. Whole label is returned as single fragment
+     * so that it can replace the label in the result.
+     */
+    public static HighlightBuilder createLabelHighlight() {
+        return new HighlightBuilder()
+            .field(LABEL_PREFIX + "*")
+            .preTags("<b>")
+            .postTags("</b>")
+            .numOfFragments(0);
+    }
+
+    /**
+     * Maps label highlights of the hit, including highlights of prefix and suffix subfields, to label languages.
+     * Highlight of the whole label field is preferred over its subfields, as fields are read in name order.
+     *
+     * @return Highlighted labels by language
+     */
+    public static Map<String, String> getHighlightedLabels(SearchHit hit) {
+        Map<String, String> labels = new HashMap<>();
+        for (HighlightField highlightField : new TreeMap<>(hit.getHighlightFields()).values()) {
+            String fieldName = highlightField.getName();
+            Text[] fragments = highlightField.getFragments();
+            if (fieldName.startsWith(LABEL_PREFIX) && fragments != null && fragments.length > 0) {
+                String lang = fieldName.substring(LABEL_PREFIX.length());
+                int subfield = lang.indexOf('.');
+                labels.putIfAbsent(subfield > 0 ? lang.substring(0, subfield) : lang, fragments[0].string());
+            }
+        }
+        return labels;
+    }
+
     public static QueryBuilder createStatusAndModelQuery(String modelProperty,
                                                          Set<String> priviledgedModels) {
         // Content must be defined in the priviledgedModel or be in other state than INCOMPLETE
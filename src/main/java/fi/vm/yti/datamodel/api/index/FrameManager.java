@@ -23,24 +23,18 @@ import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
-import org.elasticsearch.client.RequestOptions;
-import org.elasticsearch.client.RestHighLevelClient;
-import org.elasticsearch.common.xcontent.DeprecationHandler;
-import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
-import org.elasticsearch.common.xcontent.XContentParser;
-import org.elasticsearch.common.xcontent.XContentType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import com.github.jsonldjava.core.JsonLdOptions;
-
 import fi.vm.yti.datamodel.api.service.JenaClient;
 import fi.vm.yti.datamodel.api.service.ModelManager;
+import fi.vm.yti.datamodel.api.utils.CompiledFrame;
 import fi.vm.yti.datamodel.api.utils.Frames;
+import fi.vm.yti.datamodel.api.utils.JsonSupport;
 import fi.vm.yti.datamodel.api.utils.LDHelper;
 
 @Singleton
@@ -49,9 +43,9 @@ public final class FrameManager {
 
     private static final Logger logger = LoggerFactory.getLogger(FrameManager.class);
     private static final String ELASTIC_INDEX_VIS_MODEL = "dm_vis_models";
+    private static final CompiledFrame CLASS_VISUALIZATION_FRAME = new CompiledFrame(Frames.classVisualizationFrame);
     private final SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz");
 
-    private final RestHighLevelClient esClient;
     private final ElasticConnector esManager;
     private final JenaClient jenaClient;
     private final ModelManager modelManager;
@@ -62,7 +56,6 @@ public final class FrameManager {
         final JenaClient jenaClient,
         final ModelManager modelManager) {
         this.esManager = esManager;
-        this.esClient = esManager.getEsClient();
         this.jenaClient = jenaClient;
         this.modelManager = modelManager;
     }
@@ -81,7 +74,7 @@ public final class FrameManager {
         String encId = LDHelper.encode(id);
         String frameStr = null;
         try {
-            Map<String, Object> map = esClient.get(new GetRequest(ELASTIC_INDEX_VIS_MODEL, "doc", encId), RequestOptions.DEFAULT).getSourceAsMap();
+            Map<String, Object> map = esManager.get(ELASTIC_INDEX_VIS_MODEL, new GetRequest(ELASTIC_INDEX_VIS_MODEL, "doc", encId)).getSourceAsMap();
             if (map == null) {
                 logger.debug("Creating visualization frame cache for graph " + id);
                 frameStr = updateCachedGraph(id);
@@ -97,7 +90,7 @@ public final class FrameManager {
             }
         } catch (ElasticsearchException ex) {
             logger.error("Datamodel Elastic is not available. Model frame caching is not available.");
-            frameStr = graphToFramedString(id, Frames.classVisualizationFrame);
+            frameStr = graphToFramedString(id, CLASS_VISUALIZATION_FRAME);
         }
         return frameStr;
     }
@@ -107,17 +100,14 @@ public final class FrameManager {
         String encId = LDHelper.encode(id);
 
         try (XContentBuilder builder = XContentFactory.jsonBuilder()) {
-            try (XContentParser parser = XContentFactory.xContent(XContentType.JSON).createParser(NamedXContentRegistry.EMPTY, DeprecationHandler.THROW_UNSUPPORTED_OPERATION, framed)) {
-                builder.startObject();
-                builder.field("modified", format.format(new Date()));
-                builder.field("graph", framed);
-                builder.endObject();
-                IndexRequest updateReq = new IndexRequest(ELASTIC_INDEX_VIS_MODEL, "doc", encId);
-                updateReq.source(builder);
-                IndexResponse resp = esClient.index(updateReq, RequestOptions.DEFAULT);
-                logger.info("Index update response: " + resp.status().getStatus());
-                builder.close();
-            }
+            builder.startObject();
+            builder.field("modified", format.format(new Date()));
+            builder.field("graph", framed);
+            builder.endObject();
+            IndexRequest updateReq = new IndexRequest(ELASTIC_INDEX_VIS_MODEL, "doc", encId);
+            updateReq.source(builder);
+            IndexResponse resp = esManager.index(ELASTIC_INDEX_VIS_MODEL, updateReq);
+            logger.info("Index update response: " + resp.status().getStatus());
         } catch (Exception ex) {
             ex.printStackTrace(System.out);
             logger.error("Could not cache visualization frame for id " + id, ex);
@@ -159,50 +149,27 @@ public final class FrameManager {
     }
 
     protected String graphToFramedString(String graph,
-                                         LinkedHashMap<String, Object> frame) throws Exception {
+                                         CompiledFrame frame) throws Exception {
         Model model = jenaClient.getModelFromCore(graph + "#ExportGraph");
         // Model model = constructExportGraph(graph);
         if (model == null) {
             throw new NotFoundException("Could not get model with id " + graph);
         }
-
-        // Copy frame content because it will be modified later
-        LinkedHashMap<String, Object> frameCopy = new LinkedHashMap<>();
-
-        frame.entrySet().forEach(entry -> {
-            if (entry.getValue() instanceof LinkedHashMap) {
-                LinkedHashMap<String, Object> listCopy = new LinkedHashMap<>();
-
-                ((LinkedHashMap<String, Object>) entry.getValue()).entrySet().forEach(subEntry -> {
-                    listCopy.put(subEntry.getKey(), subEntry.getValue());
-                });
-                frameCopy.put(entry.getKey(), listCopy);
-            } else {
-                frameCopy.put(entry.getKey(), entry.getValue());
-            }
-        });
-        return graphToFramedString(model, frameCopy);
+        return graphToFramedString(model, frame);
     }
 
     protected String graphToFramedString(Model model,
-                                         LinkedHashMap<String, Object> frame) throws Exception {
+                                         CompiledFrame frame) throws Exception {
 
         String framed;
         try (StringWriter stringWriter = new StringWriter()) {
-            PrefixMap pm = RiotLib.prefixMap(model.getGraph());
-
-            pm = modelManager.cleanUpPrefixes(pm);
+            PrefixMap pm = modelManager.cleanUpPrefixes(RiotLib.prefixMap(model.getGraph()));
+            LinkedHashMap<String, Object> modelFrame = frame.withPrefixes(pm.getMappingCopyStr());
             pm.putAll(LDHelper.PREFIX_MAP);
 
-            ((LinkedHashMap<String, Object>) frame.get("@context")).putAll(pm.getMappingCopyStr());
-            JsonLdOptions opts = new JsonLdOptions();
-            opts.setProcessingMode(opts.JSON_LD_1_1);
-            opts.useNamespaces = true;
-            opts.setCompactArrays(true);
-            opts.setUseNativeTypes(Boolean.TRUE);
             JsonLDWriteContext ctx = new JsonLDWriteContext();
-            ctx.setFrame(frame);
-            ctx.setOptions(opts);
+            ctx.setFrame(modelFrame);
+            ctx.setOptions(JsonSupport.framingOptions());
             WriterGraphRIOT gw = RDFDataMgr.createGraphWriter(RDFFormat.JSONLD_FRAME_PRETTY);
             gw.write(stringWriter, model.getGraph(), pm, null, ctx);
             framed = stringWriter.toString();
@@ -211,7 +178,7 @@ public final class FrameManager {
     }
 
     private String updateCachedGraph(String id) throws Exception {
-        String frameStr = graphToFramedString(id, Frames.classVisualizationFrame);
+        String frameStr = graphToFramedString(id, CLASS_VISUALIZATION_FRAME);
         cacheClassVisualizationFrame(id, frameStr);
         return frameStr;
     }
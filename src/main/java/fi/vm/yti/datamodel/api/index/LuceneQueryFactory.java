@@ -1,77 +1,151 @@
-package fi.vm.yti.datamodel.api.index;
-
-import java.util.Arrays;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
-
-import javax.inject.Singleton;
-import javax.ws.rs.BadRequestException;
-
-import org.apache.lucene.queryparser.flexible.core.QueryNodeException;
-import org.apache.lucene.queryparser.flexible.standard.StandardQueryParser;
-import org.elasticsearch.index.query.QueryBuilders;
-import org.elasticsearch.index.query.QueryStringQueryBuilder;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Service;
-
-import fi.vm.yti.datamodel.api.config.ApplicationProperties;
-
-@Singleton
-@Service
-public class LuceneQueryFactory {
-
-    private static final Logger logger = LoggerFactory.getLogger(LuceneQueryFactory.class);
-
-    // https://www.elastic.co/guide/en/elasticsearch/reference/current/query-dsl-query-string-query.html
-    // TODO: Make unit tests for these.
-    protected static final String plainQueryPatternString = "^(?:(?!(?:\\s++|^)(?:AND|OR|TO)(?:\\s|$))(?:\\w++|\\s++|(?<=\\w)-++))+$";
-    protected static final String complexQueryPatternString = "^[-+:(){}\\[\\]*?~\"/<>=^&|!\\\\\\w\\s]+$";
-    protected static final String asteriskQueryPatternString = "^(?:(?!(?:\\s++|^)(?:AND|OR|TO)(?:\\s|$))(?:\\w++|\\s++|(?<=[\\w*])-++|(?<!\\*)\\*(?=[\\w-])|(?<=[\\w-])\\*(?!\\*)))+$";
-
-    private final Pattern plainQueryPattern = Pattern.compile(plainQueryPatternString, Pattern.UNICODE_CHARACTER_CLASS);
-    private final Pattern plainSplitter = Pattern.compile("\\s+", Pattern.UNICODE_CHARACTER_CLASS);
-    private final Pattern givenQueryPattern;
-
-    @Autowired
-    public LuceneQueryFactory(ApplicationProperties properties) {
-        if (properties.isAllowComplexElasticQueries()) {
-            logger.info("Constructing LuceneQueryFactory allowing complex passed queries");
-            givenQueryPattern = Pattern.compile(complexQueryPatternString, Pattern.UNICODE_CHARACTER_CLASS);
-        } else {
-            logger.info("Constructing LuceneQueryFactory allowing only asterisk to pass");
-            givenQueryPattern = Pattern.compile(asteriskQueryPatternString, Pattern.UNICODE_CHARACTER_CLASS);
-        }
-    }
-
-    public QueryStringQueryBuilder buildPrefixSuffixQuery(final String query) {
-        if (query != null) {
-            final String trimmed = query.trim();
-            if (!query.isEmpty()) {
-                String parsedQuery = null;
-                if (plainQueryPattern.matcher(trimmed).matches()) {
-                    String[] splitQuery = plainSplitter.split(trimmed);
-                    if (splitQuery.length == 1) {
-                        parsedQuery = trimmed + " OR " + trimmed + "* OR *" + trimmed;
-                    } else if (splitQuery.length > 1) {
-                        parsedQuery = Arrays.stream(splitQuery).map(q -> "(" + q + " OR " + q + "* OR *" + q + ")").collect(Collectors.joining(" AND "));
-                    }
-                } else if (givenQueryPattern.matcher(trimmed).matches()) {
-                    parsedQuery = trimmed;
-                }
-                if (parsedQuery != null) {
-                    StandardQueryParser parser = new StandardQueryParser();
-                    try {
-                        parser.setAllowLeadingWildcard(true);
-                        return QueryBuilders.queryStringQuery(parser.parse(parsedQuery, "").toString());
-                    } catch (QueryNodeException e) {
-                        // nop
-                    }
-                }
-            }
-        }
-        logger.debug("Query string disqualified: '" + query + "'");
-        throw new BadRequestException("Invalid query");
-    }
-}
+package fi.vm.yti.datamodel.api.index;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import javax.inject.Singleton;
+import javax.ws.rs.BadRequestException;
+
+import org.apache.lucene.queryparser.flexible.core.QueryNodeException;
+import org.apache.lucene.queryparser.flexible.standard.StandardQueryParser;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.Operator;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+
+@Singleton
+@Service
+public class LuceneQueryFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(LuceneQueryFactory.class);
+
+    // https://www.elastic.co/guide/en/elasticsearch/reference/current/query-dsl-query-string-query.html
+    // TODO: Make unit tests for these.
+    protected static final String plainQueryPatternString = "^(?:(?!(?:\\s++|^)(?:AND|OR|TO)(?:\\s|$))(?:\\w++|\\s++|(?<=\\w)-++))+$";
+    protected static final String complexQueryPatternString = "^[-+:(){}\\[\\]*?~\"/<>=^&|!\\\\\\w\\s]+$";
+    protected static final String asteriskQueryPatternString = "^(?:(?!(?:\\s++|^)(?:AND|OR|TO)(?:\\s|$))(?:\\w++|\\s++|(?<=[\\w*])-++|(?<!\\*)\\*(?=[\\w-])|(?<=[\\w-])\\*(?!\\*)))+$";
+
+    private static final String PREFIX_SUBFIELD = "prefix";
+    private static final String SUFFIX_SUBFIELD = "suffix";
+
+    private final Pattern plainQueryPattern = Pattern.compile(plainQueryPatternString, Pattern.UNICODE_CHARACTER_CLASS);
+    private final Pattern plainSplitter = Pattern.compile("\\s+", Pattern.UNICODE_CHARACTER_CLASS);
+    private final Pattern givenQueryPattern;
+    private final List<String> languages;
+
+    @Autowired
+    public LuceneQueryFactory(ApplicationProperties properties) {
+        this.languages = properties.getSearchLanguages();
+        if (properties.isAllowComplexElasticQueries()) {
+            logger.info("Constructing LuceneQueryFactory allowing complex passed queries");
+            givenQueryPattern = Pattern.compile(complexQueryPatternString, Pattern.UNICODE_CHARACTER_CLASS);
+        } else {
+            logger.info("Constructing LuceneQueryFactory allowing only asterisk to pass");
+            givenQueryPattern = Pattern.compile(asteriskQueryPatternString, Pattern.UNICODE_CHARACTER_CLASS);
+        }
+    }
+
+    /**
+     * Builds query matching whole words, word prefixes and word suffixes in the language fields of given field.
+     * <p>
+     * Plain queries are matched against the edge-ngram (prefix) and reversed edge-ngram (suffix) subfields,
+     * see resource_mapping.json and model_mapping.json, so no wildcard expansion is needed. Queries with explicit
+     * wildcards or operators are passed to query string query as before. Other queries, for example with
+     * punctuation, are matched as text against the language fields.
+     * <p>
+     * Language fields are listed by the searchLanguages property instead of a field.* pattern, because the
+     * pattern would also expand to the prefix and suffix subfields and rank partial matches as whole words.
+     *
+     * @param query         User query
+     * @param field         Language map field, for example label
+     * @param boostLanguage Language whose field is boosted or null
+     * @throws BadRequestException if the query is empty
+     */
+    public QueryBuilder buildPrefixSuffixQuery(final String query,
+                                               final String field,
+                                               final String boostLanguage) {
+        if (query != null) {
+            final String trimmed = query.trim();
+            if (!trimmed.isEmpty()) {
+                if (plainQueryPattern.matcher(trimmed).matches()) {
+                    String[] splitQuery = plainSplitter.split(trimmed);
+                    if (splitQuery.length == 1) {
+                        return buildWordQuery(splitQuery[0], field, boostLanguage);
+                    } else if (splitQuery.length > 1) {
+                        BoolQueryBuilder wordsQuery = QueryBuilders.boolQuery();
+                        Arrays.stream(splitQuery).forEach(q -> wordsQuery.must(buildWordQuery(q, field, boostLanguage)));
+                        return wordsQuery;
+                    }
+                } else if (givenQueryPattern.matcher(trimmed).matches()) {
+                    StandardQueryParser parser = new StandardQueryParser();
+                    try {
+                        parser.setAllowLeadingWildcard(true);
+                        return QueryBuilders.queryStringQuery(parser.parse(trimmed, "").toString())
+                            .fields(languageFields(field, null, 1, boostLanguage, 10));
+                    } catch (QueryNodeException e) {
+                        logger.debug("Query string not parsed: '" + query + "'");
+                    }
+                }
+                return buildTextQuery(trimmed, field, boostLanguage);
+            }
+        }
+        logger.debug("Query string disqualified: '" + query + "'");
+        throw new BadRequestException("Invalid query");
+    }
+
+    private QueryBuilder buildTextQuery(final String text,
+                                        final String field,
+                                        final String boostLanguage) {
+        return QueryBuilders.multiMatchQuery(text)
+            .fields(languageFields(field, null, 1, boostLanguage, 10))
+            .operator(Operator.AND)
+            .lenient(true);
+    }
+
+    private QueryBuilder buildWordQuery(final String word,
+                                        final String field,
+                                        final String boostLanguage) {
+        // Whole words also match their prefix and suffix, so they score in every clause and rank above partial matches
+        return QueryBuilders.boolQuery()
+            .should(QueryBuilders.multiMatchQuery(word).fields(languageFields(field, null, 2, boostLanguage, 20)).operator(Operator.AND))
+            .should(QueryBuilders.multiMatchQuery(word).fields(languageFields(field, PREFIX_SUBFIELD, 1, boostLanguage, 10)).operator(Operator.AND))
+            .should(QueryBuilders.multiMatchQuery(word).fields(languageFields(field, SUFFIX_SUBFIELD, 1, boostLanguage, 10)).operator(Operator.AND))
+            .minimumShouldMatch(1);
+    }
+
+    /**
+     * @param field         Language map field, for example label
+     * @param subfield      Subfield of the language fields or null for the language fields themselves
+     * @param boost         Boost of the search languages
+     * @param boostLanguage Language whose field is boosted or null
+     * @param languageBoost Boost of the boosted language
+     * @return Fields of the search languages and the boosted language with their boosts
+     */
+    private Map<String, Float> languageFields(final String field,
+                                              final String subfield,
+                                              final float boost,
+                                              final String boostLanguage,
+                                              final float languageBoost) {
+        Map<String, Float> fields = new LinkedHashMap<>();
+        languages.forEach(language -> fields.put(languageField(field, language, subfield), boost));
+        if (boostLanguage != null) {
+            fields.put(languageField(field, boostLanguage, subfield), languageBoost);
+        }
+        return fields;
+    }
+
+    private static String languageField(final String field,
+                                        final String language,
+                                        final String subfield) {
+        return subfield != null ? field + "." + language + "." + subfield : field + "." + language;
+    }
+}
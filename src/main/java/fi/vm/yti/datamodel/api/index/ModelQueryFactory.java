@@ -15,7 +15,6 @@ import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
-import org.elasticsearch.index.query.QueryStringQueryBuilder;
 import org.elasticsearch.index.query.TermsQueryBuilder;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
@@ -53,12 +52,12 @@ public class ModelQueryFactory {
     }
 
     public SearchRequest createQuery(ModelSearchRequest request) {
-        return createQuery(request.getUri(),request.getQuery(), request.getStatus(), request.getType(), request.getAfter(), request.getBefore(), Collections.EMPTY_SET, request.getPageSize(), request.getPageFrom(), request.getFilter(), request.getIncludeIncomplete(), request.getIncludeIncompleteFrom());
+        return createQuery(request.getUri(),request.getQuery(), request.getStatus(), request.getType(), request.getAfter(), request.getBefore(), Collections.EMPTY_SET, request.getPageSize(), request.getPageFrom(), request.getFilter(), request.getIncludeIncomplete(), request.getIncludeIncompleteFrom(), request.getCursor());
     }
 
     public SearchRequest createQuery(ModelSearchRequest request,
                                      Collection<String> additionalModelIds) {
-        return createQuery(request.getUri(), request.getQuery(), request.getStatus(), request.getType(), request.getAfter(), request.getBefore(), additionalModelIds, request.getPageSize(), request.getPageFrom(), request.getFilter(), request.getIncludeIncomplete(), request.getIncludeIncompleteFrom());
+        return createQuery(request.getUri(), request.getQuery(), request.getStatus(), request.getType(), request.getAfter(), request.getBefore(), additionalModelIds, request.getPageSize(), request.getPageFrom(), request.getFilter(), request.getIncludeIncomplete(), request.getIncludeIncompleteFrom(), request.getCursor());
     }
 
     private SearchRequest createQuery(Set<String> uris,
@@ -72,11 +71,12 @@ public class ModelQueryFactory {
                                       Integer pageFrom,
                                       Set<String> filter,
                                       Boolean includeIncomplete,
-                                      Set<String> includeIncompleteFrom) {
+                                      Set<String> includeIncompleteFrom,
+                                      String cursor) {
 
-        QueryStringQueryBuilder labelQuery = null;
+        QueryBuilder labelQuery = null;
         if (!query.isEmpty()) {
-            labelQuery = luceneQueryFactory.buildPrefixSuffixQuery(query).field("label.*");
+            labelQuery = luceneQueryFactory.buildPrefixSuffixQuery(query, "label", null);
         }
 
         TermsQueryBuilder idQuery = null;
@@ -160,17 +160,21 @@ public class ModelQueryFactory {
             sourceBuilder.query(QueryBuilders.matchAllQuery());
         }
 
-        if (pageFrom != null) {
-            sourceBuilder.from(pageFrom);
-        }
+        if (cursor != null) {
+            SearchCursor.apply(sourceBuilder, cursor, pageSize);
+        } else {
+            if (pageFrom != null) {
+                sourceBuilder.from(pageFrom);
+            }
 
-        if (pageSize != null) {
-            sourceBuilder.size(pageSize);
-            if (pageFrom == null) {
-                sourceBuilder.from(0);
+            if (pageSize != null) {
+                sourceBuilder.size(pageSize);
+                if (pageFrom == null) {
+                    sourceBuilder.from(0);
+                }
+            } else {
+                sourceBuilder.size(10000);
             }
-        } else {
-            sourceBuilder.size(10000);
         }
 
         SearchRequest sr = new SearchRequest("dm_models")
@@ -195,6 +199,11 @@ public class ModelQueryFactory {
             SearchHits hits = response.getHits();
             ret.setTotalHitCount(hits.getTotalHits());
 
+            if (request.getCursor() != null) {
+                ret.setPageSize(SearchCursor.pageSize(request.getPageSize()));
+                ret.setNextCursor(SearchCursor.next(hits, request.getPageSize()));
+            }
+
             for (SearchHit hit : hits) {
                 IndexModelDTO model = objectMapper.readValue(hit.getSourceAsString(), IndexModelDTO.class);
                 models.add(model);
@@ -0,0 +1,108 @@
+package fi.vm.yti.datamodel.api.index;
+
+import java.io.IOException;
+import java.util.Base64;
+
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Opaque continuation tokens for deep pagination with search_after.
+ * <p>
+ * Token is the URL safe Base64 encoded JSON array of the sort values of the last hit on the page. Every cursor
+ * query ends with id as tie-breaker, so the sort is total and pages do not overlap or skip hits. Empty token or
+ * {@link #FIRST_PAGE} starts from the beginning. Tokens must have one scalar value per sort of the query and end
+ * with an id, so malformed and tampered tokens are rejected before they reach Elasticsearch.
+ */
+public final class SearchCursor {
+
+    public static final String FIRST_PAGE = "*";
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 10000;
+
+    private static final ObjectMapper cursorMapper = new ObjectMapper();
+
+    private SearchCursor() {
+    }
+
+    /**
+     * Sets page size, default relevance sort if no other sort is set, id tie-breaker and search_after position.
+     *
+     * @param sourceBuilder Query without from
+     * @param cursor        Continuation token from previous page or {@link #FIRST_PAGE}
+     * @param pageSize      Requested page size or null
+     * @throws IllegalArgumentException if token is invalid
+     */
+    public static void apply(SearchSourceBuilder sourceBuilder,
+                             String cursor,
+                             Integer pageSize) {
+        sourceBuilder.from(0);
+        sourceBuilder.size(pageSize(pageSize));
+        if (sourceBuilder.sorts() == null || sourceBuilder.sorts().isEmpty()) {
+            sourceBuilder.sort(SortBuilders.scoreSort().order(SortOrder.DESC));
+        }
+        sourceBuilder.sort(SortBuilders.fieldSort("id").order(SortOrder.ASC));
+        Object[] sortValues = decode(cursor);
+        if (sortValues != null) {
+            if (sortValues.length != sourceBuilder.sorts().size()) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            sourceBuilder.searchAfter(sortValues);
+        }
+    }
+
+    /**
+     * @return Page size used in cursor queries
+     */
+    public static int pageSize(Integer pageSize) {
+        return pageSize != null ? Math.max(1, Math.min(pageSize, MAX_PAGE_SIZE)) : DEFAULT_PAGE_SIZE;
+    }
+
+    /**
+     * @param hits     Hits of cursor query
+     * @param pageSize Requested page size or null
+     * @return Token for the page after given hits or null if this was the last page
+     */
+    public static String next(SearchHits hits,
+                              Integer pageSize) {
+        SearchHit[] pageHits = hits.getHits();
+        if (pageHits.length == 0 || pageHits.length < pageSize(pageSize)) {
+            return null;
+        }
+        return encode(pageHits[pageHits.length - 1].getSortValues());
+    }
+
+    static String encode(Object[] sortValues) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(cursorMapper.writeValueAsBytes(sortValues));
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not encode search cursor", ex);
+        }
+    }
+
+    static Object[] decode(String cursor) {
+        if (cursor == null || cursor.isEmpty() || FIRST_PAGE.equals(cursor)) {
+            return null;
+        }
+        try {
+            Object[] sortValues = cursorMapper.readValue(Base64.getUrlDecoder().decode(cursor), Object[].class);
+            if (sortValues.length == 0 || !(sortValues[sortValues.length - 1] instanceof String)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            for (Object sortValue : sortValues) {
+                // Hits without a value of a sort field have null sort values
+                if (sortValue != null && !(sortValue instanceof String || sortValue instanceof Number || sortValue instanceof Boolean)) {
+                    throw new IllegalArgumentException("Invalid cursor");
+                }
+            }
+            return sortValues;
+        } catch (IOException | IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid cursor", ex);
+        }
+    }
+}
@@ -2,12 +2,16 @@ package fi.vm.yti.datamodel.api.index;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import javax.inject.Singleton;
@@ -20,11 +24,15 @@ import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
-import org.elasticsearch.client.RequestOptions;
-import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.index.reindex.BulkByScrollResponse;
 import org.elasticsearch.index.reindex.DeleteByQueryRequest;
+import org.elasticsearch.index.reindex.UpdateByQueryRequest;
+import org.elasticsearch.script.Script;
+import org.elasticsearch.script.ScriptType;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,6 +45,7 @@ import fi.vm.yti.datamodel.api.index.model.DeepSearchHitListDTO;
 import fi.vm.yti.datamodel.api.index.model.IndexClassDTO;
 import fi.vm.yti.datamodel.api.index.model.IndexModelDTO;
 import fi.vm.yti.datamodel.api.index.model.IndexPredicateDTO;
+import fi.vm.yti.datamodel.api.index.model.IndexResourceDTO;
 import fi.vm.yti.datamodel.api.index.model.IntegrationAPIResponse;
 import fi.vm.yti.datamodel.api.index.model.IntegrationContainerRequest;
 import fi.vm.yti.datamodel.api.index.model.IntegrationResourceRequest;
@@ -46,12 +55,15 @@ import fi.vm.yti.datamodel.api.index.model.ResourceSearchRequest;
 import fi.vm.yti.datamodel.api.index.model.ResourceSearchResponse;
 import fi.vm.yti.datamodel.api.model.AbstractClass;
 import fi.vm.yti.datamodel.api.model.AbstractPredicate;
+import fi.vm.yti.datamodel.api.model.AbstractResource;
 import fi.vm.yti.datamodel.api.model.DataModel;
 import fi.vm.yti.datamodel.api.model.ReusableClass;
 import fi.vm.yti.datamodel.api.model.ReusablePredicate;
 import fi.vm.yti.datamodel.api.service.GraphManager;
 import fi.vm.yti.datamodel.api.service.JenaClient;
 import fi.vm.yti.datamodel.api.service.ModelManager;
+import fi.vm.yti.datamodel.api.service.ReadRouter;
+import fi.vm.yti.datamodel.api.utils.CompiledFrame;
 import fi.vm.yti.datamodel.api.utils.Frames;
 import fi.vm.yti.datamodel.api.utils.LDHelper;
 import fi.vm.yti.security.Role;
@@ -64,6 +76,11 @@ public class SearchIndexManager {
     private static final Logger logger = LoggerFactory.getLogger(SearchIndexManager.class);
     private static final String ELASTIC_INDEX_RESOURCE = "dm_resources";
     private static final String ELASTIC_INDEX_MODEL = "dm_models";
+    private static final int STATUS_UPDATE_ATTEMPTS = 3;
+    private static final Pattern languagePattern = Pattern.compile("[a-zA-Z-]+");
+    private static final CompiledFrame ES_MODEL_FRAME = new CompiledFrame(Frames.esModelFrame);
+    private static final CompiledFrame ES_CLASS_FRAME = new CompiledFrame(Frames.esClassFrame);
+    private static final CompiledFrame ES_PREDICATE_FRAME = new CompiledFrame(Frames.esPredicateFrame);
     private final ElasticConnector esManager;
     private final JenaClient jenaClient;
     private final GraphManager graphManager;
@@ -72,7 +89,8 @@ public class SearchIndexManager {
     private final ModelQueryFactory modelQueryFactory;
     private final DeepResourceQueryFactory deepResourceQueryFactory;
     private final ResourceQueryFactory resourceQueryFactory;
-    private RestHighLevelClient esClient;
+    private final LuceneQueryFactory luceneQueryFactory;
+    private final ReadRouter readRouter;
 
     @Autowired
     public SearchIndexManager(final ElasticConnector esManager,
@@ -82,9 +100,10 @@ public class SearchIndexManager {
                               final ModelManager modelManager,
                               final ModelQueryFactory modelQueryFactory,
                               final DeepResourceQueryFactory deepClassQueryFactory,
-                              final ResourceQueryFactory resourceQueryFactory) {
+                              final ResourceQueryFactory resourceQueryFactory,
+                              final LuceneQueryFactory luceneQueryFactory,
+                              final ReadRouter readRouter) {
         this.esManager = esManager;
-        this.esClient = esManager.getEsClient();
         this.jenaClient = jenaClient;
         this.graphManager = graphManager;
         this.objectMapper = objectMapper;
@@ -92,13 +111,19 @@ public class SearchIndexManager {
         this.modelQueryFactory = modelQueryFactory;
         this.deepResourceQueryFactory = deepClassQueryFactory;
         this.resourceQueryFactory = resourceQueryFactory;
+        this.luceneQueryFactory = luceneQueryFactory;
+        this.readRouter = readRouter;
     }
 
     /**
      * Drop, re-create and fill search indexes (model and resource indexes, the latter containing classes and predicates).
+     * Graphs are read as bulk reads.
+     *
+     * @throws IOException if the indexes could not be cleaned or created, so that the caller can report the failure
      */
-    public void reindex() {
-        try {
+    @SuppressWarnings("try")
+    public void reindex() throws IOException {
+        try (ReadRouter.Scope scope = readRouter.bulkReads()) {
             esManager.cleanIndex(ELASTIC_INDEX_RESOURCE);
             esManager.cleanIndex(ELASTIC_INDEX_MODEL);
             logger.info("Indexes cleaned");
@@ -106,8 +131,6 @@ public class SearchIndexManager {
             esManager.createIndex(ELASTIC_INDEX_MODEL, getModelMappings());
             initSearchIndexes();
             logger.info("Indexes initialized");
-        } catch (IOException ex) {
-            logger.warn("Reindex failed!", ex);
         }
     }
 
@@ -128,6 +151,21 @@ public class SearchIndexManager {
         esManager.updateToIndex(ELASTIC_INDEX_RESOURCE, indexClass.getId(), indexClass);
     }
 
+    /**
+     * Updates classes and predicates of a batch with one bulk request
+     */
+    public void updateIndexResources(List<? extends AbstractResource> resources) {
+        Map<String, Object> docs = new LinkedHashMap<>();
+        for (AbstractResource resource : resources) {
+            if (resource instanceof AbstractClass) {
+                docs.put(resource.getId(), new IndexClassDTO((AbstractClass) resource));
+            } else if (resource instanceof AbstractPredicate) {
+                docs.put(resource.getId(), new IndexPredicateDTO((AbstractPredicate) resource));
+            }
+        }
+        esManager.bulkUpdateToIndex(ELASTIC_INDEX_RESOURCE, docs);
+    }
+
     public void removeClass(String id) {
         esManager.removeFromIndex(id, ELASTIC_INDEX_RESOURCE);
     }
@@ -157,7 +195,7 @@ public class SearchIndexManager {
         try {
             DeleteByQueryRequest resourceRequest = new DeleteByQueryRequest(ELASTIC_INDEX_RESOURCE);
             resourceRequest.setQuery(QueryBuilders.termQuery("isDefinedBy", id));
-            BulkByScrollResponse resourceResponse = esClient.deleteByQuery(resourceRequest, RequestOptions.DEFAULT);
+            BulkByScrollResponse resourceResponse = esManager.deleteByQuery(ELASTIC_INDEX_RESOURCE, resourceRequest);
             logger.info("Removed " + resourceResponse.getDeleted() + " resources from \"" + ELASTIC_INDEX_RESOURCE + "\" for model \"" + id + "\"");
         } catch (Exception e) {
             logger.warn("Could not delete resources for model " + id + " from index", e);
@@ -167,6 +205,56 @@ public class SearchIndexManager {
         esManager.removeFromIndex(id, ELASTIC_INDEX_MODEL);
     }
 
+    /**
+     * Changes status of the indexed resources of the model that are in the initial status without reading the
+     * resources from core. Resources are updated in place by a single update by query. Resources that were
+     * modified concurrently are skipped by the update and updated again by a new query, up to
+     * STATUS_UPDATE_ATTEMPTS times.
+     *
+     * @param statusModified New statusModified of the changed resources
+     * @return Number of updated resources
+     * @throws IOException if some resources could not be updated
+     */
+    public long updateResourceStatuses(String model,
+                                       String initialStatus,
+                                       String endStatus,
+                                       String statusModified) throws IOException {
+        Map<String, Object> params = new HashMap<>();
+        params.put("status", endStatus);
+        params.put("statusModified", statusModified);
+
+        long updated = 0;
+        long conflicts = 0;
+
+        for (int attempt = 1; attempt <= STATUS_UPDATE_ATTEMPTS; attempt++) {
+            UpdateByQueryRequest request = new UpdateByQueryRequest(ELASTIC_INDEX_RESOURCE);
+            request.setQuery(QueryBuilders.boolQuery()
+                .filter(QueryBuilders.termQuery("isDefinedBy", model))
+                .filter(QueryBuilders.termQuery("status", initialStatus)));
+            request.setScript(new Script(ScriptType.INLINE, "painless", "ctx._source.status = params.status; ctx._source.statusModified = params.statusModified", params));
+            request.setConflicts("proceed");
+            request.setRefresh(true);
+
+            BulkByScrollResponse response = esManager.updateByQuery(ELASTIC_INDEX_RESOURCE, request);
+
+            if (!response.getBulkFailures().isEmpty() || !response.getSearchFailures().isEmpty()) {
+                throw new IOException("Status change of " + model + " failed for " + (response.getBulkFailures().size() + response.getSearchFailures().size()) + " resources in \"" + ELASTIC_INDEX_RESOURCE + "\"");
+            }
+
+            updated += response.getUpdated();
+            conflicts = response.getVersionConflicts();
+
+            if (conflicts == 0) {
+                logger.info("Changed status of " + updated + " resources in \"" + ELASTIC_INDEX_RESOURCE + "\" for model \"" + model + "\" from " + initialStatus + " to " + endStatus);
+                return updated;
+            }
+
+            logger.info("Status change of " + model + " skipped " + conflicts + " concurrently modified resources, attempt " + attempt + " of " + STATUS_UPDATE_ATTEMPTS);
+        }
+
+        throw new IOException("Status change of " + model + " failed for " + conflicts + " concurrently modified resources in \"" + ELASTIC_INDEX_RESOURCE + "\"");
+    }
+
     public void createIndexModel(String modelId) {
         IRI modelIri = LDHelper.toIRI(modelId);
         createIndexModel(new DataModel(modelIri,graphManager));
@@ -217,7 +305,7 @@ public class SearchIndexManager {
                 }
             }
             ModelSearchRequest containerRequest = new ModelSearchRequest(integrationRequest);
-            SearchResponse response = esClient.search(modelQueryFactory.createQuery(containerRequest), RequestOptions.DEFAULT);
+            SearchResponse response = esManager.search(ELASTIC_INDEX_MODEL, modelQueryFactory.createQuery(containerRequest));
             ModelSearchResponse containerResponse = modelQueryFactory.parseResponse(response, containerRequest, null);
             return new IntegrationAPIResponse(containerResponse, containerRequest, path);
         } catch (IOException e) {
@@ -244,7 +332,7 @@ public class SearchIndexManager {
             try {
                 Set<String> modelIds = graphManager.getPriviledgedModels(request.getIncludeIncompleteFrom());
                 SearchRequest query = deepResourceQueryFactory.createQuery(request.getQuery(), request.getSortLang(), modelIds);
-                SearchResponse response = esClient.search(query, RequestOptions.DEFAULT);
+                SearchResponse response = esManager.search(ELASTIC_INDEX_RESOURCE, query);
                 deepSearchHits = deepResourceQueryFactory.parseResponse(response, request);
             } catch (IOException e) {
                 throw new RuntimeException(e);
@@ -260,7 +348,7 @@ public class SearchIndexManager {
             } else {
                 finalQuery = modelQueryFactory.createQuery(request);
             }
-            SearchResponse response = esClient.search(finalQuery, RequestOptions.DEFAULT);
+            SearchResponse response = esManager.search(ELASTIC_INDEX_MODEL, finalQuery);
             return modelQueryFactory.parseResponse(response, request, deepSearchHits);
         } catch (IOException e) {
             throw new RuntimeException(e);
@@ -273,7 +361,7 @@ public class SearchIndexManager {
         integrationRequest.setSearchTerm(integrationRequest.getSearchTerm() != null ? integrationRequest.getSearchTerm().trim() : "");
         try {
             ResourceSearchRequest resourceRequest = new ResourceSearchRequest(integrationRequest);
-            SearchResponse response = esClient.search(resourceQueryFactory.createQuery(resourceRequest), RequestOptions.DEFAULT);
+            SearchResponse response = esManager.search(ELASTIC_INDEX_RESOURCE, resourceQueryFactory.createQuery(resourceRequest, false));
             ResourceSearchResponse resourceResponse = resourceQueryFactory.parseResponse(response, resourceRequest, false);
             return new IntegrationAPIResponse(resourceResponse, resourceRequest, path);
         } catch (IOException e) {
@@ -285,14 +373,98 @@ public class SearchIndexManager {
         request.setQuery(request.getQuery() != null ? request.getQuery().trim() : "");
         try {
             SearchRequest finalQuery;
-            finalQuery = resourceQueryFactory.createQuery(request);
-            SearchResponse response = esClient.search(finalQuery, RequestOptions.DEFAULT);
+            finalQuery = resourceQueryFactory.createQuery(request, true);
+            SearchResponse response = esManager.search(ELASTIC_INDEX_RESOURCE, finalQuery);
             return resourceQueryFactory.parseResponse(response, request, true);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Finds classes and predicates whose label or comment matches the query regardless of model status.
+     *
+     * @param query    User query, empty query matches every resource
+     * @param language Language the resource must have a label in or null
+     * @param uris     Resources to search from or null to search all
+     * @param limit    Maximum number of resources returned
+     */
+    public List<IndexResourceDTO> findResources(String query,
+                                                String language,
+                                                Set<String> uris,
+                                                int limit) {
+        List<IndexResourceDTO> resources = new ArrayList<>();
+        BoolQueryBuilder boolQuery = createTextQuery(query, language);
+        if (uris != null) {
+            boolQuery.filter(QueryBuilders.termsQuery("id", uris));
+        }
+        for (SearchHit hit : findDocuments(ELASTIC_INDEX_RESOURCE, boolQuery, limit)) {
+            try {
+                resources.add(objectMapper.readValue(hit.getSourceAsString(), IndexResourceDTO.class));
+            } catch (IOException e) {
+                logger.warn("Could not parse resource " + hit.getId(), e);
+            }
+        }
+        return resources;
+    }
+
+    /**
+     * Finds models whose label or comment matches the query regardless of model status.
+     *
+     * @param query    User query, empty or null query matches every model
+     * @param language Language the model must have a label in or null
+     * @param ids      Models to search from or null to search all
+     * @param limit    Maximum number of models returned
+     */
+    public List<IndexModelDTO> findModels(String query,
+                                          String language,
+                                          Set<String> ids,
+                                          int limit) {
+        List<IndexModelDTO> models = new ArrayList<>();
+        BoolQueryBuilder boolQuery = createTextQuery(query, language);
+        if (ids != null) {
+            boolQuery.filter(QueryBuilders.termsQuery("id", ids));
+        }
+        for (SearchHit hit : findDocuments(ELASTIC_INDEX_MODEL, boolQuery, limit)) {
+            try {
+                models.add(objectMapper.readValue(hit.getSourceAsString(), IndexModelDTO.class));
+            } catch (IOException e) {
+                logger.warn("Could not parse model " + hit.getId(), e);
+            }
+        }
+        return models;
+    }
+
+    private BoolQueryBuilder createTextQuery(String query,
+                                             String language) {
+        String lang = language != null && languagePattern.matcher(language).matches() ? language : null;
+        BoolQueryBuilder boolQuery = QueryBuilders.boolQuery();
+        if (query != null && !query.trim().isEmpty()) {
+            boolQuery.must(QueryBuilders.boolQuery()
+                .should(luceneQueryFactory.buildPrefixSuffixQuery(query, "label", lang))
+                .should(luceneQueryFactory.buildPrefixSuffixQuery(query, "comment", lang))
+                .minimumShouldMatch(1));
+        }
+        if (lang != null) {
+            boolQuery.filter(QueryBuilders.existsQuery("label." + lang));
+        }
+        return boolQuery;
+    }
+
+    private SearchHit[] findDocuments(String index,
+                                      BoolQueryBuilder query,
+                                      int limit) {
+        SearchRequest request = new SearchRequest(index)
+            .source(new SearchSourceBuilder()
+                .query(query.hasClauses() ? query : QueryBuilders.matchAllQuery())
+                .size(limit));
+        try {
+            return esManager.search(index, request).getHits().getHits();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private String getResourceMappings() throws IOException {
         InputStream is = SearchIndexManager.class.getClassLoader().getResourceAsStream("resource_mapping.json");
         Object obj = objectMapper.readTree(is);
@@ -318,7 +490,7 @@ public class SearchIndexManager {
                 source(objectMapper.convertValue(resource, Map.class));
             bulkRequest.add(indexRequest);
         });
-        BulkResponse bresp = esClient.bulk(bulkRequest, RequestOptions.DEFAULT);
+        BulkResponse bresp = esManager.bulk(indexName, bulkRequest);
         logger.debug("Bulk insert status: " + bresp.status().getStatus());
     }
 
@@ -363,7 +535,7 @@ public class SearchIndexManager {
             logger.warn("Could not find any models to index!");
             return;
         }
-        JsonNode nodes = modelManager.toFramedJsonNode(model, Frames.esModelFrame);
+        JsonNode nodes = modelManager.toFramedJsonNode(model, ES_MODEL_FRAME);
         if (nodes == null) {
             logger.warn("Could not parse JSON");
             return;
@@ -407,7 +579,7 @@ public class SearchIndexManager {
             logger.warn("Could not find any classes to index!");
             return;
         }
-        JsonNode nodes = modelManager.toFramedJsonNode(model, Frames.esClassFrame);
+        JsonNode nodes = modelManager.toFramedJsonNode(model, ES_CLASS_FRAME);
         if (nodes == null) {
             logger.warn("Could not parse JSON");
             return;
@@ -442,7 +614,7 @@ public class SearchIndexManager {
             logger.warn("Could not find any classes to index!");
             return;
         }
-        JsonNode nodes = modelManager.toFramedJsonNode(model, Frames.esClassFrame);
+        JsonNode nodes = modelManager.toFramedJsonNode(model, ES_CLASS_FRAME);
         if (nodes == null) {
             logger.warn("Could not parse JSON");
             return;
@@ -485,7 +657,7 @@ public class SearchIndexManager {
         }
         JsonNode nodes = null;
         try {
-            nodes = modelManager.toFramedJsonNode(model, Frames.esClassFrame);
+            nodes = modelManager.toFramedJsonNode(model, ES_CLASS_FRAME);
             if (nodes == null) {
                 logger.warn("Could not parse JSON");
                 return;
@@ -527,7 +699,7 @@ public class SearchIndexManager {
             logger.warn("Could not find any predicates to index!");
             return;
         }
-        JsonNode nodes = modelManager.toFramedJsonNode(model, Frames.esPredicateFrame);
+        JsonNode nodes = modelManager.toFramedJsonNode(model, ES_PREDICATE_FRAME);
         if (nodes == null) {
             logger.warn("Could not parse JSON");
             return;
@@ -572,7 +744,7 @@ public class SearchIndexManager {
         }
         JsonNode nodes = null;
         try {
-            nodes = modelManager.toFramedJsonNode(model, Frames.esPredicateFrame);
+            nodes = modelManager.toFramedJsonNode(model, ES_PREDICATE_FRAME);
             if (nodes == null) {
                 logger.warn("Could not parse JSON");
                 return;
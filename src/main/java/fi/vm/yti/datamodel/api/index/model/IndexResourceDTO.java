@@ -1,7 +1,6 @@
 package fi.vm.yti.datamodel.api.index.model;
 
 import java.util.Map;
-import java.util.regex.Pattern;
 
 import fi.vm.yti.datamodel.api.model.AbstractClass;
 
@@ -119,15 +118,13 @@ public class IndexResourceDTO {
         this.range = range;
     }
 
-    public void highlightLabels(String highlightText) {
-        if (highlightText != null && highlightText.length() > 0) {
-            String[] highLights = highlightText.split("\\s+");
-            for(String highLight : highLights) {
-                this.label.forEach((lang, label) -> {
-                    String matchString = Pattern.quote(highLight);
-                    this.label.put(lang, label.replaceAll("(?i)(?<text>\\b" + matchString + "|"+ matchString+"\\b)", "<b>${text}</b>"));
-                });
-            }
+    public void highlightLabels(Map<String, String> highlightedLabels) {
+        if (this.label != null) {
+            highlightedLabels.forEach((lang, highlightedLabel) -> {
+                if (this.label.containsKey(lang)) {
+                    this.label.put(lang, highlightedLabel);
+                }
+            });
         }
     }
 
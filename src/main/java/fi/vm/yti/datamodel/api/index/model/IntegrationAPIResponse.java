@@ -24,6 +24,22 @@ public class IntegrationAPIResponse {
         return returnPath;
     }
 
+    private String buildNextCursorUri(String path, String query, Integer pageSize, String cursor, String lang, String status) {
+        String returnPath = path;
+        returnPath+="?pageSize="+pageSize;
+        returnPath+="&cursor="+cursor;
+        if(status!=null && !status.isEmpty()) {
+            returnPath+="&status="+status;
+        }
+        if(query!=null && !query.isEmpty()) {
+            returnPath+="&searchTerm="+query;
+        }
+        if(lang!=null && !lang.isEmpty()) {
+            returnPath+="&language="+lang;
+        }
+        return returnPath;
+    }
+
     public IntegrationAPIResponse(final ModelSearchResponse modelResponse, final ModelSearchRequest modelRequest, String path) {
 
         this.meta = new IntegrationMetaDTO(modelResponse.getPageSize(),modelResponse.getPageFrom(), Integer.valueOf(Math.toIntExact(modelResponse.getTotalHitCount())));
@@ -36,6 +52,12 @@ public class IntegrationAPIResponse {
         if(path!=null && !path.isEmpty() && this.meta.getFrom()!=null && this.meta.getPageSize()!=null &&  (this.meta.getFrom() + this.meta.getPageSize() < this.meta.getTotalResults())) {
             this.meta.setNextPage(buildNextUri(path,modelRequest.getQuery(),modelResponse.getPageSize(), modelResponse.getPageFrom(), modelRequest.getSortLang(), String.join(",",modelRequest.getStatus())));
         }
+        if(modelResponse.getNextCursor()!=null) {
+            this.meta.setNextCursor(modelResponse.getNextCursor());
+            if(path!=null && !path.isEmpty()) {
+                this.meta.setNextPage(buildNextCursorUri(path,modelRequest.getQuery(),modelResponse.getPageSize(), modelResponse.getNextCursor(), modelRequest.getSortLang(), modelRequest.getStatus()!=null ? String.join(",",modelRequest.getStatus()) : null));
+            }
+        }
     }
 
     public IntegrationAPIResponse(final ResourceSearchResponse resourceResponse, final ResourceSearchRequest resourceRequest, String path) {
@@ -50,6 +72,12 @@ public class IntegrationAPIResponse {
         if(path!=null && !path.isEmpty() && this.meta.getFrom()!=null && this.meta.getPageSize()!=null &&  (this.meta.getFrom() + this.meta.getPageSize() < this.meta.getTotalResults())) {
             this.meta.setNextPage(buildNextUri(path,resourceRequest.getQuery(),resourceResponse.getPageSize(), resourceResponse.getPageFrom(), resourceRequest.getSortLang(), String.join(",",resourceRequest.getStatus())));
         }
+        if(resourceResponse.getNextCursor()!=null) {
+            this.meta.setNextCursor(resourceResponse.getNextCursor());
+            if(path!=null && !path.isEmpty()) {
+                this.meta.setNextPage(buildNextCursorUri(path,resourceRequest.getQuery(),resourceResponse.getPageSize(), resourceResponse.getNextCursor(), resourceRequest.getSortLang(), resourceRequest.getStatus()!=null ? String.join(",",resourceRequest.getStatus()) : null));
+            }
+        }
     }
 
     public IntegrationAPIResponse(final IntegrationMetaDTO meta,
@@ -18,6 +18,7 @@ public class IntegrationContainerRequest {
     private Integer pageFrom;
     private Boolean includeIncomplete;
     private Set<String> includeIncompleteFrom;
+    private String cursor;
 
     public IntegrationContainerRequest() {
     }
@@ -148,6 +149,14 @@ public class IntegrationContainerRequest {
         this.includeIncomplete = includeIncomplete;
     }
 
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(final String cursor) {
+        this.cursor = cursor;
+    }
+
     @Override
     public String toString() {
         return "IntegrationContainerRequest{" +
@@ -162,6 +171,7 @@ public class IntegrationContainerRequest {
             ", pageFrom=" + pageFrom +
             ", includeIncomplete=" + includeIncomplete +
             ", includeIncompleteFrom=" + includeIncompleteFrom +
+            ", cursor='" + cursor + '\'' +
             '}';
     }
 }
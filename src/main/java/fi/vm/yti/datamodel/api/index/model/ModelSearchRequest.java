@@ -31,6 +31,8 @@ public class ModelSearchRequest {
 
     private Set<String> includeIncompleteFrom;
 
+    private String cursor;
+
     public ModelSearchRequest() {
     }
 
@@ -47,6 +49,7 @@ public class ModelSearchRequest {
         this.pageSize = request.getPageSize();
         this.includeIncomplete = request.getIncludeIncomplete();
         this.includeIncompleteFrom = request.getIncludeIncompleteFrom();
+        this.cursor = request.getCursor();
     }
 
     public ModelSearchRequest(final String query,
@@ -195,6 +198,14 @@ public class ModelSearchRequest {
         this.includeIncompleteFrom = includeIncompleteFrom;
     }
 
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(final String cursor) {
+        this.cursor = cursor;
+    }
+
     @Override
     public String toString() {
         return "ModelSearchRequest{" +
@@ -210,6 +221,7 @@ public class ModelSearchRequest {
             ", filter=" + filter +
             ", includeIncomplete=" + includeIncomplete +
             ", includeIncompleteFrom=" + includeIncompleteFrom +
+            ", cursor='" + cursor + '\'' +
             '}';
     }
 }
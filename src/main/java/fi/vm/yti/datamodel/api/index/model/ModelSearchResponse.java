@@ -10,6 +10,7 @@ public class ModelSearchResponse {
     private Integer pageFrom;
     private List<IndexModelDTO> models;
     private Map<String, List<DeepSearchHitListDTO<?>>> deepHits;
+    private String nextCursor;
 
     public ModelSearchResponse() {
     }
@@ -66,6 +67,14 @@ public class ModelSearchResponse {
         this.deepHits = deepHits;
     }
 
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(final String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
     @Override
     public String toString() {
         return "ModelSearchResponse{" +
@@ -74,6 +83,7 @@ public class ModelSearchResponse {
             ", pageFrom=" + pageFrom +
             ", models=" + models +
             ", deepHits=" + deepHits +
+            ", nextCursor='" + nextCursor + '\'' +
             '}';
     }
 }
\ No newline at end of file
@@ -33,6 +33,8 @@ public class ResourceSearchRequest {
 
     private Set<String> filter;
 
+    private String cursor;
+
     public ResourceSearchRequest() {
     }
 
@@ -48,6 +50,7 @@ public class ResourceSearchRequest {
         this.filter = request.getFilter();
         this.pageFrom = request.getPageFrom();
         this.pageSize = request.getPageSize();
+        this.cursor = request.getCursor();
     }
 
     public ResourceSearchRequest(final String query,
@@ -200,6 +203,14 @@ public class ResourceSearchRequest {
         this.filter = filter;
     }
 
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(final String cursor) {
+        this.cursor = cursor;
+    }
+
     @Override
     public String toString() {
         return "ResourceSearchRequest{" +
@@ -216,6 +227,7 @@ public class ResourceSearchRequest {
             ", pageSize=" + pageSize +
             ", pageFrom=" + pageFrom +
             ", filter=" + filter +
+            ", cursor='" + cursor + '\'' +
             '}';
     }
 }
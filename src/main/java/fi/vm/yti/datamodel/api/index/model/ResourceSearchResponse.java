@@ -8,6 +8,7 @@ public class ResourceSearchResponse {
     private Integer pageSize;
     private Integer pageFrom;
     private List<IndexResourceDTO> resources;
+    private String nextCursor;
 
     public ResourceSearchResponse() {
     }
@@ -54,6 +55,14 @@ public class ResourceSearchResponse {
         this.resources = resources;
     }
 
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(final String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
     @Override
     public String toString() {
         return "ResourceSearchResponse{" +
@@ -61,6 +70,7 @@ public class ResourceSearchResponse {
             ", pageSize=" + pageSize +
             ", pageFrom=" + pageFrom +
             ", resources=" + resources +
+            ", nextCursor='" + nextCursor + '\'' +
             '}';
     }
 }
\ No newline at end of file
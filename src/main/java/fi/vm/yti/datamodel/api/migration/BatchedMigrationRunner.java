@@ -0,0 +1,315 @@
+package fi.vm.yti.datamodel.api.migration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.jena.query.ParameterizedSparqlString;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+import fi.vm.yti.datamodel.api.model.MigrationJobDTO;
+import fi.vm.yti.datamodel.api.model.MigrationJobDTO.State;
+import fi.vm.yti.datamodel.api.service.EndpointServices;
+import fi.vm.yti.datamodel.api.service.JenaClient;
+import fi.vm.yti.datamodel.api.service.JobStore;
+import fi.vm.yti.datamodel.api.service.ReadRouter;
+
+/**
+ * Runs {@link BatchedMigrationTask}s in batches of migrationBatchSize items, waiting migrationBatchDelay
+ * milliseconds between the batches so that the migration does not starve other users of Fuseki.
+ * <p>
+ * Progress is checkpointed after every batch to the {@link #JOBS_GRAPH} graph of core. An offline task blocks
+ * the migration until it is done, so the schema version is not updated if it fails or the application is
+ * stopped, and the next run of the migration continues from the checkpoint. An online task returns immediately
+ * and is run in the background; unfinished and failed online tasks are resumed at startup. Tasks are run one at
+ * a time in the order they were started, so a task can rely on the data migrated by earlier online tasks.
+ */
+@Service
+public class BatchedMigrationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchedMigrationRunner.class.getName());
+
+    public static final String JOBS_GRAPH = "urn:csc:iow:migrations";
+
+    private static final List<String> PROPERTIES = Arrays.asList("iow:online", "iow:state", "iow:processed");
+    private static final List<String> OPTIONAL_PROPERTIES = Collections.singletonList("iow:cursor");
+
+    private final JenaClient jenaClient;
+    private final EndpointServices endpointServices;
+    private final JobStore jobStore;
+    private final ReadRouter readRouter;
+    private final int batchSize;
+    private final long batchDelay;
+    private final Map<String, BatchedMigrationTask> tasks = new ConcurrentHashMap<>();
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("migration-%d").setDaemon(true).build());
+
+    @Autowired
+    BatchedMigrationRunner(JenaClient jenaClient,
+                           EndpointServices endpointServices,
+                           ApplicationProperties properties,
+                           ReadRouter readRouter) {
+        this(new JobStore(jenaClient, endpointServices, JOBS_GRAPH, "iow:Migration"), jenaClient, endpointServices, properties, readRouter);
+    }
+
+    BatchedMigrationRunner(JobStore jobStore,
+                           JenaClient jenaClient,
+                           EndpointServices endpointServices,
+                           ApplicationProperties properties,
+                           ReadRouter readRouter) {
+        this.jenaClient = jenaClient;
+        this.endpointServices = endpointServices;
+        this.jobStore = jobStore;
+        this.readRouter = readRouter;
+        this.batchSize = Math.max(1, properties.getMigrationBatchSize());
+        this.batchDelay = Math.max(0, properties.getMigrationBatchDelay());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    void register(BatchedMigrationTask task) {
+        tasks.put(task.getName(), task);
+    }
+
+    /**
+     * Runs the task from its checkpoint. Offline tasks are waited for and online tasks are queued.
+     *
+     * @throws IllegalStateException if an offline task fails or is interrupted
+     */
+    @SuppressWarnings("try")
+    void run(BatchedMigrationTask task) {
+        MigrationJobDTO job;
+        try (ReadRouter.Scope scope = readRouter.primaryReads()) {
+            job = getJob(task.getName());
+        }
+
+        if (job != null && job.isFinished()) {
+            logger.info("Migration " + task.getName() + " is already done");
+            return;
+        }
+
+        if (job == null) {
+            Date now = new Date();
+            job = new MigrationJobDTO(task.getName(), task.isOnline(), State.QUEUED, null, 0, now, now, null);
+            putJob(job);
+        }
+
+        if (task.isOnline()) {
+            logger.info("Migration " + task.getName() + " continues in background");
+            submit(task, job);
+            return;
+        }
+
+        final MigrationJobDTO offlineJob = job;
+        try {
+            executor.submit(() -> {
+                try (ReadRouter.Scope scope = readRouter.primaryReads()) {
+                    process(task, offlineJob);
+                }
+                return null;
+            }).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for migration " + task.getName(), ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Migration " + task.getName() + " failed", ex.getCause());
+        }
+    }
+
+    /**
+     * Resumes online tasks that were queued, running or failed when the application was stopped
+     */
+    @SuppressWarnings("try")
+    public void resumeUnfinishedJobs() {
+        List<MigrationJobDTO> jobs;
+        try (ReadRouter.Scope scope = readRouter.primaryReads()) {
+            jobs = getJobs();
+        }
+        for (MigrationJobDTO job : jobs) {
+            if (job.isOnline() && !job.isFinished()) {
+                BatchedMigrationTask task = tasks.get(job.getName());
+                if (task == null) {
+                    logger.warn("Cannot resume migration " + job.getName() + " because the task does not exist");
+                    continue;
+                }
+                logger.info("Resuming migration " + job.getName() + " after " + job.getProcessed() + " items");
+                submit(task, job);
+            }
+        }
+    }
+
+    /**
+     * @param name Task name
+     * @return Checkpoint or null if the task has not been started
+     */
+    public MigrationJobDTO getJob(String name) {
+        List<MigrationJobDTO> jobs = queryJobs(name);
+        return jobs.isEmpty() ? null : jobs.get(0);
+    }
+
+    /**
+     * @return Checkpoints of all tasks ordered by creation time
+     */
+    public List<MigrationJobDTO> getJobs() {
+        return queryJobs(null);
+    }
+
+    List<String> graphsAfter(String after,
+                             int limit) {
+        String query = "SELECT DISTINCT ?graph WHERE { "
+            + "GRAPH ?graph { } "
+            + (after != null ? "FILTER(STR(?graph) > ?after) " : "")
+            + "} ORDER BY STR(?graph) LIMIT " + limit;
+
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        pss.setCommandText(query);
+        if (after != null) {
+            pss.setLiteral("after", after);
+        }
+
+        ResultSet results = jenaClient.selectQuery(endpointServices.getCoreSparqlAddress(), pss.asQuery());
+
+        List<String> graphs = new ArrayList<>();
+        while (results.hasNext()) {
+            graphs.add(results.nextSolution().getResource("graph").getURI());
+        }
+        return graphs;
+    }
+
+    /**
+     * Queues an online task unless it is already queued or running, for example when the task is started by the
+     * migration and resumed by the startup stage
+     */
+    @SuppressWarnings("try")
+    private void submit(BatchedMigrationTask task,
+                        MigrationJobDTO job) {
+        if (!queued.add(task.getName())) {
+            logger.info("Migration " + task.getName() + " is already queued");
+            return;
+        }
+        executor.execute(() -> {
+            try (ReadRouter.Scope scope = readRouter.primaryReads()) {
+                process(task, job);
+            } catch (Exception ex) {
+                // Already logged and stored
+            } finally {
+                queued.remove(task.getName());
+            }
+        });
+    }
+
+    /**
+     * Runs the task from the stored checkpoint, or from the given job if the checkpoint is not stored
+     */
+    private void process(BatchedMigrationTask task,
+                         MigrationJobDTO initialJob) throws Exception {
+        long start = System.currentTimeMillis();
+
+        MigrationJobDTO checkpoint = getJob(task.getName());
+        if (checkpoint != null && checkpoint.isFinished()) {
+            logger.info("Migration " + task.getName() + " is already done");
+            return;
+        }
+        MigrationJobDTO job = checkpoint != null ? checkpoint : initialJob;
+
+        try {
+            job.setState(State.RUNNING);
+            job.setError(null);
+            putJob(job);
+
+            List<String> batch;
+            while (!(batch = task.nextBatch(job.getCursor(), batchSize)).isEmpty()) {
+                String cursor = batch.get(batch.size() - 1);
+                if (job.getCursor() != null && cursor.compareTo(job.getCursor()) <= 0) {
+                    throw new IllegalStateException("Batch of migration " + job.getName() + " does not advance past " + job.getCursor());
+                }
+
+                task.migrateBatch(batch);
+
+                job.setCursor(cursor);
+                job.setProcessed(job.getProcessed() + batch.size());
+                putJob(job);
+
+                if (batchDelay > 0) {
+                    Thread.sleep(batchDelay);
+                }
+            }
+
+            job.setState(State.DONE);
+            putJob(job);
+
+            logger.info("Migration " + job.getName() + " processed " + job.getProcessed() + " items in " + (System.currentTimeMillis() - start) + " ms");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            logger.info("Migration " + job.getName() + " interrupted after " + job.getProcessed() + " items");
+            throw ex;
+        } catch (Exception ex) {
+            logger.warn("Migration " + job.getName() + " failed after " + job.getProcessed() + " items", ex);
+            job.setState(State.FAILED);
+            job.setError(ex.getMessage());
+            try {
+                putJob(job);
+            } catch (RuntimeException putEx) {
+                logger.warn("Could not store checkpoint of migration " + job.getName(), putEx);
+            }
+            throw ex;
+        }
+    }
+
+    private void putJob(MigrationJobDTO job) {
+        job.setModified(new Date());
+
+        Map<String, RDFNode> properties = new LinkedHashMap<>();
+        properties.put("iow:online", ResourceFactory.createTypedLiteral(job.isOnline()));
+        properties.put("iow:state", ResourceFactory.createPlainLiteral(job.getState().name()));
+        properties.put("iow:processed", ResourceFactory.createTypedLiteral(job.getProcessed()));
+        properties.put("iow:cursor", job.getCursor() != null ? ResourceFactory.createPlainLiteral(job.getCursor()) : null);
+
+        jobStore.put(JOBS_GRAPH + ":" + job.getName(), properties, job.getCreated(), job.getModified(), job.getError());
+    }
+
+    private List<MigrationJobDTO> queryJobs(String name) {
+        Map<String, RDFNode> values = new LinkedHashMap<>();
+        if (name != null) {
+            values.put("job", ResourceFactory.createResource(JOBS_GRAPH + ":" + name));
+        }
+
+        List<MigrationJobDTO> jobs = new ArrayList<>();
+        for (QuerySolution soln : jobStore.query(PROPERTIES, OPTIONAL_PROPERTIES, values)) {
+            jobs.add(new MigrationJobDTO(
+                soln.get("job").toString().substring(JOBS_GRAPH.length() + 1),
+                soln.getLiteral("online").getBoolean(),
+                State.valueOf(soln.getLiteral("state").getString()),
+                soln.contains("cursor") ? soln.getLiteral("cursor").getString() : null,
+                soln.getLiteral("processed").getLong(),
+                JobStore.toDate(soln.getLiteral("created")),
+                JobStore.toDate(soln.getLiteral("modified")),
+                soln.contains("error") ? soln.getLiteral("error").getString() : null));
+        }
+        return jobs;
+    }
+}
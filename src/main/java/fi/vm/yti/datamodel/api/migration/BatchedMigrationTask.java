@@ -0,0 +1,69 @@
+package fi.vm.yti.datamodel.api.migration;
+
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import fi.vm.yti.migration.MigrationTask;
+
+/**
+ * Migration task that processes items, usually graphs, in batches instead of one large update.
+ * <p>
+ * Items are read in ascending order after a cursor, and the last item of each processed batch is stored as a
+ * checkpoint by {@link BatchedMigrationRunner}, so a restarted migration continues after the last finished
+ * batch. Batches may therefore be processed more than once and {@link #migrateBatch(List)} must be idempotent.
+ * Online tasks are run in the background and the schema version is updated without waiting for them.
+ */
+public abstract class BatchedMigrationTask implements MigrationTask {
+
+    private final BatchedMigrationRunner runner;
+
+    protected BatchedMigrationTask(BatchedMigrationRunner runner) {
+        this.runner = runner;
+    }
+
+    @PostConstruct
+    void register() {
+        runner.register(this);
+    }
+
+    @Override
+    public final void migrate() {
+        runner.run(this);
+    }
+
+    /**
+     * @return Name of the checkpoint, unique among migration tasks
+     */
+    public String getName() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * @return Whether the task is run in the background while the application serves requests
+     */
+    public boolean isOnline() {
+        return false;
+    }
+
+    /**
+     * @param after Last item of the previous batch or null for the first batch
+     * @param limit Maximum number of items
+     * @return Items after the cursor in ascending order, empty when all items are processed
+     */
+    public abstract List<String> nextBatch(String after,
+                                           int limit);
+
+    /**
+     * @param batch Items to migrate
+     */
+    public abstract void migrateBatch(List<String> batch);
+
+    /**
+     * @return Named graphs of core after the cursor in ascending order
+     */
+    protected List<String> graphsAfter(String after,
+                                       int limit) {
+        return runner.graphsAfter(after, limit);
+    }
+}
@@ -74,6 +74,15 @@ public abstract class AbstractClass extends AbstractResource {
 
     public AbstractClass(Model graph,
                          GraphManager graphManager) {
+        this(graph, graphManager, null);
+    }
+
+    /**
+     * @param dataModel Already loaded model that must define the class, or null to load the model of the class
+     */
+    public AbstractClass(Model graph,
+                         GraphManager graphManager,
+                         DataModel dataModel) {
 
         this.graph = graph;
         this.graphManager = graphManager;
@@ -107,7 +116,13 @@ public abstract class AbstractClass extends AbstractResource {
             Statement isDefinedBy = classResource.getRequiredProperty(RDFS.isDefinedBy);
             Resource modelResource = isDefinedBy.getObject().asResource();
 
-            this.dataModel = new DataModel(LDHelper.toIRI(modelResource.toString()), graphManager);
+            if (dataModel == null) {
+                this.dataModel = new DataModel(LDHelper.toIRI(modelResource.toString()), graphManager);
+            } else if (dataModel.getId().equals(modelResource.toString())) {
+                this.dataModel = dataModel;
+            } else {
+                throw new IllegalArgumentException("Class is not defined by " + dataModel.getId());
+            }
             this.id = LDHelper.toIRI(classResource.toString());
 
             if (!this.id.toString().startsWith(getModelId())) {
@@ -75,6 +75,15 @@ public abstract class AbstractPredicate extends AbstractResource {
 
     public AbstractPredicate(Model graph,
                              GraphManager graphManager) {
+        this(graph, graphManager, null);
+    }
+
+    /**
+     * @param dataModel Already loaded model that must define the predicate, or null to load the model of the predicate
+     */
+    public AbstractPredicate(Model graph,
+                             GraphManager graphManager,
+                             DataModel dataModel) {
 
         this.graph = graph;
 
@@ -106,7 +115,13 @@ public abstract class AbstractPredicate extends AbstractResource {
             Statement isDefinedBy = predicateResource.getRequiredProperty(RDFS.isDefinedBy);
             Resource modelResource = isDefinedBy.getObject().asResource();
 
-            this.dataModel = new DataModel(LDHelper.toIRI(modelResource.toString()), graphManager);
+            if (dataModel == null) {
+                this.dataModel = new DataModel(LDHelper.toIRI(modelResource.toString()), graphManager);
+            } else if (dataModel.getId().equals(modelResource.toString())) {
+                this.dataModel = dataModel;
+            } else {
+                throw new IllegalArgumentException("Predicate is not defined by " + dataModel.getId());
+            }
             this.id = LDHelper.toIRI(predicateResource.toString());
             this.provUUID = "urn:uuid:" + UUID.randomUUID().toString();
 
@@ -5,8 +5,6 @@ import fi.vm.yti.datamodel.api.utils.LDHelper;
 
 import org.apache.jena.iri.IRI;
 import org.apache.jena.query.ParameterizedSparqlString;
-import org.apache.jena.query.QueryExecution;
-import org.apache.jena.query.QueryExecutionFactory;
 import org.apache.jena.rdf.model.Literal;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.RDFList;
@@ -37,8 +35,7 @@ public class ApplicationProfile extends AbstractModel {
                               String allowedLang,
                               List<String> serviceList,
                               List<UUID> orgList,
-                              GraphManager graphManager,
-                              EndpointServices endpointServices) {
+                              GraphManager graphManager) {
 
         super(graphManager);
 
@@ -95,9 +92,7 @@ public class ApplicationProfile extends AbstractModel {
         pss.setLiteral("mlabel", ResourceFactory.createLangLiteral(label, lang));
         pss.setLiteral("defLang", lang);
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.toString())) {
-            this.graph = qexec.execConstruct();
-        }
+        this.graph = graphManager.constructModelFromCoreGraph(pss.toString());
 
         RDFList langRDFList = LDHelper.addStringListToModel(this.graph, allowedLang);
         Resource rootResource = ResourceFactory.createResource(namespace.toString());
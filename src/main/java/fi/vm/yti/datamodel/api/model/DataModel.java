@@ -5,8 +5,6 @@ import java.util.UUID;
 
 import org.apache.jena.iri.IRI;
 import org.apache.jena.query.ParameterizedSparqlString;
-import org.apache.jena.query.QueryExecution;
-import org.apache.jena.query.QueryExecutionFactory;
 import org.apache.jena.rdf.model.Literal;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.RDFList;
@@ -14,7 +12,6 @@ import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.ResourceFactory;
 import org.apache.jena.vocabulary.DCTerms;
 
-import fi.vm.yti.datamodel.api.service.EndpointServices;
 import fi.vm.yti.datamodel.api.service.GraphManager;
 import fi.vm.yti.datamodel.api.service.RHPOrganizationManager;
 import fi.vm.yti.datamodel.api.utils.LDHelper;
@@ -39,8 +36,7 @@ public class DataModel extends AbstractModel {
                      String allowedLang,
                      List<String> serviceList,
                      List<UUID> orgList,
-                     GraphManager graphManager,
-                     EndpointServices endpointServices) {
+                     GraphManager graphManager) {
         super(graphManager);
 
         this.modelOrganizations = orgList;
@@ -96,9 +92,7 @@ public class DataModel extends AbstractModel {
         pss.setLiteral("mlabel", ResourceFactory.createLangLiteral(label, lang));
         pss.setLiteral("defLang", lang);
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.toString())) {
-            this.graph = qexec.execConstruct();
-        }
+        this.graph = graphManager.constructModelFromCoreGraph(pss.toString());
         RDFList langRDFList = LDHelper.addStringListToModel(this.graph, allowedLang);
         Resource rootResource = ResourceFactory.createResource(namespace.toString());
 
@@ -0,0 +1,114 @@
+package fi.vm.yti.datamodel.api.model;
+
+import java.util.Date;
+
+/**
+ * Checkpoint of a batched migration task
+ */
+public class MigrationJobDTO {
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    private String name;
+    private boolean online;
+    private State state;
+    private String cursor;
+    private long processed;
+    private Date created;
+    private Date modified;
+    private String error;
+
+    public MigrationJobDTO() {
+    }
+
+    public MigrationJobDTO(String name,
+                           boolean online,
+                           State state,
+                           String cursor,
+                           long processed,
+                           Date created,
+                           Date modified,
+                           String error) {
+        this.name = name;
+        this.online = online;
+        this.state = state;
+        this.cursor = cursor;
+        this.processed = processed;
+        this.created = created;
+        this.modified = modified;
+        this.error = error;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(final String name) {
+        this.name = name;
+    }
+
+    public boolean isOnline() {
+        return online;
+    }
+
+    public void setOnline(final boolean online) {
+        this.online = online;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(final State state) {
+        this.state = state;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(final String cursor) {
+        this.cursor = cursor;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    public void setProcessed(final long processed) {
+        this.processed = processed;
+    }
+
+    public Date getCreated() {
+        return created;
+    }
+
+    public void setCreated(final Date created) {
+        this.created = created;
+    }
+
+    public Date getModified() {
+        return modified;
+    }
+
+    public void setModified(final Date modified) {
+        this.modified = modified;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(final String error) {
+        this.error = error;
+    }
+
+    public boolean isFinished() {
+        return state == State.DONE;
+    }
+}
@@ -0,0 +1,103 @@
+package fi.vm.yti.datamodel.api.model;
+
+import java.util.Date;
+
+/**
+ * State of a background model deletion
+ */
+public class ModelDeletionJobDTO {
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    private String id;
+    private String model;
+    private State state;
+    private int deletedResources;
+    private Date created;
+    private Date modified;
+    private String error;
+
+    public ModelDeletionJobDTO() {
+    }
+
+    public ModelDeletionJobDTO(String id,
+                               String model,
+                               State state,
+                               int deletedResources,
+                               Date created,
+                               Date modified,
+                               String error) {
+        this.id = id;
+        this.model = model;
+        this.state = state;
+        this.deletedResources = deletedResources;
+        this.created = created;
+        this.modified = modified;
+        this.error = error;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(final String id) {
+        this.id = id;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(final String model) {
+        this.model = model;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(final State state) {
+        this.state = state;
+    }
+
+    public int getDeletedResources() {
+        return deletedResources;
+    }
+
+    public void setDeletedResources(final int deletedResources) {
+        this.deletedResources = deletedResources;
+    }
+
+    public Date getCreated() {
+        return created;
+    }
+
+    public void setCreated(final Date created) {
+        this.created = created;
+    }
+
+    public Date getModified() {
+        return modified;
+    }
+
+    public void setModified(final Date modified) {
+        this.modified = modified;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(final String error) {
+        this.error = error;
+    }
+
+    public boolean isFinished() {
+        return state == State.DONE || state == State.FAILED;
+    }
+}
@@ -3,7 +3,9 @@
  */
 package fi.vm.yti.datamodel.api.model;
 
-import fi.vm.yti.datamodel.api.service.EndpointServices;
+import fi.vm.yti.datamodel.api.service.JenaClient;
+import fi.vm.yti.datamodel.api.service.UpstreamGuard;
+import fi.vm.yti.datamodel.api.service.UpstreamMetrics;
 
 import java.io.InputStream;
 import java.util.HashMap;
@@ -24,21 +26,22 @@ import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.Response;
 
+import org.glassfish.jersey.client.ClientProperties;
+
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.Property;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.ResourceFactory;
 import org.apache.jena.vocabulary.RDF;
-import org.apache.jena.web.DatasetAdapter;
-import org.apache.jena.web.DatasetGraphAccessorHTTP;
 
 public class OPHCodeServer {
 
     static final private Logger logger = LoggerFactory.getLogger(OPHCodeServer.class.getName());
 
-    private final EndpointServices endpointServices;
-    private DatasetAdapter adapter;
+    private final JenaClient jenaClient;
+    private final UpstreamMetrics metrics;
+    private final UpstreamGuard guard;
     private String uri;
     private Property description = ResourceFactory.createProperty("http://purl.org/dc/terms/", "description");
     private Property name = ResourceFactory.createProperty("http://purl.org/dc/terms/", "title");
@@ -54,15 +57,24 @@ public class OPHCodeServer {
     }};
 
     public OPHCodeServer(String uri,
-                         EndpointServices endpointServices) {
-        DatasetGraphAccessorHTTP accessor = new DatasetGraphAccessorHTTP(endpointServices.getSchemesReadWriteAddress());
-        this.adapter = new DatasetAdapter(accessor);
-        this.endpointServices = endpointServices;
+                         JenaClient jenaClient,
+                         UpstreamMetrics metrics,
+                         UpstreamGuard guard) {
+        this.jenaClient = jenaClient;
         this.uri = uri;
+        this.metrics = metrics;
+        this.guard = guard;
+    }
+
+    private Client newClient() {
+        return ClientBuilder.newClient()
+            .property(ClientProperties.CONNECT_TIMEOUT, guard.getPolicy(UpstreamMetrics.CODES).getConnectTimeout())
+            .property(ClientProperties.READ_TIMEOUT, guard.getPolicy(UpstreamMetrics.CODES).getTimeout())
+            .register(metrics.clientFilter(UpstreamMetrics.CODES));
     }
 
     public boolean containsCodeList(String uri) {
-        return adapter.containsModel(uri);
+        return jenaClient.isInSchemes(uri);
     }
 
     public boolean updateCodelistsFromServer() {
@@ -75,10 +87,10 @@ public class OPHCodeServer {
 
             Response.ResponseBuilder rb;
 
-            Client client = ClientBuilder.newClient();
+            Client client = newClient();
             logger.info("Updating OPH codeLists: " + uri);
             WebTarget target = client.target(uri).queryParam("format", "application/json");
-            Response response = target.request("application/json").get();
+            Response response = guard.request(UpstreamMetrics.CODES, () -> target.request("application/json").get());
 
             if (response.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL) {
 
@@ -190,10 +202,7 @@ public class OPHCodeServer {
 
                 //model.write(System.out);
 
-                DatasetGraphAccessorHTTP accessor = new DatasetGraphAccessorHTTP(endpointServices.getSchemesReadWriteAddress());
-                DatasetAdapter adapter = new DatasetAdapter(accessor);
-
-                adapter.putModel(uri, model);
+                jenaClient.putModelToSchemes(uri, model);
 
                 return true;
 
@@ -253,9 +262,9 @@ public class OPHCodeServer {
 
         Response.ResponseBuilder rb;
 
-        Client client = ClientBuilder.newClient();
+        Client client = newClient();
         WebTarget target = client.target(uri).queryParam("format", "application/json");
-        Response response = target.request("application/json").get();
+        Response response = guard.request(UpstreamMetrics.CODES, () -> target.request("application/json").get());
 
         if (response.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL) {
 
@@ -307,10 +316,7 @@ public class OPHCodeServer {
 
             //   RDFDataMgr.write(System.out, model, Lang.TURTLE) ;
 
-            DatasetGraphAccessorHTTP accessor = new DatasetGraphAccessorHTTP(endpointServices.getSchemesReadWriteAddress());
-            DatasetAdapter adapter = new DatasetAdapter(accessor);
-
-            adapter.putModel(uri, model);
+            jenaClient.putModelToSchemes(uri, model);
 
             return true;
         } else {
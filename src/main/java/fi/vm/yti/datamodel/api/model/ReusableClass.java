@@ -34,6 +34,12 @@ public class ReusableClass extends AbstractClass {
         super(model, graphManager);
     }
 
+    public ReusableClass(Model model,
+                         GraphManager graphManager,
+                         DataModel dataModel) throws IllegalArgumentException {
+        super(model, graphManager, dataModel);
+    }
+
     public ReusableClass(IRI conceptIRI,
                          IRI modelIRI,
                          String classLabel,
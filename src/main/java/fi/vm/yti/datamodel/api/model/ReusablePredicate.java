@@ -28,6 +28,12 @@ public class ReusablePredicate extends AbstractPredicate {
         super(model, graphManager);
     }
 
+    public ReusablePredicate(Model model,
+                             GraphManager graphManager,
+                             DataModel dataModel) throws IllegalArgumentException {
+        super(model, graphManager, dataModel);
+    }
+
     public ReusablePredicate(IRI conceptIRI,
                              IRI modelIRI,
                              String predicateLabel,
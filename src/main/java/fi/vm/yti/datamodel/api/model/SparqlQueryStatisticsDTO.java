@@ -0,0 +1,115 @@
+package fi.vm.yti.datamodel.api.model;
+
+/**
+ * Aggregated execution statistics of one SPARQL query template
+ */
+public class SparqlQueryStatisticsDTO {
+
+    private final String fingerprint;
+    private final String dataset;
+    private final String operation;
+    private final String template;
+    private long count;
+    private long errors;
+    private long totalTime;
+    private long maxTime;
+    private long totalResults;
+    private long maxResults;
+    private String slowestQuery;
+
+    public SparqlQueryStatisticsDTO(String fingerprint,
+                                    String dataset,
+                                    String operation,
+                                    String template) {
+        this.fingerprint = fingerprint;
+        this.dataset = dataset;
+        this.operation = operation;
+        this.template = template;
+    }
+
+    public synchronized void record(long durationMillis,
+                                    long resultSize,
+                                    boolean failed) {
+        count++;
+        totalTime += durationMillis;
+        maxTime = Math.max(maxTime, durationMillis);
+        if (failed) {
+            errors++;
+        }
+        if (resultSize > 0) {
+            totalResults += resultSize;
+            maxResults = Math.max(maxResults, resultSize);
+        }
+    }
+
+    public synchronized void setSlowestQuery(long durationMillis,
+                                             String query) {
+        if (slowestQuery == null || durationMillis >= maxTime) {
+            this.slowestQuery = query;
+        }
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public String getDataset() {
+        return dataset;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    public synchronized long getErrors() {
+        return errors;
+    }
+
+    public synchronized long getTotalTime() {
+        return totalTime;
+    }
+
+    public synchronized long getMaxTime() {
+        return maxTime;
+    }
+
+    public synchronized double getMeanTime() {
+        return count > 0 ? (double) totalTime / count : 0;
+    }
+
+    public synchronized long getTotalResults() {
+        return totalResults;
+    }
+
+    public synchronized long getMaxResults() {
+        return maxResults;
+    }
+
+    public synchronized double getMeanResults() {
+        return count > 0 ? (double) totalResults / count : 0;
+    }
+
+    public synchronized String getSlowestQuery() {
+        return slowestQuery;
+    }
+
+    @Override
+    public String toString() {
+        return "SparqlQueryStatisticsDTO{" +
+            "fingerprint='" + fingerprint + '\'' +
+            ", dataset='" + dataset + '\'' +
+            ", operation='" + operation + '\'' +
+            ", count=" + count +
+            ", totalTime=" + totalTime +
+            ", maxTime=" + maxTime +
+            '}';
+    }
+}
@@ -0,0 +1,125 @@
+package fi.vm.yti.datamodel.api.model;
+
+import java.util.Date;
+
+/**
+ * State of a background status change of the resources of a model
+ */
+public class StatusChangeJobDTO {
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    private String id;
+    private String model;
+    private String initialStatus;
+    private String endStatus;
+    private State state;
+    private long changedResources;
+    private Date created;
+    private Date modified;
+    private String error;
+
+    public StatusChangeJobDTO() {
+    }
+
+    public StatusChangeJobDTO(String id,
+                              String model,
+                              String initialStatus,
+                              String endStatus,
+                              State state,
+                              long changedResources,
+                              Date created,
+                              Date modified,
+                              String error) {
+        this.id = id;
+        this.model = model;
+        this.initialStatus = initialStatus;
+        this.endStatus = endStatus;
+        this.state = state;
+        this.changedResources = changedResources;
+        this.created = created;
+        this.modified = modified;
+        this.error = error;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(final String id) {
+        this.id = id;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public void setModel(final String model) {
+        this.model = model;
+    }
+
+    public String getInitialStatus() {
+        return initialStatus;
+    }
+
+    public void setInitialStatus(final String initialStatus) {
+        this.initialStatus = initialStatus;
+    }
+
+    public String getEndStatus() {
+        return endStatus;
+    }
+
+    public void setEndStatus(final String endStatus) {
+        this.endStatus = endStatus;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(final State state) {
+        this.state = state;
+    }
+
+    public long getChangedResources() {
+        return changedResources;
+    }
+
+    public void setChangedResources(final long changedResources) {
+        this.changedResources = changedResources;
+    }
+
+    public Date getCreated() {
+        return created;
+    }
+
+    public void setCreated(final Date created) {
+        this.created = created;
+    }
+
+    public Date getModified() {
+        return modified;
+    }
+
+    public void setModified(final Date modified) {
+        this.modified = modified;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(final String error) {
+        this.error = error;
+    }
+
+    public boolean isFinished() {
+        return state == State.DONE || state == State.FAILED;
+    }
+}
@@ -21,6 +21,8 @@ import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.Response;
 
+import org.glassfish.jersey.client.ClientProperties;
+
 import org.apache.jena.datatypes.xsd.XSDDatatype;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
@@ -29,13 +31,13 @@ import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.ResourceFactory;
 import org.apache.jena.vocabulary.DCTerms;
 import org.apache.jena.vocabulary.RDF;
-import org.apache.jena.web.DatasetAdapter;
-import org.apache.jena.web.DatasetGraphAccessorHTTP;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import fi.vm.yti.datamodel.api.service.CodeSchemeManager;
-import fi.vm.yti.datamodel.api.service.EndpointServices;
+import fi.vm.yti.datamodel.api.service.JenaClient;
+import fi.vm.yti.datamodel.api.service.UpstreamGuard;
+import fi.vm.yti.datamodel.api.service.UpstreamMetrics;
 import fi.vm.yti.datamodel.api.utils.LDHelper;
 
 public class SuomiCodeServer {
@@ -50,33 +52,44 @@ public class SuomiCodeServer {
     static private Property creator = ResourceFactory.createProperty("http://purl.org/dc/terms/", "creator");
     static private Property status = ResourceFactory.createProperty("http://uri.suomi.fi/datamodel/ns/iow#", "status");
 
-    private final EndpointServices endpointServices;
+    private final JenaClient jenaClient;
     private String uri;
     private String url;
-    private DatasetGraphAccessorHTTP accessor;
-    private DatasetAdapter adapter;
     private CodeSchemeManager codeSchemeManager;
+    private final UpstreamMetrics metrics;
+    private final UpstreamGuard guard;
     private SimpleDateFormat fmt = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
     private DateTimeFormatter dfmt = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
 
-    public SuomiCodeServer(EndpointServices endpointServices,
-                           CodeSchemeManager codeSchemeManager) {
-        this.accessor = new DatasetGraphAccessorHTTP(endpointServices.getSchemesReadWriteAddress());
-        this.adapter = new DatasetAdapter(accessor);
-        this.endpointServices = endpointServices;
+    public SuomiCodeServer(JenaClient jenaClient,
+                           CodeSchemeManager codeSchemeManager,
+                           UpstreamMetrics metrics,
+                           UpstreamGuard guard) {
+        this.jenaClient = jenaClient;
         this.codeSchemeManager = codeSchemeManager;
+        this.metrics = metrics;
+        this.guard = guard;
     }
 
     public SuomiCodeServer(String uri,
                            String url,
-                           EndpointServices endpointServices,
-                           CodeSchemeManager codeSchemeManager) {
-        this.accessor = new DatasetGraphAccessorHTTP(endpointServices.getSchemesReadWriteAddress());
-        this.adapter = new DatasetAdapter(accessor);
-        this.endpointServices = endpointServices;
+                           JenaClient jenaClient,
+                           CodeSchemeManager codeSchemeManager,
+                           UpstreamMetrics metrics,
+                           UpstreamGuard guard) {
+        this.jenaClient = jenaClient;
         this.uri = uri;
         this.url = url;
         this.codeSchemeManager = codeSchemeManager;
+        this.metrics = metrics;
+        this.guard = guard;
+    }
+
+    private Client newClient() {
+        return ClientBuilder.newClient()
+            .property(ClientProperties.CONNECT_TIMEOUT, guard.getPolicy(UpstreamMetrics.CODES).getConnectTimeout())
+            .property(ClientProperties.READ_TIMEOUT, guard.getPolicy(UpstreamMetrics.CODES).getTimeout())
+            .register(metrics.clientFilter(UpstreamMetrics.CODES));
     }
 
     public static void addLangLiteral(Resource res,
@@ -92,7 +105,7 @@ public class SuomiCodeServer {
     }
 
     public boolean containsCodeList(String uri) {
-        return adapter.containsModel(uri);
+        return jenaClient.isInSchemes(uri);
     }
 
     public void updateCodeSchemeList() {
@@ -102,12 +115,12 @@ public class SuomiCodeServer {
         model.setNsPrefix("iow", "http://uri.suomi.fi/datamodel/ns/iow#");
 
         Response.ResponseBuilder rb;
-        Client client = ClientBuilder.newClient();
+        Client client = newClient();
 
         logger.debug("Updating suomi.fi codeLists: " + url);
 
         WebTarget target = client.target(url + "v1/coderegistries/").queryParam("format", "application/json");
-        Response response = target.request("application/json").get();
+        Response response = guard.request(UpstreamMetrics.CODES, () -> target.request("application/json").get());
 
         if (response.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL) {
 
@@ -147,7 +160,7 @@ public class SuomiCodeServer {
                 group.addProperty(RDF.type, ResourceFactory.createResource("http://uri.suomi.fi/datamodel/ns/iow#FCodeGroup"));
 
                 WebTarget schemeTarget = client.target(groupUrl + "/codeschemes/").queryParam("format", "application/json");
-                Response schemeResponse = schemeTarget.request("application/json").get();
+                Response schemeResponse = guard.request(UpstreamMetrics.CODES, () -> schemeTarget.request("application/json").get());
 
                 if (schemeResponse.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL) {
 
@@ -199,7 +212,7 @@ public class SuomiCodeServer {
             }
 
             // model.write(System.out, "text/turtle");
-            adapter.putModel(uri, model);
+            jenaClient.putModelToSchemes(uri, model);
 
         } else {
             logger.warn("Connection to " + target.toString() + " failed: " + response.getStatus());
@@ -213,9 +226,9 @@ public class SuomiCodeServer {
         model.setNsPrefix("dcterms", "http://purl.org/dc/terms/");
         model.setNsPrefix("iow", "http://uri.suomi.fi/datamodel/ns/iow#");
 
-        Client client = ClientBuilder.newClient();
+        Client client = newClient();
         WebTarget target = client.target(url + "v1/integration/resources").queryParam("includeIncomplete", "true").queryParam("container", containerUri).queryParam("format", "application/json");
-        Response response = target.request("application/json").get();
+        Response response = guard.request(UpstreamMetrics.CODES, () -> target.request("application/json").get());
 
         if (response.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL) {
 
@@ -277,9 +290,9 @@ public class SuomiCodeServer {
         Model model = null;
         Response.ResponseBuilder rb;
 
-        Client containerClient = ClientBuilder.newClient();
+        Client containerClient = newClient();
         WebTarget containerTarget = containerClient.target(url + "v1/integration/containers").queryParam("includeIncomplete", "true").queryParam("uri", containerUri).queryParam("format", "application/json");
-        Response containerResponse = containerTarget.request("application/json").get();
+        Response containerResponse = guard.request(UpstreamMetrics.CODES, () -> containerTarget.request("application/json").get());
 
         if (containerResponse.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL) {
 
@@ -331,7 +344,7 @@ public class SuomiCodeServer {
         if (model == null) {
             logger.warn("Codes graph from " + containerUri + " is empty! No valid codes?");
         } else {
-            adapter.putModel(containerUri, model);
+            jenaClient.putModelToSchemes(containerUri, model);
         }
     }
 }
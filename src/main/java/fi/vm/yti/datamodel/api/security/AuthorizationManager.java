@@ -18,6 +18,16 @@ public interface AuthorizationManager {
 
     boolean hasRightToEdit(AbstractPredicate model);
 
+    /**
+     * Checks the rights to edit a model and its resources by the organizations of the model, without loading
+     * the model graph.
+     *
+     * @param modelIRI IRI of the model
+     * @return false also if there is no model with the IRI, so check
+     * {@link fi.vm.yti.datamodel.api.service.GraphManager#isExistingModel(IRI)} first to answer 404 for unknown models
+     */
+    boolean hasRightToEditModel(IRI modelIRI);
+
     boolean hasRightToCreateNewVersion(AbstractModel model);
 
     boolean hasRightToAnyOrganization(Collection<UUID> organizations);
@@ -3,6 +3,8 @@ package fi.vm.yti.datamodel.api.security;
 import fi.vm.yti.datamodel.api.model.AbstractClass;
 import fi.vm.yti.datamodel.api.model.AbstractModel;
 import fi.vm.yti.datamodel.api.model.AbstractPredicate;
+import fi.vm.yti.datamodel.api.service.ModelAccessIndex;
+import fi.vm.yti.datamodel.api.service.ModelAccessIndex.ModelAccess;
 import fi.vm.yti.security.AuthenticatedUserProvider;
 import fi.vm.yti.security.YtiUser;
 
@@ -22,9 +24,12 @@ import static fi.vm.yti.security.Role.DATA_MODEL_EDITOR;
 public class AuthorizationManagerImpl implements AuthorizationManager {
 
     private final AuthenticatedUserProvider userProvider;
+    private final ModelAccessIndex modelAccessIndex;
 
-    AuthorizationManagerImpl(AuthenticatedUserProvider userProvider) {
+    AuthorizationManagerImpl(AuthenticatedUserProvider userProvider,
+                             ModelAccessIndex modelAccessIndex) {
         this.userProvider = userProvider;
+        this.modelAccessIndex = modelAccessIndex;
     }
 
     public boolean hasRightToEdit(AbstractModel model) {
@@ -39,6 +44,11 @@ public class AuthorizationManagerImpl implements AuthorizationManager {
         return hasRightToAnyOrganization(model.getOrganizations());
     }
 
+    public boolean hasRightToEditModel(IRI modelIRI) {
+        ModelAccess model = modelAccessIndex.get(modelIRI.toString());
+        return model != null && hasRightToAnyOrganization(model.getOrganizations());
+    }
+
     public boolean hasRightToCreateNewVersion(AbstractModel model) {
         return hasRightToAnyOrganization(model.getOrganizations());
        // return isAdminOfAnyOrganization(model.getOrganizations());
@@ -9,18 +9,22 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+import fi.vm.yti.datamodel.api.config.UpstreamPolicy;
 
 @Service
 public class ClientFactory {
 
     private final SSLContext sslContext;
     private final ApplicationProperties properties;
+    private final UpstreamMetrics metrics;
 
     @Autowired
     ClientFactory(SSLContext sslContext,
-                  ApplicationProperties properties) {
+                  ApplicationProperties properties,
+                  UpstreamMetrics metrics) {
         this.sslContext = sslContext;
         this.properties = properties;
+        this.metrics = metrics;
     }
 
     public Client create() {
@@ -29,6 +33,20 @@ public class ClientFactory {
             .build();
     }
 
+    /**
+     * Creates a client with the timeouts of the upstream policy that records its calls to metrics.
+     * Calls should be made through {@link UpstreamGuard#request(String, java.util.function.Supplier)}.
+     */
+    public Client create(String upstream) {
+        UpstreamPolicy policy = properties.getUpstreamPolicy(upstream);
+        return ClientBuilder.newBuilder()
+            .sslContext(sslContext)
+            .property(ClientProperties.CONNECT_TIMEOUT, policy.getConnectTimeout())
+            .property(ClientProperties.READ_TIMEOUT, policy.getTimeout())
+            .register(metrics.clientFilter(upstream))
+            .build();
+    }
+
     public Client createWithLongTimeout() {
         return ClientBuilder.newBuilder()
             .sslContext(sslContext)
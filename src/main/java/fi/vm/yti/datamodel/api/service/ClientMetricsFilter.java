@@ -0,0 +1,100 @@
+package fi.vm.yti.datamodel.api.service;
+
+import javax.ws.rs.client.ClientRequestContext;
+import javax.ws.rs.client.ClientRequestFilter;
+import javax.ws.rs.client.ClientResponseContext;
+import javax.ws.rs.client.ClientResponseFilter;
+
+/**
+ * JAX-RS client filter recording latency, response size and failures of outbound HTTP calls.
+ * Calls are tagged by target host and HTTP method so that the cardinality stays bounded.
+ * <p>
+ * Connection failures and timeouts never reach the response filter. The request that is in flight on the calling
+ * thread is therefore remembered until its response arrives, and {@link UpstreamGuard} records it as failed with
+ * {@link #recordFailure(Throwable)} when the call throws.
+ */
+public class ClientMetricsFilter implements ClientRequestFilter, ClientResponseFilter {
+
+    private static final String START_PROPERTY = ClientMetricsFilter.class.getName() + ".start";
+    private static final ThreadLocal<PendingCall> PENDING = new ThreadLocal<>();
+
+    private static final class PendingCall {
+
+        private final ClientMetricsFilter filter;
+        private final String target;
+        private final String operation;
+        private final long start;
+
+        PendingCall(ClientMetricsFilter filter,
+                    String target,
+                    String operation,
+                    long start) {
+            this.filter = filter;
+            this.target = target;
+            this.operation = operation;
+            this.start = start;
+        }
+    }
+
+    private final UpstreamMetrics metrics;
+    private final String upstream;
+
+    ClientMetricsFilter(UpstreamMetrics metrics,
+                        String upstream) {
+        this.metrics = metrics;
+        this.upstream = upstream;
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext) {
+        long start = System.nanoTime();
+        requestContext.setProperty(START_PROPERTY, start);
+        PENDING.set(new PendingCall(this, requestContext.getUri().getHost(), requestContext.getMethod(), start));
+    }
+
+    @Override
+    public void filter(ClientRequestContext requestContext,
+                       ClientResponseContext responseContext) {
+        PENDING.remove();
+        Object start = requestContext.getProperty(START_PROPERTY);
+        if (!(start instanceof Long)) {
+            return;
+        }
+
+        String target = requestContext.getUri().getHost();
+        String operation = requestContext.getMethod();
+        int status = responseContext.getStatus();
+        String outcome = status >= 400 ? "ERROR" : "SUCCESS";
+
+        metrics.recordTime(upstream, target, operation, outcome, System.nanoTime() - (Long) start);
+        metrics.recordBytes(upstream, target, operation, responseContext.getLength());
+
+        if (status >= 400) {
+            metrics.recordError(upstream, target, operation, "HTTP_" + status);
+        }
+    }
+
+    /**
+     * Forgets the request in flight on this thread, called before a new call is made
+     */
+    static void reset() {
+        PENDING.remove();
+    }
+
+    /**
+     * Records the request in flight on this thread as failed, if a request was sent but no response arrived
+     *
+     * @param ex Exception thrown by the call, for example ProcessingException caused by ConnectException
+     */
+    static void recordFailure(Throwable ex) {
+        PendingCall call = PENDING.get();
+        PENDING.remove();
+        if (call == null) {
+            return;
+        }
+        Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+        UpstreamMetrics metrics = call.filter.metrics;
+        metrics.recordTime(call.filter.upstream, call.target, call.operation, "ERROR", System.nanoTime() - call.start);
+        metrics.recordError(call.filter.upstream, call.target, call.operation, cause);
+    }
+}
@@ -10,7 +10,7 @@ import org.apache.jena.vocabulary.RDFS;
 import org.springframework.stereotype.Service;
 import org.topbraid.shacl.vocabulary.SH;
 
-import javax.json.Json;
+import javax.json.JsonBuilderFactory;
 import javax.json.JsonObjectBuilder;
 
 @Service
@@ -18,11 +18,17 @@ public class ContextWriter {
 
     private final EndpointServices endpointServices;
     private final JsonSchemaWriter jsonSchemaWriter;
+    private final JenaClient jenaClient;
+    private final JsonBuilderFactory jsonBuilderFactory;
 
     ContextWriter(EndpointServices endpointServices,
-                  JsonSchemaWriter jsonSchemaWriter) {
+                  JsonSchemaWriter jsonSchemaWriter,
+                  JenaClient jenaClient,
+                  JsonBuilderFactory jsonBuilderFactory) {
         this.endpointServices = endpointServices;
         this.jsonSchemaWriter = jsonSchemaWriter;
+        this.jenaClient = jenaClient;
+        this.jsonBuilderFactory = jsonBuilderFactory;
     }
 
     /**
@@ -33,7 +39,7 @@ public class ContextWriter {
      */
     private String createDefaultContext(JsonObjectBuilder context) {
 
-        JsonObjectBuilder contextBuilder = Json.createObjectBuilder();
+        JsonObjectBuilder contextBuilder = jsonBuilderFactory.createObjectBuilder();
         contextBuilder.add("@context", context.build());
 
         return jsonSchemaWriter.jsonObjectToPrettyString(contextBuilder.build());
@@ -47,7 +53,7 @@ public class ContextWriter {
      */
     public String newResourceContext(String classID) {
 
-        JsonObjectBuilder context = Json.createObjectBuilder();
+        JsonObjectBuilder context = jsonBuilderFactory.createObjectBuilder();
 
         ParameterizedSparqlString pss = new ParameterizedSparqlString();
         String selectResources =
@@ -75,8 +81,7 @@ public class ContextWriter {
         pss.setNsPrefixes(LDHelper.PREFIX_MAP);
         pss.setCommandText(selectResources);
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
-
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
             ResultSet results = qexec.execSelect();
 
             if (!results.hasNext()) return null;
@@ -87,7 +92,7 @@ public class ContextWriter {
                 String resourceName = soln.getLiteral("resourceName").toString();
                 String localResourceName = soln.contains("localResourceName") ? LDHelper.removeInvalidCharacters(soln.getLiteral("localResourceName").getString()) : null;
 
-                JsonObjectBuilder resourceObject = Json.createObjectBuilder();
+                JsonObjectBuilder resourceObject = jsonBuilderFactory.createObjectBuilder();
 
                 String type = soln.contains("type") ? soln.getResource("type").getURI() : null;
 
@@ -115,7 +120,7 @@ public class ContextWriter {
      */
     public String newModelContext(String modelID) {
 
-        JsonObjectBuilder context = Json.createObjectBuilder();
+        JsonObjectBuilder context = jsonBuilderFactory.createObjectBuilder();
 
         ParameterizedSparqlString pss = new ParameterizedSparqlString();
         String selectResources =
@@ -154,40 +159,40 @@ public class ContextWriter {
         pss.setNsPrefixes(LDHelper.PREFIX_MAP);
         pss.setCommandText(selectResources);
 
-        QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery());
-
-        ResultSet results = qexec.execSelect();
-
-        if (!results.hasNext()) return null;
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
+            ResultSet results = qexec.execSelect();
 
-        while (results.hasNext()) {
-            QuerySolution soln = results.nextSolution();
-            String resourceURI = soln.getResource("resource").toString();
-            String resourceName = soln.getLiteral("resourceName").toString();
-            String localResourceName = soln.contains("localResourceName") ? LDHelper.removeInvalidCharacters(soln.getLiteral("localResourceName").getString()) : null;
+            if (!results.hasNext()) return null;
 
-            if (soln.contains("targetClass")) {
-                resourceURI = soln.getResource("targetClass").toString();
-            }
+            while (results.hasNext()) {
+                QuerySolution soln = results.nextSolution();
+                String resourceURI = soln.getResource("resource").toString();
+                String resourceName = soln.getLiteral("resourceName").toString();
+                String localResourceName = soln.contains("localResourceName") ? LDHelper.removeInvalidCharacters(soln.getLiteral("localResourceName").getString()) : null;
 
-            JsonObjectBuilder resourceObject = Json.createObjectBuilder();
+                if (soln.contains("targetClass")) {
+                    resourceURI = soln.getResource("targetClass").toString();
+                }
 
-            String type = soln.contains("type") ? soln.getResource("type").getURI() : null;
+                JsonObjectBuilder resourceObject = jsonBuilderFactory.createObjectBuilder();
 
-            if (type != null && (type.equals(RDFS.Class.getURI()) || type.equals(SH.NodeShape.getURI()))) {
-                context.add(localResourceName != null && localResourceName.length() > 0 ? localResourceName : resourceName, resourceURI);
-            } else {
-                resourceObject.add("@id", resourceURI);
+                String type = soln.contains("type") ? soln.getResource("type").getURI() : null;
 
-                if (soln.contains("datatype")) {
-                    resourceObject.add("@type", soln.getResource("datatype").toString());
+                if (type != null && (type.equals(RDFS.Class.getURI()) || type.equals(SH.NodeShape.getURI()))) {
+                    context.add(localResourceName != null && localResourceName.length() > 0 ? localResourceName : resourceName, resourceURI);
                 } else {
-                    resourceObject.add("@type", "@id");
+                    resourceObject.add("@id", resourceURI);
+
+                    if (soln.contains("datatype")) {
+                        resourceObject.add("@type", soln.getResource("datatype").toString());
+                    } else {
+                        resourceObject.add("@type", "@id");
+                    }
+                    context.add(localResourceName != null && localResourceName.length() > 0 ? localResourceName : resourceName, resourceObject.build());
                 }
-                context.add(localResourceName != null && localResourceName.length() > 0 ? localResourceName : resourceName, resourceObject.build());
             }
-        }
 
-        return createDefaultContext(context);
+            return createDefaultContext(context);
+        }
     }
 }
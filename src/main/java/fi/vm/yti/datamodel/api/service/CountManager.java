@@ -0,0 +1,450 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import org.apache.jena.query.ParameterizedSparqlString;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.vocabulary.DCTerms;
+import org.apache.jena.vocabulary.OWL;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import fi.vm.yti.datamodel.api.utils.LDHelper;
+
+import static fi.vm.yti.datamodel.api.service.UpstreamMetrics.FUSEKI;
+
+/**
+ * Materialized counts of models and resources by type, model, status and organization.
+ * <p>
+ * Keeps a small in-memory entry per model and resource graph, updated by {@link GraphManager} when graphs are
+ * created, updated, removed or change status. Entries are loaded by a startup stage and reconciled periodically
+ * against core, which also picks up changes made by other instances of the API. Counts are not served before they
+ * have been loaded once.
+ * <p>
+ * Changes made while a reconciliation reads core are journaled and applied again to the reloaded counts before
+ * they replace the maintained ones, so that changes the read missed are not lost.
+ */
+@Service
+public class CountManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(CountManager.class.getName());
+
+    private static final long RELOAD_RETRY_SECONDS = 60;
+    private static final long RECONCILE_INTERVAL_MILLIS = 15 * 60 * 1000L;
+    private static final Map<String, String> COUNTED_TYPES;
+
+    static {
+        Map<String, String> types = new LinkedHashMap<>();
+        types.put(LDHelper.curieToURI("dcap:DCAP"), "profiles");
+        types.put(LDHelper.curieToURI("dcap:MetadataVocabulary"), "libraries");
+        types.put(LDHelper.curieToURI("rdfs:Class"), "classes");
+        types.put(LDHelper.curieToURI("sh:NodeShape"), "shapes");
+        types.put(LDHelper.curieToURI("owl:ObjectProperty"), "associations");
+        types.put(LDHelper.curieToURI("owl:DatatypeProperty"), "attributes");
+        COUNTED_TYPES = Collections.unmodifiableMap(types);
+    }
+
+    private static final String COUNTED_GRAPH_PATTERN =
+        "GRAPH ?graph { "
+            + "?graph a ?type . "
+            + "VALUES ?type { dcap:DCAP dcap:MetadataVocabulary rdfs:Class sh:NodeShape owl:ObjectProperty owl:DatatypeProperty } "
+            + "OPTIONAL { ?graph rdfs:isDefinedBy ?model . } "
+            + "OPTIONAL { ?graph owl:versionInfo ?status . } "
+            + "OPTIONAL { ?graph dcterms:contributor ?organization . } "
+            + "}";
+
+    private static final String COUNTED_GRAPHS_QUERY =
+        "SELECT ?graph ?type ?model ?status ?organization WHERE { " + COUNTED_GRAPH_PATTERN + " }";
+
+    private static final String COUNTED_MODEL_GRAPHS_QUERY =
+        "SELECT ?graph ?type ?model ?status ?organization WHERE { "
+            + "{ BIND(?modelGraph AS ?graph) } UNION { GRAPH ?resourceGraph { ?resourceGraph rdfs:isDefinedBy ?modelGraph . } BIND(?resourceGraph AS ?graph) } "
+            + COUNTED_GRAPH_PATTERN + " }";
+
+    private final JenaClient jenaClient;
+    private final EndpointServices endpointServices;
+
+    private final Object reconcileLock = new Object();
+
+    private volatile Map<String, CountedGraph> graphs = new ConcurrentHashMap<>();
+    private List<Consumer<Map<String, CountedGraph>>> journal;
+    private volatile boolean reconciled;
+    private volatile long nextReconcile;
+
+    @Autowired
+    CountManager(JenaClient jenaClient,
+                 EndpointServices endpointServices) {
+        this.jenaClient = jenaClient;
+        this.endpointServices = endpointServices;
+    }
+
+    /**
+     * Counted model or resource graph
+     */
+    static final class CountedGraph {
+
+        private final List<String> types;
+        private final String model;
+        private final String status;
+        private final List<String> organizations;
+
+        CountedGraph(List<String> types,
+                     String model,
+                     String status,
+                     List<String> organizations) {
+            this.types = types;
+            this.model = model;
+            this.status = status;
+            this.organizations = organizations;
+        }
+
+        CountedGraph withStatus(String newStatus) {
+            return new CountedGraph(types, model, newStatus, organizations);
+        }
+    }
+
+    /**
+     * Counts graphs by type name, for example "classes" or "profiles". Null filters match all graphs.
+     *
+     * @param model        Model IRI or null
+     * @param status       Status or null
+     * @param organization Organization UUID or null
+     * @return Counts by type name
+     * @throws UpstreamUnavailableException if counts have not been loaded from core yet
+     */
+    public Map<String, Long> getCounts(String model,
+                                       String status,
+                                       String organization) {
+        Map<String, CountedGraph> current = loadedGraphs();
+        Map<String, Long> counts = new LinkedHashMap<>();
+
+        current.values().forEach(graph -> {
+            if (matches(current, graph, model, status, organization)) {
+                graph.types.forEach(type -> counts.merge(type, 1L, Long::sum));
+            }
+        });
+
+        return counts;
+    }
+
+    /**
+     * Counts graphs grouped by type name and the given dimension. Null filters match all graphs.
+     *
+     * @param dimension    One of "model", "status" or "organization"
+     * @param model        Model IRI or null
+     * @param status       Status or null
+     * @param organization Organization UUID or null
+     * @return Counts by dimension value and type name
+     * @throws IllegalArgumentException     if dimension is unknown
+     * @throws UpstreamUnavailableException if counts have not been loaded from core yet
+     */
+    public Map<String, Map<String, Long>> getCountsBy(String dimension,
+                                                      String model,
+                                                      String status,
+                                                      String organization) {
+        if (!"model".equals(dimension) && !"status".equals(dimension) && !"organization".equals(dimension)) {
+            throw new IllegalArgumentException("Unknown count dimension " + dimension);
+        }
+
+        Map<String, CountedGraph> current = loadedGraphs();
+        Map<String, Map<String, Long>> counts = new TreeMap<>();
+
+        current.values().forEach(graph -> {
+            if (!matches(current, graph, model, status, organization)) {
+                return;
+            }
+            List<String> keys;
+            if ("model".equals(dimension)) {
+                keys = graph.model != null ? Collections.singletonList(graph.model) : Collections.emptyList();
+            } else if ("status".equals(dimension)) {
+                keys = graph.status != null ? Collections.singletonList(graph.status) : Collections.emptyList();
+            } else {
+                keys = organizationsOf(current, graph);
+            }
+            keys.forEach(key -> graph.types.forEach(type -> counts.computeIfAbsent(key, k -> new LinkedHashMap<>()).merge(type, 1L, Long::sum)));
+        });
+
+        return counts;
+    }
+
+    private Map<String, CountedGraph> loadedGraphs() {
+        if (!reconciled) {
+            throw new UpstreamUnavailableException(FUSEKI, "counts have not been loaded", RELOAD_RETRY_SECONDS);
+        }
+        return graphs;
+    }
+
+    private static boolean matches(Map<String, CountedGraph> current,
+                                   CountedGraph graph,
+                                   String model,
+                                   String status,
+                                   String organization) {
+        return (model == null || model.equals(graph.model))
+            && (status == null || status.equals(graph.status))
+            && (organization == null || organizationsOf(current, graph).contains(organization));
+    }
+
+    /**
+     * Updates counts of a created or updated model or resource graph
+     *
+     * @param graph IRI of the graph
+     * @param model Contents of the graph
+     */
+    public void graphWritten(String graph,
+                             Model model) {
+        CountedGraph countedGraph = fromModel(graph, model);
+        if (countedGraph != null) {
+            change(current -> current.put(graph, countedGraph));
+        } else {
+            change(current -> current.remove(graph));
+        }
+    }
+
+    /**
+     * Updates counts of a removed graph
+     *
+     * @param graph IRI of the graph
+     */
+    public void graphRemoved(String graph) {
+        change(current -> current.remove(graph));
+    }
+
+    /**
+     * Updates counts of a removed model and its resources
+     *
+     * @param model IRI of the model
+     */
+    public void modelRemoved(String model) {
+        change(current -> removeModel(current, model));
+    }
+
+    private static void removeModel(Map<String, CountedGraph> current,
+                                    String model) {
+        current.entrySet().removeIf(entry -> entry.getKey().equals(model) || model.equals(entry.getValue().model));
+    }
+
+    /**
+     * Updates counts after resources of a model have changed status
+     *
+     * @param model         IRI of the model
+     * @param initialStatus Previous status of the changed resources
+     * @param endStatus     New status of the changed resources
+     */
+    public void resourceStatusesChanged(String model,
+                                        String initialStatus,
+                                        String endStatus) {
+        change(current -> current.replaceAll((graph, countedGraph) -> model.equals(countedGraph.model) && initialStatus.equals(countedGraph.status) ? countedGraph.withStatus(endStatus) : countedGraph));
+    }
+
+    /**
+     * Forgets all counts, for example after all graphs have been dropped
+     */
+    public void clear() {
+        change(Map::clear);
+    }
+
+    /**
+     * Applies a change to the maintained counts, and journals it if a reconciliation is reading core
+     */
+    private synchronized void change(Consumer<Map<String, CountedGraph>> delta) {
+        delta.accept(graphs);
+        if (journal != null) {
+            journal.add(delta);
+        }
+    }
+
+    /**
+     * Reloads counts of a model and its resources from core, for example after a new version of the model is created
+     *
+     * @param model IRI of the model
+     */
+    public void reconcileModel(String model) {
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        pss.setNsPrefixes(LDHelper.PREFIX_MAP);
+        pss.setCommandText(COUNTED_MODEL_GRAPHS_QUERY);
+        pss.setIri("modelGraph", model);
+
+        try {
+            Map<String, CountedGraph> reloaded = load(pss);
+            change(current -> {
+                removeModel(current, model);
+                current.putAll(reloaded);
+            });
+        } catch (RuntimeException ex) {
+            logger.warn("Could not reconcile counts of " + model, ex);
+        }
+    }
+
+    /**
+     * Reloads all counts from core every 15 minutes, and every minute until counts have been loaded once
+     */
+    @Scheduled(fixedDelay = RELOAD_RETRY_SECONDS * 1000, initialDelay = RELOAD_RETRY_SECONDS * 1000)
+    void scheduledReconcile() {
+        if (reconciled && System.currentTimeMillis() < nextReconcile) {
+            return;
+        }
+        try {
+            reconcile();
+        } catch (RuntimeException ex) {
+            logger.warn("Could not reconcile counts", ex);
+        }
+    }
+
+    /**
+     * Reloads all counts from core. Concurrent reconciliations run one at a time.
+     *
+     * @throws RuntimeException if counts could not be read from core
+     */
+    public void reconcile() {
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        pss.setNsPrefixes(LDHelper.PREFIX_MAP);
+        pss.setCommandText(COUNTED_GRAPHS_QUERY);
+
+        synchronized (reconcileLock) {
+            startJournal();
+            Map<String, CountedGraph> reloaded;
+            try {
+                reloaded = load(pss);
+            } catch (RuntimeException ex) {
+                stopJournal();
+                throw ex;
+            }
+            nextReconcile = System.currentTimeMillis() + RECONCILE_INTERVAL_MILLIS;
+            replace(reloaded);
+        }
+    }
+
+    private synchronized void startJournal() {
+        journal = new ArrayList<>();
+    }
+
+    private synchronized void stopJournal() {
+        journal = null;
+    }
+
+    /**
+     * Replaces the maintained counts with reloaded ones after applying the changes journaled during the reload
+     */
+    private synchronized void replace(Map<String, CountedGraph> reloaded) {
+        journal.forEach(delta -> delta.accept(reloaded));
+        journal = null;
+
+        if (reconciled && !sameCounts(graphs, reloaded)) {
+            logger.info("Reconciled counts differed from maintained counts");
+        }
+
+        graphs = reloaded;
+        reconciled = true;
+    }
+
+    /**
+     * Reads counted graphs from core
+     */
+    Map<String, CountedGraph> load(ParameterizedSparqlString pss) {
+        Map<String, List<String>> types = new HashMap<>();
+        Map<String, String> models = new HashMap<>();
+        Map<String, String> statuses = new HashMap<>();
+        Map<String, List<String>> organizations = new HashMap<>();
+
+        ResultSet results = jenaClient.selectQuery(endpointServices.getCoreSparqlAddress(), pss.asQuery());
+        while (results.hasNext()) {
+            QuerySolution soln = results.nextSolution();
+            String graph = soln.getResource("graph").getURI();
+            addDistinct(types, graph, COUNTED_TYPES.get(soln.getResource("type").getURI()));
+            if (soln.contains("model")) {
+                models.put(graph, soln.get("model").toString());
+            }
+            if (soln.contains("status")) {
+                statuses.put(graph, soln.getLiteral("status").getString());
+            }
+            if (soln.contains("organization")) {
+                addDistinct(organizations, graph, organizationId(soln.get("organization")));
+            }
+        }
+
+        Map<String, CountedGraph> loaded = new ConcurrentHashMap<>();
+        types.forEach((graph, graphTypes) -> loaded.put(graph, new CountedGraph(graphTypes, models.getOrDefault(graph, graph), statuses.get(graph), organizations.getOrDefault(graph, Collections.emptyList()))));
+        return loaded;
+    }
+
+    static CountedGraph fromModel(String graph,
+                                  Model model) {
+        Resource subject = ResourceFactory.createResource(graph);
+        List<String> types = new ArrayList<>();
+        model.listObjectsOfProperty(subject, RDF.type).forEachRemaining(type -> {
+            if (type.isURIResource()) {
+                addDistinct(types, COUNTED_TYPES.get(type.asResource().getURI()));
+            }
+        });
+        if (types.isEmpty()) {
+            return null;
+        }
+
+        Statement definedBy = model.getProperty(subject, RDFS.isDefinedBy);
+        Statement status = model.getProperty(subject, OWL.versionInfo);
+        List<String> organizations = new ArrayList<>();
+        model.listObjectsOfProperty(subject, DCTerms.contributor).forEachRemaining(org -> addDistinct(organizations, organizationId(org)));
+
+        return new CountedGraph(types,
+            definedBy != null ? definedBy.getObject().toString() : graph,
+            status != null ? status.getString() : null,
+            organizations);
+    }
+
+    private static List<String> organizationsOf(Map<String, CountedGraph> current,
+                                                CountedGraph graph) {
+        if (!graph.organizations.isEmpty()) {
+            return graph.organizations;
+        }
+        CountedGraph model = current.get(graph.model);
+        return model != null ? model.organizations : Collections.emptyList();
+    }
+
+    private static String organizationId(RDFNode organization) {
+        return organization.toString().replace("urn:uuid:", "");
+    }
+
+    private static void addDistinct(Map<String, List<String>> values,
+                                    String key,
+                                    String value) {
+        addDistinct(values.computeIfAbsent(key, k -> new ArrayList<>()), value);
+    }
+
+    private static void addDistinct(List<String> values,
+                                    String value) {
+        if (value != null && !values.contains(value)) {
+            values.add(value);
+        }
+    }
+
+    private static boolean sameCounts(Map<String, CountedGraph> maintained,
+                                      Map<String, CountedGraph> reloaded) {
+        if (maintained.size() != reloaded.size()) {
+            return false;
+        }
+        return reloaded.entrySet().stream().allMatch(entry -> {
+            CountedGraph other = maintained.get(entry.getKey());
+            return other != null && Objects.equals(other.status, entry.getValue().status) && other.types.equals(entry.getValue().types);
+        });
+    }
+}
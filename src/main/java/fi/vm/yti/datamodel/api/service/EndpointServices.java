@@ -23,6 +23,21 @@ public final class EndpointServices {
         return this.endpoint;
     }
 
+    /**
+     * Resolves the Fuseki dataset name (core, prov, imports, ...) from a service address of this endpoint.
+     *
+     * @param address Service address, for example the SPARQL address of a dataset
+     * @return Dataset name or "external" if the address does not belong to this endpoint
+     */
+    public String getDatasetName(String address) {
+        if (address == null || !address.startsWith(endpoint + "/")) {
+            return "external";
+        }
+        String path = address.substring(endpoint.length() + 1);
+        int end = path.indexOf('/');
+        return end > 0 ? path.substring(0, end) : path;
+    }
+
     public String getCoreReadAddress() {
         return endpoint + "/core/get";
     }
@@ -98,4 +113,8 @@ public final class EndpointServices {
     public String getImportsSparqlAddress() {
         return endpoint + "/imports/sparql";
     }
+
+    public String getImportsSparqlUpdateAddress() {
+        return endpoint + "/imports/update";
+    }
 }
@@ -0,0 +1,256 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.query.ParameterizedSparqlString;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Literal;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.DCTerms;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import fi.vm.yti.datamodel.api.utils.LDHelper;
+
+/**
+ * Catalogue of the classes and predicates of an imported vocabulary, stored in its own graph in the imports dataset.
+ * <p>
+ * The catalogue holds the classes with sh:name and sh:description and the predicates with their guessed type,
+ * rdfs:label and rdfs:comment, with untagged labels and comments tagged as English. It is built when the
+ * vocabulary is stored by {@link NamespaceResolver} or {@link NamespaceManager}, and replaced when the vocabulary
+ * is fetched again. Vocabularies stored before the catalogue existed are catalogued on first read.
+ * <p>
+ * External class and predicate lists read the catalogues of the vocabularies a model requires, so they
+ * do not need a federated query from imports to core.
+ */
+@Service
+public class ExternalCatalogue {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExternalCatalogue.class.getName());
+
+    static final String CATALOGUE_GRAPH_PREFIX = "urn:csc:iow:catalogue:";
+
+    private static final String LABEL =
+        "{ ?resource ?labelPred ?labelStr . "
+            + "VALUES ?labelPred { rdfs:label sh:name dc:title dcterms:title }"
+            + "FILTER(LANG(?labelStr) = '') BIND(STRLANG(STR(?labelStr),'en') as ?label) }"
+            + "UNION"
+            + "{ ?resource ?labelPred ?label . "
+            + "VALUES ?labelPred { rdfs:label sh:name dc:title dcterms:title }"
+            + " FILTER(LANG(?label)!='') }";
+
+    private static final String COMMENT =
+        "{ ?resource ?commentPred ?commentStr . "
+            + "VALUES ?commentPred { rdfs:comment skos:definition dcterms:description dc:description prov:definition sh:description }"
+            + "FILTER(LANG(?commentStr) = '') BIND(STRLANG(STR(?commentStr),'en') as ?comment) }"
+            + "UNION"
+            + "{ ?resource ?commentPred ?comment . "
+            + "VALUES ?commentPred { rdfs:comment skos:definition dcterms:description dc:description prov:definition sh:description }"
+            + " FILTER(LANG(?comment)!='') }";
+
+    private static final String CLASSES =
+        "INSERT { GRAPH ?catalogue { "
+            + "?resource a rdfs:Class . "
+            + "?resource rdfs:isDefinedBy ?externalModel . "
+            + "?resource sh:name ?label . "
+            + "?resource sh:description ?comment . "
+            + "}} WHERE { "
+            + "GRAPH ?externalModel { "
+            + "?resource a ?type . "
+            + "FILTER(!isBlank(?resource)) "
+            + "VALUES ?type { rdfs:Class owl:Class sh:NodeShape sh:Shape } "
+            + "OPTIONAL { " + LABEL + " } "
+            + "OPTIONAL { " + COMMENT + " } "
+            + "}}";
+
+    private static final String PREDICATES =
+        "INSERT { GRAPH ?catalogue { "
+            + "?resource a ?type . "
+            + "?resource rdfs:isDefinedBy ?externalModel . "
+            + "?resource rdfs:label ?label . "
+            + "?resource rdfs:comment ?comment . "
+            + "?resource owl:versionInfo ?draft . "
+            + "}} WHERE { "
+            + "GRAPH ?externalModel { "
+            /* IF Predicate type is known */
+            + "{"
+            + "?resource a owl:DatatypeProperty . "
+            + "FILTER NOT EXISTS { ?resource a owl:ObjectProperty }"
+            + "BIND(owl:DatatypeProperty as ?type) "
+            + "} UNION {"
+            + "?resource a owl:ObjectProperty . "
+            + "FILTER NOT EXISTS { ?resource a owl:DatatypeProperty }"
+            + "BIND(owl:ObjectProperty as ?type) "
+            + "} UNION {"
+            /* Treat owl:AnnotationProperty as DatatypeProperty */
+            + "?resource a owl:AnnotationProperty. "
+            + "?resource rdfs:label ?atLeastSomeLabel . "
+            + "FILTER NOT EXISTS { ?resource a owl:DatatypeProperty }"
+            + "BIND(owl:DatatypeProperty as ?type) "
+            + "} UNION {"
+            /* IF Predicate Type is rdf:Property and range is rdfs:Literal = DatatypeProperty */
+            + "?resource a rdf:Property . "
+            + "?resource rdfs:range rdfs:Literal ."
+            + "FILTER NOT EXISTS { ?resource a ?multiType . VALUES ?multiType { owl:DatatypeProperty owl:ObjectProperty } }"
+            + "BIND(owl:DatatypeProperty as ?type) "
+            + "} UNION {"
+            /* IF Predicate Type is rdf:Property and range is rdfs:Resource then property is object property */
+            + "?resource a rdf:Property . "
+            + "?resource rdfs:range rdfs:Resource ."
+            + "FILTER NOT EXISTS { ?resource a ?multiType . VALUES ?multiType { owl:DatatypeProperty owl:ObjectProperty } }"
+            + "BIND(owl:ObjectProperty as ?type) "
+            + "}UNION {"
+            /* IF Predicate Type is rdf:Property and range is resource that is class or thing */
+            + "?resource a rdf:Property . "
+            + "FILTER NOT EXISTS { ?resource a ?multiType . VALUES ?multiType { owl:DatatypeProperty owl:ObjectProperty } }"
+            + "?resource rdfs:range ?rangeClass . "
+            + "FILTER(?rangeClass!=rdfs:Literal)"
+            + "?rangeClass a ?rangeClassType . "
+            + "VALUES ?rangeClassType { skos:Concept owl:Thing rdfs:Class }"
+            + "BIND(owl:ObjectProperty as ?type) "
+            + "} UNION {"
+            /* IF Predicate type cannot be guessed */
+            + "?resource a rdf:Property . "
+            + "FILTER NOT EXISTS { ?resource a ?multiType . VALUES ?multiType { owl:DatatypeProperty owl:ObjectProperty } }"
+            + "FILTER NOT EXISTS { ?resource rdfs:range rdfs:Literal . }"
+            + "FILTER NOT EXISTS { ?resource rdfs:range rdfs:Resource . }"
+            + "FILTER NOT EXISTS { ?resource rdfs:range ?rangeClass . ?rangeClass a ?rangeClassType . }"
+            + "BIND(rdf:Property as ?type)"
+            + "} "
+            + "FILTER(STRSTARTS(STR(?resource), STR(?externalModel)))"
+            + LABEL
+            + COMMENT
+            + "}}";
+
+    private final JenaClient jenaClient;
+    private final EndpointServices endpointServices;
+
+    @Autowired
+    ExternalCatalogue(JenaClient jenaClient,
+                      EndpointServices endpointServices) {
+        this.jenaClient = jenaClient;
+        this.endpointServices = endpointServices;
+    }
+
+    /**
+     * Replaces the catalogue of a stored vocabulary
+     *
+     * @param namespace Namespace of the vocabulary
+     */
+    public void build(String namespace) {
+        String query =
+            "DROP SILENT GRAPH ?catalogue ; "
+                + "INSERT DATA { GRAPH ?catalogue { ?externalModel a dcterms:Standard . } } ; "
+                + CLASSES + " ; "
+                + PREDICATES;
+
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        pss.setNsPrefixes(LDHelper.PREFIX_MAP);
+        pss.setCommandText(query);
+        pss.setIri("catalogue", getCatalogueGraph(namespace));
+        pss.setIri("externalModel", namespace);
+        pss.setLiteral("draft", "VALID");
+
+        try {
+            jenaClient.updateToService(pss.asUpdate(), endpointServices.getImportsSparqlUpdateAddress());
+            logger.info("Catalogued " + namespace);
+        } catch (RuntimeException ex) {
+            logger.warn("Could not catalogue " + namespace, ex);
+        }
+    }
+
+    /**
+     * @param model IRI of the model
+     * @return Classes of the vocabularies required by the model
+     */
+    public Model getClasses(String model) {
+        return getResources(model, true);
+    }
+
+    /**
+     * @param model IRI of the model
+     * @return Predicates of the vocabularies required by the model
+     */
+    public Model getPredicates(String model) {
+        return getResources(model, false);
+    }
+
+    static String getCatalogueGraph(String namespace) {
+        return CATALOGUE_GRAPH_PREFIX + LDHelper.encode(namespace);
+    }
+
+    private Model getResources(String model,
+                               boolean classes) {
+        Model result = ModelFactory.createDefaultModel();
+        result.setNsPrefixes(LDHelper.PREFIX_MAP);
+
+        getRequiredVocabularies(model).forEach((namespace, labels) -> {
+            Model catalogue = getCatalogue(namespace);
+            if (catalogue == null) {
+                return;
+            }
+            Resource externalModel = catalogue.createResource(namespace);
+            boolean found = false;
+            for (Resource resource : catalogue.listSubjectsWithProperty(RDFS.isDefinedBy, externalModel).toList()) {
+                if (catalogue.contains(resource, RDF.type, RDFS.Class) == classes) {
+                    result.add(resource.listProperties());
+                    found = true;
+                }
+            }
+            if (found) {
+                Resource resultModel = result.createResource(namespace);
+                resultModel.addProperty(RDF.type, DCTerms.Standard);
+                labels.forEach(label -> resultModel.addProperty(RDFS.label, label));
+            }
+        });
+
+        return result;
+    }
+
+    private Model getCatalogue(String namespace) {
+        String graph = getCatalogueGraph(namespace);
+        Model catalogue = jenaClient.getModelFromImports(graph);
+        if (catalogue == null && jenaClient.containsSchemaModel(namespace)) {
+            build(namespace);
+            catalogue = jenaClient.getModelFromImports(graph);
+        }
+        return catalogue;
+    }
+
+    private Map<String, List<Literal>> getRequiredVocabularies(String model) {
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        pss.setNsPrefixes(LDHelper.PREFIX_MAP);
+        pss.setCommandText("SELECT ?externalModel ?externalModelLabel WHERE { "
+            + "GRAPH ?library { "
+            + "?library dcterms:requires ?externalModel . "
+            + "?externalModel rdfs:label ?externalModelLabel . "
+            + "}}");
+        pss.setIri("library", model);
+
+        Map<String, List<Literal>> vocabularies = new LinkedHashMap<>();
+
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
+            ResultSet results = qexec.execSelect();
+            while (results.hasNext()) {
+                QuerySolution soln = results.nextSolution();
+                if (soln.get("externalModel").isURIResource()) {
+                    vocabularies.computeIfAbsent(soln.getResource("externalModel").getURI(), ns -> new ArrayList<>())
+                        .add(soln.getLiteral("externalModelLabel"));
+                }
+            }
+        }
+
+        return vocabularies;
+    }
+}
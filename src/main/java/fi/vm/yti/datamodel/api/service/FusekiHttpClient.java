@@ -0,0 +1,80 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.io.IOException;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.Credentials;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.client.LaxRedirectStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+import fi.vm.yti.datamodel.api.config.UpstreamPolicy;
+
+import static fi.vm.yti.datamodel.api.service.UpstreamMetrics.FUSEKI;
+
+/**
+ * HTTP client of the Fuseki calls, with the Fuseki credentials and the timeouts of its {@link UpstreamPolicy}.
+ * <p>
+ * The client is passed to each query, update and graph store call instead of being set as the default client of
+ * Jena, so that the credentials and connection limits of Fuseki do not apply to other HTTP calls of the process.
+ */
+@Service
+public class FusekiHttpClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(FusekiHttpClient.class.getName());
+
+    private final CloseableHttpClient httpClient;
+
+    @Autowired
+    FusekiHttpClient(ApplicationProperties properties) {
+        // Connection pool is sized to the Fuseki bulkhead so that guarded calls never queue for connections
+        UpstreamPolicy policy = properties.getUpstreamPolicy(FUSEKI);
+        HttpClientBuilder httpClientBuilder = HttpClients.custom()
+            .setMaxConnPerRoute(Math.max(1, policy.getMaxConcurrent()))
+            .setMaxConnTotal(Math.max(1, policy.getMaxConcurrent()) * 2)
+            .setRedirectStrategy(new LaxRedirectStrategy())
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectTimeout(policy.getConnectTimeout())
+                .setConnectionRequestTimeout(policy.getConnectTimeout())
+                .setSocketTimeout(policy.getTimeout())
+                .build());
+
+        if (properties.getFusekiPassword() != null && properties.getFusekiUser() != null) {
+            logger.debug("Setting fuseki user & password!");
+            CredentialsProvider credsProvider = new BasicCredentialsProvider();
+            Credentials credentials = new UsernamePasswordCredentials(properties.getFusekiUser(), properties.getFusekiPassword());
+            credsProvider.setCredentials(AuthScope.ANY, credentials);
+            httpClientBuilder.setDefaultCredentialsProvider(credsProvider);
+        } else {
+            logger.debug("No fuseki password found!");
+        }
+
+        this.httpClient = httpClientBuilder.build();
+    }
+
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    @PreDestroy
+    void close() {
+        try {
+            httpClient.close();
+        } catch (IOException ex) {
+            logger.warn("Closing Fuseki HTTP client failed: " + ex.getMessage());
+        }
+    }
+}
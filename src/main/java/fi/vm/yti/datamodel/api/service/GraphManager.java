@@ -4,25 +4,30 @@
 package fi.vm.yti.datamodel.api.service;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import org.apache.jena.atlas.web.HttpException;
 import org.apache.jena.datatypes.xsd.XSDDatatype;
 import org.apache.jena.datatypes.xsd.XSDDateTime;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.iri.IRI;
-import org.apache.jena.query.DatasetAccessor;
-import org.apache.jena.query.DatasetAccessorFactory;
 import org.apache.jena.query.ParameterizedSparqlString;
 import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryFactory;
 import org.apache.jena.query.QuerySolution;
 import org.apache.jena.query.ResultSet;
 import org.apache.jena.rdf.model.Literal;
@@ -36,21 +41,23 @@ import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.ResourceFactory;
 import org.apache.jena.rdf.model.Statement;
 import org.apache.jena.rdf.model.StmtIterator;
+import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.out.NodeFmtLib;
 import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.modify.request.QuadDataAcc;
+import org.apache.jena.sparql.modify.request.UpdateDataInsert;
+import org.apache.jena.sparql.modify.request.UpdateDrop;
 import org.apache.jena.update.UpdateException;
-import org.apache.jena.update.UpdateExecutionFactory;
-import org.apache.jena.update.UpdateProcessor;
 import org.apache.jena.update.UpdateRequest;
 import org.apache.jena.util.FileManager;
 import org.apache.jena.util.ResourceUtils;
 import org.apache.jena.vocabulary.DCTerms;
 import org.apache.jena.vocabulary.OWL;
 import org.apache.jena.vocabulary.RDF;
-import org.apache.jena.web.DatasetAdapter;
-import org.apache.jena.web.DatasetGraphAccessorHTTP;
-import org.elasticsearch.node.Node;
+import org.apache.jena.vocabulary.RDFS;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -69,6 +76,20 @@ public class GraphManager {
 
     private static final Logger logger = LoggerFactory.getLogger(GraphManager.class.getName());
 
+    private static final List<String> ALL_STATUSES = Arrays.asList("INCOMPLETE", "DRAFT", "VALID", "SUPERSEDED", "RETIRED", "INVALID", "RECOMMENDED");
+
+    /* Status changes allowed for users that are not super users */
+    private static final Map<String, List<String>> STATUS_CHANGES = new HashMap<String, List<String>>() {
+        {
+            put("INCOMPLETE", Arrays.asList("DRAFT"));
+            put("DRAFT", Arrays.asList("INCOMPLETE", "VALID", "RETIRED", "INVALID", "SUPERSEDED"));
+            put("VALID", Arrays.asList("RETIRED", "INVALID", "SUPERSEDED"));
+            put("RETIRED", Arrays.asList("VALID", "INVALID", "SUPERSEDED"));
+            put("SUPERSEDED", Arrays.asList("VALID", "INVALID", "RETIRED"));
+            put("INVALID", Arrays.asList("RETIRED", "VALID", "SUPERSEDED"));
+        }
+    };
+
     private final EndpointServices endpointServices;
     private final JenaClient jenaClient;
     private final TerminologyManager terminologyManager;
@@ -78,6 +99,11 @@ public class GraphManager {
     private final String versionGraphURI = "urn:yti:metamodel:version";
     private final ExecutorService executor = Executors.newFixedThreadPool(1);
     private final FrameManager frameManager;
+    private final ModelResolverIndex modelResolverIndex;
+    private final ModelAccessIndex modelAccessIndex;
+    private final ReferenceIndex referenceIndex;
+    private final CountManager countManager;
+    private final ReadRouter readRouter;
 
     @Autowired
     GraphManager(EndpointServices endpointServices,
@@ -86,7 +112,12 @@ public class GraphManager {
                  ModelManager modelManager,
                  ServiceDescriptionManager serviceDescriptionManager,
                  ApplicationProperties properties,
-                 FrameManager frameManager) {
+                 FrameManager frameManager,
+                 ModelResolverIndex modelResolverIndex,
+                 ModelAccessIndex modelAccessIndex,
+                 ReferenceIndex referenceIndex,
+                 CountManager countManager,
+                 ReadRouter readRouter) {
 
         this.endpointServices = endpointServices;
         this.jenaClient = jenaClient;
@@ -95,6 +126,11 @@ public class GraphManager {
         this.serviceDescriptionManager = serviceDescriptionManager;
         this.properties = properties;
         this.frameManager = frameManager;
+        this.modelResolverIndex = modelResolverIndex;
+        this.modelAccessIndex = modelAccessIndex;
+        this.referenceIndex = referenceIndex;
+        this.countManager = countManager;
+        this.readRouter = readRouter;
     }
 
     public static UpdateRequest renameIDRequest(IRI oldID,
@@ -172,6 +208,73 @@ public class GraphManager {
         return pss.asUpdate();
     }
 
+    /**
+     * Creates an update that writes positions to the position graph of a model in one request.
+     * The version of the graph is changed first, and positions are written only if the version matched.
+     * The new version is also recorded with iow:appliedPositionVersion, which later updates do not remove, so that
+     * the writer can check whether its update was applied even if another update has changed the version since.
+     * When only the given nodes are replaced, their own triples and the blank node lists they refer to, such as
+     * iow:vertexXY, are removed. Other nodes they refer to are kept.
+     *
+     * @param modelID         Model IRI
+     * @param positions       New positions
+     * @param replace         Replace all positions or only the nodes that are in the positions
+     * @param expectedVersion Current version required by the client or null to write unconditionally
+     * @param newVersion      Version of the graph after the update
+     */
+    public static UpdateRequest updatePositionsRequest(String modelID,
+                                                       Model positions,
+                                                       boolean replace,
+                                                       String expectedVersion,
+                                                       String newVersion) {
+
+        String versionCondition = expectedVersion == null ?
+            "OPTIONAL { GRAPH ?graph { ?graph iow:positionVersion ?version . }} " :
+            "GRAPH ?graph { ?graph iow:positionVersion ?version . FILTER(?version = ?expectedVersion) } ";
+
+        String deleteCondition = replace ?
+            "?s ?p ?o . FILTER(?s != ?graph) " :
+            "VALUES ?node { " + positions.listSubjects().filterKeep(Resource::isURIResource).toList().stream()
+                .map(node -> NodeFmtLib.str(node.asNode()))
+                .collect(Collectors.joining(" ")) + " } ";
+
+        String deleteLists = replace ? "" :
+            "DELETE { GRAPH ?graph { ?s ?p ?o . }} "
+                + "WHERE { GRAPH ?graph { ?graph iow:positionVersion ?newVersion . " + deleteCondition
+                + "?node ?list ?head . FILTER(isBlank(?head)) ?head rdf:rest* ?s . ?s ?p ?o . }} ; ";
+
+        String deleteNodes = replace ?
+            "DELETE { GRAPH ?graph { ?s ?p ?o . }} "
+                + "WHERE { GRAPH ?graph { ?graph iow:positionVersion ?newVersion . " + deleteCondition + "}} ; " :
+            "DELETE { GRAPH ?graph { ?node ?p ?o . }} "
+                + "WHERE { GRAPH ?graph { ?graph iow:positionVersion ?newVersion . " + deleteCondition + "?node ?p ?o . }} ; ";
+
+        String query
+            = "DELETE { GRAPH ?graph { ?graph iow:positionVersion ?version . }} "
+            + "INSERT { GRAPH ?graph { ?graph iow:positionVersion ?newVersion . ?graph iow:appliedPositionVersion ?newVersion . }} "
+            + "WHERE { " + versionCondition + "} ; "
+            + deleteLists
+            + deleteNodes
+            + "INSERT { GRAPH ?graph { " + toTriples(positions) + " }} "
+            + "WHERE { GRAPH ?graph { ?graph iow:positionVersion ?newVersion . }}";
+
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        pss.setNsPrefixes(LDHelper.PREFIX_MAP);
+        pss.setCommandText(query);
+        pss.setIri("graph", modelID + "#PositionGraph");
+        pss.setLiteral("newVersion", newVersion);
+        if (expectedVersion != null) {
+            pss.setLiteral("expectedVersion", expectedVersion);
+        }
+        return pss.asUpdate();
+    }
+
+    private static String toTriples(Model model) {
+        StringWriter writer = new StringWriter();
+        RDFDataMgr.write(writer, model, Lang.NTRIPLES);
+        return writer.toString();
+    }
+
     public static UpdateRequest updateStatusAndRevisionInModelRequest(IRI oldID,
                                                                       IRI newID) {
         String query = "DELETE { GRAPH ?newID { ?newID owl:versionInfo ?status . ?newID prov:wasRevisionOf ?oldRevisionID . } }"
@@ -334,20 +437,22 @@ public class GraphManager {
      * @param toService   Service where graph is copied
      * @throws NullPointerException
      */
-    public static void addGraphFromServiceToService(String fromGraph,
-                                                    String toGraph,
-                                                    String fromService,
-                                                    String toService) throws NullPointerException {
-
-        DatasetAccessor fromAccessor = DatasetAccessorFactory.createHTTP(fromService);
-        Model graphModel = fromAccessor.getModel(fromGraph);
+    @SuppressWarnings("try")
+    public void addGraphFromServiceToService(String fromGraph,
+                                             String toGraph,
+                                             String fromService,
+                                             String toService) throws NullPointerException {
+
+        Model graphModel;
+        try (ReadRouter.Scope scope = readRouter.primaryReads()) {
+            graphModel = jenaClient.getModelFromService(fromService, fromGraph);
+        }
 
         if (graphModel == null) {
             throw new NullPointerException();
         }
 
-        DatasetAccessor toAccessor = DatasetAccessorFactory.createHTTP(toService);
-        toAccessor.add(toGraph, graphModel);
+        jenaClient.addModelToService(toService, toGraph, graphModel);
 
     }
 
@@ -520,6 +625,17 @@ public class GraphManager {
         }
     }
 
+    /**
+     * Check if model is existing. Uses the same cached lookup as the model edit rights, so that unknown models can
+     * be told apart from models the user has no rights to.
+     *
+     * @param modelIRI IRI of the model
+     * @return Returns true if there is a model with the given IRI
+     */
+    public boolean isExistingModel(IRI modelIRI) {
+        return modelAccessIndex.get(modelIRI.toString()) != null;
+    }
+
     /**
      * Check if Graph is existing
      *
@@ -721,12 +837,10 @@ public class GraphManager {
      */
     public void createDefaultGraph() {
 
-        DatasetAccessor accessor = DatasetAccessorFactory.createHTTP(endpointServices.getCoreReadWriteAddress());
-
         Model m = ModelFactory.createDefaultModel();
         RDFDataMgr.read(m, LDHelper.getDefaultGraphInputStream(), RDFLanguages.JSONLD);
 
-        accessor.putModel("urn:csc:iow:sd", m);
+        jenaClient.putModelToCore("urn:csc:iow:sd", m);
 
     }
 
@@ -776,16 +890,20 @@ public class GraphManager {
         logger.info("Removing model from " + id);
 
         UpdateRequest queryObj = pss.asUpdate();
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
 
         /* TODO: remove when resolved JENA-1255 */
         // namespaceBugFix(id.toString());
 
         try {
-            qexec.execute();
+            jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
         } catch (UpdateException ex) {
             logger.warn(ex.toString());
         }
+
+        modelResolverIndex.invalidateModel(id.toString());
+        modelAccessIndex.invalidateModel(id.toString());
+        referenceIndex.removeModel(id.toString());
+        countManager.modelRemoved(id.toString());
     }
 
     /**
@@ -814,13 +932,15 @@ public class GraphManager {
         logger.warn("Removing graph " + id);
 
         UpdateRequest queryObj = pss.asUpdate();
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
 
         try {
-            qexec.execute();
+            jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
         } catch (UpdateException ex) {
             logger.warn(ex.toString());
         }
+
+        referenceIndex.removeGraph(id.toString());
+        countManager.graphRemoved(id.toString());
     }
 
     /**
@@ -839,8 +959,7 @@ public class GraphManager {
         pss.setCommandText(query);
 
         UpdateRequest queryObj = pss.asUpdate();
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
 
         /* OPTIONALLY. Ummm. Not really?
 
@@ -873,8 +992,7 @@ public class GraphManager {
         pss.setCommandText(query);
 
         UpdateRequest queryObj = pss.asUpdate();
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
     }
 
     /**
@@ -891,15 +1009,15 @@ public class GraphManager {
 
         UpdateRequest queryObj = pss.asUpdate();
 
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
 
-        qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getProvSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getProvSparqlUpdateAddress());
 
-        qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getTempConceptSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getTempConceptSparqlUpdateAddress());
 
+        modelResolverIndex.invalidateAll();
+        modelAccessIndex.invalidateAll();
+        countManager.clear();
     }
 
     /**
@@ -911,8 +1029,7 @@ public class GraphManager {
     public void renameID(IRI oldID,
                          IRI newID) {
         UpdateRequest queryObj = renameIDRequest(oldID, newID);
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
     }
 
     /**
@@ -927,8 +1044,7 @@ public class GraphManager {
                                                 IRI newID) {
 
         UpdateRequest queryObj = updateReferencesInPositionGraphRequest(modelID, oldID, newID);
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
 
     }
 
@@ -961,8 +1077,7 @@ public class GraphManager {
         logger.warn("Updating references in " + modelID.toString());
 
         UpdateRequest queryObj = pss.asUpdate();
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
 
     }
 
@@ -983,8 +1098,7 @@ public class GraphManager {
         pss.setCommandText(query);
 
         UpdateRequest queryObj = pss.asUpdate();
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
     }
 
     /**
@@ -1012,51 +1126,45 @@ public class GraphManager {
         logger.warn("Updating references in " + modelID.toString() + "#ExportGraph");
 
         UpdateRequest queryObj = pss.asUpdate();
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
+        referenceIndex.renameTarget(oldID.toString(), newID.toString());
 
     }
 
     public void updateStatusAndProvInModel(IRI oldID,
                                            IRI newID) {
         UpdateRequest queryObj = updateStatusAndRevisionInModelRequest(oldID, newID);
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
     }
 
     public void updateStatusAndDerivationInModel(IRI oldID,
                                                  IRI newID) {
         UpdateRequest queryObj = updateStatusAndDerivationInModelRequest(oldID, newID);
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
     }
 
     public void renameObjectIRIinModel(IRI oldID,
                                        IRI newID) {
         UpdateRequest queryObj = updateObjectIRIInGraph(oldID, newID);
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
     }
 
     public void changeNamespaceInObjects(IRI oldID,
                                          IRI newID) {
         UpdateRequest queryObj = updateNamespaceInObject(oldID, newID);
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
     }
 
     public void changeNamespaceInResources(IRI oldID,
                                            IRI newID) {
         UpdateRequest queryObj = renameResourcesInNewGraphsQuery(oldID, newID);
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
     }
 
     public void changeStatusInNewGraphs(IRI oldID,
                                         IRI newID) {
         UpdateRequest queryObj = changeStatusInNewGraphsQuery(oldID, newID);
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
     }
 
     /**
@@ -1112,21 +1220,33 @@ public class GraphManager {
         pss.setIri("exportGraph", model + "#ExportGraph");
         pss.setIri("resource", resource);
         pss.setCommandText(query);
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(pss.asUpdate(), endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(pss.asUpdate(), endpointServices.getCoreSparqlUpdateAddress());
 
         Model prefixModel = ModelFactory.createDefaultModel();
         prefixModel.setNsPrefixes(getPrefixMappingFromResource(resource));
         prefixModel.add(ResourceFactory.createResource(model.toString()), RDF.type, OWL.Ontology);
-        DatasetAccessor toAccessor = DatasetAccessorFactory.createHTTP(endpointServices.getCoreReadWriteAddress());
-        toAccessor.add(model.toString(), prefixModel);
-        toAccessor.add(model.toString() + "#ExportGraph", prefixModel);
+        jenaClient.addModelToCore(model.toString(), prefixModel);
+        jenaClient.addModelToCore(model.toString() + "#ExportGraph", prefixModel);
+        referenceIndex.indexGraph(model.toString());
 
     }
 
     public void changeResourceStatuses(String model,
                                        String initialStatus,
                                        String endStatus) {
+        changeResourceStatuses(model, initialStatus, endStatus, LDHelper.getDateTimeLiteral());
+    }
+
+    /**
+     * Changes status of the resources of the model that are in the initial status
+     *
+     * @param statusModified New iow:statusModified of the changed resources
+     */
+    public void changeResourceStatuses(String model,
+                                       String initialStatus,
+                                       String endStatus,
+                                       Literal statusModified) {
+        logger.debug("Status changes in " + model + " from " + initialStatus + " to " + endStatus);
         String query =
             "DELETE { " +
                 "GRAPH ?resource { ?any owl:versionInfo ?initialStatus . ?any iow:statusModified ?oldStatusModified . }" +
@@ -1147,90 +1267,34 @@ public class GraphManager {
         pss.setIri("graph", model);
         pss.setLiteral("initialStatus", initialStatus);
         pss.setLiteral("endStatus", endStatus);
-        pss.setLiteral("statusModified", LDHelper.getDateTimeLiteral());
+        pss.setLiteral("statusModified", statusModified);
         pss.setCommandText(query);
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(pss.asUpdate(), endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(pss.asUpdate(), endpointServices.getCoreSparqlUpdateAddress());
+        countManager.resourceStatusesChanged(model, initialStatus, endStatus);
     }
 
-    /*
-     * Status change for normal users. Only certain status changes are allowed.
+    /**
+     * Checks that resources can be changed from the initial status to the end status. Super users may change
+     * between any known statuses, other users only along the allowed transitions.
+     *
+     * @throws IllegalArgumentException if the change is not allowed
      */
-    public void changeStatuses(String model,
-                               String initialStatus,
-                               String endStatus) {
-        switch (initialStatus) {
-            case "INCOMPLETE":
-                if (endStatus.equals("DRAFT")) {
-                    logger.debug("Status changes in " + model + " from " + initialStatus + " to " + endStatus);
-                    changeResourceStatuses(model, initialStatus, endStatus);
-                } else {
-                    throw new IllegalArgumentException("Invalid status change from " + initialStatus + " to " + endStatus);
-                }
-                break;
-            case "DRAFT":
-                final List draftChanges = Stream.of("INCOMPLETE", "VALID", "RETIRED", "INVALID", "SUPERSEDED").collect(Collectors.toList());
-                if (draftChanges.contains(endStatus)) {
-                    logger.debug("Status changes in " + model + " from " + initialStatus + " to " + endStatus);
-                    changeResourceStatuses(model, initialStatus, endStatus);
-                } else {
-                    throw new IllegalArgumentException("Invalid status change from " + initialStatus + " to " + endStatus);
-                }
-                break;
-            case "VALID":
-                final List validChanges = Stream.of("RETIRED", "INVALID", "SUPERSEDED").collect(Collectors.toList());
-                if (validChanges.contains(endStatus)) {
-                    logger.debug("Status changes in " + model + " from " + initialStatus + " to " + endStatus);
-                    changeResourceStatuses(model, initialStatus, endStatus);
-                } else {
-                    throw new IllegalArgumentException("Invalid status change from " + initialStatus + " to " + endStatus);
-                }
-                break;
-            case "RETIRED":
-                final List removedChanges = Stream.of("VALID", "INVALID", "SUPERSEDED").collect(Collectors.toList());
-                if (removedChanges.contains(endStatus)) {
-                    logger.debug("Status changes in " + model + " from " + initialStatus + " to " + endStatus);
-                    changeResourceStatuses(model, initialStatus, endStatus);
-                } else {
-                    throw new IllegalArgumentException("Invalid status change from " + initialStatus + " to " + endStatus);
-                }
-                break;
-            case "SUPERSEDED":
-                final List supersededChanges = Stream.of("VALID", "INVALID", "RETIRED").collect(Collectors.toList());
-                if (supersededChanges.contains(endStatus)) {
-                    logger.debug("Status changes in " + model + " from " + initialStatus + " to " + endStatus);
-                    changeResourceStatuses(model, initialStatus, endStatus);
-                } else {
-                    throw new IllegalArgumentException("Invalid status change from " + initialStatus + " to " + endStatus);
-                }
-                break;
-            case "INVALID":
-                final List invalidChanges = Stream.of("RETIRED", "VALID", "SUPERSEDED").collect(Collectors.toList());
-                if (invalidChanges.contains(endStatus)) {
-                    logger.debug("Status changes in " + model + " from " + initialStatus + " to " + endStatus);
-                    changeResourceStatuses(model, initialStatus, endStatus);
-                } else {
-                    throw new IllegalArgumentException("Invalid status change from " + initialStatus + " to " + endStatus);
-                }
-                break;
-            default:
-                throw new IllegalArgumentException("Unknown status change from " + initialStatus + " to " + endStatus);
+    public static void checkStatusChange(String initialStatus,
+                                         String endStatus,
+                                         boolean superUser) {
+        if (superUser) {
+            if (!ALL_STATUSES.contains(initialStatus) || !ALL_STATUSES.contains(endStatus)) {
+                throw new IllegalArgumentException("Invalid status change from " + initialStatus + " to " + endStatus);
+            }
+            return;
         }
-    }
 
-    /*
-     * Status change for super users. All status changes between statuses are allowed.
-     *
-     */
-    public void changeStatusesAsSuperUser(String model,
-                                          String initialStatus,
-                                          String endStatus) {
-        final List allChanges = Stream.of("INCOMPLETE", "DRAFT", "VALID", "SUPERSEDED", "RETIRED", "INVALID", "RECOMMENDED").collect(Collectors.toList());
-
-        if (allChanges.contains(endStatus) && allChanges.contains(initialStatus)) {
-            logger.debug("Status changes in " + model + " from " + initialStatus + " to " + endStatus + " as SuperUser");
-            changeResourceStatuses(model, initialStatus, endStatus);
-        } else {
+        List<String> allowedChanges = initialStatus != null ? STATUS_CHANGES.get(initialStatus) : null;
+
+        if (allowedChanges == null) {
+            throw new IllegalArgumentException("Unknown status change from " + initialStatus + " to " + endStatus);
+        }
+        if (!allowedChanges.contains(endStatus)) {
             throw new IllegalArgumentException("Invalid status change from " + initialStatus + " to " + endStatus);
         }
     }
@@ -1246,8 +1310,7 @@ public class GraphManager {
         pss.setIri("to", to);
         pss.setCommandText(query);
         UpdateRequest queryObj = pss.asUpdate();
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
     }
 
     /**
@@ -1288,9 +1351,6 @@ public class GraphManager {
 
         Literal created = LDHelper.getDateTimeLiteral();
 
-        DatasetGraphAccessorHTTP accessor = new DatasetGraphAccessorHTTP(endpointServices.getCoreReadWriteAddress());
-        DatasetAdapter adapter = new DatasetAdapter(accessor);
-
         Resource modelResource = oldModelGraph.getResource(model.toString());
         ResourceUtils.renameResource(modelResource, newModel.toString());
         oldModelGraph.setNsPrefix(newPrefix, newModel.toString() + "#");
@@ -1304,15 +1364,15 @@ public class GraphManager {
         LDHelper.rewriteLiteral(oldModelGraph, newModelResource, LDHelper.curieToProperty("dcap:preferredXMLNamespaceName"), ResourceFactory.createPlainLiteral(newModel.toString() + "#"));
         LDHelper.rewriteLiteral(oldModelGraph, newModelResource, LDHelper.curieToProperty("dcap:preferredXMLNamespacePrefix"), ResourceFactory.createPlainLiteral(newPrefix));
         renameObjectNamespaceInModel(oldModelGraph, model.toString() + "#", newModel.toString() + "#");
-        adapter.putModel(newModel.toString(), oldModelGraph);
+        jenaClient.putModelToCore(newModel.toString(), oldModelGraph);
 
-        Model oldHasPartGraph = adapter.getModel(model.toString() + "#HasPartGraph");
+        Model oldHasPartGraph = getModelFromPrimary(model.toString() + "#HasPartGraph");
 
         if (oldHasPartGraph != null && oldHasPartGraph.size() > 1) {
 
             ResourceUtils.renameResource(oldHasPartGraph.getResource(model.toString()), newModel.toString());
 
-            Model oldPositionGraph = adapter.getModel(model.toString() + "#PositionGraph");
+            Model oldPositionGraph = getModelFromPrimary(model.toString() + "#PositionGraph");
             if (oldPositionGraph != null && oldPositionGraph.size() > 2) {
                 ResIterator positionResources = oldPositionGraph.listSubjects();
                 while (positionResources.hasNext()) {
@@ -1325,7 +1385,7 @@ public class GraphManager {
                         }
                     }
                 }
-                adapter.putModel(newModel.toString() + "#PositionGraph", oldPositionGraph);
+                jenaClient.putModelToCore(newModel.toString() + "#PositionGraph", oldPositionGraph);
             }
             NodeIterator hasPartObjects = oldHasPartGraph.listObjectsOfProperty(DCTerms.hasPart);
 
@@ -1335,7 +1395,7 @@ public class GraphManager {
                 if (oldGraph.startsWith(model.toString() + "#")) {
                     String newGraph = oldGraph.replace(model.toString() + "#", newModel.toString() + "#");
                     logger.info("Creating version from " + oldGraph + " to " + newGraph);
-                    Model oldResourceGraph = adapter.getModel(oldGraph);
+                    Model oldResourceGraph = getModelFromPrimary(oldGraph);
                     if (oldResourceGraph != null) { // FIXME: References to removed resources?!?
                         Resource oldResource = oldResourceGraph.getResource(oldGraph);
                         ResourceUtils.renameResource(oldResource, newGraph);
@@ -1356,12 +1416,12 @@ public class GraphManager {
                             ResourceUtils.renameResource(propertyShape, "urn:uuid:" + UUID.randomUUID().toString());
                         }
 
-                        adapter.putModel(newGraph, oldResourceGraph);
+                        jenaClient.putModelToCore(newGraph, oldResourceGraph);
                         ResourceUtils.renameResource(hasPartResource, newGraph);
                     }
                 }
             }
-            adapter.putModel(newModel.toString() + "#HasPartGraph", oldHasPartGraph);
+            jenaClient.putModelToCore(newModel.toString() + "#HasPartGraph", oldHasPartGraph);
         }
 
     }
@@ -1388,13 +1448,20 @@ public class GraphManager {
                                 IRI oldID,
                                 IRI newID) {
         createVersionGraphsWithJenaAdapter(oldVocabulary, newPrefix, oldID, newID);
+        modelResolverIndex.invalidateModel(newID.toString());
+        modelAccessIndex.invalidateModel(newID.toString());
+        referenceIndex.indexModel(newID.toString());
+        countManager.reconcileModel(newID.toString());
     }
 
     public void changePrefixAndNamespaceFromModelCopy(IRI newID,
                                                       String newPrefix) {
         UpdateRequest queryObj = changePrefixAndNamespaceFromModelCopyQuery(newID, newPrefix);
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
+        modelResolverIndex.invalidateModel(newID.toString());
+        modelAccessIndex.invalidateModel(newID.toString());
+        referenceIndex.indexModel(newID.toString());
+        countManager.reconcileModel(newID.toString());
     }
 
     public UpdateRequest insertNewGraphReferenceToModelRequest(String graph,
@@ -1431,8 +1498,7 @@ public class GraphManager {
     public void insertNewGraphReferenceToModel(String graph,
                                                String model) {
         UpdateRequest queryObj = insertNewGraphReferenceToModelRequest(graph, model);
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
 
     }
 
@@ -1446,8 +1512,7 @@ public class GraphManager {
                                                      String model) {
 
         UpdateRequest queryObj = insertNewGraphReferenceToExportGraphRequest(graph, model);
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
 
     }
 
@@ -1475,8 +1540,7 @@ public class GraphManager {
     public void insertExistingGraphReferenceToModel(String graph,
                                                     String model) {
         UpdateRequest queryObj = insertExistingGraphReferenceToModelRequest(graph, model);
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
     }
 
     public void deleteGraphReferenceFromModel(IRI graph,
@@ -1487,22 +1551,55 @@ public class GraphManager {
     public void deletePositionGraphReferencesFromModel(String modelIRI,
                                                        String resourceIRI) {
         UpdateRequest queryObj = deleteReferencesFromPositionGraphRequest(modelIRI, resourceIRI);
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
+    }
+
+    /**
+     * Writes positions to the position graph of a model as one atomic update
+     *
+     * @param modelID         Model IRI
+     * @param positions       New positions
+     * @param replace         Replace all positions or only the nodes that are in the positions
+     * @param expectedVersion Current version required by the client or null to write unconditionally
+     * @return New version of the position graph or null if the graph was not at the expected version
+     */
+    @SuppressWarnings("try")
+    public String updatePositions(String modelID,
+                                  Model positions,
+                                  boolean replace,
+                                  String expectedVersion) {
+        String newVersion = UUID.randomUUID().toString();
+        UpdateRequest queryObj = updatePositionsRequest(modelID, positions, replace, expectedVersion, newVersion);
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
+
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        pss.setNsPrefixes(LDHelper.PREFIX_MAP);
+        pss.setCommandText("ASK { GRAPH ?graph { ?graph iow:appliedPositionVersion ?version . }}");
+        pss.setIri("graph", modelID + "#PositionGraph");
+        pss.setLiteral("version", newVersion);
+
+        try (ReadRouter.Scope scope = readRouter.primaryReads()) {
+            if (!jenaClient.askQuery(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
+                logger.info("Positions of " + modelID + " were not at version " + expectedVersion);
+                return null;
+            }
+        }
+
+        pss.setCommandText("DELETE DATA { GRAPH ?graph { ?graph iow:appliedPositionVersion ?version . }}");
+        jenaClient.updateToService(pss.asUpdate(), endpointServices.getCoreSparqlUpdateAddress());
+        return newVersion;
     }
 
     public void deleteGraphReferenceFromModel(String graph,
                                               String model) {
         UpdateRequest queryObj = deleteGraphReferenceFromModelRequest(graph, model);
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
     }
 
     public void deleteReferencedResourceFromExportModel(String graph,
                                                         String model) {
         UpdateRequest exportQueryObj = deleteReferencesFromExportGraphRequest(model, graph);
-        UpdateProcessor expQexec = UpdateExecutionFactory.createRemoteForm(exportQueryObj, endpointServices.getCoreSparqlUpdateAddress());
-        expQexec.execute();
+        jenaClient.updateToService(exportQueryObj, endpointServices.getCoreSparqlUpdateAddress());
     }
 
     public UpdateRequest deleteGraphReferenceFromModelRequest(String graph,
@@ -1563,8 +1660,7 @@ public class GraphManager {
         pss.setCommandText(query);
 
         UpdateRequest queryObj = pss.asUpdate();
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
 
     }
 
@@ -1595,14 +1691,13 @@ public class GraphManager {
     public void addCoreGraphToCoreGraph(String fromGraph,
                                         String toGraph) throws NullPointerException {
 
-        DatasetAccessor fromAccessor = DatasetAccessorFactory.createHTTP(endpointServices.getCoreReadWriteAddress());
-        Model graphModel = fromAccessor.getModel(fromGraph);
+        Model graphModel = getModelFromPrimary(fromGraph);
 
         if (graphModel == null) {
             throw new NullPointerException();
         }
 
-        fromAccessor.add(toGraph, graphModel);
+        jenaClient.addModelToCore(toGraph, graphModel);
     }
 
     /**
@@ -1624,18 +1719,14 @@ public class GraphManager {
             logger.warn(ex.getMessage());
         } */
 
-        DatasetGraphAccessorHTTP accessor = new DatasetGraphAccessorHTTP(endpointServices.getCoreReadWriteAddress());
-        DatasetAdapter adapter = new DatasetAdapter(accessor);
-        adapter.putModel(id, model);
+        jenaClient.putModelToCore(id, model);
 
     }
 
     public void addToGraph(Model model,
                            String id) {
         logger.debug("Adding to " + id);
-        DatasetGraphAccessorHTTP accessor = new DatasetGraphAccessorHTTP(endpointServices.getCoreReadWriteAddress());
-        DatasetAdapter adapter = new DatasetAdapter(accessor);
-        adapter.add(id, model);
+        jenaClient.addModelToCore(id, model);
     }
 
     /**
@@ -1711,11 +1802,12 @@ public class GraphManager {
         pss.setNsPrefixes(LDHelper.PREFIX_MAP);
         pss.setIri("graph", model);
         pss.setIri("exportGraph", model + "#ExportGraph");
-        pss.setLiteral("newDate", LDHelper.getDateTimeLiteral());
+        Literal newDate = LDHelper.getDateTimeLiteral();
+        pss.setLiteral("newDate", newDate);
         pss.setCommandText(query);
 
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(pss.asUpdate(), endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(pss.asUpdate(), endpointServices.getCoreSparqlUpdateAddress());
+        modelResolverIndex.modelModified(model, ((XSDDateTime) newDate.getValue()).asCalendar().getTime());
     }
 
     /**
@@ -1753,6 +1845,126 @@ public class GraphManager {
         return modified;
     }
 
+    /**
+     * Returns the latest modification time of a model or resource graph, either iow:contentModified or dcterms:modified
+     *
+     * @param graphName IRI of the graph
+     * @return Modification date or null if graph does not exist
+     */
+    public Date graphModified(String graphName) {
+
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        String selectResources =
+            "SELECT (MAX(?date) AS ?modified) WHERE { "
+                + "GRAPH ?graph { "
+                + "?graph iow:contentModified|dcterms:modified ?date . "
+                + "}}";
+
+        pss.setNsPrefixes(LDHelper.PREFIX_MAP);
+        pss.setCommandText(selectResources);
+        pss.setIri("graph", graphName);
+
+        ResultSet results = jenaClient.selectQuery(endpointServices.getCoreSparqlAddress(), pss.asQuery());
+
+        Date modified = null;
+
+        while (results.hasNext()) {
+            QuerySolution soln = results.nextSolution();
+            if (soln.contains("modified")) {
+                Literal liteDate = soln.getLiteral("modified");
+                modified = ((XSDDateTime) XSDDatatype.XSDdateTime.parse(liteDate.getString())).asCalendar().getTime();
+            }
+        }
+
+        return modified;
+    }
+
+    /**
+     * Returns the latest modification time of a resource graph and of the model whose label and type are shown
+     * with the resource
+     *
+     * @param graphName IRI of the resource graph
+     * @param model     IRI of the model the resource is shown in or null for the model that defines the resource
+     * @return Modification date or null if graph does not exist
+     */
+    public Date resourceModified(String graphName,
+                                 String model) {
+
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        String selectResources =
+            "SELECT (MAX(?date) AS ?modified) WHERE { { "
+                + "GRAPH ?graph { "
+                + "?graph iow:contentModified|dcterms:modified ?date . "
+                + "}} UNION { "
+                + "GRAPH ?graph { ?graph rdfs:isDefinedBy ?library . } "
+                + "GRAPH ?library { ?library dcterms:modified ?date . } "
+                + "}}";
+
+        pss.setNsPrefixes(LDHelper.PREFIX_MAP);
+        pss.setCommandText(selectResources);
+        pss.setIri("graph", graphName);
+
+        if (model != null && !model.equals("undefined")) {
+            pss.setIri("library", model);
+        }
+
+        ResultSet results = jenaClient.selectQuery(endpointServices.getCoreSparqlAddress(), pss.asQuery());
+
+        Date modified = null;
+
+        while (results.hasNext()) {
+            QuerySolution soln = results.nextSolution();
+            if (soln.contains("modified")) {
+                Literal liteDate = soln.getLiteral("modified");
+                modified = ((XSDDateTime) XSDDatatype.XSDdateTime.parse(liteDate.getString())).asCalendar().getTime();
+            }
+        }
+
+        return modified;
+    }
+
+    /**
+     * Returns status of the model, for example DRAFT or VALID
+     *
+     * @param graphName IRI of the model
+     * @return Status or null if model does not exist
+     */
+    public String getModelStatus(String graphName) {
+
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        String selectStatus =
+            "SELECT ?status WHERE { "
+                + "GRAPH ?graph { "
+                + "?graph owl:versionInfo ?status . "
+                + "}}";
+
+        pss.setNsPrefixes(LDHelper.PREFIX_MAP);
+        pss.setCommandText(selectStatus);
+        pss.setIri("graph", graphName);
+
+        ResultSet results = jenaClient.selectQuery(endpointServices.getCoreSparqlAddress(), pss.asQuery());
+
+        if (results.hasNext()) {
+            QuerySolution soln = results.nextSolution();
+            if (soln.contains("status")) {
+                return soln.getLiteral("status").getString();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Reads a graph that is modified and written back from the primary, so that changes are not lost when
+     * replicas lag behind
+     */
+    @SuppressWarnings("try")
+    private Model getModelFromPrimary(String graph) {
+        try (ReadRouter.Scope scope = readRouter.primaryReads()) {
+            return jenaClient.getModelFromCore(graph);
+        }
+    }
+
     public void createResource(AbstractResource resource) {
         Literal created = LDHelper.getDateTimeLiteral();
         LDHelper.rewriteLiteral(resource.asGraph(), ResourceFactory.createResource(resource.getId()), DCTerms.modified, created);
@@ -1765,6 +1977,8 @@ public class GraphManager {
         exportModel.add(exportModel.createResource(resource.getModelId()), DCTerms.hasPart, exportModel.createResource(resource.getId()));
 
         jenaClient.addModelToCore(resource.getModelId() + "#ExportGraph", exportModel);
+        referenceIndex.indexGraph(resource.getId());
+        countManager.graphWritten(resource.getId(), resource.asGraph());
 
         updateContentModified(resource.getModelId());
     }
@@ -1777,12 +1991,14 @@ public class GraphManager {
         Literal modified = LDHelper.getDateTimeLiteral();
         LDHelper.rewriteLiteral(newModel, ResourceFactory.createResource(resourceId), DCTerms.modified, modified);
 
-        Model exportModel = jenaClient.getModelFromCore(modelId + "#ExportGraph");
+        Model exportModel = getModelFromPrimary(modelId + "#ExportGraph");
         exportModel = modelManager.removeResourceStatements(oldModel, exportModel);
         exportModel.add(newModel);
 
         jenaClient.putModelToCore(modelId + "#ExportGraph", exportModel);
         jenaClient.putModelToCore(resourceId, newModel);
+        referenceIndex.indexGraph(resourceId);
+        countManager.graphWritten(resourceId, newModel);
 
         updateContentModified(modelId);
     }
@@ -1799,6 +2015,121 @@ public class GraphManager {
         updateResource(resource.getModelId(), resource.getId(), oldModel, newModel);
     }
 
+    /**
+     * Updates a batch of resources of one model. Resource graphs and the export graph are written in one update,
+     * and the modification time and references of the model are updated once for the whole batch.
+     *
+     * @param modelId   Model IRI
+     * @param resources Updated resources defined by the model
+     * @param oldGraphs Current graphs of the resources by resource IRI, see {@link #getCoreGraphs(Collection)}
+     * @throws IllegalArgumentException if a resource does not exist or is not of the same type (class or predicate)
+     *                                  as the stored resource, in which case nothing is written
+     */
+    public void updateResources(String modelId,
+                                List<? extends AbstractResource> resources,
+                                Map<String, Model> oldGraphs) {
+
+        for (AbstractResource resource : resources) {
+            Resource resourceNode = ResourceFactory.createResource(resource.getId());
+            Model oldModel = oldGraphs.get(resource.getId());
+
+            if (oldModel == null) {
+                throw new IllegalArgumentException(resource.getId() + " does not exist");
+            }
+
+            Resource oldType = resourceType(oldModel, resourceNode);
+
+            if (oldType == null || !oldType.equals(resourceType(resource.asGraph(), resourceNode))) {
+                throw new IllegalArgumentException("Type of " + resource.getId() + " does not match the stored resource");
+            }
+        }
+
+        Literal modified = LDHelper.getDateTimeLiteral();
+        Model exportModel = getModelFromPrimary(modelId + "#ExportGraph");
+
+        UpdateRequest request = new UpdateRequest();
+        QuadDataAcc quads = new QuadDataAcc();
+
+        for (AbstractResource resource : resources) {
+            Resource resourceNode = ResourceFactory.createResource(resource.getId());
+            Model oldModel = oldGraphs.get(resource.getId());
+            Model newModel = resource.asGraph();
+
+            Statement created = oldModel.getProperty(resourceNode, DCTerms.created);
+            if (created != null) {
+                LDHelper.rewriteLiteral(newModel, resourceNode, DCTerms.created, created.getLiteral());
+            }
+            LDHelper.rewriteLiteral(newModel, resourceNode, DCTerms.modified, modified);
+
+            exportModel = modelManager.removeResourceStatements(oldModel, exportModel);
+            exportModel.add(newModel);
+
+            Node graph = NodeFactory.createURI(resource.getId());
+            request.add(new UpdateDrop(graph, true));
+            newModel.getGraph().find().forEachRemaining(triple -> quads.addQuad(new Quad(graph, triple)));
+        }
+
+        Node exportGraph = NodeFactory.createURI(modelId + "#ExportGraph");
+        request.add(new UpdateDrop(exportGraph, true));
+        exportModel.getGraph().find().forEachRemaining(triple -> quads.addQuad(new Quad(exportGraph, triple)));
+
+        // Single insert so that blank nodes keep distinct labels within the request
+        request.add(new UpdateDataInsert(quads));
+
+        logger.info("Updating " + resources.size() + " resources of " + modelId);
+        jenaClient.updateToService(request, endpointServices.getCoreSparqlUpdateAddress());
+
+        resources.forEach(resource -> countManager.graphWritten(resource.getId(), resource.asGraph()));
+        referenceIndex.indexModel(modelId);
+        updateContentModified(modelId);
+    }
+
+    /**
+     * @return rdfs:Class for classes and shapes, rdf:Property for predicates or null if the resource is neither
+     */
+    private static Resource resourceType(Model graph,
+                                         Resource resource) {
+        if (graph.contains(resource, RDF.type, RDFS.Class) || graph.contains(resource, RDF.type, SH.NodeShape)) {
+            return RDFS.Class;
+        } else if (graph.contains(resource, RDF.type, OWL.ObjectProperty) || graph.contains(resource, RDF.type, OWL.DatatypeProperty)) {
+            return RDF.Property;
+        }
+        return null;
+    }
+
+    /**
+     * Returns graphs from core service with one query
+     *
+     * @param graphs IRIs of the graphs
+     * @return Graphs by IRI, graphs that do not exist are missing
+     */
+    public Map<String, Model> getCoreGraphs(Collection<String> graphs) {
+
+        Map<String, Model> models = new HashMap<>();
+
+        if (graphs.isEmpty()) {
+            return models;
+        }
+
+        String query = "SELECT ?graph ?s ?p ?o WHERE { "
+            + "VALUES ?graph { " + graphs.stream().map(graph -> NodeFmtLib.str(NodeFactory.createURI(graph))).collect(Collectors.joining(" ")) + " } "
+            + "GRAPH ?graph { ?s ?p ?o . }}";
+
+        ResultSet results = jenaClient.selectQuery(endpointServices.getCoreSparqlAddress(), QueryFactory.create(query));
+
+        while (results.hasNext()) {
+            QuerySolution soln = results.nextSolution();
+            Model model = models.computeIfAbsent(soln.getResource("graph").getURI(), graph -> {
+                Model graphModel = ModelFactory.createDefaultModel();
+                graphModel.setNsPrefixes(LDHelper.PREFIX_MAP);
+                return graphModel;
+            });
+            model.add(soln.getResource("s"), ResourceFactory.createProperty(soln.getResource("p").getURI()), soln.get("o"));
+        }
+
+        return models;
+    }
+
     public void updateResourceWithNewId(AbstractResource resource,
                                         AbstractResource oldResource) {
 
@@ -1825,7 +2156,7 @@ public class GraphManager {
     public void deleteResource(String resourceId,
                                String modelId,
                                Model resourceModel) {
-        Model exportModel = jenaClient.getModelFromCore(modelId + "#ExportGraph");
+        Model exportModel = getModelFromPrimary(modelId + "#ExportGraph");
         exportModel = modelManager.removeResourceStatements(resourceModel, exportModel);
         exportModel.remove(exportModel.createResource(modelId), DCTerms.hasPart, exportModel.createResource(resourceId));
 
@@ -1834,6 +2165,8 @@ public class GraphManager {
         deletePositionGraphReferencesFromModel(modelId, resourceId);
         updateContentModified(modelId);
         jenaClient.deleteModelFromCore(resourceId);
+        referenceIndex.removeGraph(resourceId);
+        countManager.graphRemoved(resourceId);
     }
 
     public void createModel(AbstractModel amodel) {
@@ -1847,6 +2180,10 @@ public class GraphManager {
         logger.info("Creating model " + amodel.getId());
         jenaClient.putModelToCore(amodel.getId(), amodel.asGraph());
         jenaClient.putModelToCore(amodel.getId() + "#ExportGraph", amodel.asGraph());
+        modelResolverIndex.invalidateModel(amodel.getId());
+        modelAccessIndex.put(amodel);
+        referenceIndex.indexGraph(amodel.getId());
+        countManager.graphWritten(amodel.getId(), amodel.asGraph());
     }
 
     public void updateModel(AbstractModel amodel,
@@ -1858,7 +2195,7 @@ public class GraphManager {
         Literal createdDate = oldModel.getRequiredProperty(ResourceFactory.createResource(amodel.getId()), DCTerms.created).getLiteral();
         LDHelper.rewriteLiteral(amodel.asGraph(), ResourceFactory.createResource(amodel.getId()), DCTerms.created, createdDate);
 
-        Model exportModel = jenaClient.getModelFromCore(amodel.getId() + "#ExportGraph");
+        Model exportModel = getModelFromPrimary(amodel.getId() + "#ExportGraph");
 
         // OMG: Model.remove() doesnt remove RDFLists
         Resource modelResource = ResourceFactory.createResource(amodel.getId());
@@ -1890,6 +2227,10 @@ public class GraphManager {
         exportModel.add(amodel.asGraph());
         jenaClient.putModelToCore(amodel.getId() + "#ExportGraph", exportModel);
         jenaClient.putModelToCore(amodel.getId(), amodel.asGraph());
+        modelResolverIndex.invalidateModel(amodel.getId());
+        modelAccessIndex.put(amodel);
+        referenceIndex.indexGraph(amodel.getId());
+        countManager.graphWritten(amodel.getId(), amodel.asGraph());
     }
 
     public void deleteModel(AbstractModel amodel) {
@@ -1934,8 +2275,7 @@ public class GraphManager {
         logger.info("Removing version references with " + graph);
 
         UpdateRequest queryObj = pss.asUpdate();
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
 
     }
 
@@ -35,14 +35,17 @@ public class GroupManagementService {
     private final ClientFactory clientFactory;
     private final ApplicationProperties applicationProperties;
     private final ObjectMapper objectMapper;
+    private final UpstreamGuard guard;
 
     @Autowired
     public GroupManagementService(ClientFactory clientFactory,
                                   ApplicationProperties applicationProperties,
-                                  ObjectMapper objectMapper) {
+                                  ObjectMapper objectMapper,
+                                  UpstreamGuard guard) {
         this.clientFactory = clientFactory;
         this.applicationProperties = applicationProperties;
         this.objectMapper = objectMapper;
+        this.guard = guard;
         this.users = new HashMap<>();
         logger.info("Initializing Group management?");
     }
@@ -54,8 +57,10 @@ public class GroupManagementService {
 
     public void updateUsers() {
         final String url = applicationProperties.getDefaultGroupManagementAPI().replace("public-api","private-api")+"users";
-        Client client = clientFactory.create();
-        List<GroupManagementUserDTO> userList = client.target(url).request(MediaType.APPLICATION_JSON).get(new GenericType<List<GroupManagementUserDTO>>(){});
+        Client client = clientFactory.create(UpstreamMetrics.GROUP_MANAGEMENT);
+        // Previously fetched users are kept if group management is unavailable
+        List<GroupManagementUserDTO> userList = guard.call(UpstreamMetrics.GROUP_MANAGEMENT,
+            () -> client.target(url).request(MediaType.APPLICATION_JSON).get(new GenericType<List<GroupManagementUserDTO>>(){}));
         userList.forEach(user -> users.put(user.getId(), user));
     }
 
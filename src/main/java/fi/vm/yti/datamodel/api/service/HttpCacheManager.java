@@ -0,0 +1,145 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Variant;
+
+import org.springframework.stereotype.Service;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+import fi.vm.yti.datamodel.api.config.CachePolicy;
+
+/**
+ * Cache-Control policies and validators (ETag, Last-Modified) for conditional GET requests.
+ * <p>
+ * Validators are derived from the modification time of the graph (iow:contentModified or dcterms:modified)
+ * and the request parameters that select the representation, so no response body has to be created
+ * to answer a revalidation. Resources that produce several media types include the negotiated media type,
+ * see {@link #negotiatedMediaType(Request, ResourceInfo)}, and declare Accept in {@link CachePolicy#vary()}.
+ */
+@Service
+public class HttpCacheManager {
+
+    private static final String NO_STORE_HEADER = "no-cache, no-store, must-revalidate";
+
+    private final ApplicationProperties properties;
+
+    HttpCacheManager(ApplicationProperties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Returns Cache-Control header value for named policy. Unknown policies are not cached.
+     *
+     * @param policy Name of the policy, see {@link CachePolicy}
+     * @return Cache-Control header value
+     */
+    public String getCacheControl(String policy) {
+        if (CachePolicy.NO_STORE.equals(policy)) {
+            return NO_STORE_HEADER;
+        }
+        return properties.getCachePolicies().getOrDefault(policy, NO_STORE_HEADER);
+    }
+
+    /**
+     * Creates weak entity tag for the representation of a graph.
+     *
+     * @param modified Last modification time of the graph
+     * @param variant  Request parameters that affect the representation
+     * @return Weak ETag or null if modification time is unknown
+     */
+    public EntityTag entityTag(Date modified,
+                               Object... variant) {
+        if (modified == null) {
+            return null;
+        }
+        Hasher hasher = Hashing.murmur3_128().newHasher().putLong(modified.getTime());
+        for (Object part : variant) {
+            hasher.putString(String.valueOf(part), StandardCharsets.UTF_8).putByte((byte) 0);
+        }
+        return new EntityTag(hasher.hash().toString(), true);
+    }
+
+    /**
+     * Selects the media type of the response from the Produces annotation of the resource method like Jersey does,
+     * so that it can be part of the entity tag.
+     *
+     * @return Negotiated media type or null if the method does not declare media types or none is acceptable
+     */
+    public MediaType negotiatedMediaType(Request request,
+                                         ResourceInfo resourceInfo) {
+        Produces produces = resourceInfo.getResourceMethod().getAnnotation(Produces.class);
+        if (produces == null) {
+            return null;
+        }
+        MediaType[] mediaTypes = Arrays.stream(produces.value()).map(MediaType::valueOf).toArray(MediaType[]::new);
+        Variant variant = request.selectVariant(Variant.mediaTypes(mediaTypes).build());
+        return variant != null ? variant.getMediaType() : null;
+    }
+
+    /**
+     * Evaluates If-None-Match and If-Modified-Since headers of the request.
+     *
+     * @return 304 Not Modified response if the client already has the current representation, otherwise null
+     */
+    public Response notModified(Request request,
+                                Date modified,
+                                EntityTag etag) {
+        if (modified == null || etag == null) {
+            return null;
+        }
+        Response.ResponseBuilder builder = request.evaluatePreconditions(modified, etag);
+        if (builder == null) {
+            return null;
+        }
+        return builder.tag(etag).lastModified(modified).build();
+    }
+
+    public Response notModified(Request request,
+                                Date modified,
+                                EntityTag etag,
+                                String policy) {
+        Response response = notModified(request, modified, etag);
+        if (response == null) {
+            return null;
+        }
+        return Response.fromResponse(response).header(HttpHeaders.CACHE_CONTROL, getCacheControl(policy)).build();
+    }
+
+    /**
+     * Adds ETag and Last-Modified headers to successful responses.
+     */
+    public Response withValidators(Response response,
+                                   Date modified,
+                                   EntityTag etag) {
+        if (modified == null || etag == null || response.getStatus() != Response.Status.OK.getStatusCode()) {
+            return response;
+        }
+        return Response.fromResponse(response).tag(etag).lastModified(modified).build();
+    }
+
+    /**
+     * Adds ETag, Last-Modified and the Cache-Control header of given policy to successful responses.
+     */
+    public Response withValidators(Response response,
+                                   Date modified,
+                                   EntityTag etag,
+                                   String policy) {
+        if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+            return response;
+        }
+        return Response.fromResponse(withValidators(response, modified, etag)).header(HttpHeaders.CACHE_CONTROL, getCacheControl(policy)).build();
+    }
+}
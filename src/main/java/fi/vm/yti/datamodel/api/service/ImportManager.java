@@ -5,17 +5,11 @@ package fi.vm.yti.datamodel.api.service;
 
 import fi.vm.yti.datamodel.api.utils.LDHelper;
 
-import org.apache.jena.query.DatasetAccessor;
-import org.apache.jena.query.DatasetAccessorFactory;
 import org.apache.jena.query.ParameterizedSparqlString;
-import org.apache.jena.query.QueryExecution;
-import org.apache.jena.query.QueryExecutionFactory;
 import org.apache.jena.query.QuerySolution;
 import org.apache.jena.query.ResultSet;
 import org.apache.jena.rdf.model.Literal;
 import org.apache.jena.rdf.model.Model;
-import org.apache.jena.update.UpdateExecutionFactory;
-import org.apache.jena.update.UpdateProcessor;
 import org.apache.jena.update.UpdateRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -27,12 +21,15 @@ public class ImportManager {
 
     private final EndpointServices endpointServices;
     private final GraphManager graphManager;
+    private final JenaClient jenaClient;
 
     @Autowired
     ImportManager(EndpointServices endpointServices,
-                  GraphManager graphManager) {
+                  GraphManager graphManager,
+                  JenaClient jenaClient) {
         this.endpointServices = endpointServices;
         this.graphManager = graphManager;
+        this.jenaClient = jenaClient;
     }
 
     /**
@@ -93,8 +90,7 @@ public class ImportManager {
         pss.setCommandText(query);
 
         UpdateRequest queryObj = pss.asUpdate();
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
 
         updateResourceGraphs(graph, map);
 
@@ -136,8 +132,7 @@ public class ImportManager {
         pss.setCommandText(query);
 
         UpdateRequest queryObj = pss.asUpdate();
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
     }
 
     private void updateResourceGraphs(String model,
@@ -150,44 +145,57 @@ public class ImportManager {
         pss.setNsPrefix("rdfs", "http://www.w3.org/2000/01/rdf-schema#");
         pss.setCommandText(selectResources);
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
+        // Results are copied before the graphs are constructed, so that the select does not hold a Fuseki slot while the nested calls wait for one
+        ResultSet results = jenaClient.selectQuery(endpointServices.getCoreSparqlAddress(), pss.asQuery());
 
-            ResultSet results = qexec.execSelect();
-
-            while (results.hasNext()) {
-                QuerySolution soln = results.nextSolution();
-                constructGraphs(model, soln.getResource("resource").toString(), map);
-                addIndexNumberToProperties(soln.getResource("resource").toString());
-            }
-
-            removeDuplicatesFromModel(model);
+        while (results.hasNext()) {
+            QuerySolution soln = results.nextSolution();
+            constructGraphs(model, soln.getResource("resource").toString(), map);
         }
+
+        addIndexNumberToProperties(model);
+        removeDuplicatesFromModel(model);
     }
 
-    private void addIndexNumberToProperties(String resource) {
+    /**
+     * Numbers properties of each resource of the model in the order of their paths with a single update
+     *
+     * @param model ID of the model
+     */
+    private void addIndexNumberToProperties(String model) {
 
         ParameterizedSparqlString pss = new ParameterizedSparqlString();
-        String selectResources = "SELECT ?property WHERE { GRAPH ?resource { ?resource rdfs:isDefinedBy ?model . ?resource sh:property ?property . ?property sh:path ?predicate . }} ORDER BY ?predicate ";
+        String selectProperties = "SELECT ?resource ?property WHERE { GRAPH ?resource { ?resource rdfs:isDefinedBy ?model . ?resource sh:property ?property . ?property sh:path ?predicate . }} ORDER BY ?resource ?predicate ";
 
         pss.setNsPrefix("sh", "http://www.w3.org/ns/shacl#");
         pss.setNsPrefix("rdfs", "http://www.w3.org/2000/01/rdf-schema#");
-        pss.setIri("resource", resource);
-        pss.setCommandText(selectResources);
-
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
-
-            ResultSet results = qexec.execSelect();
-            int id = 1;
-            while (results.hasNext()) {
-                QuerySolution soln = results.nextSolution();
-                addIndexToProperty(resource, soln.getResource("property").toString(), id++);
+        pss.setIri("model", model);
+        pss.setCommandText(selectProperties);
+
+        ResultSet results = jenaClient.selectQuery(endpointServices.getCoreSparqlAddress(), pss.asQuery());
+
+        UpdateRequest request = new UpdateRequest();
+        String resource = null;
+        int id = 1;
+        while (results.hasNext()) {
+            QuerySolution soln = results.nextSolution();
+            String next = soln.getResource("resource").toString();
+            if (!next.equals(resource)) {
+                resource = next;
+                id = 1;
             }
+            addIndexToProperty(request, resource, soln.getResource("property").toString(), id++);
+        }
+
+        if (!request.getOperations().isEmpty()) {
+            jenaClient.updateToService(request, endpointServices.getCoreSparqlUpdateAddress());
         }
     }
 
-    private void addIndexToProperty(String resource,
-                                    String property,
-                                    int index) {
+    private static void addIndexToProperty(UpdateRequest request,
+                                           String resource,
+                                           String property,
+                                           int index) {
 
         String query
             = " INSERT { "
@@ -207,9 +215,7 @@ public class ImportManager {
         pss.setLiteral("index", index);
         pss.setCommandText(query);
 
-        UpdateRequest queryObj = pss.asUpdate();
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        pss.asUpdate().getOperations().forEach(request::add);
     }
 
     private void constructGraphs(String graph,
@@ -270,13 +276,8 @@ public class ImportManager {
 
         pss.setCommandText(query);
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
-
-            Model results = qexec.execConstruct();
-
-            DatasetAccessor accessor = DatasetAccessorFactory.createHTTP(endpointServices.getCoreReadWriteAddress());
-            accessor.add(resource, results);
-        }
+        Model results = jenaClient.constructFromService(pss.toString(), endpointServices.getCoreSparqlAddress());
+        jenaClient.addModelToCore(resource, results);
 
     }
 
@@ -305,7 +306,6 @@ public class ImportManager {
         pss.setCommandText(query);
 
         UpdateRequest queryObj = pss.asUpdate();
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
     }
 }
@@ -1,34 +1,18 @@
 package fi.vm.yti.datamodel.api.service;
 
 import java.io.ByteArrayOutputStream;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
-
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.Credentials;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.CredentialsProvider;
+
 import org.apache.http.client.HttpClient;
-import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.jena.query.DatasetAccessor;
 import org.apache.jena.query.DatasetAccessorFactory;
 import org.apache.jena.query.Query;
 import org.apache.jena.query.QueryExecution;
 import org.apache.jena.query.QueryExecutionFactory;
-import org.apache.jena.query.QuerySolution;
 import org.apache.jena.query.ResultSet;
 import org.apache.jena.query.ResultSetFactory;
 import org.apache.jena.query.ResultSetFormatter;
-import org.apache.jena.rdf.model.Literal;
 import org.apache.jena.rdf.model.Model;
-import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdfconnection.RDFConnection;
-import org.apache.jena.riot.web.HttpOp;
-import org.apache.jena.sparql.resultset.ResultSetPeekable;
 import org.apache.jena.update.UpdateExecutionFactory;
 import org.apache.jena.update.UpdateProcessor;
 import org.apache.jena.update.UpdateRequest;
@@ -37,9 +21,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+import fi.vm.yti.datamodel.api.service.UpstreamMetrics.UpstreamAction;
+import fi.vm.yti.datamodel.api.service.UpstreamMetrics.UpstreamCall;
+
+import static fi.vm.yti.datamodel.api.service.UpstreamMetrics.FUSEKI;
 
 @Service
 public final class JenaClient {
@@ -53,6 +39,11 @@ public final class JenaClient {
     private final DatasetAccessor schemeService;
 
     private final ApplicationProperties properties;
+    private final UpstreamMetrics metrics;
+    private final UpstreamGuard guard;
+    private final SparqlQueryLog queryLog;
+    private final ReadRouter readRouter;
+    private final HttpClient httpClient;
 
     // TODO: Or adapters?
     // static final DatasetAdapter coreService = new DatasetAdapter(new DatasetGraphAccessorHTTP(services.getCoreReadWriteAddress()));
@@ -70,261 +61,334 @@ public final class JenaClient {
 
     @Autowired
     JenaClient(EndpointServices endpointServices,
-               ApplicationProperties properties) {
+               ApplicationProperties properties,
+               UpstreamMetrics metrics,
+               UpstreamGuard guard,
+               SparqlQueryLog queryLog,
+               ReadRouter readRouter,
+               FusekiHttpClient fusekiHttpClient) {
         this.properties = properties;
+        this.metrics = metrics;
+        this.guard = guard;
+        this.queryLog = queryLog;
+        this.readRouter = readRouter;
         this.endpointServices = endpointServices;
-        this.coreService = DatasetAccessorFactory.createHTTP(endpointServices.getCoreReadWriteAddress());
-        this.importService = DatasetAccessorFactory.createHTTP(endpointServices.getImportsReadWriteAddress());
-        this.provService = DatasetAccessorFactory.createHTTP(endpointServices.getProvReadWriteAddress());
-        this.schemeService = DatasetAccessorFactory.createHTTP(endpointServices.getSchemesReadWriteAddress());
-
-        if (properties.getFusekiPassword() != null && properties.getFusekiUser() != null) {
-            logger.debug("Setting fuseki user & password!");
-            CredentialsProvider credsProvider = new BasicCredentialsProvider();
-            Credentials credentials = new UsernamePasswordCredentials(properties.getFusekiUser(), properties.getFusekiPassword());
-            credsProvider.setCredentials(AuthScope.ANY, credentials);
-            HttpClient httpclient = HttpClients.custom()
-                .setDefaultCredentialsProvider(credsProvider)
-                .build();
-            HttpOp.setDefaultHttpClient(httpclient);
-        } else {
-            logger.debug("No fuseki password found!");
-        }
-
+        this.httpClient = fusekiHttpClient.getHttpClient();
+        this.coreService = DatasetAccessorFactory.createHTTP(endpointServices.getCoreReadWriteAddress(), httpClient);
+        this.importService = DatasetAccessorFactory.createHTTP(endpointServices.getImportsReadWriteAddress(), httpClient);
+        this.provService = DatasetAccessorFactory.createHTTP(endpointServices.getProvReadWriteAddress(), httpClient);
+        this.schemeService = DatasetAccessorFactory.createHTTP(endpointServices.getSchemesReadWriteAddress(), httpClient);
     }
 
     public Model getModelFromSchemes(String graph) {
         logger.debug("Getting model from " + graph);
-        return schemeService.getModel(graph);
+        return getModel("scheme", endpointServices.getSchemesReadWriteAddress(), schemeService, graph);
     }
 
     public void putToImports(String graph,
                              Model model) {
         logger.debug("Storing import to " + graph);
-        importService.putModel(graph, model);
+        metrics.recordItems(FUSEKI, "imports", "put", model.size());
+        readRouter.written();
+        run("imports", "put", () -> importService.putModel(graph, model));
     }
 
     public Model getModelFromCore(String graph) {
         logger.debug("Getting model from core " + graph);
-        return coreService.getModel(graph);
+        return getModel("core", endpointServices.getCoreReadWriteAddress(), coreService, graph);
+    }
+
+    public Model getModelFromImports(String graph) {
+        logger.debug("Getting model from imports " + graph);
+        return getModel("imports", endpointServices.getImportsReadWriteAddress(), importService, graph);
     }
 
     public Model getModelFromProv(String graph) {
         logger.debug("Getting model from prov " + graph);
-        return provService.getModel(graph);
+        return getModel("prov", endpointServices.getProvReadWriteAddress(), provService, graph);
+    }
+
+    /**
+     * Reads a graph of any dataset of the endpoint, for datasets that have no method of their own
+     *
+     * @param service Graph store address, for example {@link EndpointServices#getTempConceptReadWriteAddress()}
+     * @param graph   Graph IRI
+     * @return Graph or null if it does not exist
+     */
+    public Model getModelFromService(String service,
+                                     String graph) {
+        logger.debug("Getting model from " + service + " " + graph);
+        return getModel(endpointServices.getDatasetName(service), service, DatasetAccessorFactory.createHTTP(service, httpClient), graph);
+    }
+
+    /**
+     * Replaces a graph of any dataset of the endpoint
+     *
+     * @param service Graph store address
+     */
+    public void putModelToService(String service,
+                                  String graph,
+                                  Model model) {
+        logger.debug("Putting model to " + service + " " + graph);
+        String dataset = endpointServices.getDatasetName(service);
+        metrics.recordItems(FUSEKI, dataset, "put", model.size());
+        readRouter.written();
+        run(dataset, "put", () -> DatasetAccessorFactory.createHTTP(service, httpClient).putModel(graph, model));
+    }
+
+    /**
+     * Adds triples to a graph of any dataset of the endpoint
+     *
+     * @param service Graph store address
+     */
+    public void addModelToService(String service,
+                                  String graph,
+                                  Model model) {
+        logger.debug("Adding model to " + service + " " + graph);
+        String dataset = endpointServices.getDatasetName(service);
+        metrics.recordItems(FUSEKI, dataset, "add", model.size());
+        readRouter.written();
+        run(dataset, "add", () -> DatasetAccessorFactory.createHTTP(service, httpClient).add(graph, model));
+    }
+
+    public void putModelToSchemes(String graph,
+                                  Model model) {
+        logger.debug("Putting model to schemes " + graph);
+        metrics.recordItems(FUSEKI, "scheme", "put", model.size());
+        readRouter.written();
+        run("scheme", "put", () -> schemeService.putModel(graph, model));
+    }
+
+    public boolean isInSchemes(String graph) {
+        return containsModel("scheme", endpointServices.getSchemesReadWriteAddress(), schemeService, graph);
     }
 
     public boolean containsCoreModel(String graph) {
-        return coreService.containsModel(graph);
+        return containsModel("core", endpointServices.getCoreReadWriteAddress(), coreService, graph);
     }
 
     public boolean containsSchemaModel(String graph) {
-        return importService.containsModel(graph);
+        return containsModel("imports", endpointServices.getImportsReadWriteAddress(), importService, graph);
     }
 
     public void deleteModelFromCore(String graph) {
         logger.debug("Deleting model from " + graph);
-        coreService.deleteModel(graph);
+        readRouter.written();
+        run("core", "delete", () -> coreService.deleteModel(graph));
     }
 
     public void deleteModelFromProv(String graph) {
         logger.debug("Deleting model from PROV: " + graph);
-        provService.deleteModel(graph);
+        readRouter.written();
+        run("prov", "delete", () -> provService.deleteModel(graph));
     }
 
     public void deleteModelFromScheme(String graph) {
         logger.debug("Deleting codelist from " + graph);
-        schemeService.deleteModel(graph);
+        readRouter.written();
+        run("scheme", "delete", () -> schemeService.deleteModel(graph));
     }
 
     public boolean isInCore(String graph) {
-        return coreService.containsModel(graph);
+        return containsModel("core", endpointServices.getCoreReadWriteAddress(), coreService, graph);
     }
 
     public void putModelToCore(String graph,
                                Model model) {
         logger.debug("Putting model to " + graph);
-        coreService.putModel(graph, model);
+        metrics.recordItems(FUSEKI, "core", "put", model.size());
+        readRouter.written();
+        run("core", "put", () -> coreService.putModel(graph, model));
     }
 
     public void addModelToCore(String graph,
                                Model model) {
         logger.debug("Adding model to " + graph);
-        coreService.add(graph, model);
+        metrics.recordItems(FUSEKI, "core", "add", model.size());
+        readRouter.written();
+        run("core", "add", () -> coreService.add(graph, model));
     }
 
     public void putModelToProv(String graph,
                                Model model) {
         logger.debug("Putting to prov " + graph);
-        provService.putModel(graph, model);
+        metrics.recordItems(FUSEKI, "prov", "put", model.size());
+        readRouter.written();
+        run("prov", "put", () -> provService.putModel(graph, model));
     }
 
     public void addModelToProv(String graph,
                                Model model) {
         logger.debug("Adding to prov " + graph);
-        provService.add(graph, model);
+        metrics.recordItems(FUSEKI, "prov", "add", model.size());
+        readRouter.written();
+        run("prov", "add", () -> provService.add(graph, model));
+    }
+
+    /**
+     * Creates remote query execution that records its latency and result size to metrics and to the query log.
+     * All SPARQL queries sent to Fuseki should be created with this method. The query is sent to the read
+     * endpoint chosen by {@link ReadRouter}.
+     *
+     * @param service SPARQL query endpoint
+     * @param query   Query
+     * @return QueryExecution that should be closed after use
+     */
+    public QueryExecution sparqlService(String service,
+                                        Query query) {
+        return sparqlService(readRouter.route(service), service, query, null);
+    }
+
+    public QueryExecution sparqlService(String service,
+                                        Query query,
+                                        String graph) {
+        return sparqlService(readRouter.route(service), service, query, graph);
+    }
+
+    public QueryExecution sparqlService(String service,
+                                        String query) {
+        return sparqlService(readRouter.route(service), service, query);
+    }
+
+    private QueryExecution sparqlService(String address,
+                                         String service,
+                                         Query query,
+                                         String graph) {
+        QueryExecution qexec = graph != null ? QueryExecutionFactory.sparqlService(address, query, graph, httpClient) : QueryExecutionFactory.sparqlService(address, query, httpClient);
+        return new MonitoredQueryExecution(qexec, endpointServices.getDatasetName(service), query.toString(), metrics, guard, queryLog);
+    }
+
+    private QueryExecution sparqlService(String address,
+                                         String service,
+                                         String query) {
+        return new MonitoredQueryExecution(QueryExecutionFactory.sparqlService(address, query, httpClient), endpointServices.getDatasetName(service), query, metrics, guard, queryLog);
     }
 
     public void updateToService(UpdateRequest req,
                                 String service) {
         logger.debug("Sending UpdateRequest to " + service);
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(req, service);
-        qexec.execute();
+        String dataset = endpointServices.getDatasetName(service);
+        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(req, service, httpClient);
+        readRouter.written();
+        final long start = System.nanoTime();
+        boolean failed = false;
+        try {
+            run(dataset, "update", qexec::execute);
+        } catch (RuntimeException ex) {
+            failed = true;
+            throw ex;
+        } finally {
+            queryLog.record(dataset, "update", req.toString(), System.nanoTime() - start, -1, failed);
+        }
     }
 
     public Model constructFromService(String query,
                                       String service) {
         logger.debug("Constructing from " + service);
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(service, query)) {
-            return qexec.execConstruct();
-        }
+        return construct(service, query);
     }
 
     public Model constructFromCore(String query) {
         logger.debug("Constructing from " + endpointServices.getCoreSparqlAddress());
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), query)) {
-            return qexec.execConstruct();
-        }
+        return construct(endpointServices.getCoreSparqlAddress(), query);
     }
 
     public Model constructFromExt(String query) {
-        logger.debug("Constructing from " + endpointServices.getCoreSparqlAddress());
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getImportsSparqlAddress(), query)) {
-            return qexec.execConstruct();
-        }
+        logger.debug("Constructing from " + endpointServices.getImportsSparqlAddress());
+        return construct(endpointServices.getImportsSparqlAddress(), query);
     }
 
     public boolean askQuery(String service,
                             Query query,
                             String graph) {
         logger.debug("Asking from " + service + " in graph " + graph);
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(service, query, graph)) {
-            return qexec.execAsk();
-        }
+        return readRouter.read(service, address -> {
+            try (QueryExecution qexec = sparqlService(address, service, query, graph)) {
+                return qexec.execAsk();
+            }
+        });
     }
 
     public boolean askQuery(String service,
                             Query query) {
         logger.debug("Asking from " + service);
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(service, query)) {
-            return qexec.execAsk();
-        }
+        return readRouter.read(service, address -> {
+            try (QueryExecution qexec = sparqlService(address, service, query, null)) {
+                return qexec.execAsk();
+            }
+        });
     }
 
     public ResultSet selectQuery(String service,
                                  Query query) {
         logger.debug("Select from " + service);
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(service, query)) {
-            // ResultSet needs to be copied in order to use it after the connection is closed
-            return ResultSetFactory.copyResults(qexec.execSelect());
-        }
+        return readRouter.read(service, address -> {
+            try (QueryExecution qexec = sparqlService(address, service, query, null)) {
+                // ResultSet needs to be copied in order to use it after the connection is closed
+                return ResultSetFactory.copyResults(qexec.execSelect());
+            }
+        });
     }
 
-    /**
-     * Returns JSON object from given sparql query. First param of the sparql query is considered to be the URI.
-     * Reads only localized literals to JSON object. Other duplicate literal values are not stored to result JSON.
-     *
-     * @param service URI for the sparql service
-     * @param query   Sparql query
-     * @return JSON string
-     */
-
-    public String selectJson(String service,
-                             Query query) {
-        logger.debug("Select json " + service);
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(service, query)) {
-            ResultSetPeekable results = ResultSetFactory.makePeekable(qexec.execSelect());
-            List<String> resultVars = results.getResultVars();
-            // Warning! This method supposes that first query var is uri-id.
-            String idVar = resultVars.get(0);
-            List<Map> hashArray = new ArrayList<>();
-            // Object map for current node
-            Map objectMap = new HashMap<String, Object>();
-            while (results.hasNext()) {
-                QuerySolution soln = results.next();
-                Iterator<String> currentVars = soln.varNames();
-                String currentId = soln.get(idVar).toString();
-                while (currentVars.hasNext()) {
-                    String currentVar = currentVars.next();
-                    RDFNode node = soln.get(currentVar);
-                    if (node.isLiteral()) {
-                        Literal lit = node.asLiteral();
-                        if (lit.getString().length() > 0) {
-                            String litLang = lit.getLanguage();
-                            if (litLang != null && litLang.length() > 0) {
-                                Map literalMap;
-                                if (objectMap.containsKey(currentVar)) {
-                                    Object currentObj = objectMap.get(currentVar);
-                                    // If some Literal was earlier stored as plain string add lang to "und"
-                                    if (currentObj instanceof String) {
-                                        literalMap = new HashMap<String, String>();
-                                        literalMap.put("und", currentObj);
-                                    } else {
-                                        literalMap = (Map) currentObj;
-                                    }
-                                } else {
-                                    literalMap = new HashMap<String, String>();
-                                }
-                                literalMap.put(litLang, lit.getString());
-                                objectMap.put(currentVar, literalMap);
-                            } else {
-                                if (objectMap.containsKey(currentVar)) {
-                                    Object currentObj = objectMap.get(currentVar);
-                                    if (currentObj instanceof String) {
-                                        if (!currentObj.equals(lit.getString())) {
-                                            List<String> newArray = new ArrayList<>();
-                                            newArray.add((String) currentObj);
-                                            objectMap.put(currentVar, newArray);
-                                        }
-                                    } else if (currentObj instanceof ArrayList) {
-                                        //TODO: This part of code is untested. No arrays for now.
-                                        if (!((ArrayList) currentObj).contains(lit.getString())) {
-                                            ((ArrayList) currentObj).add(lit.getString());
-                                        }
-                                    } else if (currentObj instanceof Map) {
-                                        ((Map) (currentObj)).put("und", lit.getString());
-                                    }
-                                } else {
-                                    objectMap.put(currentVar, lit.getString());
-                                }
-                            }
-                        }
-                    } else {
-                        objectMap.put(currentVar, node.toString());
-                    }
-                }
-                if (!results.hasNext()) {
-                    // Add hash to array
-                    hashArray.add(objectMap);
-                } else if (!results.peek().get(idVar).toString().equals(currentId)) {
-                    // TODO: Peekable results could be changed to check from single hash index
-                    // If following row is using different id create new hash
-                    hashArray.add(objectMap);
-                    objectMap = new HashMap<String, Object>();
-                } // Else continue adding to same hash
+    public String selectCSV(String service,
+                            Query query) {
+        logger.debug("Select csv from " + service);
+        return readRouter.read(service, address -> {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            try (QueryExecution qexec = sparqlService(address, service, query, null)) {
+                ResultSetFormatter.outputAsCSV(stream, qexec.execSelect());
+                metrics.recordBytes(FUSEKI, endpointServices.getDatasetName(service), "select", stream.size());
+                return new String(stream.toByteArray());
             }
+        });
+    }
 
-            ObjectMapper mapper = new ObjectMapper();
-            try {
-                return mapper.writeValueAsString(hashArray);
-            } catch (Exception ex) {
-                ex.printStackTrace();
-                return null;
-            }
+    private <T> T record(String dataset,
+                         String operation,
+                         UpstreamCall<T, RuntimeException> call) {
+        return guard.call(FUSEKI, () -> metrics.record(FUSEKI, dataset, operation, call));
+    }
 
-        }
+    private void run(String dataset,
+                     String operation,
+                     UpstreamAction<RuntimeException> action) {
+        guard.call(FUSEKI, () -> {
+            metrics.run(FUSEKI, dataset, operation, action);
+            return null;
+        });
     }
 
-    public String selectCSV(String service,
-                            Query query) {
-        logger.debug("Select csv from " + service);
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(service, query)) {
-            // ResultSet needs to be copied in order to use it after the connection is closed
-            ResultSetFormatter.outputAsCSV(stream, qexec.execSelect());
-            return new String(stream.toByteArray());
+    private Model getModel(String dataset,
+                           String service,
+                           DatasetAccessor accessor,
+                           String graph) {
+        Model model = readRouter.read(service, address -> record(dataset, "get", () -> accessor(address, service, accessor).getModel(graph)));
+        if (model != null) {
+            metrics.recordItems(FUSEKI, dataset, "get", model.size());
         }
+        return model;
+    }
+
+    private boolean containsModel(String dataset,
+                                  String service,
+                                  DatasetAccessor accessor,
+                                  String graph) {
+        return readRouter.read(service, address -> record(dataset, "contains", () -> accessor(address, service, accessor).containsModel(graph)));
+    }
+
+    private DatasetAccessor accessor(String address,
+                                            String service,
+                                            DatasetAccessor primary) {
+        return address.equals(service) ? primary : DatasetAccessorFactory.createHTTP(address, httpClient);
+    }
+
+    private Model construct(String service,
+                            String query) {
+        return readRouter.read(service, address -> {
+            try (QueryExecution qexec = sparqlService(address, service, query)) {
+                return qexec.execConstruct();
+            }
+        });
     }
 
     // FIXME: Not in use. RDFConnection does not work as espected.
@@ -52,19 +52,25 @@ public class JerseyClient {
     private final JerseyResponseManager jerseyResponseManager;
     private final ModelManager modelManager;
     private final ClientFactory clientFactory;
+    private final UpstreamGuard guard;
+    private final ReadRouter readRouter;
 
     JerseyClient(JenaClient jenaClient,
                  EndpointServices endpointServices,
                  ApplicationProperties properties,
                  JerseyResponseManager jerseyResponseManager,
                  ModelManager modelManager,
-                 ClientFactory clientFactory) {
+                 ClientFactory clientFactory,
+                 UpstreamGuard guard,
+                 ReadRouter readRouter) {
         this.jenaClient = jenaClient;
         this.endpointServices = endpointServices;
         this.properties = properties;
         this.jerseyResponseManager = jerseyResponseManager;
         this.modelManager = modelManager;
         this.clientFactory = clientFactory;
+        this.guard = guard;
+        this.readRouter = readRouter;
     }
 
     public Response getResponseFromURL(String url,
@@ -92,9 +98,9 @@ public class JerseyClient {
                                            String service,
                                            String ctype) {
         Client client = ClientBuilder.newClient();
-        WebTarget target = client.target(service).queryParam("graph", id);
+        WebTarget target = client.target(readRouter.route(service)).queryParam("graph", id);
         logger.debug("Getting response from " + target.getUri().toString());
-        return target.request(ctype).get();
+        return guard.request(UpstreamMetrics.FUSEKI, () -> target.request(ctype).get());
 
     }
 
@@ -182,10 +188,14 @@ public class JerseyClient {
      * @param service ID of the resource
      * @return Model
      */
+    @SuppressWarnings("try")
     public Response getGraphsAsResponse(String service,
                                         String ctype) {
 
-        Response response = getResponseFromURL(endpointServices.getEndpoint() + "/" + service + "/", ctype);
+        Response response;
+        try (ReadRouter.Scope scope = readRouter.bulkReads()) {
+            response = getResponseFromURL(readRouter.route(endpointServices.getEndpoint() + "/" + service + "/"), ctype);
+        }
 
         logger.info(ctype + " from " + endpointServices.getEndpoint() + "/" + service + "/ response: " + response.getStatus());
 
@@ -292,13 +302,13 @@ public class JerseyClient {
                                                 String service,
                                                 String ctype) {
 
-        if (ctype == null) ctype = "application/ld+json";
+        String accept = ctype != null ? ctype : "application/ld+json";
 
         Client client = ClientBuilder.newClient();
         client.property(ClientProperties.CONNECT_TIMEOUT, 180000);
         client.property(ClientProperties.READ_TIMEOUT, 180000);
-        WebTarget target = client.target(service).queryParam("graph", id);
-        Response response = target.request(ctype).get();
+        WebTarget target = client.target(readRouter.route(service)).queryParam("graph", id);
+        Response response = guard.request(UpstreamMetrics.FUSEKI, () -> target.request(accept).get());
 
         if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
             logger.info(response.getStatus() + " from SERVICE " + service + " and GRAPH " + id);
@@ -328,8 +338,8 @@ public class JerseyClient {
             Client client = ClientBuilder.newClient();
             client.property(ClientProperties.CONNECT_TIMEOUT, 180000);
             client.property(ClientProperties.READ_TIMEOUT, 180000);
-            WebTarget target = client.target(service).queryParam("graph", id);
-            Response response = target.request(contentType).get();
+            WebTarget target = client.target(readRouter.route(service)).queryParam("graph", id);
+            Response response = guard.request(UpstreamMetrics.FUSEKI, () -> target.request(contentType).get());
 
             if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
                 logger.info(response.getStatus() + " from SERVICE " + service + " and GRAPH " + id);
@@ -374,8 +384,8 @@ public class JerseyClient {
             Client client = ClientBuilder.newClient();
             client.property(ClientProperties.CONNECT_TIMEOUT, 180000);
             client.property(ClientProperties.READ_TIMEOUT, 180000);
-            WebTarget target = client.target(service).queryParam("graph", id);
-            Response response = target.request(contentType).get();
+            WebTarget target = client.target(readRouter.route(service)).queryParam("graph", id);
+            Response response = guard.request(UpstreamMetrics.FUSEKI, () -> target.request(contentType).get());
 
             if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
                 logger.info(response.getStatus() + " from SERVICE " + service + " and GRAPH " + id);
@@ -412,10 +422,10 @@ public class JerseyClient {
 
         String url = properties.getPrivateTerminologyAPI() + "v1/integration/terminology/conceptSuggestion";
 
-        Client client = ClientBuilder.newClient();
+        Client client = clientFactory.create(UpstreamMetrics.TERMINOLOGY);
         WebTarget target = client.target(url);
 
-        Response response = target.request().post(Entity.entity(body, "application/json"));
+        Response response = guard.request(UpstreamMetrics.TERMINOLOGY, () -> target.request().post(Entity.entity(body, "application/json")));
 
         if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
             logger.info(response.getStatus() + " from URL: " + url);
@@ -437,8 +447,9 @@ public class JerseyClient {
                                            String service) {
 
         Client client = ClientBuilder.newClient();
+        readRouter.written();
         WebTarget target = client.target(service).queryParam("graph", UriComponent.encode(graph, UriComponent.Type.QUERY));
-        Response response = target.request().put(Entity.entity(body, "application/ld+json"));
+        Response response = guard.request(UpstreamMetrics.FUSEKI, () -> target.request().put(Entity.entity(body, "application/ld+json")));
         client.close();
 
         return response.getStatusInfo();
@@ -457,8 +468,9 @@ public class JerseyClient {
                                               String body,
                                               String service) {
         Client client = ClientBuilder.newClient();
+        readRouter.written();
         WebTarget target = client.target(service).queryParam("graph", UriComponent.encode(graph, UriComponent.Type.QUERY));
-        Response response = target.request().put(Entity.entity(body, "application/ld+json"));
+        Response response = guard.request(UpstreamMetrics.FUSEKI, () -> target.request().put(Entity.entity(body, "application/ld+json")));
         client.close();
 
         if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
@@ -480,8 +492,9 @@ public class JerseyClient {
                                             String body,
                                             String service) {
         Client client = ClientBuilder.newClient();
+        readRouter.written();
         WebTarget target = client.target(service).queryParam("graph", UriComponent.encode(graph, UriComponent.Type.QUERY));
-        Response response = target.request().post(Entity.entity(body, "application/ld+json"));
+        Response response = guard.request(UpstreamMetrics.FUSEKI, () -> target.request().post(Entity.entity(body, "application/ld+json")));
         client.close();
         return response.getStatusInfo();
     }
@@ -497,10 +510,10 @@ public class JerseyClient {
                                                     String service) {
 
         Client client = ClientBuilder.newClient();
-        WebTarget target = client.target(service)
+        WebTarget target = client.target(readRouter.route(service))
             .queryParam("query", UriComponent.encode(query, UriComponent.Type.QUERY));
 
-        Response response = target.request("application/ld+json").get();
+        Response response = guard.request(UpstreamMetrics.FUSEKI, () -> target.request("application/ld+json").get());
 
         if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
             return jerseyResponseManager.unexpected(response.getStatus());
@@ -521,9 +534,7 @@ public class JerseyClient {
             return jerseyResponseManager.notFound();
         }
 
-        ResponseBuilder rb = Response.ok();
-        rb.entity(modelManager.writeModelToJSONLDString(constructModel));
-        return rb.build();
+        return Response.ok(constructModel).build();
 
     }
 
@@ -554,16 +565,7 @@ public class JerseyClient {
         Model constructModel = jenaClient.constructFromService(query, service);
         setNamespacesToModel(constructModel);
 
-        if (constructModel.size() <= 0) {
-            ResponseBuilder rb = Response.ok().type("application/ld+json");
-            rb.entity(modelManager.writeModelToJSONLDString(constructModel));
-            return rb.build();
-        }
-
-        ResponseBuilder rb = Response.ok();
-        String responseString = modelManager.writeModelToJSONLDString(constructModel);
-        rb.entity(responseString);
-        return rb.build();
+        return Response.ok(constructModel).build();
     }
 
     public Response constructGraphFromService(String query,
@@ -571,16 +573,7 @@ public class JerseyClient {
 
         Model constructModel = jenaClient.constructFromService(query, service);
 
-        if (constructModel.size() <= 0) {
-            ResponseBuilder rb = Response.ok().type("application/ld+json");
-            rb.entity(modelManager.writeModelToJSONLDString(constructModel));
-            return rb.build();
-        }
-
-        ResponseBuilder rb = Response.ok();
-        String responseString = modelManager.writeModelToJSONLDString(constructModel);
-        rb.entity(responseString);
-        return rb.build();
+        return Response.ok(constructModel).build();
 
     }
 
@@ -597,9 +590,7 @@ public class JerseyClient {
             logger.debug("Constructed graph is empty!");
         }
 
-        ResponseBuilder rb = Response.ok().type("application/ld+json");
-        rb.entity(modelManager.writeModelToJSONLDString(graph));
-        return rb.build();
+        return Response.ok(graph, "application/ld+json").build();
     }
 
     /**
@@ -617,8 +608,9 @@ public class JerseyClient {
                                                          String toGraph) {
 
         Client client = ClientBuilder.newClient();
+        readRouter.written();
         WebTarget target = client.target(fromService).queryParam("query", UriComponent.encode(query, UriComponent.Type.QUERY));
-        Response response = target.request("application/ld+json").get();
+        Response response = guard.request(UpstreamMetrics.FUSEKI, () -> target.request("application/ld+json").get());
         client.close();
 
         if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
@@ -641,9 +633,10 @@ public class JerseyClient {
         try {
 
             Client client = ClientBuilder.newClient();
+            readRouter.written();
             WebTarget target = client.target(service).queryParam("graph", UriComponent.encode(graph, UriComponent.Type.QUERY));
 
-            Response response = target.request("application/ld+json").delete();
+            Response response = guard.request(UpstreamMetrics.FUSEKI, () -> target.request("application/ld+json").delete());
 
             client.close();
 
@@ -9,6 +9,7 @@ import fi.vm.yti.datamodel.api.utils.ErrorMessage;
 import org.apache.jena.rdf.model.Model;
 import org.springframework.stereotype.Service;
 
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
 import java.util.UUID;
@@ -16,12 +17,9 @@ import java.util.UUID;
 @Service
 public class JerseyResponseManager {
 
-    private final ModelManager modelManager;
     private final ApplicationProperties properties;
 
-    JerseyResponseManager(ModelManager modelManager,
-                          ApplicationProperties properties) {
-        this.modelManager = modelManager;
+    JerseyResponseManager(ApplicationProperties properties) {
         this.properties = properties;
     }
 
@@ -34,7 +32,7 @@ public class JerseyResponseManager {
     }
 
     public Response okModel(Model model) {
-        return Response.status(200).entity(modelManager.writeModelToJSONLDString(model)).build();
+        return Response.status(200).entity(model).build();
     }
 
     public Response ok(String content,
@@ -79,55 +77,55 @@ public class JerseyResponseManager {
     }
 
     public Response langNotDefined() {
-        return Response.status(403).entity(ErrorMessage.LANGNOTDEFINED).build();
+        return errorResponse(403, ErrorMessage.LANGNOTDEFINED);
     }
 
     public Response unauthorized() {
-        return Response.status(401).entity(ErrorMessage.UNAUTHORIZED).build();
+        return errorResponse(401, ErrorMessage.UNAUTHORIZED);
     }
 
     public Response invalidIRI() {
-        return Response.status(403).entity(ErrorMessage.INVALIDIRI).build();
+        return errorResponse(403, ErrorMessage.INVALIDIRI);
     }
 
     public Response usedIRI() {
-        return Response.status(403).entity(ErrorMessage.USEDIRI).build();
+        return errorResponse(403, ErrorMessage.USEDIRI);
     }
 
     public Response usedIRI(String id) {
-        return Response.status(403).entity("{\"errorMessage\":\"" + id + " ID is already in use\"}").build();
+        return errorResponse(403, "{\"errorMessage\":\"" + id + " ID is already in use\"}");
     }
 
     public Response error() {
-        return Response.status(400).entity(ErrorMessage.NOTACCEPTED).build();
+        return errorResponse(400, ErrorMessage.NOTACCEPTED);
     }
 
     public Response serverError() {
-        return Response.serverError().entity("{}").build();
+        return errorResponse(500, "{}");
     }
 
     public Response unexpected() {
-        return Response.status(403).entity(ErrorMessage.UNEXPECTED).build();
+        return errorResponse(403, ErrorMessage.UNEXPECTED);
     }
 
     public Response notCreated() {
-        return Response.status(403).entity(ErrorMessage.NOTCREATED).build();
+        return errorResponse(403, ErrorMessage.NOTCREATED);
     }
 
     public Response notAcceptable() {
-        return Response.status(Response.Status.NOT_ACCEPTABLE).entity(ErrorMessage.NOTACCEPTED).build();
+        return errorResponse(406, ErrorMessage.NOTACCEPTED);
     }
 
     public Response notCreated(int status) {
-        return Response.status(status).entity(ErrorMessage.NOTCREATED).build();
+        return errorResponse(status, ErrorMessage.NOTCREATED);
     }
 
     public Response cannotRemove() {
-        return Response.status(406).entity(ErrorMessage.STATUS).build();
+        return errorResponse(406, ErrorMessage.STATUS);
     }
 
     public Response unexpected(int status) {
-        return Response.status(status).entity(ErrorMessage.UNEXPECTED).build();
+        return errorResponse(status, ErrorMessage.UNEXPECTED);
     }
 
     public Response okNoContent() {
@@ -139,22 +137,38 @@ public class JerseyResponseManager {
     }
 
     public Response invalidParameter() {
-        return Response.status(403).entity(ErrorMessage.INVALIDPARAMETER).build();
+        return errorResponse(403, ErrorMessage.INVALIDPARAMETER);
     }
 
     public Response notFound() {
-        return Response.status(404).entity(ErrorMessage.NOTFOUND).build();
+        return errorResponse(404, ErrorMessage.NOTFOUND);
     }
 
     public Response depedencies() {
-        return Response.status(403).entity(ErrorMessage.DEPEDENCIES).build();
+        return errorResponse(403, ErrorMessage.DEPEDENCIES);
+    }
+
+    public Response preconditionFailed() {
+        return errorResponse(412, ErrorMessage.PRECONDITIONFAILED);
     }
 
     public Response locked() {
-        return Response.status(423).entity(ErrorMessage.LOCKED).build();
+        return errorResponse(423, ErrorMessage.LOCKED);
+    }
+
+    public Response tooLarge() {
+        return errorResponse(413, ErrorMessage.TOOLARGE);
     }
 
     public Response sendBoolean(boolean status) {
         return Response.status(Response.Status.OK).entity(status).build();
     }
+
+    /**
+     * Error messages are always JSON, also when the resource produces RDF formats and the client accepts only them
+     */
+    private static Response errorResponse(int status,
+                                          String message) {
+        return Response.status(status).entity(message).type(MediaType.APPLICATION_JSON).build();
+    }
 }
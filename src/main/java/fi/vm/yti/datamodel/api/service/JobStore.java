@@ -0,0 +1,191 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.datatypes.xsd.XSDDateTime;
+import org.apache.jena.query.ParameterizedSparqlString;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Literal;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.update.UpdateRequest;
+
+import fi.vm.yti.datamodel.api.utils.LDHelper;
+
+/**
+ * Stores state of background jobs of one type in a graph of core, so progress can be read from any instance and
+ * unfinished jobs can be resumed at startup.
+ * <p>
+ * Every job has dcterms:created, dcterms:modified and an optional iow:error. Other properties are given as
+ * prefixed names, and in query results they are bound to variables named by the local part of the name, for
+ * example iow:model to ?model.
+ */
+public class JobStore {
+
+    private final JenaClient jenaClient;
+    private final EndpointServices endpointServices;
+    private final String jobsGraph;
+    private final String type;
+
+    /**
+     * @param jobsGraph Graph of the jobs
+     * @param type      Prefixed name of the job type, for example iow:ModelDeletion
+     */
+    public JobStore(JenaClient jenaClient,
+                    EndpointServices endpointServices,
+                    String jobsGraph,
+                    String type) {
+        this.jenaClient = jenaClient;
+        this.endpointServices = endpointServices;
+        this.jobsGraph = jobsGraph;
+        this.type = type;
+    }
+
+    /**
+     * Replaces stored state of the job
+     *
+     * @param job        Job IRI
+     * @param properties Values by prefixed property name, null values are left out
+     * @param error      Error message or null
+     */
+    public void put(String job,
+                    Map<String, RDFNode> properties,
+                    Date created,
+                    Date modified,
+                    String error) {
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        StringBuilder query = new StringBuilder("DELETE WHERE { GRAPH ?jobsGraph { ?job ?p ?o . } } ; "
+            + "INSERT DATA { GRAPH ?jobsGraph { "
+            + "?job a " + type + " ; "
+            + "dcterms:created ?created ; "
+            + "dcterms:modified ?modified . ");
+
+        properties.forEach((property, value) -> {
+            if (value != null) {
+                query.append("?job ").append(property).append(" ?").append(variable(property)).append(" . ");
+                pss.setParam(variable(property), value);
+            }
+        });
+
+        if (error != null) {
+            query.append("?job iow:error ?error . ");
+            pss.setLiteral("error", error);
+        }
+        query.append("}}");
+
+        pss.setNsPrefixes(LDHelper.PREFIX_MAP);
+        pss.setCommandText(query.toString());
+        pss.setIri("jobsGraph", jobsGraph);
+        pss.setIri("job", job);
+        pss.setLiteral("created", toLiteral(created));
+        pss.setLiteral("modified", toLiteral(modified));
+
+        update(pss.asUpdate());
+    }
+
+    /**
+     * Removes jobs that were last modified before the given time and have one of the given values of a property,
+     * for example finished jobs by their state
+     *
+     * @param before   Jobs modified before this are removed
+     * @param property Prefixed property name
+     * @param values   Values of the property of the removed jobs
+     */
+    public void removeModifiedBefore(Date before,
+                                     String property,
+                                     List<? extends RDFNode> values) {
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        StringBuilder query = new StringBuilder("DELETE { GRAPH ?jobsGraph { ?job ?p ?o . } } WHERE { "
+            + "GRAPH ?jobsGraph { "
+            + "?job a " + type + " ; "
+            + "dcterms:modified ?modified ; "
+            + property + " ?value . "
+            + "FILTER(?modified < ?before) "
+            + "VALUES ?value {");
+
+        for (int i = 0; i < values.size(); i++) {
+            query.append(" ?value").append(i);
+            pss.setParam("value" + i, values.get(i));
+        }
+        query.append(" } ?job ?p ?o . }}");
+
+        pss.setNsPrefixes(LDHelper.PREFIX_MAP);
+        pss.setCommandText(query.toString());
+        pss.setIri("jobsGraph", jobsGraph);
+        pss.setLiteral("before", toLiteral(before));
+
+        update(pss.asUpdate());
+    }
+
+    /**
+     * @param properties         Prefixed names of the required properties
+     * @param optionalProperties Prefixed names of the optional properties
+     * @param values             Required values by variable name, for example job or model
+     * @return Jobs ordered by creation time, with ?job, ?created, ?modified, ?error and the property variables
+     */
+    public List<QuerySolution> query(List<String> properties,
+                                     List<String> optionalProperties,
+                                     Map<String, RDFNode> values) {
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        StringBuilder query = new StringBuilder("SELECT * WHERE { "
+            + "GRAPH ?jobsGraph { "
+            + "?job a " + type + " ; "
+            + "dcterms:created ?created ; "
+            + "dcterms:modified ?modified . ");
+
+        for (String property : properties) {
+            query.append("?job ").append(property).append(" ?").append(variable(property)).append(" . ");
+        }
+        for (String property : optionalProperties) {
+            query.append("OPTIONAL { ?job ").append(property).append(" ?").append(variable(property)).append(" . } ");
+        }
+        query.append("OPTIONAL { ?job iow:error ?error . } ");
+
+        values.forEach((variable, value) -> {
+            query.append("VALUES ?").append(variable).append(" { ?").append(variable).append("Value } ");
+            pss.setParam(variable + "Value", value);
+        });
+        query.append("}} ORDER BY ?created");
+
+        pss.setNsPrefixes(LDHelper.PREFIX_MAP);
+        pss.setCommandText(query.toString());
+        pss.setIri("jobsGraph", jobsGraph);
+
+        ResultSet results = select(pss.asQuery());
+
+        List<QuerySolution> jobs = new ArrayList<>();
+        while (results.hasNext()) {
+            jobs.add(results.nextSolution());
+        }
+        return jobs;
+    }
+
+    protected void update(UpdateRequest request) {
+        jenaClient.updateToService(request, endpointServices.getCoreSparqlUpdateAddress());
+    }
+
+    protected ResultSet select(Query query) {
+        return jenaClient.selectQuery(endpointServices.getCoreSparqlAddress(), query);
+    }
+
+    public static Literal toLiteral(Date date) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(date);
+        return ResourceFactory.createTypedLiteral(calendar);
+    }
+
+    public static Date toDate(Literal literal) {
+        Object value = literal.getValue();
+        return value instanceof XSDDateTime ? ((XSDDateTime) value).asCalendar().getTime() : null;
+    }
+
+    private static String variable(String property) {
+        return property.substring(property.indexOf(':') + 1);
+    }
+}
@@ -7,7 +7,6 @@ import fi.vm.yti.datamodel.api.utils.LDHelper;
 
 import org.apache.jena.query.ParameterizedSparqlString;
 import org.apache.jena.query.QueryExecution;
-import org.apache.jena.query.QueryExecutionFactory;
 import org.apache.jena.query.QuerySolution;
 import org.apache.jena.query.ResultSet;
 import org.apache.jena.query.ResultSetFactory;
@@ -25,9 +24,9 @@ import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonArrayBuilder;
+import javax.json.JsonBuilderFactory;
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
 import javax.json.JsonWriter;
@@ -44,14 +43,20 @@ public class JsonSchemaWriter {
 
     private final EndpointServices endpointServices;
     private final JsonWriterFactory jsonWriterFactory;
+    private final JsonBuilderFactory jsonBuilderFactory;
     private final GraphManager graphManager;
+    private final JenaClient jenaClient;
 
     JsonSchemaWriter(EndpointServices endpointServices,
                      JsonWriterFactory jsonWriterFactory,
-                     GraphManager graphManager) {
+                     JsonBuilderFactory jsonBuilderFactory,
+                     GraphManager graphManager,
+                     JenaClient jenaClient) {
         this.endpointServices = endpointServices;
         this.jsonWriterFactory = jsonWriterFactory;
+        this.jsonBuilderFactory = jsonBuilderFactory;
         this.graphManager = graphManager;
+        this.jenaClient = jenaClient;
     }
 
     private static final Map<String, String> DATATYPE_MAP =
@@ -87,8 +92,8 @@ public class JsonSchemaWriter {
     public String newResourceSchema(String classID,
                                     String lang) {
 
-        JsonArrayBuilder required = Json.createArrayBuilder();
-        JsonObjectBuilder schema = Json.createObjectBuilder();
+        JsonArrayBuilder required = jsonBuilderFactory.createArrayBuilder();
+        JsonObjectBuilder schema = jsonBuilderFactory.createObjectBuilder();
 
         ParameterizedSparqlString pss = new ParameterizedSparqlString();
 
@@ -115,7 +120,7 @@ public class JsonSchemaWriter {
 
         boolean classMetadata = false;
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
 
             ResultSet results = qexec.execSelect();
 
@@ -157,7 +162,7 @@ public class JsonSchemaWriter {
 
         }
 
-        JsonObjectBuilder properties = Json.createObjectBuilder();
+        JsonObjectBuilder properties = jsonBuilderFactory.createObjectBuilder();
 
         if (classMetadata) {
 
@@ -194,9 +199,10 @@ public class JsonSchemaWriter {
             pss.setIri("resourceID", classID);
             if (lang != null) pss.setLiteral("lang", lang);
 
-            try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
+            try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
 
-                ResultSet results = qexec.execSelect();
+                // Results are copied so that the Fuseki slot is released before value lists are queried
+                ResultSet results = ResultSetFactory.copyResults(qexec.execSelect());
 
                 if (results.hasNext()) {
 
@@ -209,7 +215,7 @@ public class JsonSchemaWriter {
                             predicateName = soln.getLiteral("id").getString();
                         }
 
-                        JsonObjectBuilder predicate = Json.createObjectBuilder();
+                        JsonObjectBuilder predicate = jsonBuilderFactory.createObjectBuilder();
 
                         if (soln.contains("label")) {
                             String title = soln.getLiteral("label").getString();
@@ -286,7 +292,7 @@ public class JsonSchemaWriter {
 
                                 if (jsonDatatype != null) {
 
-                                    JsonObjectBuilder typeObject = Json.createObjectBuilder();
+                                    JsonObjectBuilder typeObject = jsonBuilderFactory.createObjectBuilder();
 
                                     if (jsonDatatype.equals("langString")) {
                                         typeObject.add("type", "object");
@@ -324,7 +330,7 @@ public class JsonSchemaWriter {
                                     if (soln.contains("min")) predicate.add("minItems", soln.getLiteral("min").getInt());
                                     if (soln.contains("max")) predicate.add("maxItems", soln.getLiteral("max").getInt());
                                     predicate.add("type", "array");
-                                    predicate.add("items", Json.createObjectBuilder().add("type", "object").add("$ref", shapeRef + ".jschema").build());
+                                    predicate.add("items", jsonBuilderFactory.createObjectBuilder().add("type", "object").add("$ref", shapeRef + ".jschema").build());
                                 } else {
                                     predicate.add("type", "object");
                                     predicate.add("$ref", shapeRef + ".jschema");
@@ -366,7 +372,7 @@ public class JsonSchemaWriter {
         pss.setIri("graph", graphIRI);
 
         Query query = pss.asQuery();
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), query)) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), query)) {
             boolean b = qexec.execAsk();
             return b;
         } catch (Exception ex) {
@@ -375,7 +381,7 @@ public class JsonSchemaWriter {
     }
 
     public JsonArray getSchemeValueList(String schemeID) {
-        JsonArrayBuilder builder = Json.createArrayBuilder();
+        JsonArrayBuilder builder = jsonBuilderFactory.createArrayBuilder();
 
         ParameterizedSparqlString pss = new ParameterizedSparqlString();
 
@@ -391,7 +397,7 @@ public class JsonSchemaWriter {
         pss.setNsPrefixes(LDHelper.PREFIX_MAP);
         pss.setCommandText(selectList);
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getSchemesSparqlAddress(), pss.toString())) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getSchemesSparqlAddress(), pss.toString())) {
 
             ResultSet results = qexec.execSelect();
 
@@ -411,7 +417,7 @@ public class JsonSchemaWriter {
 
     public JsonArray getValueList(String classID,
                                   String propertyID) {
-        JsonArrayBuilder builder = Json.createArrayBuilder();
+        JsonArrayBuilder builder = jsonBuilderFactory.createArrayBuilder();
 
         ParameterizedSparqlString pss = new ParameterizedSparqlString();
 
@@ -429,7 +435,7 @@ public class JsonSchemaWriter {
         pss.setNsPrefixes(LDHelper.PREFIX_MAP);
         pss.setCommandText(selectList);
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.toString())) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), pss.toString())) {
 
             ResultSet results = qexec.execSelect();
 
@@ -480,7 +486,7 @@ public class JsonSchemaWriter {
         pss.setCommandText(selectResources);
         pss.setIri("graph", graph);
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
 
             ResultSet results = qexec.execSelect();
 
@@ -495,7 +501,7 @@ public class JsonSchemaWriter {
     }
 
     public JsonObject idProperty() {
-        JsonObjectBuilder idPredicate = Json.createObjectBuilder();
+        JsonObjectBuilder idPredicate = jsonBuilderFactory.createObjectBuilder();
         idPredicate.add("title", "JSON-LD identifier");
         idPredicate.add("description", "This property is reserved for IRI identifiers. It is highly recommended to use @id to uniquely identify object with IRIs. May be omitted if objects are considered to be non unique or blank nodes.");
         idPredicate.add("type", "string");
@@ -565,25 +571,26 @@ public class JsonSchemaWriter {
         pss.setCommandText(selectResources);
         pss.setNsPrefixes(LDHelper.PREFIX_MAP);
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
 
-            ResultSet results = qexec.execSelect();
+            // Results are copied so that the Fuseki slot is released before value lists are queried
+            ResultSet results = ResultSetFactory.copyResults(qexec.execSelect());
             ResultSetPeekable pResults = ResultSetFactory.makePeekable(results);
 
             if (!pResults.hasNext()) {
                 return null;
             }
 
-            JsonObjectBuilder definitions = Json.createObjectBuilder();
-            JsonObjectBuilder properties = Json.createObjectBuilder();
+            JsonObjectBuilder definitions = jsonBuilderFactory.createObjectBuilder();
+            JsonObjectBuilder properties = jsonBuilderFactory.createObjectBuilder();
 
-            JsonObjectBuilder predicate = Json.createObjectBuilder();
+            JsonObjectBuilder predicate = jsonBuilderFactory.createObjectBuilder();
 
             HashSet<String> exampleSet = new HashSet<String>();
             HashSet<String> requiredPredicates = new HashSet<String>();
 
-            JsonArrayBuilder exampleList = Json.createArrayBuilder();
-            JsonObjectBuilder typeObject = Json.createObjectBuilder();
+            JsonArrayBuilder exampleList = jsonBuilderFactory.createArrayBuilder();
+            JsonObjectBuilder typeObject = jsonBuilderFactory.createObjectBuilder();
 
             boolean arrayType = false;
 
@@ -738,7 +745,7 @@ public class JsonSchemaWriter {
                                         }
                                         predicate.add("type", "array");
 
-                                        predicate.add("items", Json.createObjectBuilder().add("type", "object").add("$ref", "#/definitions/" + shapeRefName).build());
+                                        predicate.add("items", jsonBuilderFactory.createObjectBuilder().add("type", "object").add("$ref", "#/definitions/" + shapeRefName).build());
                                     } else {
                                         predicate.add("type", "object");
                                         predicate.add("$ref", "#/definitions/" + shapeRefName);
@@ -782,19 +789,19 @@ public class JsonSchemaWriter {
 
                             properties.add(predicateName, predicate.build());
 
-                            predicate = Json.createObjectBuilder();
-                            typeObject = Json.createObjectBuilder();
+                            predicate = jsonBuilderFactory.createObjectBuilder();
+                            typeObject = jsonBuilderFactory.createObjectBuilder();
                             arrayType = false;
                             pIndex = 1;
                             exampleSet = new HashSet<String>();
-                            exampleList = Json.createArrayBuilder();
+                            exampleList = jsonBuilderFactory.createArrayBuilder();
                         }
                     }
 
                     /* If not build props and requires */
                     if (!pResults.hasNext() || !className.equals(pResults.peek().getLiteral("className").getString())) {
-                        predicate = Json.createObjectBuilder();
-                        JsonObjectBuilder classDefinition = Json.createObjectBuilder();
+                        predicate = jsonBuilderFactory.createObjectBuilder();
+                        JsonObjectBuilder classDefinition = jsonBuilderFactory.createObjectBuilder();
 
                         if (soln.contains("classTitle")) {
                             classDefinition.add("title", soln.getLiteral("classTitle").getString());
@@ -819,7 +826,7 @@ public class JsonSchemaWriter {
                         JsonObject classProps = properties.build();
                         if (!classProps.isEmpty()) classDefinition.add("properties", classProps);
 
-                        JsonArrayBuilder required = Json.createArrayBuilder();
+                        JsonArrayBuilder required = jsonBuilderFactory.createArrayBuilder();
 
                         Iterator<String> ri = requiredPredicates.iterator();
 
@@ -836,7 +843,7 @@ public class JsonSchemaWriter {
 
                         definitions.add(localClassName != null && localClassName.length() > 0 ? LDHelper.removeInvalidCharacters(localClassName) : className, classDefinition.build());
 
-                        properties = Json.createObjectBuilder();
+                        properties = jsonBuilderFactory.createObjectBuilder();
                         requiredPredicates = new HashSet<String>();
                     }
                 }
@@ -850,7 +857,7 @@ public class JsonSchemaWriter {
     public String newModelSchema(String modelID,
                                  String lang) {
 
-        JsonObjectBuilder schema = Json.createObjectBuilder();
+        JsonObjectBuilder schema = jsonBuilderFactory.createObjectBuilder();
 
         ParameterizedSparqlString pss = new ParameterizedSparqlString();
 
@@ -872,7 +879,7 @@ public class JsonSchemaWriter {
 
         pss.setCommandText(selectClass);
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.toString())) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), pss.toString())) {
 
             ResultSet results = qexec.execSelect();
 
@@ -900,14 +907,14 @@ public class JsonSchemaWriter {
 
                 schema.add("title", title);
 
-                Date modified = graphManager.modelContentModified(modelID);
-                SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz");
+            }
 
-                if (modified != null) {
-                    String dateModified = format.format(modified);
-                    schema.add("modified", dateModified);
-                }
+            Date modified = graphManager.modelContentModified(modelID);
+            SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz");
 
+            if (modified != null) {
+                String dateModified = format.format(modified);
+                schema.add("modified", dateModified);
             }
 
             JsonObjectBuilder definitions = getClassDefinitions(modelID, lang);
@@ -915,7 +922,7 @@ public class JsonSchemaWriter {
             String modelRoot = getModelRoot(modelID);
 
             if (modelRoot != null) {
-                JsonObjectBuilder modelProperties = Json.createObjectBuilder();
+                JsonObjectBuilder modelProperties = jsonBuilderFactory.createObjectBuilder();
                 modelProperties.add("$ref", "#/definitions/" + SplitIRI.localname(modelRoot));
                 return createModelSchemaWithRoot(schema, modelProperties, definitions);
             }
@@ -936,8 +943,8 @@ public class JsonSchemaWriter {
 
         }*/
 
-        JsonObjectBuilder builder = Json.createObjectBuilder();
-        JsonObjectBuilder add = Json.createObjectBuilder();
+        JsonObjectBuilder builder = jsonBuilderFactory.createObjectBuilder();
+        JsonObjectBuilder add = jsonBuilderFactory.createObjectBuilder();
         builder.add("type", "object");
         builder.add("title", "Multilingual string");
         builder.add("description", "Object type for localized strings");
@@ -947,7 +954,7 @@ public class JsonSchemaWriter {
 
     public String newMultilingualModelSchema(String modelID) {
 
-        JsonObjectBuilder schema = Json.createObjectBuilder();
+        JsonObjectBuilder schema = jsonBuilderFactory.createObjectBuilder();
 
         ParameterizedSparqlString pss = new ParameterizedSparqlString();
 
@@ -968,13 +975,13 @@ public class JsonSchemaWriter {
 
         pss.setCommandText(selectClass);
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
 
             ResultSet results = qexec.execSelect();
 
             if (!results.hasNext()) return null;
 
-            JsonObjectBuilder titleObject = Json.createObjectBuilder();
+            JsonObjectBuilder titleObject = jsonBuilderFactory.createObjectBuilder();
             JsonObjectBuilder descriptionObject = null;
 
             while (results.hasNext()) {
@@ -986,7 +993,7 @@ public class JsonSchemaWriter {
 
                 titleObject.add(lang, title);
                 if (soln.contains("description")) {
-                    if (descriptionObject == null) descriptionObject = Json.createObjectBuilder();
+                    if (descriptionObject == null) descriptionObject = jsonBuilderFactory.createObjectBuilder();
                     String description = soln.getLiteral("description").getString();
                     descriptionObject.add(lang, description);
                 }
@@ -1041,7 +1048,7 @@ public class JsonSchemaWriter {
         pss.setIri("modelPartGraph", modelID + "#HasPartGraph");
         pss.setCommandText(selectResources);
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
 
             ResultSet results = qexec.execSelect();
             ResultSetPeekable pResults = ResultSetFactory.makePeekable(results);
@@ -1050,18 +1057,18 @@ public class JsonSchemaWriter {
                 return null;
             }
 
-            JsonObjectBuilder definitions = Json.createObjectBuilder();
+            JsonObjectBuilder definitions = jsonBuilderFactory.createObjectBuilder();
 
             definitions.add("langString", getLangStringObject());
 
-            JsonObjectBuilder properties = Json.createObjectBuilder();
-            JsonArrayBuilder required = Json.createArrayBuilder();
+            JsonObjectBuilder properties = jsonBuilderFactory.createObjectBuilder();
+            JsonArrayBuilder required = jsonBuilderFactory.createArrayBuilder();
 
             String propertyID = null;
-            JsonObjectBuilder classTitleObject = Json.createObjectBuilder();
-            JsonObjectBuilder classDescriptionObject = Json.createObjectBuilder();
-            JsonObjectBuilder propertyTitleObject = Json.createObjectBuilder();
-            JsonObjectBuilder propertyDescriptionObject = Json.createObjectBuilder();
+            JsonObjectBuilder classTitleObject = jsonBuilderFactory.createObjectBuilder();
+            JsonObjectBuilder classDescriptionObject = jsonBuilderFactory.createObjectBuilder();
+            JsonObjectBuilder propertyTitleObject = jsonBuilderFactory.createObjectBuilder();
+            JsonObjectBuilder propertyDescriptionObject = jsonBuilderFactory.createObjectBuilder();
 
             while (pResults.hasNext()) {
 
@@ -1093,7 +1100,7 @@ public class JsonSchemaWriter {
                             classDescription = soln.getLiteral("classDescription").getString();
                         }
 
-                        JsonObjectBuilder propertyBuilder = Json.createObjectBuilder();
+                        JsonObjectBuilder propertyBuilder = jsonBuilderFactory.createObjectBuilder();
 
                         /* Build multilingual objects */
 
@@ -1177,7 +1184,7 @@ public class JsonSchemaWriter {
 
                                     if (jsonDatatype != null) {
 
-                                        JsonObjectBuilder typeObject = Json.createObjectBuilder();
+                                        JsonObjectBuilder typeObject = jsonBuilderFactory.createObjectBuilder();
 
                                         if (jsonDatatype.equals("langString")) {
                                             typeObject.add("type", "object");
@@ -1210,7 +1217,7 @@ public class JsonSchemaWriter {
                                             propertyBuilder.add("maxItems", soln.getLiteral("max").getInt());
                                         }
                                         propertyBuilder.add("type", "array");
-                                        propertyBuilder.add("items", Json.createObjectBuilder().add("type", "object").add("$ref", "#/definitions/" + shapeRefName).build());
+                                        propertyBuilder.add("items", jsonBuilderFactory.createObjectBuilder().add("type", "object").add("$ref", "#/definitions/" + shapeRefName).build());
                                     } else {
                                         propertyBuilder.add("type", "object");
                                         propertyBuilder.add("$ref", "#/definitions/" + shapeRefName);
@@ -1220,9 +1227,9 @@ public class JsonSchemaWriter {
 
                             properties.add(predicateName, propertyBuilder.build());
 
-                            propertyTitleObject = Json.createObjectBuilder();
-                            propertyDescriptionObject = Json.createObjectBuilder();
-                            propertyBuilder = Json.createObjectBuilder();
+                            propertyTitleObject = jsonBuilderFactory.createObjectBuilder();
+                            propertyDescriptionObject = jsonBuilderFactory.createObjectBuilder();
+                            propertyBuilder = jsonBuilderFactory.createObjectBuilder();
 
                         }
                     }
@@ -1231,7 +1238,7 @@ public class JsonSchemaWriter {
 
                     /* If not build props and requires */
                     if (!pResults.hasNext() || !className.equals(pResults.peek().getLiteral("className").toString())) {
-                        JsonObjectBuilder classDefinition = Json.createObjectBuilder();
+                        JsonObjectBuilder classDefinition = jsonBuilderFactory.createObjectBuilder();
                         classDefinition.add("title", classTitleObject.build());
                         classDefinition.add("type", "object");
                         JsonObject classDescriptionJSON = classDescriptionObject.build();
@@ -1243,11 +1250,11 @@ public class JsonSchemaWriter {
                         JsonArray reqArray = required.build();
                         if (!reqArray.isEmpty()) classDefinition.add("required", reqArray);
                         definitions.add(localClassName != null && localClassName.length() > 0 ? LDHelper.removeInvalidCharacters(localClassName) : className, classDefinition.build());
-                        properties = Json.createObjectBuilder();
-                        required = Json.createArrayBuilder();
+                        properties = jsonBuilderFactory.createObjectBuilder();
+                        required = jsonBuilderFactory.createArrayBuilder();
 
-                        classTitleObject = Json.createObjectBuilder();
-                        classDescriptionObject = Json.createObjectBuilder();
+                        classTitleObject = jsonBuilderFactory.createObjectBuilder();
+                        classDescriptionObject = jsonBuilderFactory.createObjectBuilder();
 
                     }
                 }
@@ -1295,7 +1302,7 @@ public class JsonSchemaWriter {
         schema.add("$schema", "http://json-schema.org/draft-04/schema#");
 
         schema.add("type", "object");
-        schema.add("allOf", Json.createArrayBuilder().add(properties.build()).build());
+        schema.add("allOf", jsonBuilderFactory.createArrayBuilder().add(properties.build()).build());
 
         if (definitions != null) {
             definitions.add("langString", getLangStringObject());
@@ -0,0 +1,164 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.query.ParameterizedSparqlString;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+import fi.vm.yti.datamodel.api.model.AbstractModel;
+import fi.vm.yti.datamodel.api.utils.LDHelper;
+
+/**
+ * In-memory index from model IRI to the organizations of the model.
+ * <p>
+ * Used for authorization checks so that the rights to edit a model or its resources can be checked without
+ * reading the whole model graph. Entries are updated by {@link GraphManager} when models are created, updated or
+ * removed. Entries also expire after modelAccessCacheTtl seconds, so that changes made by other instances of the
+ * API are picked up.
+ */
+@Service
+public class ModelAccessIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelAccessIndex.class.getName());
+
+    private final JenaClient jenaClient;
+    private final EndpointServices endpointServices;
+    private final Cache<String, Optional<ModelAccess>> modelCache;
+
+    @Autowired
+    ModelAccessIndex(JenaClient jenaClient,
+                     EndpointServices endpointServices,
+                     ApplicationProperties properties) {
+        this(jenaClient, endpointServices, properties, Ticker.systemTicker());
+    }
+
+    ModelAccessIndex(JenaClient jenaClient,
+                     EndpointServices endpointServices,
+                     ApplicationProperties properties,
+                     Ticker ticker) {
+        this.jenaClient = jenaClient;
+        this.endpointServices = endpointServices;
+        this.modelCache = CacheBuilder.newBuilder()
+            .expireAfterWrite(properties.getModelAccessCacheTtl(), TimeUnit.SECONDS)
+            .ticker(ticker)
+            .build();
+    }
+
+    public static final class ModelAccess {
+
+        private final List<UUID> organizations;
+
+        ModelAccess(List<UUID> organizations) {
+            this.organizations = Collections.unmodifiableList(new ArrayList<>(organizations));
+        }
+
+        /**
+         * Organizations (dcterms:contributor) of the model
+         */
+        public List<UUID> getOrganizations() {
+            return organizations;
+        }
+    }
+
+    /**
+     * Gets organizations of a model. Unknown models are not cached, so a model created by another instance is found
+     * on the next lookup.
+     *
+     * @param graph Model IRI
+     * @return Organizations or null if there is no model with the IRI
+     * @throws UpstreamUnavailableException if Fuseki is unavailable
+     */
+    public ModelAccess get(String graph) {
+        try {
+            Optional<ModelAccess> access = modelCache.get(graph, () -> Optional.ofNullable(queryModel(graph)));
+            if (!access.isPresent()) {
+                // Concurrent lookups share the miss, but it is not kept for later lookups
+                modelCache.asMap().remove(graph, access);
+            }
+            return access.orElse(null);
+        } catch (UncheckedExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw ex;
+        } catch (ExecutionException ex) {
+            logger.warn("Could not get organizations of " + graph, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Stores organizations of a created or updated model without querying Fuseki
+     *
+     * @param model Model as it was written to core
+     */
+    public void put(AbstractModel model) {
+        modelCache.put(model.getId(), Optional.of(new ModelAccess(model.getOrganizations())));
+    }
+
+    /**
+     * Removes cached entry of the model, for example when model is deleted or copied to a new version
+     *
+     * @param graph Model IRI
+     */
+    public void invalidateModel(String graph) {
+        modelCache.invalidate(graph);
+    }
+
+    public void invalidateAll() {
+        modelCache.invalidateAll();
+    }
+
+    private ModelAccess queryModel(String graph) {
+
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        // Any statement of the model resource finds the model, also when it has no organizations
+        String selectModel =
+            "SELECT DISTINCT ?org WHERE { "
+                + "GRAPH ?graph { "
+                + "?graph ?p ?o . "
+                + "OPTIONAL { ?graph dcterms:contributor ?org . } "
+                + "}}";
+
+        pss.setNsPrefixes(LDHelper.PREFIX_MAP);
+        pss.setCommandText(selectModel);
+        pss.setIri("graph", graph);
+
+        ResultSet results = jenaClient.selectQuery(endpointServices.getCoreSparqlAddress(), pss.asQuery());
+
+        if (!results.hasNext()) {
+            return null;
+        }
+
+        List<UUID> organizations = new ArrayList<>();
+
+        while (results.hasNext()) {
+            QuerySolution soln = results.nextSolution();
+            if (soln.contains("org")) {
+                UUID organization = UUID.fromString(soln.getResource("org").getURI().replaceFirst("urn:uuid:", ""));
+                if (!organizations.contains(organization)) {
+                    organizations.add(organization);
+                }
+            }
+        }
+
+        return new ModelAccess(organizations);
+    }
+}
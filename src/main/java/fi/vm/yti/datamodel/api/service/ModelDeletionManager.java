@@ -0,0 +1,293 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.jena.query.ParameterizedSparqlString;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+import fi.vm.yti.datamodel.api.index.SearchIndexManager;
+import fi.vm.yti.datamodel.api.model.ModelDeletionJobDTO;
+import fi.vm.yti.datamodel.api.model.ModelDeletionJobDTO.State;
+import fi.vm.yti.datamodel.api.utils.LDHelper;
+
+/**
+ * Deletes models in background jobs.
+ * <p>
+ * Job state is stored in the {@link #JOBS_GRAPH} graph of core, so progress can be read from any instance and
+ * unfinished jobs are resumed at startup. Model is first removed from service description and search index so
+ * that it disappears from listings. Resource graphs and their provenance are then deleted in batches of
+ * modelDeletionBatchSize graphs, and finally the model graphs themselves. Every step is idempotent, so an
+ * interrupted job can be run again from the beginning. Jobs read from the primary, because a lagging replica
+ * would return batches that were already deleted. Finished and failed jobs are removed
+ * modelDeletionJobRetention seconds after their last change.
+ */
+@Service
+public class ModelDeletionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelDeletionManager.class.getName());
+
+    public static final String JOBS_GRAPH = "urn:csc:iow:modelDeletions";
+
+    private static final List<String> PROPERTIES = Arrays.asList("iow:model", "iow:state", "iow:deletedResources");
+
+    private final GraphManager graphManager;
+    private final ProvenanceManager provenanceManager;
+    private final ServiceDescriptionManager serviceDescriptionManager;
+    private final SearchIndexManager searchIndexManager;
+    private final JenaClient jenaClient;
+    private final EndpointServices endpointServices;
+    private final JobStore jobStore;
+    private final ReadRouter readRouter;
+    private final int batchSize;
+    private final long retention;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("model-deletion-%d").setDaemon(true).build());
+
+    @Autowired
+    ModelDeletionManager(GraphManager graphManager,
+                         ProvenanceManager provenanceManager,
+                         ServiceDescriptionManager serviceDescriptionManager,
+                         SearchIndexManager searchIndexManager,
+                         JenaClient jenaClient,
+                         EndpointServices endpointServices,
+                         ApplicationProperties properties,
+                         ReadRouter readRouter) {
+        this.graphManager = graphManager;
+        this.provenanceManager = provenanceManager;
+        this.serviceDescriptionManager = serviceDescriptionManager;
+        this.searchIndexManager = searchIndexManager;
+        this.jenaClient = jenaClient;
+        this.endpointServices = endpointServices;
+        this.jobStore = new JobStore(jenaClient, endpointServices, JOBS_GRAPH, "iow:ModelDeletion");
+        this.readRouter = readRouter;
+        this.batchSize = Math.max(1, properties.getModelDeletionBatchSize());
+        this.retention = properties.getModelDeletionJobRetention();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Starts deletion of the model. If the model is already being deleted returns the existing job.
+     *
+     * @param model IRI of the model
+     * @return Queued or running job
+     */
+    @SuppressWarnings("try")
+    public synchronized ModelDeletionJobDTO deleteModel(String model) {
+        try (ReadRouter.Scope scope = readRouter.primaryReads()) {
+            for (ModelDeletionJobDTO job : getJobs(model)) {
+                if (!job.isFinished()) {
+                    return job;
+                }
+            }
+        }
+
+        Date now = new Date();
+        ModelDeletionJobDTO job = new ModelDeletionJobDTO(UUID.randomUUID().toString(), model, State.QUEUED, 0, now, now, null);
+        putJob(job);
+        submit(job);
+        return job;
+    }
+
+    /**
+     * Resumes jobs that were queued or running when the application was stopped
+     */
+    @SuppressWarnings("try")
+    public void resumeUnfinishedJobs() {
+        try (ReadRouter.Scope scope = readRouter.primaryReads()) {
+            for (ModelDeletionJobDTO job : getJobs(null)) {
+                if (!job.isFinished()) {
+                    logger.info("Resuming deletion of " + job.getModel());
+                    submit(job);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes finished and failed jobs that have not changed in modelDeletionJobRetention seconds
+     */
+    @Scheduled(cron = "0 0 * * * *")
+    public void removeExpiredJobs() {
+        Date before = new Date(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(retention));
+        jobStore.removeModifiedBefore(before, "iow:state", Arrays.asList(
+            ResourceFactory.createPlainLiteral(State.DONE.name()),
+            ResourceFactory.createPlainLiteral(State.FAILED.name())));
+    }
+
+    /**
+     * @param id Job id
+     * @return Job or null if not found
+     */
+    public ModelDeletionJobDTO getJob(String id) {
+        List<ModelDeletionJobDTO> jobs = queryJobs(id, null);
+        return jobs.isEmpty() ? null : jobs.get(0);
+    }
+
+    /**
+     * @param model IRI of the model or null for all models
+     * @return Jobs ordered by creation time
+     */
+    public List<ModelDeletionJobDTO> getJobs(String model) {
+        return queryJobs(null, model);
+    }
+
+    @SuppressWarnings("try")
+    private void submit(ModelDeletionJobDTO job) {
+        executor.execute(() -> {
+            try (ReadRouter.Scope scope = readRouter.primaryReads()) {
+                run(job);
+            }
+        });
+    }
+
+    private void run(ModelDeletionJobDTO job) {
+        String model = job.getModel();
+        long start = System.currentTimeMillis();
+
+        try {
+            job.setState(State.RUNNING);
+            putJob(job);
+
+            logger.info("Deleting model " + model);
+
+            serviceDescriptionManager.deleteGraphDescription(model);
+            searchIndexManager.removeModel(model);
+            graphManager.deleteVersionLinks(model);
+
+            Set<String> deleted = new HashSet<>();
+            List<String> batch;
+            while (!(batch = nextResourceBatch(model)).isEmpty()) {
+                for (String resource : batch) {
+                    if (!deleted.add(resource)) {
+                        throw new IllegalStateException("Could not delete resource graph " + resource);
+                    }
+                }
+                deleteProvenance(model, batch);
+                dropGraphs(batch);
+                job.setDeletedResources(job.getDeletedResources() + batch.size());
+                putJob(job);
+            }
+
+            provenanceManager.deleteProvenanceFromResource(model);
+            graphManager.removeModel(LDHelper.toIRI(model));
+
+            job.setState(State.DONE);
+            putJob(job);
+
+            logger.info("Deleted model " + model + " with " + job.getDeletedResources() + " resources in " + (System.currentTimeMillis() - start) + " ms");
+        } catch (Exception ex) {
+            logger.warn("Deletion of model " + model + " failed", ex);
+            job.setState(State.FAILED);
+            job.setError(ex.getMessage());
+            try {
+                putJob(job);
+            } catch (RuntimeException putEx) {
+                logger.warn("Could not store state of deletion job " + job.getId(), putEx);
+            }
+        }
+    }
+
+    private List<String> nextResourceBatch(String model) {
+        String query = "SELECT ?graph WHERE { "
+            + "GRAPH ?hasPartGraph { ?model dcterms:hasPart ?graph . } "
+            + "GRAPH ?graph { ?graph rdfs:isDefinedBy ?model . } "
+            + "} LIMIT " + batchSize;
+
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        pss.setNsPrefixes(LDHelper.PREFIX_MAP);
+        pss.setCommandText(query);
+        pss.setIri("model", model);
+        pss.setIri("hasPartGraph", model + "#HasPartGraph");
+
+        ResultSet results = jenaClient.selectQuery(endpointServices.getCoreSparqlAddress(), pss.asQuery());
+
+        List<String> graphs = new ArrayList<>();
+        while (results.hasNext()) {
+            graphs.add(results.nextSolution().getResource("graph").getURI());
+        }
+        return graphs;
+    }
+
+    private void deleteProvenance(String model,
+                                  List<String> resources) {
+        StringBuilder query = new StringBuilder();
+        for (String resource : resources) {
+            query.append(provenanceManager.buildRemoveProvEntityQuery(resource));
+        }
+        provenanceManager.deleteProvenance(model, query.toString());
+    }
+
+    private void dropGraphs(List<String> graphs) {
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        StringBuilder query = new StringBuilder();
+        for (int i = 0; i < graphs.size(); i++) {
+            query.append("DROP SILENT GRAPH ?graph").append(i).append(" ; ");
+            pss.setIri("graph" + i, graphs.get(i));
+        }
+        pss.setCommandText(query.toString());
+        jenaClient.updateToService(pss.asUpdate(), endpointServices.getCoreSparqlUpdateAddress());
+    }
+
+    private void putJob(ModelDeletionJobDTO job) {
+        job.setModified(new Date());
+
+        Map<String, RDFNode> properties = new LinkedHashMap<>();
+        properties.put("iow:model", ResourceFactory.createResource(job.getModel()));
+        properties.put("iow:state", ResourceFactory.createPlainLiteral(job.getState().name()));
+        properties.put("iow:deletedResources", ResourceFactory.createTypedLiteral(job.getDeletedResources()));
+
+        jobStore.put("urn:uuid:" + job.getId(), properties, job.getCreated(), job.getModified(), job.getError());
+    }
+
+    private List<ModelDeletionJobDTO> queryJobs(String id,
+                                                String model) {
+        Map<String, RDFNode> values = new LinkedHashMap<>();
+        if (id != null) {
+            values.put("job", ResourceFactory.createResource("urn:uuid:" + id));
+        }
+        if (model != null) {
+            values.put("model", ResourceFactory.createResource(model));
+        }
+
+        List<ModelDeletionJobDTO> jobs = new ArrayList<>();
+        for (QuerySolution soln : jobStore.query(PROPERTIES, Collections.emptyList(), values)) {
+            jobs.add(new ModelDeletionJobDTO(
+                soln.get("job").toString().replace("urn:uuid:", ""),
+                soln.get("model").toString(),
+                State.valueOf(soln.getLiteral("state").getString()),
+                soln.getLiteral("deletedResources").getInt(),
+                JobStore.toDate(soln.getLiteral("created")),
+                JobStore.toDate(soln.getLiteral("modified")),
+                soln.contains("error") ? soln.getLiteral("error").getString() : null));
+        }
+        return jobs;
+    }
+}
@@ -3,12 +3,9 @@
  */
 package fi.vm.yti.datamodel.api.service;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.StringWriter;
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -36,13 +33,14 @@ import org.apache.jena.riot.RDFDataMgr;
 import org.apache.jena.riot.RDFFormat;
 import org.apache.jena.riot.RDFParser;
 import org.apache.jena.riot.WriterDatasetRIOT;
-import org.apache.jena.riot.WriterGraphRIOT;
 import org.apache.jena.riot.system.ErrorHandlerFactory;
 import org.apache.jena.riot.system.PrefixMap;
 import org.apache.jena.riot.system.PrefixMapFactory;
 import org.apache.jena.riot.system.RiotLib;
+import org.apache.jena.riot.writer.JsonLDWriter;
 import org.apache.jena.shared.PropertyNotFoundException;
 import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.DatasetGraphFactory;
 import org.apache.jena.sparql.graph.GraphFactory;
 import org.apache.jena.sparql.util.Context;
 import org.apache.jena.update.UpdateAction;
@@ -54,11 +52,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.github.jsonldjava.core.JsonLdOptions;
+import com.github.jsonldjava.core.JsonLdError;
 import com.github.jsonldjava.core.JsonLdProcessor;
 import com.github.jsonldjava.utils.JsonUtils;
 
+import fi.vm.yti.datamodel.api.utils.CompiledFrame;
+import fi.vm.yti.datamodel.api.utils.JsonSupport;
 import fi.vm.yti.datamodel.api.utils.LDHelper;
 
 @Service
@@ -86,15 +85,11 @@ public class ModelManager {
     }
 
     public JsonNode toJsonNode(Model m) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
         DatasetGraph g = DatasetFactory.create(m).asDatasetGraph();
-        WriterDatasetRIOT w = RDFDataMgr.createDatasetWriter(RDFFormat.JSONLD_FLATTEN_FLAT);
-        w.write(baos, g, RiotLib.prefixMap(g), null, g.getContext());
-        ObjectMapper objectMapper = new ObjectMapper();
         try {
-            JsonNode jsonNode = objectMapper.readTree(baos.toByteArray());
-            return jsonNode;
-        } catch (IOException ex) {
+            Object json = JsonLDWriter.toJsonLDJavaAPI((RDFFormat.JSONLDVariant) RDFFormat.JSONLD_FLATTEN_FLAT.getVariant(), g, RiotLib.prefixMap(g), null, g.getContext());
+            return JsonSupport.valueToTree(json);
+        } catch (IOException | JsonLdError ex) {
             logger.warn(ex.getMessage(), ex);
             return null;
         }
@@ -118,12 +113,7 @@ public class ModelManager {
     public Object stringToFramedObject(String graphString,
                                        LinkedHashMap<String, Object> newFrame) throws IOException {
         Object jsonObject = JsonUtils.fromString(graphString);
-        JsonLdOptions opts = new JsonLdOptions();
-        opts.setProcessingMode(opts.JSON_LD_1_1);
-        opts.useNamespaces = true;
-        opts.setCompactArrays(true);
-        opts.setUseNativeTypes(Boolean.TRUE);
-        Object framed = JsonLdProcessor.frame(jsonObject, newFrame, opts);
+        Object framed = JsonLdProcessor.frame(jsonObject, newFrame, JsonSupport.framingOptions());
         framed = ((ArrayList) ((Map) framed).get("@graph")).get(0);
         return framed;
     }
@@ -133,54 +123,47 @@ public class ModelManager {
                                          LinkedHashMap<String, Object> newFrame) throws IOException {
         Object jsonObject = JsonUtils.fromString(graphString);
         ((Map) jsonObject).put("@context", originalFrame.get("@context"));
-        JsonLdOptions opts = new JsonLdOptions();
-        opts.setProcessingMode(opts.JSON_LD_1_1);
-        opts.useNamespaces = true;
-        opts.setCompactArrays(true);
-        opts.setUseNativeTypes(Boolean.TRUE);
-        Object framed = JsonLdProcessor.frame(jsonObject, newFrame, opts);
+        Object framed = JsonLdProcessor.frame(jsonObject, newFrame, JsonSupport.framingOptions());
         framed = ((ArrayList) ((Map) framed).get("@graph")).get(0);
         return framed;
     }
 
     public String mapObjectToString(Object jsonNode) throws IOException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(jsonNode);
+        return JsonSupport.PRETTY_WRITER.writeValueAsString(jsonNode);
     }
 
     public JsonNode toFramedJsonNode(Model model,
                                      LinkedHashMap<String, Object> frame) throws IOException {
-        WriterGraphRIOT gw = RDFDataMgr.createGraphWriter(RDFFormat.JSONLD_FRAME_PRETTY);
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        Graph modelGraph = model.getGraph();
-        PrefixMap pm = RiotLib.prefixMap(modelGraph);
-        pm = cleanUpPrefixes(pm);
+        return toFramedJsonNode(model, new CompiledFrame(frame));
+    }
+
+    /**
+     * Frames the model to a JSON tree without writing the framed JSON-LD out as a string
+     */
+    public JsonNode toFramedJsonNode(Model model,
+                                     CompiledFrame frame) throws IOException {
+        PrefixMap pm = cleanUpPrefixes(RiotLib.prefixMap(model.getGraph()));
+        LinkedHashMap<String, Object> modelFrame = frame.withPrefixes(pm.getMappingCopyStr());
         pm.putAll(LDHelper.PREFIX_MAP);
-        ((LinkedHashMap<String, Object>) frame.get("@context")).putAll(pm.getMappingCopyStr());
-        JsonLdOptions opts = new JsonLdOptions();
-        opts.setProcessingMode(opts.JSON_LD_1_1);
-        opts.useNamespaces = true;
-        opts.setCompactArrays(true);
-        opts.setUseNativeTypes(Boolean.TRUE);
         JsonLDWriteContext ctx = new JsonLDWriteContext();
-        ctx.setFrame(frame);
-        ctx.setOptions(opts);
-        gw.write(baos, model.getGraph(), pm, null, ctx);
-        ObjectMapper objectMapper = new ObjectMapper();
-        JsonNode jsonNode = objectMapper.readTree(baos.toByteArray());
-        return jsonNode;
+        ctx.setFrame(modelFrame);
+        ctx.setOptions(JsonSupport.framingOptions());
+        try {
+            Object framed = JsonLDWriter.toJsonLDJavaAPI((RDFFormat.JSONLDVariant) RDFFormat.JSONLD_FRAME_PRETTY.getVariant(), DatasetGraphFactory.wrap(model.getGraph()), pm, null, ctx);
+            return JsonSupport.valueToTree(framed);
+        } catch (JsonLdError ex) {
+            throw new IOException(ex);
+        }
     }
 
     public String toPlainJsonString(JsonNode jsonNode) throws IOException {
-        ObjectMapper objectMapper = new ObjectMapper();
-        return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(jsonNode.get("@graph"));
+        return JsonSupport.PRETTY_WRITER.writeValueAsString(jsonNode.get("@graph"));
     }
 
     public String toPlainJsonString(Model model,
                                     LinkedHashMap<String, Object> frame) throws IOException {
-        ObjectMapper objectMapper = new ObjectMapper();
         JsonNode jsonNode = toFramedJsonNode(model, frame);
-        return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(jsonNode.get("@graph"));
+        return JsonSupport.PRETTY_WRITER.writeValueAsString(jsonNode.get("@graph"));
     }
 
     public PrefixMap cleanUpPrefixes(PrefixMap map) {
@@ -352,25 +335,17 @@ public class ModelManager {
         PrefixMap pm = PrefixMapFactory.create();
         try {
             // FIXME: This is ugly hack for getting all of the prefixes from the json-ld context. For some reason urn namespaces are ignored by the parser.
-            Map jsonObject = (Map) JsonUtils.fromString(modelString);
-            Map context = (Map) jsonObject.get("@context");
-            context.forEach((key, value) -> {
-                if (value instanceof String && !LDHelper.isInvalidIRI((String) value)) {
-                    pm.add((String) key, (String) value);
+            // Only the context is read here, the document itself is parsed once by Jena.
+            JsonSupport.readContextPrefixes(modelString).forEach((key, value) -> {
+                if (!LDHelper.isInvalidIRI(value)) {
+                    pm.add(key, value);
                 }
             });
-            try (InputStream in = new ByteArrayInputStream(modelString.getBytes("UTF-8"))) {
-                RDFParser.create()
-                    .source(in)
+            try {
+                RDFParser.fromString(modelString)
                     .lang(Lang.JSONLD)
                     .errorHandler(ErrorHandlerFactory.errorHandlerStrict)
                     .parse(graph);
-            } catch (UnsupportedEncodingException ex) {
-                logger.error("Unsupported encoding", ex);
-                throw new IllegalArgumentException("Could not parse the model");
-            } catch (IOException ex) {
-                logger.error("IO Exp JSON-LD", ex);
-                throw new IllegalArgumentException("Could not parse the model");
             } catch (Exception ex) {
                 logger.error("Unexpected exception", ex);
                 throw new IllegalArgumentException("Could not parse the model");
@@ -0,0 +1,162 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.util.Date;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.datatypes.xsd.XSDDateTime;
+import org.apache.jena.query.ParameterizedSparqlString;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+import fi.vm.yti.datamodel.api.utils.LDHelper;
+
+/**
+ * In-memory index from model prefix to model graph and its last modification time.
+ * <p>
+ * Used when dereferencing model URIs so that redirects and Not Modified responses can be answered without
+ * querying Fuseki. Entries are updated by {@link GraphManager} when models are created, updated, removed or
+ * their content is modified. Entries also expire after resolverCacheTtl seconds, so that changes made by other
+ * instances of the API are picked up.
+ */
+@Service
+public class ModelResolverIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelResolverIndex.class.getName());
+
+    private final JenaClient jenaClient;
+    private final EndpointServices endpointServices;
+    private final Cache<String, Optional<ResolvedModel>> prefixCache;
+
+    @Autowired
+    ModelResolverIndex(JenaClient jenaClient,
+                       EndpointServices endpointServices,
+                       ApplicationProperties properties) {
+        this.jenaClient = jenaClient;
+        this.endpointServices = endpointServices;
+        this.prefixCache = CacheBuilder.newBuilder()
+            .expireAfterWrite(properties.getResolverCacheTtl(), TimeUnit.SECONDS)
+            .build();
+    }
+
+    public static final class ResolvedModel {
+
+        private final String prefix;
+        private final String graph;
+        private final Date modified;
+
+        ResolvedModel(String prefix,
+                      String graph,
+                      Date modified) {
+            this.prefix = prefix;
+            this.graph = graph;
+            this.modified = modified;
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+
+        public String getGraph() {
+            return graph;
+        }
+
+        /**
+         * Latest of iow:contentModified and dcterms:modified of the model
+         */
+        public Date getModified() {
+            return modified;
+        }
+
+        ResolvedModel withModified(Date newModified) {
+            return new ResolvedModel(prefix, graph, newModified);
+        }
+    }
+
+    /**
+     * Resolves model with prefix. Unknown prefixes are cached too, so repeated lookups do not hit Fuseki.
+     *
+     * @param prefix Prefix of the model
+     * @return Resolved model or null if there is no model with the prefix
+     */
+    public ResolvedModel resolve(String prefix) {
+        try {
+            return prefixCache.get(prefix, () -> Optional.ofNullable(queryModel(prefix))).orElse(null);
+        } catch (ExecutionException ex) {
+            logger.warn("Could not resolve prefix " + prefix, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Updates modification time of a cached model without querying Fuseki
+     *
+     * @param graph    Model IRI
+     * @param modified New modification time
+     */
+    public void modelModified(String graph,
+                              Date modified) {
+        prefixCache.asMap().replaceAll((prefix, entry) -> entry
+            .filter(model -> model.getGraph().equals(graph))
+            .map(model -> Optional.of(model.withModified(modified)))
+            .orElse(entry));
+    }
+
+    /**
+     * Removes cached entries of the model, for example when model is created, updated or deleted
+     *
+     * @param graph Model IRI
+     */
+    public void invalidateModel(String graph) {
+        prefixCache.asMap().entrySet().removeIf(entry -> entry.getValue()
+            .map(model -> model.getGraph().equals(graph))
+            .orElse(true));
+    }
+
+    public void invalidateAll() {
+        prefixCache.invalidateAll();
+    }
+
+    private ResolvedModel queryModel(String prefix) {
+
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        String selectModel =
+            "SELECT ?graph (MAX(?date) AS ?modified) WHERE { "
+                + "GRAPH ?graph { "
+                + "?graph a owl:Ontology . "
+                + "?graph dcap:preferredXMLNamespacePrefix ?prefix . "
+                + "OPTIONAL { ?graph iow:contentModified|dcterms:modified ?date . } "
+                + "}} GROUP BY ?graph";
+
+        pss.setNsPrefixes(LDHelper.PREFIX_MAP);
+        pss.setCommandText(selectModel);
+        pss.setLiteral("prefix", prefix);
+
+        ResultSet results = jenaClient.selectQuery(endpointServices.getCoreSparqlAddress(), pss.asQuery());
+
+        ResolvedModel model = null;
+
+        while (results.hasNext()) {
+            QuerySolution soln = results.nextSolution();
+            if (soln.contains("graph")) {
+                Date modified = null;
+                if (soln.contains("modified")) {
+                    modified = ((XSDDateTime) XSDDatatype.XSDdateTime.parse(soln.getLiteral("modified").getString())).asCalendar().getTime();
+                }
+                model = new ResolvedModel(prefix, soln.getResource("graph").getURI(), modified);
+            }
+        }
+
+        return model;
+    }
+}
@@ -0,0 +1,317 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import org.apache.jena.atlas.json.JsonArray;
+import org.apache.jena.atlas.json.JsonObject;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.engine.binding.Binding;
+import org.apache.jena.sparql.util.Context;
+
+import static fi.vm.yti.datamodel.api.service.UpstreamMetrics.FUSEKI;
+
+/**
+ * QueryExecution decorator that reports execution time and result size of remote SPARQL queries
+ * to {@link UpstreamMetrics} and {@link SparqlQueryLog}.
+ * <p>
+ * CONSTRUCT, DESCRIBE and ASK results are fully read when the exec call returns, so they are recorded immediately.
+ * SELECT results are streamed, so those are recorded when the result set is exhausted or the execution is closed.
+ * <p>
+ * Executions take a Fuseki slot of {@link UpstreamGuard} for as long as results are being read.
+ */
+class MonitoredQueryExecution implements QueryExecution {
+
+    private final QueryExecution delegate;
+    private final String dataset;
+    private final String queryString;
+    private final UpstreamMetrics metrics;
+    private final UpstreamGuard guard;
+    private final SparqlQueryLog queryLog;
+
+    private long selectStart;
+    private UpstreamGuard.Permit selectPermit;
+    private MonitoredResultSet selectResults;
+    private boolean recorded;
+
+    MonitoredQueryExecution(QueryExecution delegate,
+                            String dataset,
+                            String queryString,
+                            UpstreamMetrics metrics,
+                            UpstreamGuard guard,
+                            SparqlQueryLog queryLog) {
+        this.delegate = delegate;
+        this.dataset = dataset;
+        this.queryString = queryString;
+        this.metrics = metrics;
+        this.guard = guard;
+        this.queryLog = queryLog;
+    }
+
+    private <T> T monitor(String operation,
+                          Supplier<T> exec,
+                          ToLongFunction<T> size) {
+        UpstreamGuard.Permit permit = guard.acquire(FUSEKI);
+        final long start = System.nanoTime();
+        try {
+            T result = exec.get();
+            permit.success();
+            record(operation, System.nanoTime() - start, result != null ? size.applyAsLong(result) : 0, false);
+            return result;
+        } catch (RuntimeException ex) {
+            permit.failure(ex);
+            metrics.recordError(FUSEKI, dataset, operation, ex);
+            record(operation, System.nanoTime() - start, -1, true);
+            throw ex;
+        }
+    }
+
+    private void record(String operation,
+                        long durationNanos,
+                        long resultSize,
+                        boolean failed) {
+        metrics.recordTime(FUSEKI, dataset, operation, failed ? "ERROR" : "SUCCESS", durationNanos);
+        metrics.recordItems(FUSEKI, dataset, operation, resultSize);
+        queryLog.record(dataset, operation, queryString, durationNanos, resultSize, failed);
+    }
+
+    private synchronized void recordSelect(boolean failed,
+                                           RuntimeException error) {
+        if (recorded) {
+            return;
+        }
+        recorded = true;
+        if (selectPermit != null) {
+            if (error != null) {
+                selectPermit.failure(error);
+            } else {
+                selectPermit.success();
+            }
+        }
+        record("select", System.nanoTime() - selectStart, selectResults != null ? selectResults.rows : -1, failed);
+    }
+
+    @Override
+    public ResultSet execSelect() {
+        selectPermit = guard.acquire(FUSEKI);
+        selectStart = System.nanoTime();
+        try {
+            selectResults = new MonitoredResultSet(delegate.execSelect());
+            return selectResults;
+        } catch (RuntimeException ex) {
+            metrics.recordError(FUSEKI, dataset, "select", ex);
+            recordSelect(true, ex);
+            throw ex;
+        }
+    }
+
+    @Override
+    public Model execConstruct() {
+        return monitor("construct", delegate::execConstruct, Model::size);
+    }
+
+    @Override
+    public Model execConstruct(Model model) {
+        return monitor("construct", () -> delegate.execConstruct(model), Model::size);
+    }
+
+    @Override
+    public Iterator<Triple> execConstructTriples() {
+        return monitor("construct", delegate::execConstructTriples, it -> -1);
+    }
+
+    @Override
+    public Iterator<Quad> execConstructQuads() {
+        return monitor("construct", delegate::execConstructQuads, it -> -1);
+    }
+
+    @Override
+    public Dataset execConstructDataset() {
+        return monitor("construct", delegate::execConstructDataset, ds -> ds.getDefaultModel().size());
+    }
+
+    @Override
+    public Dataset execConstructDataset(Dataset dataset) {
+        return monitor("construct", () -> delegate.execConstructDataset(dataset), ds -> ds.getDefaultModel().size());
+    }
+
+    @Override
+    public Model execDescribe() {
+        return monitor("describe", delegate::execDescribe, Model::size);
+    }
+
+    @Override
+    public Model execDescribe(Model model) {
+        return monitor("describe", () -> delegate.execDescribe(model), Model::size);
+    }
+
+    @Override
+    public Iterator<Triple> execDescribeTriples() {
+        return monitor("describe", delegate::execDescribeTriples, it -> -1);
+    }
+
+    @Override
+    public boolean execAsk() {
+        return monitor("ask", delegate::execAsk, b -> 1);
+    }
+
+    @Override
+    public JsonArray execJson() {
+        return monitor("json", delegate::execJson, JsonArray::size);
+    }
+
+    @Override
+    public Iterator<JsonObject> execJsonItems() {
+        return monitor("json", delegate::execJsonItems, it -> -1);
+    }
+
+    @Override
+    public void close() {
+        try {
+            delegate.close();
+        } finally {
+            if (selectPermit != null) {
+                recordSelect(false, null);
+            }
+        }
+    }
+
+    @Override
+    public void setInitialBinding(QuerySolution binding) {
+        delegate.setInitialBinding(binding);
+    }
+
+    @Override
+    public Dataset getDataset() {
+        return delegate.getDataset();
+    }
+
+    @Override
+    public Context getContext() {
+        return delegate.getContext();
+    }
+
+    @Override
+    public Query getQuery() {
+        return delegate.getQuery();
+    }
+
+    @Override
+    public void abort() {
+        delegate.abort();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return delegate.isClosed();
+    }
+
+    @Override
+    public void setTimeout(long timeout,
+                           TimeUnit timeoutUnits) {
+        delegate.setTimeout(timeout, timeoutUnits);
+    }
+
+    @Override
+    public void setTimeout(long timeout) {
+        delegate.setTimeout(timeout);
+    }
+
+    @Override
+    public void setTimeout(long timeout1,
+                           TimeUnit timeUnit1,
+                           long timeout2,
+                           TimeUnit timeUnit2) {
+        delegate.setTimeout(timeout1, timeUnit1, timeout2, timeUnit2);
+    }
+
+    @Override
+    public void setTimeout(long timeout1,
+                           long timeout2) {
+        delegate.setTimeout(timeout1, timeout2);
+    }
+
+    @Override
+    public long getTimeout1() {
+        return delegate.getTimeout1();
+    }
+
+    @Override
+    public long getTimeout2() {
+        return delegate.getTimeout2();
+    }
+
+    /**
+     * Counts consumed rows and records the select when the last row has been read.
+     */
+    private class MonitoredResultSet implements ResultSet {
+
+        private final ResultSet results;
+        private long rows;
+
+        MonitoredResultSet(ResultSet results) {
+            this.results = results;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                boolean hasNext = results.hasNext();
+                if (!hasNext) {
+                    recordSelect(false, null);
+                }
+                return hasNext;
+            } catch (RuntimeException ex) {
+                metrics.recordError(FUSEKI, dataset, "select", ex);
+                recordSelect(true, ex);
+                throw ex;
+            }
+        }
+
+        @Override
+        public QuerySolution next() {
+            QuerySolution solution = results.next();
+            rows++;
+            return solution;
+        }
+
+        @Override
+        public QuerySolution nextSolution() {
+            QuerySolution solution = results.nextSolution();
+            rows++;
+            return solution;
+        }
+
+        @Override
+        public Binding nextBinding() {
+            Binding binding = results.nextBinding();
+            rows++;
+            return binding;
+        }
+
+        @Override
+        public int getRowNumber() {
+            return results.getRowNumber();
+        }
+
+        @Override
+        public List<String> getResultVars() {
+            return results.getResultVars();
+        }
+
+        @Override
+        public Model getResourceModel() {
+            return results.getResourceModel();
+        }
+    }
+}
@@ -5,18 +5,9 @@ package fi.vm.yti.datamodel.api.service;
 
 import fi.vm.yti.datamodel.api.utils.LDHelper;
 
-import org.apache.jena.atlas.RuntimeIOException;
-import org.apache.jena.atlas.web.ContentType;
-import org.apache.jena.atlas.web.HttpException;
 import org.apache.jena.iri.IRI;
-import org.apache.jena.iri.IRIException;
-import org.apache.jena.iri.IRIFactory;
 import org.apache.jena.query.*;
 import org.apache.jena.rdf.model.*;
-import org.apache.jena.riot.Lang;
-import org.apache.jena.riot.RDFDataMgr;
-import org.apache.jena.riot.RDFLanguages;
-import org.apache.jena.riot.RiotException;
 import org.apache.jena.vocabulary.RDF;
 import org.apache.jena.vocabulary.RDFS;
 import org.slf4j.Logger;
@@ -24,11 +15,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.net.*;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -38,12 +28,18 @@ public final class NamespaceManager {
 
     private final EndpointServices endpointServices;
     private final JenaClient jenaClient;
+    private final NamespaceResolver namespaceResolver;
+    private final ExternalCatalogue externalCatalogue;
 
     @Autowired
     NamespaceManager(EndpointServices endpointServices,
-                     JenaClient jenaClient) {
+                     JenaClient jenaClient,
+                     NamespaceResolver namespaceResolver,
+                     ExternalCatalogue externalCatalogue) {
         this.endpointServices = endpointServices;
         this.jenaClient = jenaClient;
+        this.namespaceResolver = namespaceResolver;
+        this.externalCatalogue = externalCatalogue;
     }
 
     /**
@@ -59,6 +55,7 @@ public final class NamespaceManager {
         Property preferredXMLNamespacePrefix = ResourceFactory.createProperty("http://purl.org/ws-mmi-dc/terms/preferredXMLNamespacePrefix");
         RDFNode nsTypeStandard = ResourceFactory.createResource("http://purl.org/dc/terms/Standard");
 
+        List<String> resolvableNamespaces = new ArrayList<>();
         Iterator i = LDHelper.PREFIX_MAP.entrySet().iterator();
 
         while (i.hasNext()) {
@@ -67,8 +64,7 @@ public final class NamespaceManager {
             String namespace = ns.getValue().toString();
 
             if (LDHelper.isPrefixResolvable(prefix)) {
-                // TODO: Check & optimize resolving
-                resolveNamespace(namespace, null, false);
+                resolvableNamespaces.add(namespace);
             }
 
             Resource nsResource = nsModel.createResource(namespace);
@@ -78,6 +74,8 @@ public final class NamespaceManager {
             nsModel.add(nsResource, RDF.type, nsTypeStandard);
         }
 
+        namespaceResolver.resolveAll(resolvableNamespaces);
+
         return nsModel;
 
     }
@@ -138,7 +136,7 @@ public final class NamespaceManager {
     }
 
     /**
-     * Saves model to import service
+     * Saves model to import service and replaces its catalogue
      *
      * @param namespace namespace of the schema
      * @param model     schema as jena model
@@ -146,6 +144,7 @@ public final class NamespaceManager {
     public void putSchemaToStore(String namespace,
                                  Model model) {
         jenaClient.putToImports(namespace, model);
+        externalCatalogue.build(namespace);
     }
 
     /**
@@ -182,8 +181,7 @@ public final class NamespaceManager {
 
         /* FIXME: j.0 namespace ISSUE!? */
 
-        DatasetAccessor fromAccessor = DatasetAccessorFactory.createHTTP(fromService);
-        Model classModel = fromAccessor.getModel(fromGraph);
+        Model classModel = jenaClient.getModelFromService(fromService, fromGraph);
 
         if (classModel == null) {
             throw new NullPointerException();
@@ -195,8 +193,7 @@ public final class NamespaceManager {
         copyNamespaces.setNsPrefixes(namespaces);
         copyNamespaces.removeNsPrefix("j.0");
 
-        DatasetAccessor toAccessor = DatasetAccessorFactory.createHTTP(toService);
-        toAccessor.add(toGraph, copyNamespaces);
+        jenaClient.addModelToService(toService, toGraph, copyNamespaces);
 
     }
 
@@ -222,7 +219,7 @@ public final class NamespaceManager {
 
         Map namespaceMap = new HashMap<String, String>();
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
 
             ResultSet results = qexec.execSelect();
 
@@ -281,7 +278,7 @@ public final class NamespaceManager {
 
         String type = null;
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getImportsSparqlAddress(), pss.asQuery())) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getImportsSparqlAddress(), pss.asQuery())) {
 
             ResultSet results = qexec.execSelect();
 
@@ -445,203 +442,17 @@ public final class NamespaceManager {
         return model;
     }
 
+    /**
+     * Fetches vocabulary of the namespace to the imports dataset, see {@link NamespaceResolver}
+     *
+     * @param namespace      Namespace of the vocabulary
+     * @param alternativeURL URL to fetch the vocabulary from instead of the namespace or null
+     * @param force          Fetch even if the vocabulary is already stored
+     * @return true if vocabulary is in store
+     */
     public boolean resolveNamespace(String namespace,
                                     String alternativeURL,
                                     boolean force) {
-
-        if(!namespace.startsWith("http") && (alternativeURL==null || alternativeURL.isEmpty() || !alternativeURL.startsWith("http"))) {
-            return false;
-        }
-
-        try { // Unexpected exception
-
-            IRI namespaceIRI = null;
-            IRI alternativeIRI = null;
-
-            try {
-                IRIFactory iri = IRIFactory.iriImplementation();
-                namespaceIRI = iri.construct(namespace);
-
-                if (alternativeURL != null) {
-                    alternativeIRI = iri.construct(alternativeURL);
-                }
-
-            } catch (IRIException e) {
-                logger.warn("Namespace is invalid IRI!");
-                return false;
-            }
-
-            if (isSchemaInStore(namespace) && !force) {
-                logger.info("Schema found in store: " + namespace);
-                return true;
-            } else {
-                logger.info("Trying to connect to: " + namespace);
-                Model model = ModelFactory.createDefaultModel();
-
-                URL url;
-
-                try {
-                    if (alternativeIRI != null) {
-                        url = new URL(alternativeURL);
-                    } else {
-                        url = new URL(namespace);
-                    }
-                } catch (MalformedURLException e) {
-                    logger.warn("Malformed Namespace URL: " + namespace);
-                    return false;
-                }
-
-                if (!("https".equals(url.getProtocol()) || "http".equals(url.getProtocol()))) {
-                    logger.warn("Namespace NOT http or https: " + namespace);
-                    return false;
-                }
-
-                HttpURLConnection connection = null;
-
-                try { // IOException
-
-                    connection = (HttpURLConnection) url.openConnection();
-                    // 2,5 seconds
-                    connection.setConnectTimeout(8000);
-                    // 2,5 minutes
-                    connection.setReadTimeout(30000);
-                    connection.setInstanceFollowRedirects(true);
-                    //,text/rdf+n3,application/turtle,application/rdf+n3
-                    //"application/rdf+xml,application/xml,text/html");
-                    connection.setRequestProperty("Accept", "application/rdf+xml;q=1,application/turtle;q=0.8,application/x-turtle;q=0.8,text/turtle;q=0.8,text/rdf+n3;q=0.5,application/n3;q=0.5,text/n3;q=0.5");
-
-                    try { // SocketTimeOut
-
-                        connection.connect();
-
-                        InputStream stream;
-
-                        try {
-                            stream = connection.getInputStream();
-                        } catch (IOException e) {
-                            try {
-                                // Try fallback to rdf/xml or turtle without q factor
-                                connection = (HttpURLConnection) url.openConnection();
-                                connection.setConnectTimeout(8000);
-                                connection.setReadTimeout(30000);
-                                connection.setInstanceFollowRedirects(true);
-                                connection.setRequestProperty("Accept", "application/rdf+xml,application/turtle,text/turtle");
-                                stream = connection.getInputStream();
-                            } catch (IOException ex) {
-                                logger.warn(ex.getMessage());
-                                logger.warn("Couldnt read from " + namespace);
-                                return false;
-                            }
-                        }
-
-                        String resolvedUrl = connection.getURL().toString();
-                        logger.info("Opened connection");
-                        logger.info("Resolved URL: " + resolvedUrl);
-                        logger.info("Content-Type: " + connection.getContentType());
-
-                        if (connection.getContentType() == null) {
-                            logger.info("Couldnt resolve Content-Type from: " + namespace);
-                            return false;
-                        }
-
-                        String contentType = connection.getContentType();
-
-                        if (contentType == null) {
-                            logger.info("ContentType is null");
-                            stream.close();
-                            connection.disconnect();
-                            return false;
-                        }
-
-                        ContentType guess = ContentType.create(contentType);
-                        Lang testLang = RDFLanguages.contentTypeToLang(guess);
-
-                        if (contentType.equals("application/xml") || resolvedUrl.endsWith(".xml") || resolvedUrl.endsWith(".rdf")) {
-                            // Try parsing as rdf/xml
-                            testLang = RDFLanguages.fileExtToLang("rdf");
-                        } else if (resolvedUrl.endsWith(".ttl")) {
-                            testLang = RDFLanguages.fileExtToLang("ttl");
-                        } else if (resolvedUrl.endsWith(".nt")) {
-                            testLang = RDFLanguages.fileExtToLang("nt");
-                        } else if (resolvedUrl.endsWith(".jsonld")) {
-                            testLang = RDFLanguages.fileExtToLang("jsonld");
-                        }
-
-                        if (testLang != null) {
-
-                            logger.info("Trying to parse " + testLang.getName() + " from " + namespace);
-
-                            RDFReader reader = model.getReader(testLang.getName());
-
-                            reader.setProperty("error-mode", "lax");
-
-                            try {
-                                logger.info("" + stream.available());
-                                reader.read(model, stream, namespace);
-                            } catch (RiotException e) {
-                                logger.info("Could not read file from " + namespace);
-                                return false;
-                            }
-
-                            stream.close();
-                            connection.disconnect();
-
-                        } else {
-                            logger.info("Could not parse RDF format from content-type!");
-                            try {
-                                // TODO: This seems to parse RDF even from wrong content-types text/html etc.
-                                model = RDFDataMgr.loadModel(resolvedUrl);
-                                logger.info("Parsed something out of " + contentType + " from " + resolvedUrl);
-                            } catch (RiotException e) {
-                                logger.info("Failed to parse RDF using " + contentType + " from " + resolvedUrl);
-                                return false;
-                            }
-
-                            stream.close();
-                            connection.disconnect();
-                        }
-
-                    } catch (UnknownHostException e) {
-                        logger.warn("Invalid hostname " + namespace);
-                        return false;
-                    } catch (SocketTimeoutException e) {
-                        logger.info("Timeout from " + namespace);
-                        logger.warn(e.getMessage(), e);
-                        return false;
-                    } catch (RuntimeIOException e) {
-                        logger.info("Could not parse " + namespace);
-                        logger.warn(e.getMessage(), e);
-                        return false;
-                    }
-
-                } catch (IOException e) {
-                    logger.info("Could not read file from " + namespace);
-                    return false;
-                }
-
-                logger.info("Model-size is: " + model.size());
-
-                try {
-                    if (model.size() > 1) {
-                        putSchemaToStore(namespace, model);
-                    } else {
-                        logger.warn("Namespace contains empty schema: " + namespace);
-                        return false;
-                    }
-
-                    return true;
-
-                } catch (HttpException ex) {
-                    logger.warn("Error in saving the model loaded from " + namespace);
-                    return false;
-                }
-
-            }
-
-        } catch (Exception ex) {
-            logger.warn("Error in loading the " + namespace);
-            logger.warn(ex.getMessage(), ex);
-            return false;
-        }
+        return namespaceResolver.resolve(namespace, alternativeURL, force);
     }
 }
@@ -0,0 +1,562 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.jena.atlas.RuntimeIOException;
+import org.apache.jena.atlas.web.ContentType;
+import org.apache.jena.datatypes.xsd.XSDDateTime;
+import org.apache.jena.iri.IRIException;
+import org.apache.jena.iri.IRIFactory;
+import org.apache.jena.query.ParameterizedSparqlString;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.RDFReader;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.RiotException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+import fi.vm.yti.datamodel.api.utils.LDHelper;
+
+/**
+ * Fetches external vocabularies to the imports dataset.
+ * <p>
+ * Namespaces are resolved concurrently with a bounded pool and concurrent requests for the same namespace share
+ * one fetch. Fetch time and HTTP validators (ETag, Last-Modified) of stored vocabularies are kept in
+ * {@value #RESOLVED_NAMESPACES_GRAPH} together with the URL the vocabulary was fetched from. Vocabularies older than
+ * namespaceRevalidateAfter seconds are served as stored and revalidated in the background with a conditional request
+ * to the same URL. Failed fetches are not retried before an exponentially growing backoff has passed.
+ */
+@Service
+public class NamespaceResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(NamespaceResolver.class.getName());
+
+    static final String RESOLVED_NAMESPACES_GRAPH = "urn:csc:iow:resolvedNamespaces";
+    private static final String ACCEPT = "application/rdf+xml;q=1,application/turtle;q=0.8,application/x-turtle;q=0.8,text/turtle;q=0.8,text/rdf+n3;q=0.5,application/n3;q=0.5,text/n3;q=0.5";
+    private static final String FALLBACK_ACCEPT = "application/rdf+xml,application/turtle,text/turtle";
+    private static final int CONNECT_TIMEOUT = 8000;
+    private static final int READ_TIMEOUT = 30000;
+    private static final long MAX_BACKOFF_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private final JenaClient jenaClient;
+    private final EndpointServices endpointServices;
+    private final ExternalCatalogue externalCatalogue;
+    private final long revalidateAfterMillis;
+    private final long retryBackoffMillis;
+    private final ExecutorService executor;
+    private final Map<String, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+    private final Map<String, Failure> failures = new ConcurrentHashMap<>();
+
+    @Autowired
+    NamespaceResolver(JenaClient jenaClient,
+                      EndpointServices endpointServices,
+                      ExternalCatalogue externalCatalogue,
+                      ApplicationProperties properties) {
+        this.jenaClient = jenaClient;
+        this.endpointServices = endpointServices;
+        this.externalCatalogue = externalCatalogue;
+        this.revalidateAfterMillis = properties.getNamespaceRevalidateAfter() * 1000;
+        this.retryBackoffMillis = properties.getNamespaceRetryBackoff() * 1000;
+        this.executor = Executors.newFixedThreadPool(properties.getNamespaceResolverThreads(), new ThreadFactoryBuilder().setNameFormat("namespace-resolver-%d").setDaemon(true).build());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Failed resolution attempts of a namespace
+     */
+    static final class Failure {
+
+        private final int attempts;
+        private final long retryAt;
+
+        Failure(int attempts,
+                long retryAt) {
+            this.attempts = attempts;
+            this.retryAt = retryAt;
+        }
+    }
+
+    /**
+     * HTTP validators of a stored vocabulary
+     */
+    static final class Validators {
+
+        private final Date fetched;
+        private final String source;
+        private final String etag;
+        private final String lastModified;
+
+        Validators(Date fetched,
+                   String source,
+                   String etag,
+                   String lastModified) {
+            this.fetched = fetched;
+            this.source = source;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        Date getFetched() {
+            return fetched;
+        }
+
+        /**
+         * Alternative URL the vocabulary was fetched from or null if it was fetched from the namespace
+         */
+        String getSource() {
+            return source;
+        }
+
+        String getEtag() {
+            return etag;
+        }
+
+        String getLastModified() {
+            return lastModified;
+        }
+    }
+
+    /**
+     * Result of single HTTP fetch
+     */
+    static final class FetchResult {
+
+        private final Model model;
+        private final boolean notModified;
+        private final String etag;
+        private final String lastModified;
+        private final String error;
+
+        private FetchResult(Model model,
+                            boolean notModified,
+                            String etag,
+                            String lastModified,
+                            String error) {
+            this.model = model;
+            this.notModified = notModified;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.error = error;
+        }
+
+        static FetchResult ok(Model model,
+                              String etag,
+                              String lastModified) {
+            return new FetchResult(model, false, etag, lastModified, null);
+        }
+
+        static FetchResult notModified() {
+            return new FetchResult(null, true, null, null, null);
+        }
+
+        static FetchResult failed(String error) {
+            return new FetchResult(null, false, null, null, error);
+        }
+
+        Model getModel() {
+            return model;
+        }
+
+        boolean isNotModified() {
+            return notModified;
+        }
+
+        boolean isFailed() {
+            return error != null;
+        }
+
+        String getEtag() {
+            return etag;
+        }
+
+        String getLastModified() {
+            return lastModified;
+        }
+
+        String getError() {
+            return error;
+        }
+    }
+
+    /**
+     * Resolves namespace and waits for the result
+     *
+     * @param namespace      Namespace of the vocabulary
+     * @param alternativeURL URL to fetch the vocabulary from instead of the namespace or null
+     * @param force          Fetch even if the vocabulary is stored or the namespace is backed off
+     * @return true if vocabulary is in store
+     */
+    public boolean resolve(String namespace,
+                           String alternativeURL,
+                           boolean force) {
+        return resolveAsync(namespace, alternativeURL, force).join();
+    }
+
+    /**
+     * Resolves namespaces concurrently and waits for all of them
+     *
+     * @return Result by namespace
+     */
+    public Map<String, Boolean> resolveAll(Collection<String> namespaces) {
+        Map<String, CompletableFuture<Boolean>> futures = new LinkedHashMap<>();
+        namespaces.forEach(namespace -> futures.put(namespace, resolveAsync(namespace, null, false)));
+        Map<String, Boolean> results = new LinkedHashMap<>();
+        futures.forEach((namespace, future) -> results.put(namespace, future.join()));
+        return results;
+    }
+
+    public CompletableFuture<Boolean> resolveAsync(String namespace,
+                                                   String alternativeURL,
+                                                   boolean force) {
+        String key = alternativeURL != null ? namespace + " " + alternativeURL : namespace;
+        CompletableFuture<Boolean> resolution = new CompletableFuture<>();
+        CompletableFuture<Boolean> running = inFlight.putIfAbsent(key, resolution);
+        if (running != null) {
+            return running;
+        }
+        executor.execute(() -> {
+            boolean resolved = resolveNow(namespace, alternativeURL, force);
+            inFlight.remove(key, resolution);
+            resolution.complete(resolved);
+        });
+        return resolution;
+    }
+
+    boolean resolveNow(String namespace,
+                       String alternativeURL,
+                       boolean force) {
+        try {
+            long now = System.currentTimeMillis();
+
+            if (!force && jenaClient.containsSchemaModel(namespace)) {
+                Validators validators = getValidators(namespace);
+                if (validators != null && validators.getFetched() != null && validators.getFetched().getTime() + revalidateAfterMillis > now) {
+                    logger.debug("Schema found in store: " + namespace);
+                } else if (!isBackedOff(namespace, now)) {
+                    revalidateLater(namespace, alternativeURL != null ? alternativeURL : validators != null ? validators.getSource() : null, validators);
+                }
+                // Stored vocabulary is usable while it is being revalidated
+                return true;
+            }
+
+            URL url = toURL(namespace, alternativeURL);
+            if (url == null) {
+                return false;
+            }
+
+            if (force) {
+                failures.remove(namespace);
+            } else if (isBackedOff(namespace, now)) {
+                logger.info("Not resolving " + namespace + " before backoff has passed");
+                return false;
+            }
+
+            logger.info("Trying to connect to: " + namespace);
+            return store(namespace, alternativeURL, fetch(namespace, url, null), now);
+
+        } catch (Exception ex) {
+            logger.warn("Error in loading the " + namespace, ex);
+            recordFailure(namespace, System.currentTimeMillis());
+            return false;
+        }
+    }
+
+    /**
+     * Revalidates stored vocabulary in the background. Validators are sent only if they were received from the
+     * same URL.
+     */
+    private void revalidateLater(String namespace,
+                                 String source,
+                                 Validators validators) {
+        if (!revalidating.add(namespace)) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                URL url = toURL(namespace, source);
+                if (url != null) {
+                    logger.info("Revalidating " + namespace);
+                    Validators conditional = validators != null && Objects.equals(validators.getSource(), source) ? validators : null;
+                    store(namespace, source, fetch(namespace, url, conditional), System.currentTimeMillis());
+                }
+            } catch (Exception ex) {
+                logger.warn("Error in revalidating the " + namespace, ex);
+                recordFailure(namespace, System.currentTimeMillis());
+            } finally {
+                revalidating.remove(namespace);
+            }
+        });
+    }
+
+    private URL toURL(String namespace,
+                      String alternativeURL) {
+
+        if (!namespace.startsWith("http") && (alternativeURL == null || alternativeURL.isEmpty() || !alternativeURL.startsWith("http"))) {
+            return null;
+        }
+
+        try {
+            IRIFactory iri = IRIFactory.iriImplementation();
+            iri.construct(namespace);
+            if (alternativeURL != null) {
+                iri.construct(alternativeURL);
+            }
+        } catch (IRIException e) {
+            logger.warn("Namespace is invalid IRI!");
+            return null;
+        }
+
+        URL url;
+
+        try {
+            url = new URL(alternativeURL != null ? alternativeURL : namespace);
+        } catch (MalformedURLException e) {
+            logger.warn("Malformed Namespace URL: " + namespace);
+            return null;
+        }
+
+        if (!("https".equals(url.getProtocol()) || "http".equals(url.getProtocol()))) {
+            logger.warn("Namespace NOT http or https: " + namespace);
+            return null;
+        }
+
+        return url;
+    }
+
+    private boolean store(String namespace,
+                          String source,
+                          FetchResult result,
+                          long now) {
+        if (result.isFailed()) {
+            logger.info("Could not resolve " + namespace + ": " + result.getError());
+            recordFailure(namespace, now);
+            return false;
+        }
+        failures.remove(namespace);
+        if (result.isNotModified()) {
+            logger.info("Schema not modified: " + namespace);
+            Validators validators = getValidators(namespace);
+            putValidators(namespace, new Validators(new Date(now), source, validators != null ? validators.getEtag() : null, validators != null ? validators.getLastModified() : null));
+        } else {
+            logger.info("Model-size is: " + result.getModel().size());
+            jenaClient.putToImports(namespace, result.getModel());
+            externalCatalogue.build(namespace);
+            putValidators(namespace, new Validators(new Date(now), source, result.getEtag(), result.getLastModified()));
+        }
+        return true;
+    }
+
+    boolean isBackedOff(String namespace,
+                        long now) {
+        Failure failure = failures.get(namespace);
+        return failure != null && failure.retryAt > now;
+    }
+
+    void recordFailure(String namespace,
+                       long now) {
+        failures.compute(namespace, (ns, previous) -> {
+            int attempts = previous == null ? 1 : previous.attempts + 1;
+            long backoff = Math.min(MAX_BACKOFF_MILLIS, retryBackoffMillis << Math.min(attempts - 1, 20));
+            return new Failure(attempts, now + backoff);
+        });
+    }
+
+    /**
+     * Fetches and parses vocabulary. Sends conditional request if validators are given.
+     */
+    FetchResult fetch(String namespace,
+                      URL url,
+                      Validators validators) {
+
+        HttpURLConnection connection = null;
+
+        try {
+            connection = openConnection(url, ACCEPT, validators);
+
+            if (connection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return FetchResult.notModified();
+            }
+
+            if (connection.getResponseCode() >= 400) {
+                // Try fallback to rdf/xml or turtle without q factor
+                connection.disconnect();
+                connection = openConnection(url, FALLBACK_ACCEPT, validators);
+                if (connection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                    return FetchResult.notModified();
+                }
+                if (connection.getResponseCode() >= 400) {
+                    return FetchResult.failed("HTTP " + connection.getResponseCode());
+                }
+            }
+
+            String resolvedUrl = connection.getURL().toString();
+            String contentType = connection.getContentType();
+            logger.info("Resolved URL: " + resolvedUrl);
+            logger.info("Content-Type: " + contentType);
+
+            if (contentType == null) {
+                return FetchResult.failed("Couldnt resolve Content-Type");
+            }
+
+            Lang testLang = RDFLanguages.contentTypeToLang(ContentType.create(contentType));
+
+            if (contentType.equals("application/xml") || resolvedUrl.endsWith(".xml") || resolvedUrl.endsWith(".rdf")) {
+                // Try parsing as rdf/xml
+                testLang = RDFLanguages.fileExtToLang("rdf");
+            } else if (resolvedUrl.endsWith(".ttl")) {
+                testLang = RDFLanguages.fileExtToLang("ttl");
+            } else if (resolvedUrl.endsWith(".nt")) {
+                testLang = RDFLanguages.fileExtToLang("nt");
+            } else if (resolvedUrl.endsWith(".jsonld")) {
+                testLang = RDFLanguages.fileExtToLang("jsonld");
+            }
+
+            Model model = ModelFactory.createDefaultModel();
+
+            if (testLang != null) {
+                logger.info("Trying to parse " + testLang.getName() + " from " + namespace);
+                RDFReader reader = model.getReader(testLang.getName());
+                reader.setProperty("error-mode", "lax");
+                try (InputStream stream = connection.getInputStream()) {
+                    reader.read(model, stream, namespace);
+                } catch (RiotException e) {
+                    return FetchResult.failed("Could not parse " + testLang.getName());
+                }
+            } else {
+                logger.info("Could not parse RDF format from content-type!");
+                try {
+                    // TODO: This seems to parse RDF even from wrong content-types text/html etc.
+                    model = RDFDataMgr.loadModel(resolvedUrl);
+                    logger.info("Parsed something out of " + contentType + " from " + resolvedUrl);
+                } catch (RiotException e) {
+                    return FetchResult.failed("Failed to parse RDF using " + contentType);
+                }
+            }
+
+            if (model.size() <= 1) {
+                return FetchResult.failed("Namespace contains empty schema");
+            }
+
+            return FetchResult.ok(model, connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"));
+
+        } catch (UnknownHostException e) {
+            return FetchResult.failed("Invalid hostname");
+        } catch (SocketTimeoutException e) {
+            return FetchResult.failed("Timeout");
+        } catch (IOException | RuntimeIOException e) {
+            return FetchResult.failed(e.getMessage());
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    private HttpURLConnection openConnection(URL url,
+                                             String accept,
+                                             Validators validators) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT);
+        connection.setReadTimeout(READ_TIMEOUT);
+        connection.setInstanceFollowRedirects(true);
+        connection.setRequestProperty("Accept", accept);
+        if (validators != null) {
+            if (validators.getEtag() != null) {
+                connection.setRequestProperty("If-None-Match", validators.getEtag());
+            }
+            if (validators.getLastModified() != null) {
+                connection.setRequestProperty("If-Modified-Since", validators.getLastModified());
+            }
+        }
+        connection.connect();
+        return connection;
+    }
+
+    Validators getValidators(String namespace) {
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        pss.setNsPrefixes(LDHelper.PREFIX_MAP);
+        pss.setCommandText("SELECT ?fetched ?source ?etag ?lastModified WHERE { GRAPH ?graph { "
+            + "?namespace iow:fetched ?fetched . "
+            + "OPTIONAL { ?namespace iow:source ?source . } "
+            + "OPTIONAL { ?namespace iow:etag ?etag . } "
+            + "OPTIONAL { ?namespace iow:lastModified ?lastModified . } "
+            + "}}");
+        pss.setIri("graph", RESOLVED_NAMESPACES_GRAPH);
+        pss.setIri("namespace", namespace);
+
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getImportsSparqlAddress(), pss.asQuery())) {
+            ResultSet results = qexec.execSelect();
+            if (!results.hasNext()) {
+                return null;
+            }
+            QuerySolution soln = results.nextSolution();
+            Object fetched = soln.getLiteral("fetched").getValue();
+            return new Validators(fetched instanceof XSDDateTime ? ((XSDDateTime) fetched).asCalendar().getTime() : null,
+                soln.contains("source") ? soln.getResource("source").getURI() : null,
+                soln.contains("etag") ? soln.getLiteral("etag").getString() : null,
+                soln.contains("lastModified") ? soln.getLiteral("lastModified").getString() : null);
+        }
+    }
+
+    void putValidators(String namespace,
+                       Validators validators) {
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        pss.setNsPrefixes(LDHelper.PREFIX_MAP);
+        pss.setCommandText("DELETE WHERE { GRAPH ?graph { ?namespace ?p ?o . }}; "
+            + "INSERT DATA { GRAPH ?graph { ?namespace iow:fetched ?fetched . "
+            + (validators.getSource() != null ? "?namespace iow:source ?source . " : "")
+            + (validators.getEtag() != null ? "?namespace iow:etag ?etag . " : "")
+            + (validators.getLastModified() != null ? "?namespace iow:lastModified ?lastModified . " : "")
+            + "}}");
+        pss.setIri("graph", RESOLVED_NAMESPACES_GRAPH);
+        pss.setIri("namespace", namespace);
+        Calendar fetched = Calendar.getInstance();
+        fetched.setTime(validators.getFetched());
+        pss.setLiteral("fetched", fetched);
+        if (validators.getSource() != null) {
+            pss.setIri("source", validators.getSource());
+        }
+        if (validators.getEtag() != null) {
+            pss.setLiteral("etag", validators.getEtag());
+        }
+        if (validators.getLastModified() != null) {
+            pss.setLiteral("lastModified", validators.getLastModified());
+        }
+        jenaClient.updateToService(pss.asUpdate(), endpointServices.getImportsSparqlUpdateAddress());
+    }
+}
@@ -12,9 +12,9 @@ import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonArrayBuilder;
+import javax.json.JsonBuilderFactory;
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
 import javax.json.JsonWriter;
@@ -22,7 +22,6 @@ import javax.json.JsonWriterFactory;
 
 import org.apache.jena.query.ParameterizedSparqlString;
 import org.apache.jena.query.QueryExecution;
-import org.apache.jena.query.QueryExecutionFactory;
 import org.apache.jena.query.QuerySolution;
 import org.apache.jena.query.ResultSet;
 import org.apache.jena.query.ResultSetFactory;
@@ -71,14 +70,20 @@ public class OpenAPIWriter {
         }});
     private final EndpointServices endpointServices;
     private final JsonWriterFactory jsonWriterFactory;
+    private final JsonBuilderFactory jsonBuilderFactory;
     private final GraphManager graphManager;
+    private final JenaClient jenaClient;
 
     OpenAPIWriter(EndpointServices endpointServices,
                   JsonWriterFactory jsonWriterFactory,
-                  GraphManager graphManager) {
+                  JsonBuilderFactory jsonBuilderFactory,
+                  GraphManager graphManager,
+                  JenaClient jenaClient) {
         this.endpointServices = endpointServices;
         this.jsonWriterFactory = jsonWriterFactory;
+        this.jsonBuilderFactory = jsonBuilderFactory;
         this.graphManager = graphManager;
+        this.jenaClient = jenaClient;
     }
 
     public String jsonObjectToPrettyString(JsonObject object) {
@@ -90,7 +95,7 @@ public class OpenAPIWriter {
     }
 
     public JsonArray getSchemeValueList(String schemeID) {
-        JsonArrayBuilder builder = Json.createArrayBuilder();
+        JsonArrayBuilder builder = jsonBuilderFactory.createArrayBuilder();
 
         ParameterizedSparqlString pss = new ParameterizedSparqlString();
 
@@ -106,7 +111,7 @@ public class OpenAPIWriter {
         pss.setNsPrefixes(LDHelper.PREFIX_MAP);
         pss.setCommandText(selectList);
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getSchemesSparqlAddress(), pss.toString())) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getSchemesSparqlAddress(), pss.toString())) {
 
             ResultSet results = qexec.execSelect();
 
@@ -126,7 +131,7 @@ public class OpenAPIWriter {
 
     public JsonArray getValueList(String classID,
                                   String propertyID) {
-        JsonArrayBuilder builder = Json.createArrayBuilder();
+        JsonArrayBuilder builder = jsonBuilderFactory.createArrayBuilder();
 
         ParameterizedSparqlString pss = new ParameterizedSparqlString();
 
@@ -144,7 +149,7 @@ public class OpenAPIWriter {
         pss.setNsPrefixes(LDHelper.PREFIX_MAP);
         pss.setCommandText(selectList);
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.toString())) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), pss.toString())) {
 
             ResultSet results = qexec.execSelect();
 
@@ -230,28 +235,29 @@ public class OpenAPIWriter {
         pss.setCommandText(selectResources);
         pss.setNsPrefixes(LDHelper.PREFIX_MAP);
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
 
-            ResultSet results = qexec.execSelect();
+            // Results are copied so that the Fuseki slot is released before value lists are queried
+            ResultSet results = ResultSetFactory.copyResults(qexec.execSelect());
             ResultSetPeekable pResults = ResultSetFactory.makePeekable(results);
 
             if (!pResults.hasNext()) {
                 return null;
             }
 
-            JsonObjectBuilder paths = Json.createObjectBuilder();
-            JsonArrayBuilder tags = Json.createArrayBuilder();
-            JsonObjectBuilder definitions = Json.createObjectBuilder();
-            JsonObjectBuilder properties = Json.createObjectBuilder();
+            JsonObjectBuilder paths = jsonBuilderFactory.createObjectBuilder();
+            JsonArrayBuilder tags = jsonBuilderFactory.createArrayBuilder();
+            JsonObjectBuilder definitions = jsonBuilderFactory.createObjectBuilder();
+            JsonObjectBuilder properties = jsonBuilderFactory.createObjectBuilder();
 
-            JsonObjectBuilder predicate = Json.createObjectBuilder();
+            JsonObjectBuilder predicate = jsonBuilderFactory.createObjectBuilder();
 
             HashSet<String> exampleSet = new HashSet<String>();
             HashSet<String> pathSet = new HashSet<String>();
             HashSet<String> requiredPredicates = new HashSet<String>();
 
-            JsonArrayBuilder exampleList = Json.createArrayBuilder();
-            JsonObjectBuilder typeObject = Json.createObjectBuilder();
+            JsonArrayBuilder exampleList = jsonBuilderFactory.createArrayBuilder();
+            JsonObjectBuilder typeObject = jsonBuilderFactory.createObjectBuilder();
             boolean arrayType = false;
 
             int pIndex = 1;
@@ -395,7 +401,7 @@ public class OpenAPIWriter {
                                         }
                                         predicate.add("type", "array");
 
-                                        predicate.add("items", Json.createObjectBuilder().add("type", "object").add("$ref", "#/components/schemas/" + shapeRefName).build());
+                                        predicate.add("items", jsonBuilderFactory.createObjectBuilder().add("type", "object").add("$ref", "#/components/schemas/" + shapeRefName).build());
                                     } else {
                                         /* Not required by Open API spec ? */
                                         // predicate.add("type", "object");
@@ -445,26 +451,26 @@ public class OpenAPIWriter {
 
                             properties.add(predicateName, predicate.build());
 
-                            predicate = Json.createObjectBuilder();
-                            typeObject = Json.createObjectBuilder();
+                            predicate = jsonBuilderFactory.createObjectBuilder();
+                            typeObject = jsonBuilderFactory.createObjectBuilder();
                             arrayType = false;
                             pIndex = 1;
                             exampleSet = new HashSet<String>();
-                            exampleList = Json.createArrayBuilder();
+                            exampleList = jsonBuilderFactory.createArrayBuilder();
                         }
                     }
 
                     /* If not build props and requires */
                     if (!pResults.hasNext() || !className.equals(pResults.peek().getLiteral("className").getString())) {
-                        predicate = Json.createObjectBuilder();
-                        JsonObjectBuilder classDefinition = Json.createObjectBuilder();
+                        predicate = jsonBuilderFactory.createObjectBuilder();
+                        JsonObjectBuilder classDefinition = jsonBuilderFactory.createObjectBuilder();
 
                         if (soln.contains("classTitle")) {
                             classDefinition.add("title", soln.getLiteral("classTitle").getString());
                         }
                         classDefinition.add("type", "object");
 
-                        JsonObjectBuilder uriDocs = Json.createObjectBuilder();
+                        JsonObjectBuilder uriDocs = jsonBuilderFactory.createObjectBuilder();
                         uriDocs.add("url", classId);
                         uriDocs.add("description", "Class identifier");
                         classDefinition.add("externalDocs", uriDocs.build());
@@ -494,12 +500,12 @@ public class OpenAPIWriter {
 
                         if (!pathSet.isEmpty()) {
 
-                            JsonObjectBuilder tagObject = Json.createObjectBuilder();
+                            JsonObjectBuilder tagObject = jsonBuilderFactory.createObjectBuilder();
                             tagObject.add("name", className);
 
                                  /*
                                 // TAG description object if needed?
-                                JsonObjectBuilder tagDocs = Json.createObjectBuilder();
+                                JsonObjectBuilder tagDocs = jsonBuilderFactory.createObjectBuilder();
                                 tagDocs.add("url",classId);
                                 tagDocs.add("description","Documentation");
                                 tagObject.add("externalDocs",tagDocs.build());
@@ -511,18 +517,18 @@ public class OpenAPIWriter {
 
                             while (i.hasNext()) {
 
-                                JsonArrayBuilder paramList = Json.createArrayBuilder();
+                                JsonArrayBuilder paramList = jsonBuilderFactory.createArrayBuilder();
                                 String pathString = i.next();
                                 if (!pathString.startsWith("/")) pathString = "/" + pathString;
-                                JsonObjectBuilder pathObject = Json.createObjectBuilder();
+                                JsonObjectBuilder pathObject = jsonBuilderFactory.createObjectBuilder();
 
                                 // Parse query parameters from path string
                                 UriComponents bld = UriComponentsBuilder.fromUriString(pathString).build();
                                 MultiValueMap<String, String> queryParameters = bld.getQueryParams();
                                 pathString = bld.getPath();
                                 queryParameters.forEach((k, v) -> {
-                                    JsonObjectBuilder paramObject = Json.createObjectBuilder();
-                                    JsonObjectBuilder schemaObject = Json.createObjectBuilder();
+                                    JsonObjectBuilder paramObject = jsonBuilderFactory.createObjectBuilder();
+                                    JsonObjectBuilder schemaObject = jsonBuilderFactory.createObjectBuilder();
                                     schemaObject.add("type", "string");
                                     if (!v.isEmpty() && v.get(0) != null) schemaObject.add("example", v.get(0));
                                     paramObject.add("name", k);
@@ -534,8 +540,8 @@ public class OpenAPIWriter {
                                 // Parse path parameters from path string
                                 Matcher m = Pattern.compile("\\{(.*?)\\}").matcher(pathString);
                                 while (m.find()) {
-                                    JsonObjectBuilder paramObject = Json.createObjectBuilder();
-                                    JsonObjectBuilder schemaObject = Json.createObjectBuilder();
+                                    JsonObjectBuilder paramObject = jsonBuilderFactory.createObjectBuilder();
+                                    JsonObjectBuilder schemaObject = jsonBuilderFactory.createObjectBuilder();
                                     schemaObject.add("type", "string");
                                     paramObject.add("name", m.group(1));
                                     paramObject.add("in", "path");
@@ -548,19 +554,19 @@ public class OpenAPIWriter {
                                 JsonObject invalidParameterObject = null;
                                 if (!parameters.isEmpty()) {
                                     pathObject.add("parameters", parameters);
-                                    JsonObjectBuilder invalidparam = Json.createObjectBuilder();
+                                    JsonObjectBuilder invalidparam = jsonBuilderFactory.createObjectBuilder();
                                     invalidparam.add("description", "Invalid parameter");
                                     invalidParameterObject = invalidparam.build();
                                 }
 
                                 /* GET API */
-                                JsonObjectBuilder getObject = Json.createObjectBuilder();
-                                getObject.add("tags", Json.createArrayBuilder().add(className).build());
-                                JsonObjectBuilder responsesObject = Json.createObjectBuilder();
-                                JsonObjectBuilder successObject = Json.createObjectBuilder();
-                                JsonObjectBuilder contentTypeObject = Json.createObjectBuilder();
-                                JsonObjectBuilder contentObject = Json.createObjectBuilder();
-                                JsonObjectBuilder schemaObject = Json.createObjectBuilder();
+                                JsonObjectBuilder getObject = jsonBuilderFactory.createObjectBuilder();
+                                getObject.add("tags", jsonBuilderFactory.createArrayBuilder().add(className).build());
+                                JsonObjectBuilder responsesObject = jsonBuilderFactory.createObjectBuilder();
+                                JsonObjectBuilder successObject = jsonBuilderFactory.createObjectBuilder();
+                                JsonObjectBuilder contentTypeObject = jsonBuilderFactory.createObjectBuilder();
+                                JsonObjectBuilder contentObject = jsonBuilderFactory.createObjectBuilder();
+                                JsonObjectBuilder schemaObject = jsonBuilderFactory.createObjectBuilder();
                                 schemaObject.add("$ref", "#/components/schemas/" + className);
                                 contentTypeObject.add("schema", schemaObject.build());
                                 contentObject.add("application/json", contentTypeObject.build());
@@ -575,25 +581,25 @@ public class OpenAPIWriter {
                                 pathObject.add("get", getObject.build());
 
                                 /* POST API */
-                                JsonObjectBuilder requestBodyObject = Json.createObjectBuilder();
-                                JsonObjectBuilder requestContentObject = Json.createObjectBuilder();
-                                JsonObjectBuilder requestContentTypeObject = Json.createObjectBuilder();
-                                JsonObjectBuilder requestSchemaObject = Json.createObjectBuilder();
+                                JsonObjectBuilder requestBodyObject = jsonBuilderFactory.createObjectBuilder();
+                                JsonObjectBuilder requestContentObject = jsonBuilderFactory.createObjectBuilder();
+                                JsonObjectBuilder requestContentTypeObject = jsonBuilderFactory.createObjectBuilder();
+                                JsonObjectBuilder requestSchemaObject = jsonBuilderFactory.createObjectBuilder();
                                 requestSchemaObject.add("$ref", "#/components/schemas/" + className);
 
-                                JsonObjectBuilder postObject = Json.createObjectBuilder();
-                                postObject.add("tags", Json.createArrayBuilder().add(className).build());
-                                JsonObjectBuilder postResponsesObject = Json.createObjectBuilder();
-                                JsonObjectBuilder postSuccessObject = Json.createObjectBuilder();
-                                JsonObjectBuilder postContentTypeObject = Json.createObjectBuilder();
-                                JsonObjectBuilder postContentObject = Json.createObjectBuilder();
+                                JsonObjectBuilder postObject = jsonBuilderFactory.createObjectBuilder();
+                                postObject.add("tags", jsonBuilderFactory.createArrayBuilder().add(className).build());
+                                JsonObjectBuilder postResponsesObject = jsonBuilderFactory.createObjectBuilder();
+                                JsonObjectBuilder postSuccessObject = jsonBuilderFactory.createObjectBuilder();
+                                JsonObjectBuilder postContentTypeObject = jsonBuilderFactory.createObjectBuilder();
+                                JsonObjectBuilder postContentObject = jsonBuilderFactory.createObjectBuilder();
 
                                 requestSchemaObject.add("$ref", "#/components/schemas/" + className);
                                 requestContentTypeObject.add("schema", requestSchemaObject.build());
                                 requestContentObject.add("application/json", requestContentTypeObject.build());
                                 requestBodyObject.add("content", requestContentObject.build());
 
-                                postContentObject.add("application/json", Json.createObjectBuilder().build());
+                                postContentObject.add("application/json", jsonBuilderFactory.createObjectBuilder().build());
                                 postSuccessObject.add("content", postContentObject.build());
                                 postSuccessObject.add("description", "Successfull operation");
                                 postResponsesObject.add("200", postSuccessObject.build());
@@ -608,24 +614,24 @@ public class OpenAPIWriter {
                                 pathObject.add("post", postObject.build());
 
                                 /* PUT API. If path parameters used */
-                                JsonObjectBuilder putRequestBodyObject = Json.createObjectBuilder();
-                                JsonObjectBuilder putRequestContentObject = Json.createObjectBuilder();
-                                JsonObjectBuilder putRequestContentTypeObject = Json.createObjectBuilder();
-                                JsonObjectBuilder putRequestSchemaObject = Json.createObjectBuilder();
-
-                                JsonObjectBuilder putObject = Json.createObjectBuilder();
-                                putObject.add("tags", Json.createArrayBuilder().add(className).build());
-                                JsonObjectBuilder putResponsesObject = Json.createObjectBuilder();
-                                JsonObjectBuilder putSuccessObject = Json.createObjectBuilder();
-                                JsonObjectBuilder putContentTypeObject = Json.createObjectBuilder();
-                                JsonObjectBuilder putContentObject = Json.createObjectBuilder();
+                                JsonObjectBuilder putRequestBodyObject = jsonBuilderFactory.createObjectBuilder();
+                                JsonObjectBuilder putRequestContentObject = jsonBuilderFactory.createObjectBuilder();
+                                JsonObjectBuilder putRequestContentTypeObject = jsonBuilderFactory.createObjectBuilder();
+                                JsonObjectBuilder putRequestSchemaObject = jsonBuilderFactory.createObjectBuilder();
+
+                                JsonObjectBuilder putObject = jsonBuilderFactory.createObjectBuilder();
+                                putObject.add("tags", jsonBuilderFactory.createArrayBuilder().add(className).build());
+                                JsonObjectBuilder putResponsesObject = jsonBuilderFactory.createObjectBuilder();
+                                JsonObjectBuilder putSuccessObject = jsonBuilderFactory.createObjectBuilder();
+                                JsonObjectBuilder putContentTypeObject = jsonBuilderFactory.createObjectBuilder();
+                                JsonObjectBuilder putContentObject = jsonBuilderFactory.createObjectBuilder();
 
                                 putRequestSchemaObject.add("$ref", "#/components/schemas/" + className);
                                 putRequestContentTypeObject.add("schema", putRequestSchemaObject.build());
                                 putRequestContentObject.add("application/json", putRequestContentTypeObject.build());
                                 putRequestBodyObject.add("content", putRequestContentObject.build());
 
-                                putContentObject.add("application/json", Json.createObjectBuilder().build());
+                                putContentObject.add("application/json", jsonBuilderFactory.createObjectBuilder().build());
                                 putSuccessObject.add("content", putContentObject.build());
                                 putSuccessObject.add("description", "Successfull operation");
                                 putResponsesObject.add("200", putSuccessObject.build());
@@ -640,9 +646,9 @@ public class OpenAPIWriter {
                                 pathObject.add("put", putObject.build());
 
                                 /* DELETE API */
-                                JsonObjectBuilder deleteObject = Json.createObjectBuilder();
+                                JsonObjectBuilder deleteObject = jsonBuilderFactory.createObjectBuilder();
                                 deleteObject.add("summary", "Delete " + className);
-                                deleteObject.add("tags", Json.createArrayBuilder().add(className).build());
+                                deleteObject.add("tags", jsonBuilderFactory.createArrayBuilder().add(className).build());
                                 deleteObject.add("responses", successResponse);
 
                                 pathObject.add("delete", deleteObject.build());
@@ -655,7 +661,7 @@ public class OpenAPIWriter {
 
                         pathSet = new HashSet<String>();
 
-                        JsonArrayBuilder required = Json.createArrayBuilder();
+                        JsonArrayBuilder required = jsonBuilderFactory.createArrayBuilder();
 
                         Iterator<String> ri = requiredPredicates.iterator();
 
@@ -671,7 +677,7 @@ public class OpenAPIWriter {
                         }
 
                         definitions.add(className, classDefinition.build());
-                        properties = Json.createObjectBuilder();
+                        properties = jsonBuilderFactory.createObjectBuilder();
                         requiredPredicates = new HashSet<String>();
                     }
                 }
@@ -692,11 +698,11 @@ public class OpenAPIWriter {
     public String newOpenApiStub(String modelID,
                                  String lang) {
 
-        JsonObjectBuilder schema = Json.createObjectBuilder();
-        JsonObjectBuilder infoObject = Json.createObjectBuilder();
-        JsonObjectBuilder externalDocs = Json.createObjectBuilder();
-        JsonArrayBuilder serverArray = Json.createArrayBuilder();
-        JsonObjectBuilder serverObject = Json.createObjectBuilder();
+        JsonObjectBuilder schema = jsonBuilderFactory.createObjectBuilder();
+        JsonObjectBuilder infoObject = jsonBuilderFactory.createObjectBuilder();
+        JsonObjectBuilder externalDocs = jsonBuilderFactory.createObjectBuilder();
+        JsonArrayBuilder serverArray = jsonBuilderFactory.createArrayBuilder();
+        JsonObjectBuilder serverObject = jsonBuilderFactory.createObjectBuilder();
 
         serverObject.add("url", "https://api.example.com/v1");
         serverObject.add("description", "Example server description");
@@ -728,7 +734,7 @@ public class OpenAPIWriter {
 
         pss.setCommandText(selectClass);
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.toString())) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), pss.toString())) {
 
             ResultSet results = qexec.execSelect();
 
@@ -793,11 +799,11 @@ public class OpenAPIWriter {
     public String newOpenApiStubFromClass(String classID,
                                           String lang) {
 
-        JsonObjectBuilder schema = Json.createObjectBuilder();
-        JsonObjectBuilder infoObject = Json.createObjectBuilder();
-        JsonObjectBuilder externalDocs = Json.createObjectBuilder();
-        JsonArrayBuilder serverArray = Json.createArrayBuilder();
-        JsonObjectBuilder serverObject = Json.createObjectBuilder();
+        JsonObjectBuilder schema = jsonBuilderFactory.createObjectBuilder();
+        JsonObjectBuilder infoObject = jsonBuilderFactory.createObjectBuilder();
+        JsonObjectBuilder externalDocs = jsonBuilderFactory.createObjectBuilder();
+        JsonArrayBuilder serverArray = jsonBuilderFactory.createArrayBuilder();
+        JsonObjectBuilder serverObject = jsonBuilderFactory.createObjectBuilder();
 
         serverObject.add("url", "https://api.example.com/v1");
         serverObject.add("description", "Example server description");
@@ -830,8 +836,8 @@ public class OpenAPIWriter {
 
     public JsonObject getLangStringObject() {
 
-        JsonObjectBuilder builder = Json.createObjectBuilder();
-        JsonObjectBuilder add = Json.createObjectBuilder();
+        JsonObjectBuilder builder = jsonBuilderFactory.createObjectBuilder();
+        JsonObjectBuilder add = jsonBuilderFactory.createObjectBuilder();
         builder.add("type", "object");
         builder.add("title", "Multilingual string");
         builder.add("description", "Object type for localized strings");
@@ -846,7 +852,7 @@ public class OpenAPIWriter {
         if (definitions != null) {
             definitions.add("langString", getLangStringObject());
 
-            JsonObjectBuilder components = Json.createObjectBuilder();
+            JsonObjectBuilder components = jsonBuilderFactory.createObjectBuilder();
             JsonObject defObject = definitions.build();
 
             if (!defObject.isEmpty()) {
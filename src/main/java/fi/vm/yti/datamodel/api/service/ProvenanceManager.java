@@ -6,6 +6,8 @@ package fi.vm.yti.datamodel.api.service;
 import fi.vm.yti.datamodel.api.config.ApplicationProperties;
 import fi.vm.yti.datamodel.api.utils.LDHelper;
 
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.iri.IRI;
 import org.apache.jena.query.ParameterizedSparqlString;
 import org.apache.jena.query.QuerySolution;
@@ -15,9 +17,10 @@ import org.apache.jena.rdf.model.NodeIterator;
 import org.apache.jena.rdf.model.Property;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.sparql.modify.request.QuadDataAcc;
+import org.apache.jena.sparql.modify.request.UpdateDataInsert;
 import org.apache.jena.update.UpdateException;
-import org.apache.jena.update.UpdateExecutionFactory;
-import org.apache.jena.update.UpdateProcessor;
 import org.apache.jena.update.UpdateRequest;
 import org.apache.jena.vocabulary.DCTerms;
 import org.slf4j.Logger;
@@ -25,6 +28,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -128,10 +132,9 @@ public class ProvenanceManager {
         logger.debug(pss.toString());
 
         UpdateRequest queryObj = pss.asUpdate();
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getProvSparqlUpdateAddress());
 
         try {
-            qexec.execute();
+            jenaClient.updateToService(queryObj, endpointServices.getProvSparqlUpdateAddress());
         } catch (UpdateException ex) {
             logger.warn(ex.toString());
         }
@@ -279,6 +282,30 @@ public class ProvenanceManager {
         }
     }
 
+    /**
+     * Creates PROV Entities for a batch of updated resources with one update
+     *
+     * @param resources Updated graphs by resource IRI
+     * @param provUUIDs Provenance UUIDs by resource IRI
+     * @param user      UUID of the committing user
+     */
+    public void createProvEntityBundles(Map<String, Model> resources,
+                                        Map<String, String> provUUIDs,
+                                        UUID user) {
+        UpdateRequest request = new UpdateRequest();
+        QuadDataAcc quads = new QuadDataAcc();
+
+        resources.forEach((graph, model) -> {
+            Node entityGraph = NodeFactory.createURI(provUUIDs.get(graph));
+            model.getGraph().find().forEachRemaining(triple -> quads.addQuad(new Quad(entityGraph, triple)));
+        });
+        request.add(new UpdateDataInsert(quads));
+
+        resources.keySet().forEach(graph -> createProvEntityRequest(graph, user, provUUIDs.get(graph)).getOperations().forEach(request::add));
+
+        jenaClient.updateToService(request, endpointServices.getProvSparqlUpdateAddress());
+    }
+
     /**
      * Query that renames ID:s in provenance service
      *
@@ -15,7 +15,6 @@ import javax.ws.rs.core.Response;
 import org.apache.jena.query.ParameterizedSparqlString;
 import org.apache.jena.query.Query;
 import org.apache.jena.query.QueryExecution;
-import org.apache.jena.query.QueryExecutionFactory;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.Resource;
@@ -40,21 +39,27 @@ public class RHPOrganizationManager {
     private final EndpointServices endpointServices;
     private final ApplicationProperties properties;
     private final GraphManager graphManager;
+    private final JenaClient jenaClient;
+    private final UpstreamGuard guard;
 
     RHPOrganizationManager(ClientFactory clientFactory,
                            EndpointServices endpointServices,
                            ApplicationProperties properties,
-                           GraphManager graphManager) {
+                           GraphManager graphManager,
+                           JenaClient jenaClient,
+                           UpstreamGuard guard) {
         this.clientFactory = clientFactory;
         this.endpointServices = endpointServices;
         this.properties = properties;
         this.graphManager = graphManager;
+        this.jenaClient = jenaClient;
+        this.guard = guard;
     }
 
     public Response getOrganizations() {
         String service = properties.getDefaultGroupManagementAPI() + "organizations?onlyValid=true";
         logger.debug("Getting organizations from: "+service);
-        return clientFactory.create().target(service).request("application/json").get();
+        return guard.request(UpstreamMetrics.GROUP_MANAGEMENT, () -> clientFactory.create(UpstreamMetrics.GROUP_MANAGEMENT).target(service).request("application/json").get());
     }
 
     public Model getOrganizationModelFromRHP() {
@@ -193,7 +198,7 @@ public class RHPOrganizationManager {
         pss.setCommandText(queryString);
         Query query = pss.asQuery();
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), query)) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), query)) {
             boolean b = qexec.execAsk();
             logger.info("EXISTS " + sparqlOrgList + ":" + b);
             return b;
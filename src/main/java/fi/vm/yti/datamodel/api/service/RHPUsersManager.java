@@ -20,14 +20,17 @@ public class RHPUsersManager {
 
     private final ApplicationProperties properties;
     private final ClientFactory clientFactory;
+    private final UpstreamGuard guard;
     private final boolean fakeLoginAllowed;
 
     RHPUsersManager(ApplicationProperties properties,
                     ClientFactory clientFactory,
+                    UpstreamGuard guard,
                     @Value("${fake.login.allowed:false}") boolean fakeLoginAllowed) {
 
         this.properties = properties;
         this.clientFactory = clientFactory;
+        this.guard = guard;
         this.fakeLoginAllowed = fakeLoginAllowed;
     }
 
@@ -37,11 +40,11 @@ public class RHPUsersManager {
 
             String url = properties.getDefaultGroupManagementAPI() + "users";
 
-            return clientFactory.create()
+            return guard.call(UpstreamMetrics.GROUP_MANAGEMENT, () -> clientFactory.create(UpstreamMetrics.GROUP_MANAGEMENT)
                 .target(url)
                 .request(MediaType.APPLICATION_JSON)
                 .get(new GenericType<List<GroupManagementUserDTO>>() {
-                });
+                }));
         } else {
             return Collections.emptyList();
         }
@@ -51,12 +54,12 @@ public class RHPUsersManager {
 
         String url = properties.getPrivateGroupManagementAPI() + "requests";
 
-        return clientFactory.create()
+        return guard.call(UpstreamMetrics.GROUP_MANAGEMENT, () -> clientFactory.create(UpstreamMetrics.GROUP_MANAGEMENT)
             .target(url)
             .queryParam("userId", userId)
             .request(MediaType.APPLICATION_JSON)
             .get(new GenericType<List<GroupManagementUserRequestDTO>>() {
-            });
+            }));
     }
 
     public void sendUserRequests(String userId,
@@ -64,12 +67,12 @@ public class RHPUsersManager {
 
         String url = properties.getPrivateGroupManagementAPI() + "request";
 
-        clientFactory.create()
+        guard.request(UpstreamMetrics.GROUP_MANAGEMENT, () -> clientFactory.create(UpstreamMetrics.GROUP_MANAGEMENT)
             .target(url)
             .queryParam("userId", userId)
             .queryParam("role", Role.DATA_MODEL_EDITOR.toString())
             .queryParam("organizationId", organizationId)
             .request(MediaType.APPLICATION_JSON)
-            .post(Entity.json(null));
+            .post(Entity.json(null)));
     }
 }
@@ -0,0 +1,286 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.http.client.HttpClient;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+import fi.vm.yti.datamodel.api.config.ReadRouting;
+import fi.vm.yti.security.AuthenticatedUserProvider;
+import fi.vm.yti.security.YtiUser;
+
+/**
+ * Routes reads of the Fuseki datasets to the read endpoints configured in {@link ReadRouting}.
+ * <p>
+ * Reads are interactive unless they are made inside {@link #bulkReads()}, and each class of reads goes to
+ * the primary endpoint or to the replicas as configured. Writes always go to the primary, and reads of a user
+ * who has written within the stickiness period go there too, so users see their own saves even if the
+ * replicas lag behind. Reads that writes are based on and reads of background jobs, which have no user, are
+ * made inside {@link #primaryReads()} so that they always go to the primary. Replicas are health checked periodically. A replica that fails a check or a read is
+ * skipped until it passes a check again, and reads made with {@link #read(String, Function)} are retried on
+ * the primary.
+ */
+@Service
+public class ReadRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadRouter.class.getName());
+
+    public enum OperationClass {
+        INTERACTIVE_READ,
+        BULK_READ,
+        WRITE
+    }
+
+    private static final ThreadLocal<OperationClass> currentReadClass = ThreadLocal.withInitial(() -> OperationClass.INTERACTIVE_READ);
+
+    private final EndpointServices endpointServices;
+    private final Supplier<UUID> currentUser;
+    private final ReadRouting routing;
+    private final HttpClient httpClient;
+    private final Map<String, List<Replica>> replicas = new LinkedHashMap<>();
+    private final Cache<UUID, Boolean> recentWriters;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Autowired
+    ReadRouter(EndpointServices endpointServices,
+               AuthenticatedUserProvider userProvider,
+               ApplicationProperties properties,
+               FusekiHttpClient fusekiHttpClient) {
+        this(endpointServices, () -> getUserId(userProvider), properties, fusekiHttpClient.getHttpClient());
+    }
+
+    /**
+     * @param currentUser Id of the user of the current thread or null if there is none
+     * @param httpClient  Client of the health checks of the replicas
+     */
+    ReadRouter(EndpointServices endpointServices,
+               Supplier<UUID> currentUser,
+               ApplicationProperties properties,
+               HttpClient httpClient) {
+        this.endpointServices = endpointServices;
+        this.httpClient = httpClient;
+        this.currentUser = currentUser;
+        this.routing = properties.getReadRouting();
+        this.recentWriters = CacheBuilder.newBuilder().expireAfterWrite(Math.max(0, routing.getStickiness()), TimeUnit.SECONDS).build();
+
+        routing.getReplicas().forEach((dataset, endpoints) -> {
+            List<Replica> datasetReplicas = new ArrayList<>();
+            for (String endpoint : endpoints) {
+                datasetReplicas.add(new Replica(dataset, endpoint.trim()));
+            }
+            replicas.put(dataset, datasetReplicas);
+            logger.info("Reads of " + dataset + " are routed to " + endpoints);
+        });
+    }
+
+    /**
+     * Scope in which reads of the current thread are of one class. Closing the scope restores the previous class.
+     * Scopes are opened in try-with-resources statements that do not reference them, so methods opening them
+     * suppress the "try" lint.
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final OperationClass previous;
+
+        private Scope(OperationClass previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            currentReadClass.set(previous);
+        }
+    }
+
+    /**
+     * Marks reads of the current thread as bulk reads until the returned scope is closed, unless they already go
+     * to the primary
+     */
+    public Scope bulkReads() {
+        Scope scope = new Scope(currentReadClass.get());
+        if (scope.previous != OperationClass.WRITE) {
+            currentReadClass.set(OperationClass.BULK_READ);
+        }
+        return scope;
+    }
+
+    /**
+     * Sends reads of the current thread to the primary like writes until the returned scope is closed. Bulk
+     * read scopes opened inside the scope do not change this.
+     */
+    public Scope primaryReads() {
+        Scope scope = new Scope(currentReadClass.get());
+        currentReadClass.set(OperationClass.WRITE);
+        return scope;
+    }
+
+    /**
+     * @param address Service address of the primary endpoint
+     * @return Address of the same service at the endpoint that should serve reads of the current thread
+     */
+    public String route(String address) {
+        return route(address, currentReadClass.get());
+    }
+
+    /**
+     * @param address   Service address of the primary endpoint
+     * @param operation Class of the operation
+     * @return Address of the same service at the endpoint that should serve the operation
+     */
+    public String route(String address,
+                        OperationClass operation) {
+        if (operation == OperationClass.WRITE || replicas.isEmpty()) {
+            return address;
+        }
+
+        ReadRouting.Target target = operation == OperationClass.BULK_READ ? routing.getBulk() : routing.getInteractive();
+        if (target == ReadRouting.Target.PRIMARY) {
+            return address;
+        }
+
+        List<Replica> datasetReplicas = replicas.get(endpointServices.getDatasetName(address));
+        if (datasetReplicas == null || isRecentWriter()) {
+            return address;
+        }
+
+        List<Replica> healthy = new ArrayList<>();
+        for (Replica replica : datasetReplicas) {
+            if (replica.healthy) {
+                healthy.add(replica);
+            }
+        }
+        if (healthy.isEmpty()) {
+            return address;
+        }
+
+        Replica replica = healthy.get(Math.floorMod(counter.getAndIncrement(), healthy.size()));
+        return replica.endpoint + address.substring(endpointServices.getEndpoint().length());
+    }
+
+    /**
+     * Runs the read against the endpoint given by {@link #route(String)}. If a replica fails the replica is
+     * marked unhealthy and the read is run again against the primary.
+     *
+     * @param address Service address of the primary endpoint
+     * @param read    Read that takes the service address to use
+     */
+    public <T> T read(String address,
+                      Function<String, T> read) {
+        String routed = route(address);
+        if (routed.equals(address)) {
+            return read.apply(address);
+        }
+        try {
+            return read.apply(routed);
+        } catch (RuntimeException ex) {
+            if (UpstreamGuard.isClientError(ex)) {
+                throw ex;
+            }
+            markUnhealthy(routed, ex);
+            return read.apply(address);
+        }
+    }
+
+    /**
+     * Sends reads of the current user to the primary for the stickiness period
+     */
+    public void written() {
+        if (replicas.isEmpty()) {
+            return;
+        }
+        UUID user = currentUser.get();
+        if (user != null) {
+            recentWriters.put(user, Boolean.TRUE);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${readRouting.healthCheckInterval:10000}")
+    public void checkReplicas() {
+        replicas.values().forEach(datasetReplicas -> datasetReplicas.forEach(this::check));
+    }
+
+    /**
+     * @return Health of the read endpoints by dataset
+     */
+    public Map<String, Map<String, Boolean>> getStates() {
+        Map<String, Map<String, Boolean>> states = new LinkedHashMap<>();
+        replicas.forEach((dataset, datasetReplicas) -> {
+            Map<String, Boolean> health = new LinkedHashMap<>();
+            datasetReplicas.forEach(replica -> health.put(replica.endpoint, replica.healthy));
+            states.put(dataset, health);
+        });
+        return states;
+    }
+
+    private void check(Replica replica) {
+        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(replica.endpoint + "/" + replica.dataset + "/sparql", "ASK {}", httpClient)) {
+            qexec.setTimeout(routing.getHealthCheckInterval());
+            qexec.execAsk();
+            if (!replica.healthy) {
+                logger.info("Read endpoint " + replica.endpoint + " of " + replica.dataset + " is back");
+                replica.healthy = true;
+            }
+        } catch (RuntimeException ex) {
+            if (replica.healthy) {
+                logger.warn("Read endpoint " + replica.endpoint + " of " + replica.dataset + " failed health check: " + ex.getMessage());
+                replica.healthy = false;
+            }
+        }
+    }
+
+    private void markUnhealthy(String address,
+                               RuntimeException ex) {
+        replicas.values().forEach(datasetReplicas -> datasetReplicas.forEach(replica -> {
+            if (replica.healthy && address.startsWith(replica.endpoint + "/" + replica.dataset + "/")) {
+                logger.warn("Read endpoint " + replica.endpoint + " of " + replica.dataset + " failed, reading from primary: " + ex.getMessage());
+                replica.healthy = false;
+            }
+        }));
+    }
+
+    private boolean isRecentWriter() {
+        UUID user = currentUser.get();
+        return user != null && recentWriters.getIfPresent(user) != null;
+    }
+
+    private static UUID getUserId(AuthenticatedUserProvider userProvider) {
+        try {
+            YtiUser user = userProvider.getUser();
+            return user != null ? user.getId() : null;
+        } catch (RuntimeException ex) {
+            // No user outside of requests
+            return null;
+        }
+    }
+
+    private static final class Replica {
+
+        private final String dataset;
+        private final String endpoint;
+        private volatile boolean healthy = true;
+
+        private Replica(String dataset,
+                        String endpoint) {
+            this.dataset = dataset;
+            this.endpoint = endpoint;
+        }
+    }
+}
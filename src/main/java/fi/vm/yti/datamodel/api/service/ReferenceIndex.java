@@ -0,0 +1,190 @@
+package fi.vm.yti.datamodel.api.service;
+
+import org.apache.jena.query.ParameterizedSparqlString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import fi.vm.yti.datamodel.api.utils.LDHelper;
+
+/**
+ * Reverse reference index stored in the {@link #REFERENCES_GRAPH} graph of core.
+ * <p>
+ * For every IRI object in a model or resource graph the index contains the triple
+ * <code>target dcterms:isReferencedBy graph</code>, so that usages of a resource, model or concept can be read
+ * by the target instead of scanning every named graph. Only graphs named after their own subject are indexed,
+ * and rdf:type statements and references to the graph itself are left out.
+ * <p>
+ * The index is maintained by {@link GraphManager} when graphs are written. If maintenance fails the index is
+ * left stale and can be fixed with {@link #rebuild()}.
+ */
+@Service
+public class ReferenceIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReferenceIndex.class.getName());
+
+    public static final String REFERENCES_GRAPH = "urn:csc:iow:references";
+
+    private static final String INDEXED_REFERENCES =
+        "GRAPH ?graph { "
+            + "?graph a ?graphType . "
+            + "?subject ?predicate ?target . "
+            + "FILTER(isIRI(?target) && ?predicate != rdf:type && ?target != ?graph && ?subject != ?target) "
+            + "}";
+
+    private final JenaClient jenaClient;
+    private final EndpointServices endpointServices;
+
+    @Autowired
+    ReferenceIndex(JenaClient jenaClient,
+                   EndpointServices endpointServices) {
+        this.jenaClient = jenaClient;
+        this.endpointServices = endpointServices;
+    }
+
+    /**
+     * Replaces references from a single model or resource graph
+     *
+     * @param graph IRI of the graph
+     */
+    public void indexGraph(String graph) {
+        String query =
+            "DELETE WHERE { GRAPH ?referencesGraph { ?target dcterms:isReferencedBy ?graph . } } ; "
+                + "INSERT { GRAPH ?referencesGraph { ?target dcterms:isReferencedBy ?graph . } } "
+                + "WHERE { " + INDEXED_REFERENCES + " }";
+
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        pss.setCommandText(query);
+        pss.setIri("graph", graph);
+        update(pss, "Could not index references from " + graph);
+    }
+
+    /**
+     * Replaces references from the model graph and the resource graphs defined in the model
+     *
+     * @param model IRI of the model
+     */
+    public void indexModel(String model) {
+        String query =
+            "DELETE { GRAPH ?referencesGraph { ?target dcterms:isReferencedBy ?graph . } } "
+                + "WHERE { GRAPH ?referencesGraph { ?target dcterms:isReferencedBy ?graph . } "
+                + "FILTER(?graph = ?model || STRSTARTS(STR(?graph), ?modelNamespace)) } ; "
+                + "INSERT { GRAPH ?referencesGraph { ?target dcterms:isReferencedBy ?graph . } } "
+                + "WHERE { "
+                + "{ BIND(?model AS ?graph) } UNION { "
+                + "GRAPH ?hasPartGraph { ?model dcterms:hasPart ?graph . } "
+                + "FILTER(STRSTARTS(STR(?graph), ?modelNamespace)) } "
+                + INDEXED_REFERENCES
+                + " }";
+
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        pss.setCommandText(query);
+        pss.setIri("model", model);
+        pss.setIri("hasPartGraph", model + "#HasPartGraph");
+        pss.setLiteral("modelNamespace", model + "#");
+        update(pss, "Could not index references from model " + model);
+    }
+
+    /**
+     * Removes references from a removed graph
+     *
+     * @param graph IRI of the graph
+     */
+    public void removeGraph(String graph) {
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        pss.setCommandText("DELETE WHERE { GRAPH ?referencesGraph { ?target dcterms:isReferencedBy ?graph . } }");
+        pss.setIri("graph", graph);
+        update(pss, "Could not remove references from " + graph);
+    }
+
+    /**
+     * Removes references from a removed model and its resource graphs
+     *
+     * @param model IRI of the model
+     */
+    public void removeModel(String model) {
+        String query =
+            "DELETE { GRAPH ?referencesGraph { ?target dcterms:isReferencedBy ?graph . } } "
+                + "WHERE { GRAPH ?referencesGraph { ?target dcterms:isReferencedBy ?graph . } "
+                + "FILTER(?graph = ?model || STRSTARTS(STR(?graph), ?modelNamespace)) }";
+
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        pss.setCommandText(query);
+        pss.setIri("model", model);
+        pss.setLiteral("modelNamespace", model + "#");
+        update(pss, "Could not remove references from model " + model);
+    }
+
+    /**
+     * Moves references of a renamed target to its new IRI
+     *
+     * @param oldId Old IRI of the target
+     * @param newId New IRI of the target
+     */
+    public void renameTarget(String oldId,
+                             String newId) {
+        String query =
+            "DELETE { GRAPH ?referencesGraph { ?oldId dcterms:isReferencedBy ?graph . } } "
+                + "INSERT { GRAPH ?referencesGraph { ?newId dcterms:isReferencedBy ?graph . } } "
+                + "WHERE { GRAPH ?referencesGraph { ?oldId dcterms:isReferencedBy ?graph . } }";
+
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        pss.setCommandText(query);
+        pss.setIri("oldId", oldId);
+        pss.setIri("newId", newId);
+        update(pss, "Could not rename references from " + oldId + " to " + newId);
+    }
+
+    /**
+     * @return true if the index graph contains no references
+     */
+    public boolean isEmpty() {
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        pss.setNsPrefixes(LDHelper.PREFIX_MAP);
+        pss.setCommandText("ASK { GRAPH ?referencesGraph { ?target dcterms:isReferencedBy ?graph . } }");
+        pss.setIri("referencesGraph", REFERENCES_GRAPH);
+        return !jenaClient.askQuery(endpointServices.getCoreSparqlAddress(), pss.asQuery());
+    }
+
+    /**
+     * Rebuilds the whole index from all model and resource graphs
+     */
+    public void rebuild() {
+        logger.info("Rebuilding reference index");
+        long start = System.currentTimeMillis();
+
+        String query =
+            "CLEAR SILENT GRAPH ?referencesGraph ; "
+                + "INSERT { GRAPH ?referencesGraph { ?target dcterms:isReferencedBy ?graph . } } "
+                + "WHERE { " + INDEXED_REFERENCES + " FILTER(?graph != ?referencesGraph) }";
+
+        ParameterizedSparqlString pss = new ParameterizedSparqlString();
+        pss.setNsPrefixes(LDHelper.PREFIX_MAP);
+        pss.setCommandText(query);
+        pss.setIri("referencesGraph", REFERENCES_GRAPH);
+        jenaClient.updateToService(pss.asUpdate(), endpointServices.getCoreSparqlUpdateAddress());
+
+        logger.info("Reference index rebuilt in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Rebuilds the index if it has not been built yet
+     */
+    public void rebuildIfEmpty() {
+        if (isEmpty()) {
+            rebuild();
+        }
+    }
+
+    private void update(ParameterizedSparqlString pss,
+                        String errorMessage) {
+        pss.setNsPrefixes(LDHelper.PREFIX_MAP);
+        pss.setIri("referencesGraph", REFERENCES_GRAPH);
+        try {
+            jenaClient.updateToService(pss.asUpdate(), endpointServices.getCoreSparqlUpdateAddress());
+        } catch (RuntimeException ex) {
+            logger.warn(errorMessage, ex);
+        }
+    }
+}
@@ -1,79 +1,173 @@
 package fi.vm.yti.datamodel.api.service;
 
+import fi.vm.yti.datamodel.api.index.SearchIndexManager;
+import fi.vm.yti.datamodel.api.index.model.IndexModelDTO;
+import fi.vm.yti.datamodel.api.index.model.IndexResourceDTO;
 import fi.vm.yti.datamodel.api.utils.LDHelper;
 
-import org.apache.jena.query.ParameterizedSparqlString;
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.DCTerms;
+import org.apache.jena.vocabulary.OWL;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @Service
 public class SearchManager {
 
     static final private Logger logger = LoggerFactory.getLogger(SearchManager.class.getName());
 
-    private final GraphManager graphManager;
+    /* Maximum number of resources and models returned by a single search */
+    private static final int MAX_RESULTS = 1000;
+
+    private static final Map<String, Resource> resourceTypes = new HashMap<String, Resource>() {
+        {
+            put("class", RDFS.Class);
+            put("shape", LDHelper.curieToResource("sh:NodeShape"));
+            put("externalClass", LDHelper.curieToResource("iow:ExternalClass"));
+            put("attribute", OWL.DatatypeProperty);
+            put("association", OWL.ObjectProperty);
+        }
+    };
+
+    private static final Map<String, Resource> modelTypes = new HashMap<String, Resource>() {
+        {
+            put("library", LDHelper.curieToResource("dcap:MetadataVocabulary"));
+            put("profile", LDHelper.curieToResource("dcap:DCAP"));
+        }
+    };
+
+    private final JenaClient jenaClient;
+    private final SearchIndexManager searchIndexManager;
 
     @Autowired
-    SearchManager(GraphManager graphManager) {
-        this.graphManager = graphManager;
+    SearchManager(JenaClient jenaClient,
+                  SearchIndexManager searchIndexManager) {
+        this.jenaClient = jenaClient;
+        this.searchIndexManager = searchIndexManager;
     }
 
+    /**
+     * Searches resources and models by label and comment from the search index.
+     * Returns types, labels, comments and defining models with their namespaces like the core graph scan did before.
+     *
+     * @param graph  Model whose parts are searched or null to search everything
+     * @param search Search string
+     * @param lang   Language of returned labels or null for all languages
+     */
     public Model search(String graph,
                         String search,
                         String lang) {
 
-        /* TODO: ADD TEXTDATASET ONCE NAMESPACE BUG IS RESOLVED */
-        // FIXME: Not working in long run. Needs Lucene indexing or ElasticSearch.
-        // if(!search.endsWith("~")||!search.endsWith("*")) search = search+"*";
-
-        String queryString =
-            "CONSTRUCT {"
-                + "?resource rdf:type ?type ."
-                + "?resource rdfs:label ?label ."
-                + "?resource rdfs:comment ?comment ."
-                + "?resource rdfs:isDefinedBy ?super . "
-                + "?resource dcap:preferredXMLNamespaceName ?resnamespace . "
-                + "?resource dcap:preferredXMLNamespacePrefix ?resprefix . "
-                + "?super rdfs:label ?superLabel . "
-                + "?super dcap:preferredXMLNamespaceName ?namespace . "
-                + "?super dcap:preferredXMLNamespacePrefix ?prefix . "
-                + "} WHERE { "
-                + (graph == null ? "" : "GRAPH <" + graph + "#HasPartGraph> { <" + graph + "> dcterms:hasPart ?graph . } ")
-                + "GRAPH ?graph {"
-                + "?resource ?p ?literal . "
-                + "FILTER contains(lcase(?literal),lcase(?search)) "
-                + "?resource rdf:type ?type . "
-                + "OPTIONAL {"
-                + "?resource dcap:preferredXMLNamespaceName ?resnamespace . "
-                + "?resource dcap:preferredXMLNamespacePrefix ?resprefix . "
-                + "}"
-                + "OPTIONAL {"
-                + "?resource rdfs:isDefinedBy ?super . "
-                + "GRAPH ?super { ?super rdfs:label ?superLabel . "
-                + "?super dcap:preferredXMLNamespaceName ?namespace . "
-                + "?super dcap:preferredXMLNamespacePrefix ?prefix . "
-                + "}}"
-                //+ "UNION"
-                // + "{?resource sh:path ?predicate . ?super sh:property ?resource . ?super rdfs:label ?superLabel . BIND(sh:Constraint as ?type)}"
-                + "?resource ?labelProp ?label . "
-                + "VALUES ?labelProp { rdfs:label sh:name } "
-                //+ "?resource text:query '"+search+"' . "
-                + "OPTIONAL{?resource ?commentProp ?comment . "
-                + "VALUES ?commentProp { rdfs:comment sh:description }}"
-                + (lang == null || lang.equals("undefined") ? "" : "FILTER langMatches(lang(?label),'" + lang + "')")
-                + "}}";
-
-        ParameterizedSparqlString pss = new ParameterizedSparqlString();
-        pss.setNsPrefixes(LDHelper.PREFIX_MAP);
-        pss.setLiteral("search", search);
-        pss.setCommandText(queryString);
-
-        logger.info(pss.toString());
-
-        return graphManager.constructModelFromCoreGraph(pss.toString());
+        String language = lang == null || lang.equals("undefined") ? null : lang;
+
+        Model result = ModelFactory.createDefaultModel();
+        result.setNsPrefixes(LDHelper.PREFIX_MAP);
+
+        Set<String> parts = null;
+        if (graph != null) {
+            parts = getParts(graph);
+            if (parts.isEmpty()) {
+                return result;
+            }
+        }
+
+        List<IndexResourceDTO> resources = searchIndexManager.findResources(search, language, parts, MAX_RESULTS);
+
+        Set<String> definingModelIds = resources.stream()
+            .map(IndexResourceDTO::getIsDefinedBy)
+            .filter(id -> id != null)
+            .collect(Collectors.toSet());
+
+        Map<String, IndexModelDTO> definingModels = definingModelIds.isEmpty() ? new HashMap<>() :
+            searchIndexManager.findModels(null, null, definingModelIds, definingModelIds.size()).stream()
+                .collect(Collectors.toMap(IndexModelDTO::getId, model -> model, (a, b) -> a));
+
+        for (IndexResourceDTO resource : resources) {
+            Resource res = result.createResource(resource.getId());
+            Resource type = resourceTypes.get(resource.getType());
+            if (type != null) {
+                res.addProperty(RDF.type, type);
+            }
+            addLiterals(res, RDFS.label, resource.getLabel(), language);
+            addLiterals(res, RDFS.comment, resource.getComment(), null);
+            IndexModelDTO definingModel = definingModels.get(resource.getIsDefinedBy());
+            if (definingModel != null) {
+                Resource model = result.createResource(definingModel.getId());
+                res.addProperty(RDFS.isDefinedBy, model);
+                addLiterals(model, RDFS.label, definingModel.getLabel(), null);
+                addNamespace(model, definingModel);
+            }
+        }
+
+        // Model graphs were searched too when the search was not limited to parts of a model
+        if (graph == null) {
+            for (IndexModelDTO model : searchIndexManager.findModels(search, language, null, MAX_RESULTS)) {
+                Resource res = result.createResource(model.getId());
+                res.addProperty(RDF.type, OWL.Ontology);
+                Resource type = modelTypes.get(model.getType());
+                if (type != null) {
+                    res.addProperty(RDF.type, type);
+                }
+                addLiterals(res, RDFS.label, model.getLabel(), language);
+                addLiterals(res, RDFS.comment, model.getComment(), null);
+                addNamespace(res, model);
+            }
+        }
+
+        logger.debug("Search '" + search + "' returned " + resources.size() + " resources");
+
+        return result;
+    }
+
+    private Set<String> getParts(String graph) {
+        Set<String> parts = new HashSet<>();
+        Model hasPartGraph = jenaClient.getModelFromCore(graph + "#HasPartGraph");
+        if (hasPartGraph != null) {
+            for (RDFNode part : hasPartGraph.listObjectsOfProperty(DCTerms.hasPart).toList()) {
+                if (part.isURIResource()) {
+                    parts.add(part.asResource().getURI());
+                }
+            }
+        }
+        return parts;
+    }
+
+    private static void addLiterals(Resource resource,
+                                    Property property,
+                                    Map<String, String> values,
+                                    String language) {
+        if (values != null) {
+            values.forEach((lang, value) -> {
+                if (language == null || lang.toLowerCase().startsWith(language.toLowerCase())) {
+                    resource.addProperty(property, value, lang);
+                }
+            });
+        }
+    }
+
+    private static void addNamespace(Resource resource,
+                                     IndexModelDTO model) {
+        if (model.getNamespace() != null) {
+            resource.addProperty(LDHelper.curieToProperty("dcap:preferredXMLNamespaceName"), model.getNamespace());
+        }
+        if (model.getPrefix() != null) {
+            resource.addProperty(LDHelper.curieToProperty("dcap:preferredXMLNamespacePrefix"), model.getPrefix());
+        }
     }
 }
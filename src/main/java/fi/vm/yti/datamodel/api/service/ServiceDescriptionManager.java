@@ -10,8 +10,6 @@ import org.apache.jena.rdf.model.Literal;
 import org.apache.jena.rdf.model.Property;
 import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.ResourceFactory;
-import org.apache.jena.update.UpdateExecutionFactory;
-import org.apache.jena.update.UpdateProcessor;
 import org.apache.jena.update.UpdateRequest;
 import org.springframework.stereotype.Service;
 
@@ -29,9 +27,12 @@ public class ServiceDescriptionManager {
     public static final Resource NamedGraph = ResourceFactory.createResource("http://www.w3.org/ns/sparql-service-description#NamedGraph");
 
     private final EndpointServices endpointServices;
+    private final JenaClient jenaClient;
 
-    ServiceDescriptionManager(EndpointServices endpointServices) {
+    ServiceDescriptionManager(EndpointServices endpointServices,
+                              JenaClient jenaClient) {
         this.endpointServices = endpointServices;
+        this.jenaClient = jenaClient;
     }
 
     /**
@@ -66,8 +67,7 @@ public class ServiceDescriptionManager {
         pss.setCommandText(query);
 
         UpdateRequest queryObj = pss.asUpdate();
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
     }
 
     /**
@@ -91,7 +91,7 @@ public class ServiceDescriptionManager {
         pss.setIri("graphName", model);
         pss.setCommandText(getOrgs);
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
 
             ResultSet results = qexec.execSelect();
             HashSet<UUID> orgUUIDs = new HashSet<>();
@@ -143,7 +143,7 @@ public class ServiceDescriptionManager {
         String endpoint = endpointServices.getCoreSparqlAddress();
 
         Query query = pss.asQuery();
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpoint, query)) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpoint, query)) {
             boolean b = qexec.execAsk();
 
             return b;
@@ -206,8 +206,7 @@ public class ServiceDescriptionManager {
         pss.setCommandText(query);
 
         UpdateRequest queryObj = pss.asUpdate();
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
 
     }
 
@@ -240,8 +239,7 @@ public class ServiceDescriptionManager {
         logger.info("Removing " + graph);
 
         UpdateRequest queryObj = pss.asUpdate();
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
 
     }
 
@@ -281,8 +279,7 @@ public class ServiceDescriptionManager {
         pss.setCommandText(query);
 
         UpdateRequest queryObj = pss.asUpdate();
-        UpdateProcessor qexec = UpdateExecutionFactory.createRemoteForm(queryObj, endpointServices.getCoreSparqlUpdateAddress());
-        qexec.execute();
+        jenaClient.updateToService(queryObj, endpointServices.getCoreSparqlUpdateAddress());
 
     }
 }
@@ -0,0 +1,138 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+import fi.vm.yti.datamodel.api.model.SparqlQueryStatisticsDTO;
+
+/**
+ * Collects execution statistics of SPARQL queries and updates per query template.
+ * <p>
+ * Queries are grouped by a fingerprint, which is the query text with prefix declarations, bound IRIs,
+ * literals and numbers stripped. Executions slower than the configured threshold are logged with the
+ * full query text so that the parameters that caused the slowness can be seen.
+ */
+@Service
+public class SparqlQueryLog {
+
+    private static final Logger logger = LoggerFactory.getLogger(SparqlQueryLog.class.getName());
+
+    private static final Pattern PREFIX_PATTERN = Pattern.compile("(?i)(PREFIX\\s+[^\\s:]*:\\s*<[^>]*>|BASE\\s+<[^>]*>)");
+    private static final Pattern LONG_LITERAL_PATTERN = Pattern.compile("(\"\"\"[\\s\\S]*?\"\"\"|'''[\\s\\S]*?''')(@[a-zA-Z][a-zA-Z0-9-]*)?");
+    private static final Pattern LITERAL_PATTERN = Pattern.compile("(\"(?:[^\"\\\\\\n]|\\\\.)*\"|'(?:[^'\\\\\\n]|\\\\.)*')(@[a-zA-Z][a-zA-Z0-9-]*)?");
+    private static final Pattern IRI_PATTERN = Pattern.compile("<[^<>\"{}|^`\\\\\\s]*>");
+    private static final Pattern NUMBER_PATTERN = Pattern.compile("(?<![\\w?$:])[+-]?\\d+(\\.\\d+)?([eE][+-]?\\d+)?\\b");
+    private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
+
+    private final ApplicationProperties properties;
+    private final Cache<String, SparqlQueryStatisticsDTO> statistics;
+
+    @Autowired
+    public SparqlQueryLog(ApplicationProperties properties) {
+        this.properties = properties;
+        this.statistics = CacheBuilder.newBuilder()
+            .maximumSize(properties.getQueryStatisticsSize())
+            .build();
+    }
+
+    /**
+     * Normalizes query to its template by removing prefixes, IRIs, literals and numbers.
+     *
+     * @param query SPARQL query or update as string
+     * @return Normalized query template
+     */
+    public static String normalize(String query) {
+        String normalized = PREFIX_PATTERN.matcher(query).replaceAll(" ");
+        normalized = LONG_LITERAL_PATTERN.matcher(normalized).replaceAll("\"?\"");
+        normalized = LITERAL_PATTERN.matcher(normalized).replaceAll("\"?\"");
+        normalized = IRI_PATTERN.matcher(normalized).replaceAll("<?>");
+        normalized = NUMBER_PATTERN.matcher(normalized).replaceAll("?");
+        return WHITESPACE_PATTERN.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    /**
+     * Returns short stable identifier for the query template
+     *
+     * @param template Normalized query
+     * @return Fingerprint as hex string
+     */
+    public static String fingerprint(String template) {
+        return Hashing.murmur3_128().hashString(template, StandardCharsets.UTF_8).toString().substring(0, 16);
+    }
+
+    /**
+     * Records one query execution.
+     *
+     * @param dataset       Fuseki dataset the query was sent to
+     * @param operation     Query form, e.g. select, construct, ask or update
+     * @param query         Full query text including bound parameters
+     * @param durationNanos Execution time
+     * @param resultSize    Number of rows or triples returned, -1 if unknown
+     * @param failed        True if the execution threw an exception
+     */
+    public void record(String dataset,
+                       String operation,
+                       String query,
+                       long durationNanos,
+                       long resultSize,
+                       boolean failed) {
+        try {
+            final String template = normalize(query);
+            final String fingerprint = fingerprint(template);
+            final long durationMillis = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+
+            SparqlQueryStatisticsDTO stats = statistics.get(fingerprint, () -> new SparqlQueryStatisticsDTO(fingerprint, dataset, operation, template));
+            stats.record(durationMillis, resultSize, failed);
+
+            if (durationMillis >= properties.getSlowQueryThreshold()) {
+                stats.setSlowestQuery(durationMillis, query);
+                logger.warn("Slow SPARQL " + operation + " [" + fingerprint + "] on " + dataset + " took " + durationMillis + " ms (" + resultSize + " results): " + query);
+            }
+        } catch (Exception ex) {
+            logger.warn("Could not record query statistics", ex);
+        }
+    }
+
+    /**
+     * Returns query templates ordered by the given measure.
+     *
+     * @param limit  Maximum number of templates to return
+     * @param sortBy One of total, max, mean or count
+     * @return Statistics of the query templates
+     */
+    public List<SparqlQueryStatisticsDTO> getTopQueries(int limit,
+                                                        String sortBy) {
+        Comparator<SparqlQueryStatisticsDTO> comparator;
+        if ("max".equals(sortBy)) {
+            comparator = Comparator.comparingLong(SparqlQueryStatisticsDTO::getMaxTime);
+        } else if ("mean".equals(sortBy)) {
+            comparator = Comparator.comparingDouble(SparqlQueryStatisticsDTO::getMeanTime);
+        } else if ("count".equals(sortBy)) {
+            comparator = Comparator.comparingLong(SparqlQueryStatisticsDTO::getCount);
+        } else {
+            comparator = Comparator.comparingLong(SparqlQueryStatisticsDTO::getTotalTime);
+        }
+        return statistics.asMap().values().stream()
+            .sorted(comparator.reversed())
+            .limit(limit)
+            .collect(Collectors.toList());
+    }
+
+    public void reset() {
+        statistics.invalidateAll();
+    }
+}
@@ -0,0 +1,213 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.jena.query.QuerySolution;
+import org.apache.jena.rdf.model.Literal;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import fi.vm.yti.datamodel.api.index.SearchIndexManager;
+import fi.vm.yti.datamodel.api.model.StatusChangeJobDTO;
+import fi.vm.yti.datamodel.api.model.StatusChangeJobDTO.State;
+
+/**
+ * Changes statuses of the resources of a model in background jobs.
+ * <p>
+ * Job state is stored in the {@link #JOBS_GRAPH} graph of core like model deletions, and unfinished jobs are
+ * resumed at startup. Statuses are first changed in the resource graphs and then in the search index with a
+ * single update by query scoped to the model and the initial status, so resources are not read back from core.
+ * Creation time of the job is used as the new iow:statusModified in both, which makes the job idempotent: an
+ * interrupted or failed job can be run again with the same statuses to bring the index up to date.
+ */
+@Service
+public class StatusChangeManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatusChangeManager.class.getName());
+
+    public static final String JOBS_GRAPH = "urn:csc:iow:statusChanges";
+
+    private static final List<String> PROPERTIES = Arrays.asList("iow:model", "iow:initialStatus", "iow:endStatus", "iow:state", "iow:changedResources");
+
+    private final GraphManager graphManager;
+    private final SearchIndexManager searchIndexManager;
+    private final JobStore jobStore;
+    private final ReadRouter readRouter;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder().setNameFormat("status-change-%d").setDaemon(true).build());
+
+    @Autowired
+    StatusChangeManager(GraphManager graphManager,
+                        SearchIndexManager searchIndexManager,
+                        JenaClient jenaClient,
+                        EndpointServices endpointServices,
+                        ReadRouter readRouter) {
+        this.graphManager = graphManager;
+        this.searchIndexManager = searchIndexManager;
+        this.jobStore = new JobStore(jenaClient, endpointServices, JOBS_GRAPH, "iow:StatusChange");
+        this.readRouter = readRouter;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Starts status change of the resources of the model. If the same change is already queued or running for
+     * the model returns the existing job.
+     *
+     * @param model         IRI of the model
+     * @param initialStatus Status of the resources to change
+     * @param endStatus     New status
+     * @param superUser     Whether all status changes are allowed
+     * @return Queued or running job
+     * @throws IllegalArgumentException if the status change is not allowed
+     */
+    @SuppressWarnings("try")
+    public synchronized StatusChangeJobDTO changeStatuses(String model,
+                                                          String initialStatus,
+                                                          String endStatus,
+                                                          boolean superUser) {
+        GraphManager.checkStatusChange(initialStatus, endStatus, superUser);
+
+        try (ReadRouter.Scope scope = readRouter.primaryReads()) {
+            for (StatusChangeJobDTO job : getJobs(model)) {
+                if (!job.isFinished() && job.getInitialStatus().equals(initialStatus) && job.getEndStatus().equals(endStatus)) {
+                    return job;
+                }
+            }
+        }
+
+        Date now = new Date();
+        StatusChangeJobDTO job = new StatusChangeJobDTO(UUID.randomUUID().toString(), model, initialStatus, endStatus, State.QUEUED, 0, now, now, null);
+        putJob(job);
+        submit(job);
+        return job;
+    }
+
+    /**
+     * Resumes jobs that were queued or running when the application was stopped
+     */
+    @SuppressWarnings("try")
+    public void resumeUnfinishedJobs() {
+        try (ReadRouter.Scope scope = readRouter.primaryReads()) {
+            for (StatusChangeJobDTO job : getJobs(null)) {
+                if (!job.isFinished()) {
+                    logger.info("Resuming status change of " + job.getModel() + " from " + job.getInitialStatus() + " to " + job.getEndStatus());
+                    submit(job);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param id Job id
+     * @return Job or null if not found
+     */
+    public StatusChangeJobDTO getJob(String id) {
+        List<StatusChangeJobDTO> jobs = queryJobs(id, null);
+        return jobs.isEmpty() ? null : jobs.get(0);
+    }
+
+    /**
+     * @param model IRI of the model or null for all models
+     * @return Jobs ordered by creation time
+     */
+    public List<StatusChangeJobDTO> getJobs(String model) {
+        return queryJobs(null, model);
+    }
+
+    @SuppressWarnings("try")
+    private void submit(StatusChangeJobDTO job) {
+        executor.execute(() -> {
+            try (ReadRouter.Scope scope = readRouter.primaryReads()) {
+                run(job);
+            }
+        });
+    }
+
+    private void run(StatusChangeJobDTO job) {
+        String model = job.getModel();
+        long start = System.currentTimeMillis();
+
+        try {
+            job.setState(State.RUNNING);
+            putJob(job);
+
+            Literal statusModified = JobStore.toLiteral(job.getCreated());
+
+            graphManager.changeResourceStatuses(model, job.getInitialStatus(), job.getEndStatus(), statusModified);
+            job.setChangedResources(searchIndexManager.updateResourceStatuses(model, job.getInitialStatus(), job.getEndStatus(), statusModified.getLexicalForm()));
+
+            job.setState(State.DONE);
+            putJob(job);
+
+            logger.info("Changed status of " + job.getChangedResources() + " resources in " + model + " from " + job.getInitialStatus() + " to " + job.getEndStatus() + " in " + (System.currentTimeMillis() - start) + " ms");
+        } catch (Exception ex) {
+            logger.warn("Status change of model " + model + " failed", ex);
+            job.setState(State.FAILED);
+            job.setError(ex.getMessage());
+            try {
+                putJob(job);
+            } catch (RuntimeException putEx) {
+                logger.warn("Could not store state of status change job " + job.getId(), putEx);
+            }
+        }
+    }
+
+    private void putJob(StatusChangeJobDTO job) {
+        job.setModified(new Date());
+
+        Map<String, RDFNode> properties = new LinkedHashMap<>();
+        properties.put("iow:model", ResourceFactory.createResource(job.getModel()));
+        properties.put("iow:initialStatus", ResourceFactory.createPlainLiteral(job.getInitialStatus()));
+        properties.put("iow:endStatus", ResourceFactory.createPlainLiteral(job.getEndStatus()));
+        properties.put("iow:state", ResourceFactory.createPlainLiteral(job.getState().name()));
+        properties.put("iow:changedResources", ResourceFactory.createTypedLiteral(job.getChangedResources()));
+
+        jobStore.put("urn:uuid:" + job.getId(), properties, job.getCreated(), job.getModified(), job.getError());
+    }
+
+    private List<StatusChangeJobDTO> queryJobs(String id,
+                                               String model) {
+        Map<String, RDFNode> values = new LinkedHashMap<>();
+        if (id != null) {
+            values.put("job", ResourceFactory.createResource("urn:uuid:" + id));
+        }
+        if (model != null) {
+            values.put("model", ResourceFactory.createResource(model));
+        }
+
+        List<StatusChangeJobDTO> jobs = new ArrayList<>();
+        for (QuerySolution soln : jobStore.query(PROPERTIES, Collections.emptyList(), values)) {
+            jobs.add(new StatusChangeJobDTO(
+                soln.get("job").toString().replace("urn:uuid:", ""),
+                soln.get("model").toString(),
+                soln.getLiteral("initialStatus").getString(),
+                soln.getLiteral("endStatus").getString(),
+                State.valueOf(soln.getLiteral("state").getString()),
+                soln.getLiteral("changedResources").getLong(),
+                JobStore.toDate(soln.getLiteral("created")),
+                JobStore.toDate(soln.getLiteral("modified")),
+                soln.contains("error") ? soln.getLiteral("error").getString() : null));
+        }
+        return jobs;
+    }
+}
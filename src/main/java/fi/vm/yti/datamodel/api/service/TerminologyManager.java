@@ -5,32 +5,31 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
 
 import javax.json.Json;
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
 import javax.json.JsonWriter;
+import javax.ws.rs.ProcessingException;
 import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
 
-import org.apache.jena.query.DatasetAccessor;
-import org.apache.jena.query.DatasetAccessorFactory;
 import org.apache.jena.query.ParameterizedSparqlString;
 import org.apache.jena.query.Query;
 import org.apache.jena.query.QueryExecution;
 import org.apache.jena.query.QueryExecutionFactory;
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.ResourceFactory;
 import org.apache.jena.rdf.model.Selector;
 import org.apache.jena.rdf.model.SimpleSelector;
 import org.apache.jena.rdf.model.Statement;
 import org.apache.jena.update.UpdateAction;
 import org.apache.jena.vocabulary.SKOS;
-import org.apache.jena.web.DatasetAdapter;
-import org.apache.jena.web.DatasetGraphAccessorHTTP;
 import org.commonmark.node.Node;
 import org.commonmark.parser.Parser;
 import org.commonmark.renderer.html.HtmlRenderer;
@@ -40,6 +39,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import fi.vm.yti.datamodel.api.config.ApplicationProperties;
 import fi.vm.yti.datamodel.api.utils.LDHelper;
 
@@ -155,6 +157,13 @@ public final class TerminologyManager {
     private final IDManager idManager;
     private final ModelManager modelManager;
     private final JerseyResponseManager jerseyResponseManager;
+    private final UpstreamGuard guard;
+    private final JenaClient jenaClient;
+    /* Last successful scheme listings, served when the terminology API is unavailable */
+    private final Cache<String, Model> staleSchemes = CacheBuilder.newBuilder()
+        .maximumSize(100)
+        .expireAfterWrite(1, TimeUnit.DAYS)
+        .build();
 
     @Autowired
     TerminologyManager(EndpointServices endpointServices,
@@ -163,7 +172,9 @@ public final class TerminologyManager {
                        NamespaceManager namespaceManager,
                        IDManager idManager,
                        ModelManager modelManager,
-                       JerseyResponseManager jerseyResponseManager) {
+                       JerseyResponseManager jerseyResponseManager,
+                       UpstreamGuard guard,
+                       JenaClient jenaClient) {
         this.endpointServices = endpointServices;
         this.properties = properties;
         this.clientFactory = clientFactory;
@@ -171,6 +182,8 @@ public final class TerminologyManager {
         this.idManager = idManager;
         this.modelManager = modelManager;
         this.jerseyResponseManager = jerseyResponseManager;
+        this.guard = guard;
+        this.jenaClient = jenaClient;
     }
 
     public String createConceptSuggestionJson(String terminologyUri,
@@ -198,13 +211,13 @@ public final class TerminologyManager {
     }
 
     public Model constructFromTempConceptService(String query) {
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getTempConceptReadSparqlAddress(), query)) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getTempConceptReadSparqlAddress(), query)) {
             return qexec.execConstruct();
         }
     }
 
     public Model constructCleanedModelFromTempConceptService(String query) {
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getTempConceptReadSparqlAddress(), query)) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getTempConceptReadSparqlAddress(), query)) {
             Model objects = qexec.execConstruct();
             return cleanModelDefinitions(objects);
         }
@@ -230,12 +243,10 @@ public final class TerminologyManager {
                                                          Query query) {
 
         logger.info("Constructing resource with concept: " + conceptUri);
-        DatasetAccessor testAcc = DatasetAccessorFactory.createHTTP(endpointServices.getCoreReadAddress());
-
         Model conceptModel = searchConceptFromTerminologyIntegrationAPIAsModel(null, null, conceptUri);
 
         assert conceptModel != null;
-        conceptModel.add(testAcc.getModel(modelUri));
+        conceptModel.add(jenaClient.getModelFromCore(modelUri));
 
         try (QueryExecution qexec = QueryExecutionFactory.create(query, conceptModel)) {
             return qexec.execConstruct();
@@ -255,8 +266,9 @@ public final class TerminologyManager {
                                                    Set<String> includeIncompletefrom) {
 
         String url = properties.getDefaultTerminologyAPI() + "v1/integration/containers";
+        String cacheKey = includeIncomplete + " " + (includeIncompletefrom != null ? new TreeSet<>(includeIncompletefrom) : "") + " " + schemeUri;
 
-        Client client = ClientBuilder.newClient();
+        Client client = clientFactory.create(UpstreamMetrics.TERMINOLOGY);
         WebTarget target = client.target(url);
 
         if (includeIncomplete) {
@@ -274,13 +286,24 @@ public final class TerminologyManager {
         logger.debug("Getting schemes from terminology api:");
         logger.debug(target.toString());
 
-        Response response = target.request("application/json").get();
-
-        client.close();
+        WebTarget schemesTarget = target;
+        Response response;
+        try {
+            response = guard.request(UpstreamMetrics.TERMINOLOGY, () -> schemesTarget.request("application/json").get());
+        } catch (UpstreamUnavailableException | ProcessingException ex) {
+            Model stale = getStaleSchemes(cacheKey);
+            if (stale == null) {
+                throw ex;
+            }
+            logger.warn("Serving stale schemes: " + ex.getMessage());
+            return stale;
+        } finally {
+            client.close();
+        }
 
         if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
             logger.warn("Failed to connect " + response.getStatus() + ": " + url);
-            return null;
+            return getStaleSchemes(cacheKey);
         }
 
         Model model = LDHelper.getResultObjectResponseAsJenaModel(response, containerContext);
@@ -290,10 +313,23 @@ public final class TerminologyManager {
 
         model.setNsPrefixes(LDHelper.PREFIX_MAP);
 
+        staleSchemes.put(cacheKey, copy(model));
+
         return model;
 
     }
 
+    private Model getStaleSchemes(String cacheKey) {
+        Model stale = staleSchemes.getIfPresent(cacheKey);
+        return stale != null ? copy(stale) : null;
+    }
+
+    private static Model copy(Model model) {
+        Model copy = ModelFactory.createDefaultModel();
+        copy.setNsPrefixes(model.getNsPrefixMap());
+        return copy.add(model);
+    }
+
     public Model searchConceptFromTerminologyIntegrationAPIAsModel(String query,
                                                                    String vocabularyUri,
                                                                    String conceptUri) {
@@ -306,7 +342,7 @@ public final class TerminologyManager {
         String url = properties.getDefaultTerminologyAPI() + "v1/integration/resources";
 
 
-        Client client = ClientBuilder.newClient();
+        Client client = clientFactory.create(UpstreamMetrics.TERMINOLOGY);
 
         WebTarget target = client.target(url)
             .queryParam("includeIncomplete", true);
@@ -330,8 +366,13 @@ public final class TerminologyManager {
 
         logger.debug("Searching from ES: " + target.getUri());
 
-        Response response = target.request("application/json").get();
-        client.close();
+        WebTarget resourcesTarget = target;
+        Response response;
+        try {
+            response = guard.request(UpstreamMetrics.TERMINOLOGY, () -> resourcesTarget.request("application/json").get());
+        } finally {
+            client.close();
+        }
 
         if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
             logger.warn("Failed to connect " + response.getStatus() + ": " + response.getLocation());
@@ -379,13 +420,17 @@ public final class TerminologyManager {
 
         String url = properties.getDefaultTerminologyAPI() + "v1/public/searchconcept";
 
-        Client client = ClientBuilder.newClient();
+        Client client = clientFactory.create(UpstreamMetrics.TERMINOLOGY);
         WebTarget target = client.target(url)
             .queryParam("searchTerm", LDHelper.encode(query))
             .queryParam("vocabularyId", graphId);
 
-        Response response = target.request("application/json").get();
-        client.close();
+        Response response;
+        try {
+            response = guard.request(UpstreamMetrics.TERMINOLOGY, () -> target.request("application/json").get());
+        } finally {
+            client.close();
+        }
 
         if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
             logger.warn("Failed to connect " + response.getStatus() + ": " + url);
@@ -421,10 +466,8 @@ public final class TerminologyManager {
     public void putToConceptGraph(Model model,
                                   String id) {
 
-        DatasetGraphAccessorHTTP accessor = new DatasetGraphAccessorHTTP(endpointServices.getTempConceptReadWriteAddress());
-        DatasetAdapter adapter = new DatasetAdapter(accessor);
         try {
-            adapter.putModel(id, model);
+            jenaClient.putModelToService(endpointServices.getTempConceptReadWriteAddress(), id, model);
         } catch (NullPointerException ex) {
             logger.warn("Failed to update " + id);
         }
@@ -442,7 +485,7 @@ public final class TerminologyManager {
         pss.setIri("model", model);
 
         Query query = pss.asQuery();
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), query)) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), query)) {
             boolean b = qexec.execAsk();
             return b;
         } catch (Exception ex) {
@@ -459,7 +502,7 @@ public final class TerminologyManager {
         pss.setIri("concept", concept);
 
         Query query = pss.asQuery();
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), query)) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), query)) {
 
             boolean b = qexec.execAsk();
             return b;
@@ -0,0 +1,343 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.ws.rs.core.Response;
+
+import org.apache.jena.atlas.web.HttpException;
+import org.apache.jena.sparql.engine.http.QueryExceptionHTTP;
+import org.elasticsearch.ElasticsearchException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+import fi.vm.yti.datamodel.api.config.UpstreamPolicy;
+import fi.vm.yti.datamodel.api.service.UpstreamMetrics.UpstreamCall;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Bulkhead and circuit breaker for each upstream service, configured with {@link UpstreamPolicy}.
+ * <p>
+ * Every call takes one of maxConcurrent slots of its upstream and waits at most acquireTimeout for one, so a
+ * slow upstream can hold only its own slots instead of every request thread. After failureThreshold consecutive
+ * failures the circuit opens and calls are rejected immediately with {@link UpstreamUnavailableException}.
+ * When openDuration has passed a single trial call is let through, and its outcome either closes the circuit
+ * or keeps it open for another period. Callers that have a stale copy of the data can pass a fallback that is
+ * used instead of failing.
+ * <p>
+ * Circuit states are published as yti.upstream.circuit.state gauges and with the upstreams actuator endpoint.
+ */
+@Service
+public class UpstreamGuard {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamGuard.class.getName());
+
+    static final String CIRCUIT_STATE_NAME = "yti.upstream.circuit.state";
+    static final String ACTIVE_CALLS_NAME = "yti.upstream.active";
+    static final String REJECTED_NAME = "yti.upstream.rejected";
+
+    public enum CircuitState {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+
+    private static final class Upstream {
+
+        private final String name;
+        private final UpstreamPolicy policy;
+        private final int capacity;
+        private final Semaphore slots;
+        private final AtomicLong rejected = new AtomicLong();
+        private CircuitState state = CircuitState.CLOSED;
+        private int failures;
+        private long openedAt;
+        private boolean trialRunning;
+        private String lastError;
+
+        Upstream(String name,
+                 UpstreamPolicy policy) {
+            this.name = name;
+            this.policy = policy;
+            this.capacity = Math.max(1, policy.getMaxConcurrent());
+            this.slots = new Semaphore(capacity, true);
+        }
+
+        long retryAfterSeconds() {
+            long remaining = TimeUnit.SECONDS.toMillis(policy.getOpenDuration()) - (System.currentTimeMillis() - openedAt);
+            return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(remaining));
+        }
+
+        synchronized boolean allow() {
+            if (state == CircuitState.OPEN && System.currentTimeMillis() - openedAt >= TimeUnit.SECONDS.toMillis(policy.getOpenDuration())) {
+                state = CircuitState.HALF_OPEN;
+                trialRunning = false;
+            }
+            if (state == CircuitState.OPEN || (state == CircuitState.HALF_OPEN && trialRunning)) {
+                return false;
+            }
+            if (state == CircuitState.HALF_OPEN) {
+                trialRunning = true;
+            }
+            return true;
+        }
+
+        synchronized void succeeded() {
+            failures = 0;
+            trialRunning = false;
+            if (state == CircuitState.HALF_OPEN) {
+                state = CircuitState.CLOSED;
+                logger.info("Circuit of upstream " + name + " closed");
+            }
+        }
+
+        synchronized void failed(Throwable ex) {
+            failures++;
+            trialRunning = false;
+            lastError = ex.getClass().getSimpleName() + ": " + ex.getMessage();
+            if (state == CircuitState.HALF_OPEN || (state == CircuitState.CLOSED && failures >= policy.getFailureThreshold())) {
+                state = CircuitState.OPEN;
+                openedAt = System.currentTimeMillis();
+                logger.warn("Circuit of upstream " + name + " opened for " + policy.getOpenDuration() + " s after " + failures + " failures: " + lastError);
+            }
+        }
+
+        synchronized void abandoned() {
+            trialRunning = false;
+        }
+
+        synchronized Map<String, Object> describe() {
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("state", state);
+            details.put("consecutiveFailures", failures);
+            details.put("activeCalls", capacity - slots.availablePermits());
+            details.put("maxConcurrent", capacity);
+            details.put("rejectedCalls", rejected.get());
+            if (state == CircuitState.OPEN) {
+                details.put("retryAfterSeconds", retryAfterSeconds());
+            }
+            if (lastError != null) {
+                details.put("lastError", lastError);
+            }
+            return details;
+        }
+    }
+
+    /**
+     * Slot of a single call. Exactly one of {@link #success()} or {@link #failure(Throwable)} must be called
+     * when the call has completed, further calls are ignored.
+     */
+    public static final class Permit {
+
+        private final Upstream upstream;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Upstream upstream) {
+            this.upstream = upstream;
+        }
+
+        public void success() {
+            if (released.compareAndSet(false, true)) {
+                upstream.slots.release();
+                upstream.succeeded();
+            }
+        }
+
+        public void failure(Throwable ex) {
+            if (released.compareAndSet(false, true)) {
+                upstream.slots.release();
+                if (isClientError(ex)) {
+                    upstream.succeeded();
+                } else {
+                    upstream.failed(ex);
+                }
+            }
+        }
+    }
+
+    private final ApplicationProperties properties;
+    private final MeterRegistry registry;
+    private final Map<String, Upstream> upstreams = new ConcurrentHashMap<>();
+
+    @Autowired
+    UpstreamGuard(ApplicationProperties properties,
+                  MeterRegistry registry) {
+        this.properties = properties;
+        this.registry = registry;
+    }
+
+    /**
+     * @param upstream Upstream name, see {@link UpstreamMetrics}
+     * @return Policy of the upstream
+     */
+    public UpstreamPolicy getPolicy(String upstream) {
+        return upstream(upstream).policy;
+    }
+
+    /**
+     * Takes a slot for a call to the upstream
+     *
+     * @throws UpstreamUnavailableException if the circuit is open or no slot was freed within acquireTimeout
+     */
+    public Permit acquire(String upstream) {
+        Upstream target = upstream(upstream);
+        if (!target.allow()) {
+            throw reject(target, "circuit open");
+        }
+        boolean acquired;
+        try {
+            acquired = target.slots.tryAcquire(target.policy.getAcquireTimeout(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            target.abandoned();
+            throw reject(target, "all " + target.capacity + " slots in use");
+        }
+        return new Permit(target);
+    }
+
+    /**
+     * Executes the call in a slot of the upstream. Exceptions thrown by the call count as failures,
+     * except for invalid input and 4xx responses.
+     */
+    public <T, E extends Exception> T call(String upstream,
+                                           UpstreamCall<T, E> call) throws E {
+        Permit permit = acquire(upstream);
+        ClientMetricsFilter.reset();
+        try {
+            T result = call.call();
+            permit.success();
+            return result;
+        } catch (Exception ex) {
+            ClientMetricsFilter.recordFailure(ex);
+            permit.failure(ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Executes the call like {@link #call(String, UpstreamCall)} but returns the fallback, for example a stale
+     * cached copy, if the call is rejected or fails. If the fallback returns null the original exception is thrown.
+     */
+    public <T, E extends Exception> T call(String upstream,
+                                           UpstreamCall<T, E> call,
+                                           Supplier<T> fallback) throws E {
+        try {
+            return call(upstream, call);
+        } catch (Exception ex) {
+            T value = fallback.get();
+            if (value == null) {
+                throw ex;
+            }
+            logger.info("Using fallback for " + upstream + ": " + ex.getMessage());
+            return value;
+        }
+    }
+
+    /**
+     * Sends the HTTP request in a slot of the upstream. Responses with 5xx status count as failures,
+     * but are returned to the caller as they are.
+     */
+    public Response request(String upstream,
+                            Supplier<Response> request) {
+        Permit permit = acquire(upstream);
+        ClientMetricsFilter.reset();
+        try {
+            Response response = request.get();
+            if (response.getStatusInfo().getFamily() == Response.Status.Family.SERVER_ERROR) {
+                permit.failure(new IllegalStateException("HTTP " + response.getStatus()));
+            } else {
+                permit.success();
+            }
+            return response;
+        } catch (RuntimeException ex) {
+            ClientMetricsFilter.recordFailure(ex);
+            permit.failure(ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * @return Circuit state and concurrency of every upstream that has been called
+     */
+    public Map<String, Map<String, Object>> getStates() {
+        Map<String, Map<String, Object>> states = new LinkedHashMap<>();
+        upstreams.values().stream()
+            .sorted((a, b) -> a.name.compareTo(b.name))
+            .forEach(upstream -> states.put(upstream.name, upstream.describe()));
+        return states;
+    }
+
+    public CircuitState getState(String upstream) {
+        Upstream target = upstream(upstream);
+        synchronized (target) {
+            return target.state;
+        }
+    }
+
+    /**
+     * Invalid input and 4xx responses show that the upstream is working, so those do not open the circuit
+     */
+    static boolean isClientError(Throwable ex) {
+        int status = -1;
+        if (ex instanceof IllegalArgumentException) {
+            return true;
+        } else if (ex instanceof ElasticsearchException) {
+            status = ((ElasticsearchException) ex).status().getStatus();
+        } else if (ex instanceof HttpException) {
+            status = ((HttpException) ex).getResponseCode();
+        } else if (ex instanceof QueryExceptionHTTP) {
+            status = ((QueryExceptionHTTP) ex).getResponseCode();
+        }
+        return status >= 400 && status < 500;
+    }
+
+    private UpstreamUnavailableException reject(Upstream upstream,
+                                                String reason) {
+        upstream.rejected.incrementAndGet();
+        Counter.builder(REJECTED_NAME)
+            .description("Calls to upstream services rejected by bulkhead or circuit breaker")
+            .tag("upstream", upstream.name)
+            .tag("reason", reason.startsWith("circuit") ? "circuit" : "bulkhead")
+            .register(registry)
+            .increment();
+        long retryAfter;
+        synchronized (upstream) {
+            retryAfter = upstream.state == CircuitState.OPEN ? upstream.retryAfterSeconds() : 1;
+        }
+        return new UpstreamUnavailableException(upstream.name, reason, retryAfter);
+    }
+
+    private Upstream upstream(String name) {
+        return upstreams.computeIfAbsent(name, key -> {
+            Upstream upstream = new Upstream(key, properties.getUpstreamPolicy(key));
+            Gauge.builder(CIRCUIT_STATE_NAME, upstream, u -> {
+                synchronized (u) {
+                    return u.state.ordinal();
+                }
+            })
+                .description("Circuit state of upstream services: 0 closed, 1 half open, 2 open")
+                .tag("upstream", key)
+                .register(registry);
+            Gauge.builder(ACTIVE_CALLS_NAME, upstream, u -> u.capacity - u.slots.availablePermits())
+                .description("Calls in flight to upstream services")
+                .tag("upstream", key)
+                .register(registry);
+            return upstream;
+        });
+    }
+}
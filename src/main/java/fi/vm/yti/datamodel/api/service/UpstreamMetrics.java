@@ -0,0 +1,167 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Records latency, payload sizes and errors of calls made to the services this API depends on
+ * (Fuseki datasets, Elasticsearch indexes and the external HTTP APIs).
+ * <p>
+ * Every meter is tagged with the upstream system, the target inside that system (dataset, index or host)
+ * and the operation, for example upstream=fuseki, target=core, operation=construct.
+ */
+@Service
+public class UpstreamMetrics {
+
+    public static final String FUSEKI = "fuseki";
+    public static final String ELASTIC = "elasticsearch";
+    public static final String TERMINOLOGY = "terminology";
+    public static final String CODES = "codes";
+    public static final String GROUP_MANAGEMENT = "groupmanagement";
+
+    static final String TIMER_NAME = "yti.upstream.requests";
+    static final String ERROR_COUNTER_NAME = "yti.upstream.errors";
+    static final String PAYLOAD_BYTES_NAME = "yti.upstream.payload.bytes";
+    static final String PAYLOAD_ITEMS_NAME = "yti.upstream.payload.items";
+
+    private final MeterRegistry registry;
+
+    @Autowired
+    public UpstreamMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @FunctionalInterface
+    public interface UpstreamCall<T, E extends Exception> {
+
+        T call() throws E;
+    }
+
+    @FunctionalInterface
+    public interface UpstreamAction<E extends Exception> {
+
+        void run() throws E;
+    }
+
+    /**
+     * Executes the call and records its duration. Failures are counted per exception type and rethrown.
+     */
+    public <T, E extends Exception> T record(String upstream,
+                                             String target,
+                                             String operation,
+                                             UpstreamCall<T, E> call) throws E {
+        final long start = System.nanoTime();
+        String outcome = "SUCCESS";
+        try {
+            return call.call();
+        } catch (Exception ex) {
+            outcome = "ERROR";
+            recordError(upstream, target, operation, ex);
+            throw ex;
+        } finally {
+            recordTime(upstream, target, operation, outcome, System.nanoTime() - start);
+        }
+    }
+
+    public <E extends Exception> void run(String upstream,
+                                          String target,
+                                          String operation,
+                                          UpstreamAction<E> action) throws E {
+        record(upstream, target, operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public void recordTime(String upstream,
+                           String target,
+                           String operation,
+                           String outcome,
+                           long durationNanos) {
+        Timer.builder(TIMER_NAME)
+            .description("Latency of calls to upstream services")
+            .tag("upstream", upstream)
+            .tag("target", target)
+            .tag("operation", operation)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(registry)
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordError(String upstream,
+                            String target,
+                            String operation,
+                            Throwable ex) {
+        recordError(upstream, target, operation, ex.getClass().getSimpleName());
+    }
+
+    public void recordError(String upstream,
+                            String target,
+                            String operation,
+                            String errorType) {
+        Counter.builder(ERROR_COUNTER_NAME)
+            .description("Failed calls to upstream services")
+            .tag("upstream", upstream)
+            .tag("target", target)
+            .tag("operation", operation)
+            .tag("exception", errorType)
+            .register(registry)
+            .increment();
+    }
+
+    /**
+     * Records the size of a request or response body in bytes.
+     */
+    public void recordBytes(String upstream,
+                            String target,
+                            String operation,
+                            long bytes) {
+        if (bytes < 0) {
+            return;
+        }
+        DistributionSummary.builder(PAYLOAD_BYTES_NAME)
+            .description("Payload sizes of upstream requests and responses")
+            .baseUnit("bytes")
+            .tag("upstream", upstream)
+            .tag("target", target)
+            .tag("operation", operation)
+            .publishPercentileHistogram()
+            .register(registry)
+            .record(bytes);
+    }
+
+    /**
+     * Records the size of a payload as a number of items, e.g. triples of a graph, result rows or search hits.
+     */
+    public void recordItems(String upstream,
+                            String target,
+                            String operation,
+                            long items) {
+        if (items < 0) {
+            return;
+        }
+        DistributionSummary.builder(PAYLOAD_ITEMS_NAME)
+            .description("Number of triples, rows or documents in upstream payloads")
+            .tag("upstream", upstream)
+            .tag("target", target)
+            .tag("operation", operation)
+            .publishPercentileHistogram()
+            .register(registry)
+            .record(items);
+    }
+
+    /**
+     * Creates a JAX-RS client filter that records outbound HTTP calls of the given upstream.
+     */
+    public ClientMetricsFilter clientFilter(String upstream) {
+        return new ClientMetricsFilter(this, upstream);
+    }
+}
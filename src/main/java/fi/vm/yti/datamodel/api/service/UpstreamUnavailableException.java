@@ -0,0 +1,27 @@
+package fi.vm.yti.datamodel.api.service;
+
+/**
+ * Thrown by {@link UpstreamGuard} when a call is rejected without contacting the upstream, because its circuit
+ * is open or all of its concurrency slots are in use.
+ */
+public class UpstreamUnavailableException extends RuntimeException {
+
+    private final String upstream;
+    private final long retryAfterSeconds;
+
+    public UpstreamUnavailableException(String upstream,
+                                        String reason,
+                                        long retryAfterSeconds) {
+        super("Upstream " + upstream + " unavailable: " + reason);
+        this.upstream = upstream;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public String getUpstream() {
+        return upstream;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -65,11 +65,14 @@ public class XMLSchemaWriter {
 
     private final EndpointServices endpointServices;
     private final GraphManager graphManager;
+    private final JenaClient jenaClient;
 
     XMLSchemaWriter(EndpointServices endpointServices,
-                    GraphManager graphManager) {
+                    GraphManager graphManager,
+                    JenaClient jenaClient) {
         this.endpointServices = endpointServices;
         this.graphManager = graphManager;
+        this.jenaClient = jenaClient;
     }
 
     public String newClassSchema(String classID,
@@ -107,7 +110,7 @@ public class XMLSchemaWriter {
         boolean classMetadata = false;
 
         Element complexType;
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
             ResultSet results = qexec.execSelect();
 
             if (!results.hasNext()) {
@@ -170,7 +173,7 @@ public class XMLSchemaWriter {
             pss.setCommandText(selectResources);
             if (lang != null) pss.setLiteral("lang", lang);
 
-            try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
+            try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
 
                 ResultSet results = qexec.execSelect();
 
@@ -226,7 +229,7 @@ public class XMLSchemaWriter {
         pss.setNsPrefixes(LDHelper.PREFIX_MAP);
         pss.setCommandText(selectClass);
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.toString())) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), pss.toString())) {
 
             ResultSet results = qexec.execSelect();
 
@@ -292,7 +295,7 @@ public class XMLSchemaWriter {
         pss.setCommandText(selectResources);
         pss.setNsPrefixes(LDHelper.PREFIX_MAP);
 
-        try (QueryExecution qexec = QueryExecutionFactory.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpointServices.getCoreSparqlAddress(), pss.asQuery())) {
 
             ResultSet results = qexec.execSelect();
             ResultSetPeekable pResults = ResultSetFactory.makePeekable(results);
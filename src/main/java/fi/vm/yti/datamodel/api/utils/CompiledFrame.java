@@ -0,0 +1,47 @@
+package fi.vm.yti.datamodel.api.utils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JSON-LD frame from {@link Frames} with its context merged with {@link LDHelper#PREFIX_MAP} once.
+ * <p>
+ * Frames used to be filled with the prefixes of each framed model in place, which grew the shared frames and
+ * was not thread-safe. Each framing now gets its own copy of the precompiled frame with only the prefixes of
+ * the model added.
+ */
+public final class CompiledFrame {
+
+    private final Map<String, Object> frame;
+    private final Map<String, Object> context;
+
+    public CompiledFrame(Map<String, Object> frame) {
+        Map<String, Object> frameCopy = new LinkedHashMap<>(frame);
+        Map<String, Object> contextCopy = new LinkedHashMap<>();
+        Object frameContext = frameCopy.get("@context");
+        if (frameContext instanceof Map) {
+            ((Map<?, ?>) frameContext).forEach((key, value) -> contextCopy.put(key.toString(), value));
+        }
+        contextCopy.putAll(LDHelper.PREFIX_MAP);
+        frameCopy.put("@context", contextCopy);
+        this.frame = Collections.unmodifiableMap(frameCopy);
+        this.context = Collections.unmodifiableMap(contextCopy);
+    }
+
+    /**
+     * @param prefixes Prefixes of the framed model. Prefixes of {@link LDHelper#PREFIX_MAP} take precedence.
+     * @return New frame that can be modified by the caller
+     */
+    public LinkedHashMap<String, Object> withPrefixes(Map<String, String> prefixes) {
+        LinkedHashMap<String, Object> frameContext = new LinkedHashMap<>(context);
+        prefixes.forEach((prefix, namespace) -> {
+            if (!LDHelper.PREFIX_MAP.containsKey(prefix)) {
+                frameContext.put(prefix, namespace);
+            }
+        });
+        LinkedHashMap<String, Object> result = new LinkedHashMap<>(frame);
+        result.put("@context", frameContext);
+        return result;
+    }
+}
@@ -20,6 +20,8 @@ final public class ErrorMessage {
     final public static String INVALIDVOCABULARY = toJs("{'errorMessage':'Invalid SKOSMOS ID'}");
     final public static String INVALIDPARAMETER = toJs("{'errorMessage':'Invalid API parameters'}");
     final public static String NOTACCEPTED = toJs("{'errorMessage':'Not accepted'}");
+    final public static String PRECONDITIONFAILED = toJs("{'errorMessage':'Resource has been modified'}");
+    final public static String TOOLARGE = toJs("{'errorMessage':'Request is too large'}");
 
     private static String toJs(String jsonString) {
         return jsonString.replaceAll("'", "\"");
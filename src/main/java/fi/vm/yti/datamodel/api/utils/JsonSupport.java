@@ -0,0 +1,101 @@
+package fi.vm.yti.datamodel.api.utils;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.jsonldjava.core.JsonLdOptions;
+
+/**
+ * Shared JSON readers and writers for processing RDF as JSON and JSON-LD.
+ * <p>
+ * Creating an ObjectMapper is expensive and every new mapper builds its serializers again, so plain JSON is
+ * read and written with the immutable readers and writers of one mapper with the default configuration. The
+ * Spring managed ObjectMapper is configured for the REST API and is not used here.
+ */
+public final class JsonSupport {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectMapper LENIENT_MAPPER = new ObjectMapper().configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+
+    public static final ObjectReader TREE_READER = MAPPER.reader();
+    public static final ObjectReader MAP_READER = MAPPER.readerFor(new TypeReference<Map<String, Object>>() {
+    });
+    public static final ObjectReader LIST_READER = MAPPER.readerFor(new TypeReference<List<Object>>() {
+    });
+    /* Reads JSON objects written with single quotes, for example contexts written as Java strings */
+    public static final ObjectReader LENIENT_MAP_READER = LENIENT_MAPPER.readerFor(new TypeReference<Map<String, Object>>() {
+    });
+    public static final ObjectWriter WRITER = MAPPER.writer();
+    public static final ObjectWriter PRETTY_WRITER = MAPPER.writerWithDefaultPrettyPrinter();
+
+    private JsonSupport() {
+    }
+
+    public static JsonFactory getFactory() {
+        return MAPPER.getFactory();
+    }
+
+    /**
+     * Converts maps and lists, for example JSON-LD produced by jsonld-java, to a tree without writing it out
+     */
+    public static JsonNode valueToTree(Object value) {
+        return MAPPER.valueToTree(value);
+    }
+
+    /**
+     * Options used for framing JSON-LD. A new instance is returned every time because jsonld-java modifies the
+     * options while framing.
+     */
+    public static JsonLdOptions framingOptions() {
+        JsonLdOptions opts = new JsonLdOptions();
+        opts.setProcessingMode(JsonLdOptions.JSON_LD_1_1);
+        opts.useNamespaces = true;
+        opts.setCompactArrays(true);
+        opts.setUseNativeTypes(Boolean.TRUE);
+        return opts;
+    }
+
+    /**
+     * Reads the prefixes of the top level @context of a JSON-LD document. Only tokens up to the end of the
+     * context are read, so when the context is the first member of the document the rest is not parsed.
+     *
+     * @param json JSON-LD document
+     * @return Terms of the context mapped to strings, empty if the document has no context object
+     * @throws IOException if the document is not a JSON object
+     */
+    public static Map<String, String> readContextPrefixes(String json) throws IOException {
+        Map<String, String> prefixes = new LinkedHashMap<>();
+        try (JsonParser parser = MAPPER.getFactory().createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("@context".equals(field) && value == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String term = parser.getCurrentName();
+                        if (parser.nextToken() == JsonToken.VALUE_STRING) {
+                            prefixes.put(term, parser.getText());
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    return prefixes;
+                }
+                parser.skipChildren();
+            }
+        }
+        return prefixes;
+    }
+}
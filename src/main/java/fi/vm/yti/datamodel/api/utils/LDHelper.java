@@ -1,8 +1,5 @@
 package fi.vm.yti.datamodel.api.utils;
 
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.jsonldjava.utils.JsonUtils;
 
 import org.apache.commons.lang3.StringUtils;
@@ -330,10 +327,7 @@ public class LDHelper {
 
     private static Map<String, Object> jsonObject(String json) {
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            mapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
-            return mapper.readValue(json, new TypeReference<HashMap<String, Object>>() {
-            });
+            return JsonSupport.LENIENT_MAP_READER.readValue(json);
         } catch (IOException ex) {
             logger.warn(ex.getMessage(), ex);
             return null;
@@ -724,15 +718,12 @@ public class LDHelper {
                                                         Map<String, Object> contextObject) {
         Model model = ModelFactory.createDefaultModel();
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            Map<String,Object> jsonObject = mapper.readValue((InputStream) response.getEntity(), new TypeReference<Map<String,Object>>() {
-            });
+            Map<String, Object> jsonObject = JsonSupport.MAP_READER.readValue((InputStream) response.getEntity());
             List<Object> jsonList = (List<Object>) jsonObject.get("results");
             Map<String, Object> rootObject = new HashMap<>();
             rootObject.put("@context", contextObject);
             rootObject.put("@graph", jsonList);
-            String jsonLdString = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(rootObject);
-            InputStream targetStream = new ByteArrayInputStream(jsonLdString.getBytes());
+            InputStream targetStream = new ByteArrayInputStream(JsonSupport.WRITER.writeValueAsBytes(rootObject));
             model = model.read(targetStream, "", "JSON-LD");
         } catch (IOException ex) {
             logger.info(ex.getMessage());
@@ -744,14 +735,11 @@ public class LDHelper {
                                                         Map<String, Object> contextObject) {
         Model model = ModelFactory.createDefaultModel();
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            List<Object> jsonList = mapper.readValue((InputStream) response.getEntity(), new TypeReference<List<Object>>() {
-            });
+            List<Object> jsonList = JsonSupport.LIST_READER.readValue((InputStream) response.getEntity());
             Map<String, Object> rootObject = new HashMap<>();
             rootObject.put("@context", contextObject);
             rootObject.put("@graph", jsonList);
-            String jsonLdString = mapper.writerWithDefaultPrettyPrinter().writeValueAsString(rootObject);
-            InputStream targetStream = new ByteArrayInputStream(jsonLdString.getBytes());
+            InputStream targetStream = new ByteArrayInputStream(JsonSupport.WRITER.writeValueAsBytes(rootObject));
             model = model.read(targetStream, "", "JSON-LD");
         } catch (IOException ex) {
             logger.info(ex.getMessage());
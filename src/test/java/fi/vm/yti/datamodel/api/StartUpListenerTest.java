@@ -0,0 +1,131 @@
+package fi.vm.yti.datamodel.api;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import fi.vm.yti.datamodel.api.StartUpHealthIndicator.StageState;
+import fi.vm.yti.datamodel.api.index.ElasticConnector;
+import fi.vm.yti.datamodel.api.index.FrameManager;
+import fi.vm.yti.datamodel.api.index.SearchIndexManager;
+import fi.vm.yti.datamodel.api.migration.BatchedMigrationRunner;
+import fi.vm.yti.datamodel.api.service.CountManager;
+import fi.vm.yti.datamodel.api.service.GraphManager;
+import fi.vm.yti.datamodel.api.service.GroupManagementService;
+import fi.vm.yti.datamodel.api.service.ModelDeletionManager;
+import fi.vm.yti.datamodel.api.service.RHPOrganizationManager;
+import fi.vm.yti.datamodel.api.service.ReferenceIndex;
+import fi.vm.yti.datamodel.api.service.StatusChangeManager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class StartUpListenerTest {
+
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+
+    private ElasticConnector elasticConnector;
+    private SearchIndexManager searchIndexManager;
+    private StartUpHealthIndicator startUpHealth;
+    private StartUpListener listener;
+
+    @Before
+    public void setUp() throws IOException {
+        elasticConnector = mock(ElasticConnector.class);
+        searchIndexManager = mock(SearchIndexManager.class);
+        startUpHealth = new StartUpHealthIndicator();
+
+        // Cleaning of the frame index is slow so that a search index stage not waiting for it would run first
+        when(elasticConnector.cleanIndex(anyString())).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            calls.add("cleanIndex " + invocation.getArgument(0));
+            return true;
+        });
+        doAnswer(invocation -> calls.add("createIndex " + invocation.getArgument(0))).when(elasticConnector).createIndex(anyString());
+        doAnswer(invocation -> calls.add("reindex")).when(searchIndexManager).reindex();
+
+        // Namespace stage is not under test, so it fails without a namespace manager
+        listener = new StartUpListener(mock(RHPOrganizationManager.class),
+            mock(GraphManager.class),
+            null,
+            elasticConnector,
+            new FrameManager(elasticConnector, null, null),
+            searchIndexManager,
+            null,
+            mock(GroupManagementService.class),
+            mock(ReferenceIndex.class),
+            mock(ModelDeletionManager.class),
+            mock(StatusChangeManager.class),
+            mock(BatchedMigrationRunner.class),
+            mock(CountManager.class),
+            startUpHealth);
+    }
+
+    @After
+    public void tearDown() {
+        listener.contextDestroyed();
+    }
+
+    @Test
+    public void searchIndexIsBuiltAfterFramesAreCleaned() throws InterruptedException {
+        listener.contextInitialized();
+
+        awaitState("searchIndex", StageState.DONE);
+        assertEquals(StageState.DONE, state("frames"));
+        assertTrue(calls.toString(), calls.indexOf("createIndex dm_vis_models") >= 0);
+        assertTrue(calls.toString(), calls.indexOf("createIndex dm_vis_models") < calls.indexOf("reindex"));
+    }
+
+    @Test
+    public void failedReindexIsReported() throws Exception {
+        doThrow(new IOException("Index could not be created")).when(searchIndexManager).reindex();
+
+        listener.contextInitialized();
+
+        awaitState("searchIndex", StageState.FAILED);
+        awaitState("modelDeletions", StageState.SKIPPED);
+        awaitState("statusChanges", StageState.SKIPPED);
+        assertEquals("Index could not be created", details("searchIndex").get("error"));
+    }
+
+    @Test
+    public void searchIndexIsSkippedWhenFramesFail() throws Exception {
+        when(elasticConnector.cleanIndex(anyString())).thenThrow(new IOException("Elasticsearch is not available"));
+
+        listener.contextInitialized();
+
+        awaitState("frames", StageState.FAILED);
+        awaitState("searchIndex", StageState.SKIPPED);
+        assertTrue(calls.toString(), !calls.contains("reindex"));
+    }
+
+    private void awaitState(String stage,
+                            StageState state) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (state(stage) != state) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Stage " + stage + " is " + state(stage) + ", expected " + state);
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private StageState state(String stage) {
+        return (StageState) details(stage).get("state");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> details(String stage) {
+        return (Map<String, Object>) startUpHealth.health().getDetails().get(stage);
+    }
+}
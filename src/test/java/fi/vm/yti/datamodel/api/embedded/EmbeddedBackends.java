@@ -0,0 +1,191 @@
+package fi.vm.yti.datamodel.api.embedded;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.jena.fuseki.main.FusekiServer;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.elasticsearch.analysis.common.CommonAnalysisPlugin;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.reindex.ReindexPlugin;
+import org.elasticsearch.node.InternalSettingsPreparer;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.node.NodeValidationException;
+import org.elasticsearch.painless.PainlessPlugin;
+import org.elasticsearch.plugins.Plugin;
+import org.elasticsearch.transport.Netty4Plugin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Starts in-process stand-ins for Fuseki and Elasticsearch before the application context is refreshed.
+ * <p>
+ * Fuseki serves in-memory core, prov, imports, scheme and concept datasets at the port of the endpoint property,
+ * and a single node Elasticsearch with HTTP and transport modules listens at elasticHttpPort and elasticPort.
+ * Core is seeded with {@link SyntheticRepository} using embedded.models and embedded.resources, so startup
+ * stages index the seeded models like they would in production.
+ * <p>
+ * Backends are started once per JVM and shared by every context that uses this initializer. Use it with the
+ * embedded profile, for example <code>@ContextConfiguration(initializers = EmbeddedBackends.class)</code>.
+ */
+public class EmbeddedBackends implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedBackends.class.getName());
+
+    static final String[] DATASETS = { "core", "prov", "imports", "scheme", "concept" };
+
+    private static final Map<String, Dataset> datasets = new LinkedHashMap<>();
+    private static FusekiServer fuseki;
+    private static Node elasticsearch;
+    private static Path elasticHome;
+
+    @Override
+    public void initialize(ConfigurableApplicationContext context) {
+        start(context.getEnvironment());
+    }
+
+    /**
+     * @param name Dataset name, for example core
+     * @return In-memory dataset served by the embedded Fuseki
+     */
+    public static synchronized Dataset getDataset(String name) {
+        return datasets.get(name);
+    }
+
+    public static synchronized void start(ConfigurableEnvironment environment) {
+        if (fuseki != null) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+
+        int fusekiPort = URI.create(environment.getRequiredProperty("endpoint")).getPort();
+        int models = environment.getProperty("embedded.models", Integer.class, 10);
+        int resources = environment.getProperty("embedded.resources", Integer.class, 20);
+
+        Map<String, Dataset> fusekiDatasets = createDatasets();
+        datasets.putAll(fusekiDatasets);
+
+        SyntheticRepository.seed(datasets.get("core"), environment.getRequiredProperty("defaultNamespace"), models, resources);
+
+        fuseki = createFuseki(fusekiPort, fusekiDatasets).start();
+
+        try {
+            elasticHome = Files.createTempDirectory("embedded-elasticsearch");
+            elasticsearch = createElasticsearch(elasticHome, environment.getRequiredProperty("elasticCluster"), environment.getRequiredProperty("elasticHost"),
+                environment.getRequiredProperty("elasticHttpPort"), environment.getRequiredProperty("elasticPort"));
+            elasticsearch.start();
+        } catch (IOException | NodeValidationException ex) {
+            stop();
+            throw new IllegalStateException("Could not start embedded Elasticsearch", ex);
+        }
+
+        Runtime.getRuntime().addShutdownHook(new Thread(EmbeddedBackends::stop, "embedded-backends-shutdown"));
+
+        logger.info("Embedded backends with " + models + " models of " + resources + " resources started in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * @return Empty in-memory core, prov, imports, scheme and concept datasets by name
+     */
+    public static Map<String, Dataset> createDatasets() {
+        Map<String, Dataset> created = new LinkedHashMap<>();
+        for (String name : DATASETS) {
+            created.put(name, DatasetFactory.createTxnMem());
+        }
+        return created;
+    }
+
+    /**
+     * Creates a Fuseki that serves the datasets at /name with query, update and graph store endpoints. Also
+     * used by tests that need only Fuseki, see fi.vm.yti.datamodel.api.service.EmbeddedFuseki.
+     *
+     * @param port     Port, listening only on the loopback interface
+     * @param datasets Datasets by name
+     * @return Server that is not started yet
+     */
+    public static FusekiServer createFuseki(int port,
+                                            Map<String, Dataset> datasets) {
+        FusekiServer.Builder builder = FusekiServer.create().port(port).loopback(true);
+        datasets.forEach((name, dataset) -> builder.add("/" + name, dataset, true));
+        return builder.build();
+    }
+
+    /**
+     * Creates a single node Elasticsearch with the modules the mappings and the reindex use. Also used by tests
+     * that need only Elasticsearch, see fi.vm.yti.datamodel.api.index.LuceneQueryFactoryRankingTest.
+     *
+     * @param home          Home and data directory of the node
+     * @param httpPort      Port of the REST API
+     * @param transportPort Port of the transport client
+     * @return Node that is not started yet
+     */
+    public static Node createElasticsearch(Path home,
+                                           String cluster,
+                                           String host,
+                                           String httpPort,
+                                           String transportPort) {
+        // Test runs enable assertions, and the cgroup probes of Elasticsearch 6 assert cgroup v1 hierarchies
+        EmbeddedBackends.class.getClassLoader().setPackageAssertionStatus("org.elasticsearch", false);
+        return new EmbeddedNode(Settings.builder()
+            .put("cluster.name", cluster)
+            .put("node.name", "embedded")
+            .put("path.home", home.toString())
+            .put("network.host", host)
+            .put("http.port", httpPort)
+            .put("transport.tcp.port", transportPort)
+            .put("discovery.type", "single-node")
+            .put("http.type", "netty4")
+            .put("transport.type", "netty4")
+            .build());
+    }
+
+    public static synchronized void stop() {
+        if (fuseki != null) {
+            fuseki.stop();
+            fuseki = null;
+        }
+        if (elasticsearch != null) {
+            try {
+                elasticsearch.close();
+            } catch (IOException ex) {
+                logger.warn("Could not stop embedded Elasticsearch", ex);
+            }
+            elasticsearch = null;
+        }
+        if (elasticHome != null) {
+            try {
+                FileSystemUtils.deleteRecursively(elasticHome);
+            } catch (IOException ex) {
+                logger.warn("Could not delete " + elasticHome, ex);
+            }
+            elasticHome = null;
+        }
+        datasets.clear();
+    }
+
+    private static class EmbeddedNode extends Node {
+
+        private static final Collection<Class<? extends Plugin>> PLUGINS = Arrays.asList(
+            Netty4Plugin.class, ReindexPlugin.class, CommonAnalysisPlugin.class, PainlessPlugin.class);
+
+        EmbeddedNode(Settings settings) {
+            super(InternalSettingsPreparer.prepareEnvironment(settings, null), PLUGINS, false);
+        }
+
+        @Override
+        protected void registerDerivedNodeNameWithLogger(String nodeName) {
+        }
+    }
+}
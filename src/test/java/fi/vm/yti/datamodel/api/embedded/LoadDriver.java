@@ -0,0 +1,245 @@
+package fi.vm.yti.datamodel.api.embedded;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+
+import fi.vm.yti.datamodel.api.Application;
+import fi.vm.yti.datamodel.api.StartUpHealthIndicator;
+
+/**
+ * Headless load driver for the hot read endpoints.
+ * <p>
+ * Starts the application against {@link EmbeddedBackends}, waits until startup stages are ready and runs every
+ * scenario with loadTest.threads concurrent clients. Each scenario makes loadTest.warmup unmeasured requests
+ * followed by loadTest.requests measured ones, spread over the seeded models and resources, and the latency
+ * percentiles are logged as a table. Exits with status 1 if any measured request failed.
+ * <p>
+ * Run with <code>./gradlew loadTest</code>.
+ */
+public class LoadDriver {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadDriver.class.getName());
+
+    private static final class Scenario {
+
+        private final String name;
+        private final IntFunction<Invocation> request;
+
+        Scenario(String name,
+                 IntFunction<Invocation> request) {
+            this.name = name;
+            this.request = request;
+        }
+    }
+
+    static final class Result {
+
+        private final String name;
+        private final long[] latencies;
+        private final int errors;
+        private final long elapsedNanos;
+
+        Result(String name,
+               long[] latencies,
+               int errors,
+               long elapsedNanos) {
+            this.name = name;
+            this.latencies = latencies.clone();
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+            Arrays.sort(this.latencies);
+        }
+
+        /**
+         * @param percentile Percentile between 0 and 100
+         * @return Latency in milliseconds using the nearest rank method
+         */
+        double percentile(double percentile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * latencies.length);
+            return latencies[Math.max(0, Math.min(latencies.length, rank) - 1)] / 1_000_000.0;
+        }
+
+        double throughput() {
+            return elapsedNanos > 0 ? latencies.length * 1_000_000_000.0 / elapsedNanos : 0;
+        }
+
+        int getErrors() {
+            return errors;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-16s %8d %6d %8.1f %8.1f %8.1f %8.1f %8.1f %10.1f",
+                name, latencies.length, errors, percentile(50), percentile(90), percentile(95), percentile(99), percentile(100), throughput());
+        }
+    }
+
+    private static final String JSON_LD = "application/ld+json";
+
+    private final Environment environment;
+    private final Client client = ClientBuilder.newClient();
+    private final WebTarget target;
+    private final int models;
+    private final int resources;
+    private final String defaultNamespace;
+
+    LoadDriver(Environment environment) {
+        this.environment = environment;
+        this.target = client.target("http://localhost:" + environment.getRequiredProperty("server.port") + "/datamodel-api/api/v1/");
+        this.models = Math.max(1, environment.getProperty("embedded.models", Integer.class, 10));
+        this.resources = Math.max(2, environment.getProperty("embedded.resources", Integer.class, 20));
+        this.defaultNamespace = environment.getRequiredProperty("defaultNamespace");
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        ConfigurableApplicationContext context;
+        try {
+            context = new SpringApplicationBuilder(Application.class)
+                .profiles("junit", "test", "embedded")
+                .initializers(new EmbeddedBackends())
+                .run(args);
+        } catch (RuntimeException ex) {
+            EmbeddedBackends.stop();
+            throw ex;
+        }
+
+        int errors = 0;
+        try {
+            waitUntilReady(context.getBean(StartUpHealthIndicator.class), context.getEnvironment().getProperty("loadTest.startupTimeout", Integer.class, 300));
+            LoadDriver driver = new LoadDriver(context.getEnvironment());
+            List<Result> results = driver.run();
+            logger.info(String.format("%n%-16s %8s %6s %8s %8s %8s %8s %8s %10s%n",
+                "scenario", "requests", "errors", "p50 ms", "p90 ms", "p95 ms", "p99 ms", "max ms", "req/s")
+                + results.stream().map(Result::toString).reduce((a, b) -> a + String.format("%n") + b).orElse(""));
+            errors = results.stream().mapToInt(Result::getErrors).sum();
+        } finally {
+            context.close();
+            EmbeddedBackends.stop();
+        }
+        System.exit(errors > 0 ? 1 : 0);
+    }
+
+    private static void waitUntilReady(StartUpHealthIndicator health,
+                                       int timeoutSeconds) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeoutSeconds);
+        while (!health.isReady()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Startup not ready in " + timeoutSeconds + " seconds: " + health.health().getDetails());
+            }
+            Thread.sleep(500);
+        }
+        logger.info("Startup ready: " + health.health().getDetails());
+    }
+
+    List<Result> run() throws InterruptedException {
+        int threads = environment.getProperty("loadTest.threads", Integer.class, 4);
+        int requests = environment.getProperty("loadTest.requests", Integer.class, 200);
+        int warmup = environment.getProperty("loadTest.warmup", Integer.class, 20);
+
+        List<Result> results = new ArrayList<>();
+        for (Scenario scenario : scenarios()) {
+            logger.info("Running scenario " + scenario.name);
+            execute(scenario, threads, warmup);
+            results.add(execute(scenario, threads, requests));
+        }
+        return results;
+    }
+
+    private List<Scenario> scenarios() {
+        List<Scenario> scenarios = new ArrayList<>();
+        scenarios.add(new Scenario("models", n -> target.path("model").request(JSON_LD).buildGet()));
+        scenarios.add(new Scenario("model", n -> target.path("model")
+            .queryParam("prefix", SyntheticRepository.modelPrefix(model(n)))
+            .request(JSON_LD).buildGet()));
+        scenarios.add(new Scenario("class", n -> target.path("class")
+            .queryParam("id", SyntheticRepository.resourceId(defaultNamespace, model(n), classIndex(n)))
+            .request(JSON_LD).buildGet()));
+        scenarios.add(new Scenario("predicate", n -> target.path("predicate")
+            .queryParam("id", SyntheticRepository.resourceId(defaultNamespace, model(n), classIndex(n) + 1))
+            .request(JSON_LD).buildGet()));
+        scenarios.add(new Scenario("usage", n -> target.path("usage")
+            .queryParam("id", SyntheticRepository.resourceId(defaultNamespace, model(n), classIndex(n)))
+            .request(JSON_LD).buildGet()));
+        scenarios.add(new Scenario("exportModel", n -> target.path("exportModel")
+            .queryParam("graph", SyntheticRepository.modelId(defaultNamespace, model(n)))
+            .queryParam("content-type", "text/turtle")
+            .request().buildGet()));
+        scenarios.add(new Scenario("searchModels", n -> target.path("searchModels")
+            .request(MediaType.APPLICATION_JSON)
+            .buildPost(Entity.json("{\"query\":\"" + n % 10 + "\",\"searchResources\":true,\"pageSize\":20}"))));
+        scenarios.add(new Scenario("searchResources", n -> target.path("searchResources")
+            .request(MediaType.APPLICATION_JSON)
+            .buildPost(Entity.json("{\"query\":\"" + n % 10 + "\",\"pageSize\":20}"))));
+        scenarios.add(new Scenario("search", n -> target.path("search")
+            .queryParam("search", n % 10)
+            .queryParam("graph", SyntheticRepository.modelId(defaultNamespace, model(n)))
+            .request(JSON_LD).buildGet()));
+        scenarios.add(new Scenario("counts", n -> target.path("system").path("counts").request(MediaType.APPLICATION_JSON).buildGet()));
+        return scenarios;
+    }
+
+    private int model(int n) {
+        return n % models;
+    }
+
+    private int classIndex(int n) {
+        return (n / models * 2) % (resources - resources % 2);
+    }
+
+    private Result execute(Scenario scenario,
+                           int threads,
+                           int requests) throws InterruptedException {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                int n;
+                while ((n = next.getAndIncrement()) < requests) {
+                    long requestStart = System.nanoTime();
+                    try {
+                        Response response = scenario.request.apply(n).invoke();
+                        response.readEntity(String.class);
+                        if (response.getStatus() >= 400) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (RuntimeException ex) {
+                        logger.warn("Request " + n + " of " + scenario.name + " failed", ex);
+                        errors.incrementAndGet();
+                    }
+                    latencies[n] = System.nanoTime() - requestStart;
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+
+        return new Result(scenario.name, latencies, errors.get(), System.nanoTime() - start);
+    }
+}
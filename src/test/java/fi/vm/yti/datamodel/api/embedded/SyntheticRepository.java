@@ -0,0 +1,209 @@
+package fi.vm.yti.datamodel.api.embedded;
+
+import java.util.UUID;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.rdf.model.Literal;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.sparql.vocabulary.FOAF;
+import org.apache.jena.system.Txn;
+import org.apache.jena.util.FileManager;
+import org.apache.jena.vocabulary.DCTerms;
+import org.apache.jena.vocabulary.OWL;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.apache.jena.vocabulary.SKOS;
+import org.apache.jena.vocabulary.XSD;
+import org.topbraid.shacl.vocabulary.SH;
+
+import fi.vm.yti.datamodel.api.utils.LDHelper;
+
+/**
+ * Writes a synthetic repository of models and resources directly to the core dataset.
+ * <p>
+ * Graphs have the same shape as the ones written by the API: model graph, export graph and HasPartGraph for every
+ * model, one graph per class and predicate, and named graph entries in the service description. Every model
+ * requires the previous one and its object properties range over classes of the previous model, so that usage
+ * and reference queries have something to find. Names are deterministic, see {@link #modelId(String, int)} and
+ * {@link #resourceId(String, int, int)}.
+ */
+public final class SyntheticRepository {
+
+    public static final String ORGANIZATION = "urn:uuid:7d3a3c00-5a6b-489b-a3ed-63bb58c26a63";
+    public static final String SERVICE_CATEGORY = "http://urn.fi/URN:NBN:fi:au:ptvl:v1001";
+
+    private static final String[] STATUSES = { "DRAFT", "VALID", "SUGGESTED" };
+
+    private SyntheticRepository() {
+    }
+
+    public static String modelPrefix(int model) {
+        return "load" + model;
+    }
+
+    public static String modelId(String defaultNamespace,
+                                 int model) {
+        return defaultNamespace + modelPrefix(model);
+    }
+
+    /**
+     * @return IRI of a resource. Resources with even index are classes and odd ones predicates.
+     */
+    public static String resourceId(String defaultNamespace,
+                                    int model,
+                                    int resource) {
+        return modelId(defaultNamespace, model) + "#" + (resource % 2 == 0 ? "Class" : "predicate") + resource;
+    }
+
+    /**
+     * Seeds the core dataset with metamodel graphs and the given number of models and resources
+     *
+     * @param dataset          Core dataset
+     * @param defaultNamespace Namespace of the models
+     * @param models           Number of models
+     * @param resources        Number of resources per model
+     */
+    public static void seed(Dataset dataset,
+                            String defaultNamespace,
+                            int models,
+                            int resources) {
+        Txn.executeWrite(dataset, () -> {
+            Model sd = ModelFactory.createDefaultModel();
+            RDFDataMgr.read(sd, LDHelper.getDefaultGraphInputStream(), RDFLanguages.JSONLD);
+            Resource graphCollection = sd.listSubjectsWithProperty(RDF.type, LDHelper.curieToResource("sd:GraphCollection")).next();
+
+            dataset.addNamedModel("urn:yti:servicecategories", FileManager.get().loadModel("ptvl-skos.rdf"));
+            dataset.addNamedModel("urn:yti:organizations", organizations());
+            dataset.addNamedModel("urn:yti:metamodel:version", ModelFactory.createDefaultModel()
+                .addLiteral(ResourceFactory.createResource("urn:yti:metamodel:version"), LDHelper.curieToProperty("iow:version"), 1));
+
+            for (int i = 0; i < models; i++) {
+                seedModel(dataset, defaultNamespace, i, resources);
+                Resource namedGraph = sd.createResource()
+                    .addProperty(RDF.type, LDHelper.curieToResource("sd:NamedGraph"))
+                    .addProperty(LDHelper.curieToProperty("sd:name"), sd.createResource(modelId(defaultNamespace, i)))
+                    .addProperty(DCTerms.created, LDHelper.getDateTimeLiteral())
+                    .addProperty(DCTerms.contributor, sd.createResource(ORGANIZATION));
+                sd.add(graphCollection, LDHelper.curieToProperty("sd:namedGraph"), namedGraph);
+            }
+
+            dataset.addNamedModel("urn:csc:iow:sd", sd);
+        });
+    }
+
+    private static void seedModel(Dataset dataset,
+                                  String defaultNamespace,
+                                  int index,
+                                  int resources) {
+        String id = modelId(defaultNamespace, index);
+        String status = STATUSES[index % STATUSES.length];
+        Literal now = LDHelper.getDateTimeLiteral();
+
+        Model model = ModelFactory.createDefaultModel();
+        model.setNsPrefixes(LDHelper.PREFIX_MAP);
+        Resource modelResource = model.createResource(id)
+            .addProperty(RDF.type, OWL.Ontology)
+            .addProperty(RDF.type, LDHelper.curieToResource("dcap:MetadataVocabulary"))
+            .addProperty(RDFS.label, model.createLiteral("Kuormitusmalli " + index, "fi"))
+            .addProperty(RDFS.label, model.createLiteral("Load test model " + index, "en"))
+            .addProperty(RDFS.comment, model.createLiteral("Synthetic model for load tests", "en"))
+            .addProperty(DCTerms.identifier, "urn:uuid:" + UUID.nameUUIDFromBytes(id.getBytes()))
+            .addProperty(DCTerms.created, now)
+            .addProperty(DCTerms.modified, now)
+            .addProperty(LDHelper.curieToProperty("iow:contentModified"), now)
+            .addProperty(LDHelper.curieToProperty("iow:statusModified"), now)
+            .addProperty(DCTerms.contributor, model.createResource(ORGANIZATION))
+            .addProperty(DCTerms.isPartOf, model.createResource(SERVICE_CATEGORY)
+                .addProperty(RDF.type, FOAF.Group)
+                .addProperty(DCTerms.identifier, "P1")
+                .addProperty(RDFS.label, model.createLiteral("Asuminen", "fi"))
+                .addProperty(RDFS.label, model.createLiteral("Housing", "en")))
+            .addProperty(DCTerms.language, model.createList(new RDFNode[]{ model.createLiteral("fi"), model.createLiteral("en") }))
+            .addProperty(LDHelper.curieToProperty("dcap:preferredXMLNamespaceName"), id + "#")
+            .addProperty(LDHelper.curieToProperty("dcap:preferredXMLNamespacePrefix"), modelPrefix(index))
+            .addProperty(OWL.versionInfo, status);
+        if (index > 0) {
+            modelResource.addProperty(DCTerms.requires, model.createResource(modelId(defaultNamespace, index - 1)));
+        }
+        model.createResource(ORGANIZATION)
+            .addProperty(RDF.type, FOAF.Organization)
+            .addProperty(SKOS.prefLabel, model.createLiteral("Test organization", "en"));
+
+        Model hasPart = ModelFactory.createDefaultModel();
+        Model export = ModelFactory.createDefaultModel();
+
+        for (int j = 0; j < resources; j++) {
+            String resourceId = resourceId(defaultNamespace, index, j);
+            Model resource = j % 2 == 0 ? classGraph(resourceId, id, j, status, now) : predicateGraph(defaultNamespace, resourceId, id, index, j, status, now);
+            dataset.addNamedModel(resourceId, resource);
+            export.add(resource);
+            hasPart.add(hasPart.createResource(id), DCTerms.hasPart, hasPart.createResource(resourceId));
+        }
+
+        dataset.addNamedModel(id, model);
+        dataset.addNamedModel(id + "#ExportGraph", export.add(model).add(hasPart));
+        dataset.addNamedModel(id + "#HasPartGraph", hasPart);
+    }
+
+    private static Model classGraph(String id,
+                                    String modelId,
+                                    int index,
+                                    String status,
+                                    Literal now) {
+        Model graph = ModelFactory.createDefaultModel();
+        graph.createResource(id)
+            .addProperty(RDF.type, RDFS.Class)
+            .addProperty(SH.name, graph.createLiteral("Luokka " + index, "fi"))
+            .addProperty(SH.name, graph.createLiteral("Class " + index, "en"))
+            .addProperty(SH.description, graph.createLiteral("Synthetic class " + index, "en"))
+            .addProperty(RDFS.isDefinedBy, graph.createResource(modelId))
+            .addProperty(DCTerms.identifier, "urn:uuid:" + UUID.nameUUIDFromBytes(id.getBytes()))
+            .addProperty(DCTerms.created, now)
+            .addProperty(DCTerms.modified, now)
+            .addProperty(LDHelper.curieToProperty("iow:statusModified"), now)
+            .addProperty(OWL.versionInfo, status);
+        return graph;
+    }
+
+    private static Model predicateGraph(String defaultNamespace,
+                                        String id,
+                                        String modelId,
+                                        int model,
+                                        int index,
+                                        String status,
+                                        Literal now) {
+        Model graph = ModelFactory.createDefaultModel();
+        boolean objectProperty = index % 4 == 1;
+        Resource range = objectProperty
+            ? graph.createResource(resourceId(defaultNamespace, Math.max(0, model - 1), index - 1))
+            : XSD.xstring;
+        graph.createResource(id)
+            .addProperty(RDF.type, objectProperty ? OWL.ObjectProperty : OWL.DatatypeProperty)
+            .addProperty(RDFS.label, graph.createLiteral("Ominaisuus " + index, "fi"))
+            .addProperty(RDFS.label, graph.createLiteral("Predicate " + index, "en"))
+            .addProperty(RDFS.comment, graph.createLiteral("Synthetic predicate " + index, "en"))
+            .addProperty(RDFS.isDefinedBy, graph.createResource(modelId))
+            .addProperty(RDFS.range, range)
+            .addProperty(DCTerms.identifier, "urn:uuid:" + UUID.nameUUIDFromBytes(id.getBytes()))
+            .addProperty(DCTerms.created, now)
+            .addProperty(DCTerms.modified, now)
+            .addProperty(LDHelper.curieToProperty("iow:statusModified"), now)
+            .addProperty(OWL.versionInfo, status);
+        return graph;
+    }
+
+    private static Model organizations() {
+        Model model = ModelFactory.createDefaultModel();
+        model.createResource(ORGANIZATION)
+            .addProperty(RDF.type, FOAF.Organization)
+            .addProperty(SKOS.prefLabel, model.createLiteral("Test organization", "en"))
+            .addProperty(DCTerms.description, model.createLiteral("This organization is for testing only", "en"));
+        return model;
+    }
+}
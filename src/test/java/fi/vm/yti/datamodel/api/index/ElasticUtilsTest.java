@@ -0,0 +1,72 @@
+package fi.vm.yti.datamodel.api.index;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.fetch.subphase.highlight.HighlightField;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ElasticUtilsTest {
+
+    @Test
+    public void wholeLabelHighlightIsPreferredOverSubfields() {
+        // Subfields first, as the order of highlight fields in a response is not defined
+        SearchHit hit = hit(
+            field("label.fi.suffix", "Katu<b>osoite</b>"),
+            field("label.fi.prefix", "<b>Katu</b>osoite"),
+            field("label.fi", "<b>Katuosoite</b>"));
+
+        assertEquals(Collections.singletonMap("fi", "<b>Katuosoite</b>"), ElasticUtils.getHighlightedLabels(hit));
+    }
+
+    @Test
+    public void subfieldHighlightIsUsedWhenWholeLabelIsNotHighlighted() {
+        SearchHit hit = hit(
+            field("label.sv.suffix", "Gatu<b>adress</b>"),
+            field("label.fi.prefix", "<b>Osoite</b>tieto"),
+            field("label.sv", "<b>Gatuadress</b>"));
+
+        Map<String, String> labels = ElasticUtils.getHighlightedLabels(hit);
+        assertEquals(2, labels.size());
+        assertEquals("<b>Osoite</b>tieto", labels.get("fi"));
+        assertEquals("<b>Gatuadress</b>", labels.get("sv"));
+    }
+
+    @Test
+    public void prefixHighlightIsPreferredOverSuffix() {
+        SearchHit hit = hit(
+            field("label.en.suffix", "Street<b>address</b>"),
+            field("label.en.prefix", "<b>Street</b>address"));
+
+        assertEquals(Collections.singletonMap("en", "<b>Street</b>address"), ElasticUtils.getHighlightedLabels(hit));
+    }
+
+    @Test
+    public void otherFieldsAndEmptyHighlightsAreIgnored() {
+        SearchHit hit = hit(
+            field("comment.fi", "<b>Osoite</b>"),
+            new HighlightField("label.fi", new Text[0]));
+
+        assertEquals(Collections.emptyMap(), ElasticUtils.getHighlightedLabels(hit));
+    }
+
+    private static SearchHit hit(HighlightField... fields) {
+        Map<String, HighlightField> highlightFields = new LinkedHashMap<>();
+        for (HighlightField field : fields) {
+            highlightFields.put(field.getName(), field);
+        }
+        SearchHit hit = new SearchHit(1);
+        hit.highlightFields(highlightFields);
+        return hit;
+    }
+
+    private static HighlightField field(String name,
+                                        String fragment) {
+        return new HighlightField(name, new Text[]{ new Text(fragment) });
+    }
+}
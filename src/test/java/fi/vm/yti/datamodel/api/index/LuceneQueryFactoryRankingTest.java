@@ -0,0 +1,138 @@
+package fi.vm.yti.datamodel.api.index;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.http.HttpHost;
+import org.elasticsearch.action.admin.indices.create.CreateIndexRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.StreamUtils;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+import fi.vm.yti.datamodel.api.embedded.EmbeddedBackends;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Ranking of the queries of {@link LuceneQueryFactory} in indexes created with resource_mapping.json and
+ * model_mapping.json.
+ */
+public class LuceneQueryFactoryRankingTest {
+
+    private static final String RESOURCE_INDEX = "dm_resources";
+    private static final String MODEL_INDEX = "dm_models";
+
+    private static Path home;
+    private static Node node;
+    private static RestHighLevelClient client;
+
+    private final LuceneQueryFactory factory = new LuceneQueryFactory(new ApplicationProperties());
+
+    @BeforeClass
+    public static void startElasticsearch() throws Exception {
+        home = Files.createTempDirectory("ranking-elasticsearch");
+        int httpPort = freePort();
+        node = EmbeddedBackends.createElasticsearch(home, "ranking", "localhost", String.valueOf(httpPort), String.valueOf(freePort()));
+        node.start();
+        client = new RestHighLevelClient(RestClient.builder(new HttpHost("localhost", httpPort, "http")));
+
+        for (String index : Arrays.asList(RESOURCE_INDEX, MODEL_INDEX)) {
+            String mapping = index.equals(RESOURCE_INDEX) ? "resource_mapping.json" : "model_mapping.json";
+            client.indices().create(new CreateIndexRequest(index).source(resource(mapping), XContentType.JSON), RequestOptions.DEFAULT);
+            put(index, "exact", "fi", "Osoite");
+            put(index, "exactEn", "en", "Osoite");
+            put(index, "prefix", "fi", "Osoitetieto");
+            put(index, "suffix", "fi", "Katuosoite");
+        }
+    }
+
+    @AfterClass
+    public static void stopElasticsearch() throws IOException {
+        if (client != null) {
+            client.close();
+        }
+        if (node != null) {
+            node.close();
+        }
+        FileSystemUtils.deleteRecursively(home);
+    }
+
+    @Test
+    public void wholeWordsRankAboveWordPrefixesAndSuffixes() throws IOException {
+        for (String index : Arrays.asList(RESOURCE_INDEX, MODEL_INDEX)) {
+            List<String> hits = search(index, "osoite", null);
+            assertEquals(index, 4, hits.size());
+            assertEquals(index, new HashSet<>(Arrays.asList("exact", "exactEn")), new HashSet<>(hits.subList(0, 2)));
+            assertEquals(index, new HashSet<>(Arrays.asList("prefix", "suffix")), new HashSet<>(hits.subList(2, 4)));
+        }
+    }
+
+    @Test
+    public void wholeWordOfBoostedLanguageRanksFirst() throws IOException {
+        for (String index : Arrays.asList(RESOURCE_INDEX, MODEL_INDEX)) {
+            List<String> hits = search(index, "osoite", "fi");
+            assertEquals(index, "exact", hits.get(0));
+            assertEquals(index, "exactEn", hits.get(3));
+        }
+    }
+
+    @Test
+    public void prefixesAndSuffixesAreMatched() throws IOException {
+        for (String index : Arrays.asList(RESOURCE_INDEX, MODEL_INDEX)) {
+            assertEquals(index, Arrays.asList("prefix"), search(index, "osoitetie", null));
+            assertEquals(index, Arrays.asList("suffix"), search(index, "tuosoite", null));
+        }
+    }
+
+    private List<String> search(String index,
+                                String query,
+                                String boostLanguage) throws IOException {
+        SearchRequest request = new SearchRequest(index)
+            .source(new SearchSourceBuilder().query(factory.buildPrefixSuffixQuery(query, "label", boostLanguage)));
+        return Arrays.stream(client.search(request, RequestOptions.DEFAULT).getHits().getHits())
+            .map(SearchHit::getId)
+            .collect(Collectors.toList());
+    }
+
+    private static void put(String index,
+                            String id,
+                            String language,
+                            String label) throws IOException {
+        String source = "{ \"id\" : \"" + id + "\", \"label\" : { \"" + language + "\" : \"" + label + "\" } }";
+        client.index(new IndexRequest(index, "doc", id).source(source, XContentType.JSON)
+            .setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE), RequestOptions.DEFAULT);
+    }
+
+    private static String resource(String name) throws IOException {
+        try (InputStream is = LuceneQueryFactoryRankingTest.class.getClassLoader().getResourceAsStream(name)) {
+            return StreamUtils.copyToString(is, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package fi.vm.yti.datamodel.api.index;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.ws.rs.BadRequestException;
+
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.MultiMatchQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryStringQueryBuilder;
+import org.junit.Test;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LuceneQueryFactoryTest {
+
+    private final LuceneQueryFactory factory = new LuceneQueryFactory(new ApplicationProperties());
+
+    @Test
+    public void plainWordsAreMatchedWithPrefixAndSuffixFields() {
+        assertTrue(factory.buildPrefixSuffixQuery("osoite", "label", "fi") instanceof BoolQueryBuilder);
+        assertTrue(factory.buildPrefixSuffixQuery("katu osoite", "label", "fi") instanceof BoolQueryBuilder);
+    }
+
+    @Test
+    public void prefixAndSuffixSubfieldsAreQueriedInTheirOwnClauses() {
+        List<QueryBuilder> clauses = ((BoolQueryBuilder) factory.buildPrefixSuffixQuery("osoite", "label", "de")).should();
+        assertEquals(3, clauses.size());
+        assertEquals(fields(2, 2, 2, 20), ((MultiMatchQueryBuilder) clauses.get(0)).fields());
+        assertEquals(fields(1, 1, 1, 10).keySet().stream().map(field -> field + ".prefix").collect(Collectors.toSet()),
+            ((MultiMatchQueryBuilder) clauses.get(1)).fields().keySet());
+        assertEquals(fields(1, 1, 1, 10).keySet().stream().map(field -> field + ".suffix").collect(Collectors.toSet()),
+            ((MultiMatchQueryBuilder) clauses.get(2)).fields().keySet());
+    }
+
+    @Test
+    public void languageFieldsAreListed() {
+        assertEquals(fields(1, 1, 1, 10), ((QueryStringQueryBuilder) factory.buildPrefixSuffixQuery("osoi*", "label", "de")).fields());
+        assertEquals(fields(1, 1, 1, 10), ((MultiMatchQueryBuilder) factory.buildPrefixSuffixQuery("osoite.", "label", "de")).fields());
+    }
+
+    @Test
+    public void boostedLanguageIsOneOfTheSearchLanguages() {
+        Map<String, Float> fields = ((MultiMatchQueryBuilder) factory.buildPrefixSuffixQuery("osoite.", "label", "fi")).fields();
+        assertEquals(3, fields.size());
+        assertEquals(10f, fields.get("label.fi"), 0f);
+        assertEquals(1f, fields.get("label.en"), 0f);
+    }
+
+    @Test
+    public void wildcardsArePassedToQueryString() {
+        assertTrue(factory.buildPrefixSuffixQuery("osoi*", "label", null) instanceof QueryStringQueryBuilder);
+    }
+
+    @Test
+    public void punctuationFallsBackToTextQuery() {
+        QueryBuilder query = factory.buildPrefixSuffixQuery("Henkilö (luonnollinen), osoite.", "label", "fi");
+        assertTrue(query instanceof MultiMatchQueryBuilder);
+        assertEquals("Henkilö (luonnollinen), osoite.", ((MultiMatchQueryBuilder) query).value());
+    }
+
+    @Test(expected = BadRequestException.class)
+    public void blankQueryIsRejected() {
+        factory.buildPrefixSuffixQuery("   ", "label", null);
+    }
+
+    /**
+     * @return Boosts of the label fields of the default search languages fi, sv and en and the language de
+     */
+    private static Map<String, Float> fields(float fi,
+                                             float sv,
+                                             float en,
+                                             float de) {
+        Map<String, Float> fields = new HashMap<>();
+        fields.put("label.fi", fi);
+        fields.put("label.sv", sv);
+        fields.put("label.en", en);
+        fields.put("label.de", de);
+        return fields;
+    }
+}
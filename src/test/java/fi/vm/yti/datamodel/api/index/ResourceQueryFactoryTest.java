@@ -0,0 +1,37 @@
+package fi.vm.yti.datamodel.api.index;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+import fi.vm.yti.datamodel.api.index.model.ResourceSearchRequest;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ResourceQueryFactoryTest {
+
+    private final ResourceQueryFactory factory = new ResourceQueryFactory(new ObjectMapper(), new LuceneQueryFactory(new ApplicationProperties()));
+
+    @Test
+    public void labelsAreHighlightedWhenRequested() {
+        assertNotNull(factory.createQuery(request("osoite"), true).source().highlighter());
+    }
+
+    @Test
+    public void labelsAreNotHighlightedWhenNotRequested() {
+        assertNull(factory.createQuery(request("osoite"), false).source().highlighter());
+    }
+
+    @Test
+    public void labelsAreNotHighlightedWithoutQuery() {
+        assertNull(factory.createQuery(request(""), true).source().highlighter());
+    }
+
+    private static ResourceSearchRequest request(String query) {
+        ResourceSearchRequest request = new ResourceSearchRequest();
+        request.setQuery(query);
+        return request;
+    }
+}
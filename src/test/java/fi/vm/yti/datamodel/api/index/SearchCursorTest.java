@@ -0,0 +1,162 @@
+package fi.vm.yti.datamodel.api.index;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.ScoreSortBuilder;
+import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortOrder;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SearchCursorTest {
+
+    private static final String ID = "http://uri.suomi.fi/datamodel/ns/test#Address";
+
+    @Test
+    public void sortValuesAreEncodedAndDecoded() {
+        Object[] sortValues = { 1.5, 1546300800000L, "osoite", ID };
+
+        String cursor = SearchCursor.encode(sortValues);
+
+        assertTrue(cursor, cursor.matches("[A-Za-z0-9_-]+"));
+        assertArrayEquals(sortValues, SearchCursor.decode(cursor));
+    }
+
+    @Test
+    public void missingSortValuesAreKept() {
+        Object[] sortValues = { null, ID };
+
+        assertArrayEquals(sortValues, SearchCursor.decode(SearchCursor.encode(sortValues)));
+    }
+
+    @Test
+    public void firstPageHasNoPosition() {
+        assertNull(SearchCursor.decode(null));
+        assertNull(SearchCursor.decode(""));
+        assertNull(SearchCursor.decode(SearchCursor.FIRST_PAGE));
+
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
+        SearchCursor.apply(sourceBuilder, SearchCursor.FIRST_PAGE, null);
+        assertNull(sourceBuilder.searchAfter());
+        assertEquals(SearchCursor.DEFAULT_PAGE_SIZE, sourceBuilder.size());
+    }
+
+    @Test
+    public void relevanceSortEndsWithIdTieBreaker() {
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
+        SearchCursor.apply(sourceBuilder, SearchCursor.encode(new Object[]{ 2.0f, ID }), 20);
+
+        List<SortBuilder<?>> sorts = sourceBuilder.sorts();
+        assertEquals(2, sorts.size());
+        assertTrue(sorts.get(0) instanceof ScoreSortBuilder);
+        assertEquals(SortOrder.DESC, sorts.get(0).order());
+        assertIdTieBreaker(sorts.get(1));
+        assertArrayEquals(new Object[]{ 2.0, ID }, sourceBuilder.searchAfter());
+        assertEquals(0, sourceBuilder.from());
+        assertEquals(20, sourceBuilder.size());
+    }
+
+    @Test
+    public void requestedSortIsFollowedByIdTieBreaker() {
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder().sort(new FieldSortBuilder("modified").order(SortOrder.DESC));
+        SearchCursor.apply(sourceBuilder, SearchCursor.encode(new Object[]{ 1546300800000L, ID }), null);
+
+        List<SortBuilder<?>> sorts = sourceBuilder.sorts();
+        assertEquals(2, sorts.size());
+        assertEquals("modified", ((FieldSortBuilder) sorts.get(0)).getFieldName());
+        assertIdTieBreaker(sorts.get(1));
+    }
+
+    @Test
+    public void nextPageStartsAfterLastHitOfFullPage() {
+        SearchHits hits = hits(new Object[]{ 2.0f, ID + "1" }, new Object[]{ 2.0f, ID + "2" });
+
+        assertArrayEquals(new Object[]{ 2.0, ID + "2" }, SearchCursor.decode(SearchCursor.next(hits, 2)));
+    }
+
+    @Test
+    public void lastPageHasNoNextCursor() {
+        assertNull(SearchCursor.next(hits(new Object[]{ 2.0f, ID }), 2));
+        assertNull(SearchCursor.next(hits(), 2));
+    }
+
+    @Test
+    public void pageSizeIsLimited() {
+        assertEquals(1, SearchCursor.pageSize(0));
+        assertEquals(SearchCursor.MAX_PAGE_SIZE, SearchCursor.pageSize(SearchCursor.MAX_PAGE_SIZE + 1));
+        assertEquals(SearchCursor.DEFAULT_PAGE_SIZE, SearchCursor.pageSize(null));
+    }
+
+    @Test
+    public void malformedCursorsAreRejected() {
+        assertInvalid("not base64!");
+        assertInvalid(token("not json"));
+        assertInvalid(token("[]"));
+        assertInvalid(token("{\"id\":\"" + ID + "\"}"));
+        assertInvalid(token("[2.0,"));
+    }
+
+    @Test
+    public void tamperedCursorsAreRejected() {
+        // Values that are not scalars
+        assertInvalid(token("[[2.0],\"" + ID + "\"]"));
+        assertInvalid(token("[{\"script\":\"\"},\"" + ID + "\"]"));
+        // Position without the id tie-breaker
+        assertInvalid(token("[2.0,3.0]"));
+        assertInvalid(token("[\"" + ID + "\",null]"));
+    }
+
+    @Test
+    public void cursorOfAnotherSortIsRejected() {
+        String cursor = SearchCursor.encode(new Object[]{ 1546300800000L, "osoite", ID });
+        try {
+            SearchCursor.apply(new SearchSourceBuilder(), cursor, null);
+            fail("Cursor with three sort values was accepted for relevance sort");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("Invalid cursor", ex.getMessage());
+        }
+    }
+
+    private static void assertIdTieBreaker(SortBuilder<?> sort) {
+        assertTrue(sort instanceof FieldSortBuilder);
+        assertEquals("id", ((FieldSortBuilder) sort).getFieldName());
+        assertEquals(SortOrder.ASC, sort.order());
+    }
+
+    private static void assertInvalid(String cursor) {
+        try {
+            SearchCursor.decode(cursor);
+            fail("Cursor " + cursor + " was accepted");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("Invalid cursor", ex.getMessage());
+        }
+    }
+
+    private static String token(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static SearchHits hits(Object[]... sortValues) {
+        SearchHit[] hits = new SearchHit[sortValues.length];
+        for (int i = 0; i < sortValues.length; i++) {
+            hits[i] = new SearchHit(i);
+            DocValueFormat[] formats = new DocValueFormat[sortValues[i].length];
+            Arrays.fill(formats, DocValueFormat.RAW);
+            hits[i].sortValues(sortValues[i], formats);
+        }
+        return new SearchHits(hits, hits.length, 2.0f);
+    }
+}
@@ -0,0 +1,208 @@
+package fi.vm.yti.datamodel.api.migration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.query.Query;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.query.ResultSetFactory;
+import org.apache.jena.update.UpdateAction;
+import org.apache.jena.update.UpdateRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+import fi.vm.yti.datamodel.api.model.MigrationJobDTO;
+import fi.vm.yti.datamodel.api.model.MigrationJobDTO.State;
+import fi.vm.yti.datamodel.api.service.JobStore;
+import fi.vm.yti.datamodel.api.service.ReadRouter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+public class BatchedMigrationRunnerTest {
+
+    private static final List<String> ITEMS = Arrays.asList("a", "b", "c", "d", "e");
+
+    private Dataset dataset;
+    private BatchedMigrationRunner runner;
+
+    @Before
+    public void setUp() {
+        dataset = DatasetFactory.createTxnMem();
+
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.setMigrationBatchSize(2);
+        properties.setMigrationBatchDelay(0);
+
+        // Checkpoints are stored with the same updates and queries as in Fuseki, but to an in-memory dataset
+        JobStore jobStore = new JobStore(null, null, BatchedMigrationRunner.JOBS_GRAPH, "iow:Migration") {
+
+            @Override
+            protected void update(UpdateRequest request) {
+                UpdateAction.execute(request, dataset);
+            }
+
+            @Override
+            protected ResultSet select(Query query) {
+                try (QueryExecution qexec = QueryExecutionFactory.create(query, dataset)) {
+                    return ResultSetFactory.copyResults(qexec.execSelect());
+                }
+            }
+        };
+
+        runner = new BatchedMigrationRunner(jobStore, null, null, properties, mock(ReadRouter.class));
+    }
+
+    @After
+    public void tearDown() {
+        runner.shutdown();
+    }
+
+    @Test
+    public void resumesOfflineTaskFromCheckpoint() {
+        TestTask task = new TestTask(runner, "Offline", false);
+        task.failAt = "c";
+
+        try {
+            runner.run(task);
+            fail("Expected migration to fail");
+        } catch (IllegalStateException ex) {
+            // Expected
+        }
+
+        MigrationJobDTO job = runner.getJob("Offline");
+        assertEquals(State.FAILED, job.getState());
+        assertEquals("b", job.getCursor());
+        assertEquals(2, job.getProcessed());
+        assertNotNull(job.getError());
+        assertEquals(Arrays.asList("a", "b"), task.migrated);
+
+        task.failAt = null;
+        runner.run(task);
+
+        job = runner.getJob("Offline");
+        assertEquals(State.DONE, job.getState());
+        assertEquals(5, job.getProcessed());
+        assertEquals(ITEMS, task.migrated);
+
+        runner.run(task);
+        assertEquals(ITEMS, task.migrated);
+    }
+
+    @Test
+    public void runsOnlineTaskOnceWhenResumedWhileQueued() throws InterruptedException {
+        TestTask task = new TestTask(runner, "Online", true);
+        task.register();
+        task.release = new CountDownLatch(1);
+
+        runner.run(task);
+        runner.resumeUnfinishedJobs();
+        task.release.countDown();
+
+        waitForState("Online", State.DONE);
+        awaitQueuedTasks();
+
+        assertEquals(ITEMS, task.migrated);
+        assertEquals(5, runner.getJob("Online").getProcessed());
+    }
+
+    @Test
+    public void resumesFailedOnlineTask() throws InterruptedException {
+        TestTask task = new TestTask(runner, "Online", true);
+        task.register();
+        task.failAt = "c";
+
+        runner.run(task);
+        waitForState("Online", State.FAILED);
+        assertEquals("b", runner.getJob("Online").getCursor());
+
+        task.failAt = null;
+        runner.resumeUnfinishedJobs();
+        waitForState("Online", State.DONE);
+
+        assertEquals(ITEMS, task.migrated);
+    }
+
+    private void waitForState(String name,
+                              State state) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (System.currentTimeMillis() < deadline) {
+            MigrationJobDTO job = runner.getJob(name);
+            if (job != null && job.getState() == state) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+        fail("Migration " + name + " did not reach " + state);
+    }
+
+    /**
+     * Tasks are run one at a time in order, so an offline task runs after every task queued before it
+     */
+    private void awaitQueuedTasks() {
+        runner.run(new TestTask(runner, "Barrier", false));
+    }
+
+    private static final class TestTask extends BatchedMigrationTask {
+
+        private final String name;
+        private final boolean online;
+        private final List<String> migrated = Collections.synchronizedList(new ArrayList<>());
+        private volatile CountDownLatch release = new CountDownLatch(0);
+        private volatile String failAt;
+
+        private TestTask(BatchedMigrationRunner runner,
+                         String name,
+                         boolean online) {
+            super(runner);
+            this.name = name;
+            this.online = online;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean isOnline() {
+            return online;
+        }
+
+        @Override
+        public List<String> nextBatch(String after,
+                                      int limit) {
+            return ITEMS.stream()
+                .filter(item -> after == null || item.compareTo(after) > 0)
+                .limit(limit)
+                .collect(Collectors.toList());
+        }
+
+        @Override
+        public void migrateBatch(List<String> batch) {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(ex);
+            }
+            if (batch.contains(failAt)) {
+                throw new IllegalStateException("Could not migrate " + failAt);
+            }
+            migrated.addAll(batch);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.io.StringReader;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.ParameterizedSparqlString;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CountManagerTest {
+
+    private static final String MODEL = "http://uri.suomi.fi/datamodel/ns/cnt";
+    private static final String ORGANIZATION = "7d3a3c00-5a6b-489b-a3ed-63bb58c26a63";
+
+    private EmbeddedFuseki fuseki;
+    private CountManager countManager;
+
+    @Before
+    public void setUp() {
+        fuseki = EmbeddedFuseki.start();
+        countManager = new CountManager(fuseki.getJenaClient(), fuseki.getEndpointServices());
+        store(MODEL, model(MODEL, "dcap:MetadataVocabulary", null, "DRAFT"));
+        store(MODEL + "#Person", model(MODEL + "#Person", "rdfs:Class", MODEL, "DRAFT"));
+        countManager.reconcile();
+    }
+
+    @After
+    public void tearDown() {
+        fuseki.close();
+    }
+
+    @Test
+    public void loadsCountsFromCore() {
+        Map<String, Long> counts = countManager.getCounts(null, null, null);
+        assertEquals(Long.valueOf(1), counts.get("libraries"));
+        assertEquals(Long.valueOf(1), counts.get("classes"));
+        assertEquals(Long.valueOf(1), countManager.getCounts(null, null, ORGANIZATION).get("classes"));
+    }
+
+    @Test
+    public void countsCreatedGraph() {
+        countManager.graphWritten(MODEL + "#name", model(MODEL + "#name", "owl:DatatypeProperty", MODEL, "DRAFT"));
+
+        assertEquals(Long.valueOf(1), countManager.getCounts(MODEL, null, null).get("attributes"));
+    }
+
+    @Test
+    public void forgetsRemovedGraph() {
+        countManager.graphRemoved(MODEL + "#Person");
+
+        assertNull(countManager.getCounts(null, null, null).get("classes"));
+    }
+
+    @Test
+    public void forgetsRemovedModelAndItsResources() {
+        countManager.modelRemoved(MODEL);
+
+        assertEquals(0, countManager.getCounts(null, null, null).size());
+    }
+
+    @Test
+    public void movesResourcesToNewStatus() {
+        countManager.resourceStatusesChanged(MODEL, "DRAFT", "VALID");
+
+        assertEquals(Long.valueOf(1), countManager.getCountsBy("status", null, null, null).get("VALID").get("classes"));
+        assertNull(countManager.getCountsBy("status", null, null, null).get("DRAFT"));
+    }
+
+    @Test
+    public void keepsChangesMadeWhileReconciling() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch changed = new CountDownLatch(1);
+        CountManager slowCountManager = new CountManager(fuseki.getJenaClient(), fuseki.getEndpointServices()) {
+            @Override
+            Map<String, CountedGraph> load(ParameterizedSparqlString pss) {
+                Map<String, CountedGraph> loaded = super.load(pss);
+                reading.countDown();
+                await(changed);
+                return loaded;
+            }
+        };
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> reconcile = executor.submit(slowCountManager::reconcile);
+            await(reading);
+            // Written to core after the read, as GraphManager does, and reported while the read is in progress
+            Model created = model(MODEL + "#Address", "rdfs:Class", MODEL, "DRAFT");
+            store(MODEL + "#Address", created);
+            slowCountManager.graphWritten(MODEL + "#Address", created);
+            slowCountManager.resourceStatusesChanged(MODEL, "DRAFT", "VALID");
+            changed.countDown();
+            reconcile.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(Long.valueOf(2), slowCountManager.getCountsBy("status", null, null, null).get("VALID").get("classes"));
+    }
+
+    @Test
+    public void concurrentReconciliationsKeepEveryWrite() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] writes = new Future<?>[16];
+            for (int i = 0; i < writes.length; i++) {
+                String shape = MODEL + "#Shape" + i;
+                writes[i] = executor.submit(() -> {
+                    Model created = model(shape, "sh:NodeShape", MODEL, "DRAFT");
+                    store(shape, created);
+                    countManager.graphWritten(shape, created);
+                    countManager.reconcile();
+                });
+            }
+            for (Future<?> write : writes) {
+                write.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(Long.valueOf(16), countManager.getCounts(null, null, null).get("shapes"));
+        assertEquals(Long.valueOf(1), countManager.getCounts(null, null, null).get("classes"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(10, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Timed out");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static Model model(String graph,
+                               String type,
+                               String definedBy,
+                               String status) {
+        String turtle = "@prefix dcap: <http://purl.org/ws-mmi-dc/terms/> . "
+            + "@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> . "
+            + "@prefix owl: <http://www.w3.org/2002/07/owl#> . "
+            + "@prefix sh: <http://www.w3.org/ns/shacl#> . "
+            + "@prefix dcterms: <http://purl.org/dc/terms/> . "
+            + "<" + graph + "> a " + type + " ; owl:versionInfo '" + status + "' "
+            + (definedBy != null ? "; rdfs:isDefinedBy <" + definedBy + "> " : "; dcterms:contributor <urn:uuid:" + ORGANIZATION + "> ")
+            + ". ";
+        Model model = ModelFactory.createDefaultModel();
+        model.read(new StringReader(turtle), null, "TURTLE");
+        return model;
+    }
+
+    private void store(String graph,
+                       Model model) {
+        Dataset core = fuseki.getDataset("core");
+        core.begin(ReadWrite.WRITE);
+        core.addNamedModel(graph, model);
+        core.commit();
+        core.end();
+    }
+}
@@ -0,0 +1,103 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.util.Map;
+
+import org.apache.jena.fuseki.main.FusekiServer;
+import org.apache.jena.query.Dataset;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+import fi.vm.yti.datamodel.api.embedded.EmbeddedBackends;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Fuseki of {@link EmbeddedBackends} on a free port, with a {@link JenaClient} and the services it uses connected
+ * to it. For tests of services that read and write Fuseki without the application context or Elasticsearch.
+ */
+public final class EmbeddedFuseki implements AutoCloseable {
+
+    private final Map<String, Dataset> datasets;
+    private final FusekiServer server;
+    private final ApplicationProperties properties;
+    private final EndpointServices endpointServices;
+    private final UpstreamGuard guard;
+    private final SparqlQueryLog queryLog;
+    private final FusekiHttpClient httpClient;
+    private final ReadRouter readRouter;
+    private final JenaClient jenaClient;
+
+    private EmbeddedFuseki(ApplicationProperties properties) {
+        int port = freePort();
+        this.datasets = EmbeddedBackends.createDatasets();
+        this.server = EmbeddedBackends.createFuseki(port, datasets).start();
+        properties.setEndpoint("http://localhost:" + port);
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        this.properties = properties;
+        this.endpointServices = new EndpointServices(properties);
+        this.guard = new UpstreamGuard(properties, registry);
+        this.queryLog = new SparqlQueryLog(properties);
+        this.httpClient = new FusekiHttpClient(properties);
+        this.readRouter = new ReadRouter(endpointServices, () -> null, properties, httpClient.getHttpClient());
+        this.jenaClient = new JenaClient(endpointServices, properties, new UpstreamMetrics(registry), guard, queryLog, readRouter, httpClient);
+    }
+
+    /**
+     * @param properties Properties of the services, endpoint is set to the started Fuseki
+     */
+    public static EmbeddedFuseki start(ApplicationProperties properties) {
+        return new EmbeddedFuseki(properties);
+    }
+
+    public static EmbeddedFuseki start() {
+        return start(new ApplicationProperties());
+    }
+
+    /**
+     * @param name Dataset name, for example core
+     */
+    public Dataset getDataset(String name) {
+        return datasets.get(name);
+    }
+
+    public ApplicationProperties getProperties() {
+        return properties;
+    }
+
+    public EndpointServices getEndpointServices() {
+        return endpointServices;
+    }
+
+    public UpstreamGuard getGuard() {
+        return guard;
+    }
+
+    public SparqlQueryLog getQueryLog() {
+        return queryLog;
+    }
+
+    public ReadRouter getReadRouter() {
+        return readRouter;
+    }
+
+    public JenaClient getJenaClient() {
+        return jenaClient;
+    }
+
+    @Override
+    public void close() {
+        httpClient.close();
+        server.stop();
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.http.client.HttpClient;
+import org.apache.jena.query.QueryExecution;
+import org.apache.jena.riot.web.HttpOp;
+import org.apache.jena.update.UpdateFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FusekiHttpClientTest {
+
+    private static final String CREDENTIALS = "Basic " + Base64.getEncoder().encodeToString("fuseki:secret".getBytes(StandardCharsets.UTF_8));
+
+    private final List<String> authorizations = new CopyOnWriteArrayList<>();
+
+    private HttpServer server;
+    private HttpClient defaultHttpClient;
+    private FusekiHttpClient fusekiHttpClient;
+    private JenaClient jenaClient;
+    private String endpoint;
+
+    @Before
+    public void setUp() throws IOException {
+        // Fuseki that requires basic authentication, as it is run in production
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/core/sparql", exchange -> respond(exchange, "application/sparql-results+json", "{ \"head\" : {}, \"boolean\" : true }"));
+        server.createContext("/core/update", exchange -> respond(exchange, "text/plain", "Update succeeded"));
+        server.start();
+        endpoint = "http://localhost:" + server.getAddress().getPort();
+
+        defaultHttpClient = HttpOp.getDefaultHttpClient();
+
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.setEndpoint(endpoint);
+        properties.setFusekiUser("fuseki");
+        properties.setFusekiPassword("secret");
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        EndpointServices endpointServices = new EndpointServices(properties);
+        fusekiHttpClient = new FusekiHttpClient(properties);
+        ReadRouter readRouter = new ReadRouter(endpointServices, () -> null, properties, fusekiHttpClient.getHttpClient());
+        jenaClient = new JenaClient(endpointServices, properties, new UpstreamMetrics(registry), new UpstreamGuard(properties, registry), new SparqlQueryLog(properties), readRouter, fusekiHttpClient);
+    }
+
+    @After
+    public void tearDown() {
+        fusekiHttpClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void queriesSendFusekiCredentials() {
+        try (QueryExecution qexec = jenaClient.sparqlService(endpoint + "/core/sparql", "ASK {}")) {
+            assertTrue(qexec.execAsk());
+        }
+        assertTrue(authorizations.contains(CREDENTIALS));
+    }
+
+    @Test
+    public void updatesSendFusekiCredentials() {
+        jenaClient.updateToService(UpdateFactory.create("CLEAR GRAPH <urn:test>"), endpoint + "/core/update");
+        assertTrue(authorizations.contains(CREDENTIALS));
+    }
+
+    @Test
+    public void defaultClientOfJenaIsNotChanged() {
+        assertSame(defaultHttpClient, HttpOp.getDefaultHttpClient());
+        assertEquals(0, authorizations.size());
+    }
+
+    private void respond(HttpExchange exchange,
+                         String contentType,
+                         String response) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            while (in.read() >= 0) {
+                // Requests are read to the end so that the connection can be reused after a challenge
+            }
+        }
+        String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+        if (authorization == null) {
+            exchange.getResponseHeaders().add("WWW-Authenticate", "Basic realm=\"fuseki\"");
+            exchange.sendResponseHeaders(401, -1);
+        } else {
+            authorizations.add(authorization);
+            byte[] body = response.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", contentType);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+        exchange.close();
+    }
+}
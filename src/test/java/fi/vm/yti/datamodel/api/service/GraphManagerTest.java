@@ -0,0 +1,306 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.vocabulary.DCTerms;
+import org.apache.jena.vocabulary.OWL;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import fi.vm.yti.datamodel.api.model.AbstractResource;
+import fi.vm.yti.datamodel.api.utils.LDHelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GraphManagerTest {
+
+    private static final String MODEL = "http://uri.suomi.fi/datamodel/ns/test";
+    private static final String RESOURCE = MODEL + "#Resource";
+
+    private static final String POSITION_GRAPH = MODEL + "#PositionGraph";
+    private static final String IOW = "http://uri.suomi.fi/datamodel/ns/iow#";
+    private static final String CREATED = "2019-01-01T00:00:00Z";
+
+    private EmbeddedFuseki fuseki;
+    private GraphManager graphManager;
+    private Map<String, Model> oldGraphs;
+
+    @Before
+    public void setUp() {
+        fuseki = EmbeddedFuseki.start();
+        JenaClient jenaClient = fuseki.getJenaClient();
+        EndpointServices endpointServices = fuseki.getEndpointServices();
+        graphManager = new GraphManager(endpointServices, jenaClient, null, new ModelManager(), null, fuseki.getProperties(), null,
+            new ModelResolverIndex(jenaClient, endpointServices, fuseki.getProperties()),
+            new ModelAccessIndex(jenaClient, endpointServices, fuseki.getProperties()),
+            new ReferenceIndex(jenaClient, endpointServices),
+            new CountManager(jenaClient, endpointServices),
+            fuseki.getReadRouter());
+        oldGraphs = new HashMap<>();
+    }
+
+    @After
+    public void tearDown() {
+        fuseki.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsClassOverPredicate() {
+        oldGraphs.put(RESOURCE, typedGraph(OWL.ObjectProperty));
+        graphManager.updateResources(MODEL, Collections.singletonList(resource(typedGraph(RDFS.Class))), oldGraphs);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsPredicateOverClass() {
+        oldGraphs.put(RESOURCE, typedGraph(RDFS.Class));
+        graphManager.updateResources(MODEL, Collections.singletonList(resource(typedGraph(OWL.DatatypeProperty))), oldGraphs);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsGraphsThatAreNotResources() {
+        oldGraphs.put(RESOURCE, ModelFactory.createDefaultModel());
+        graphManager.updateResources(MODEL, Collections.singletonList(resource(typedGraph(RDFS.Class))), oldGraphs);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMissingResources() {
+        graphManager.updateResources(MODEL, Collections.singletonList(resource(typedGraph(RDFS.Class))), oldGraphs);
+    }
+
+    @Test
+    public void updatesResourceGraphsAndExportGraph() {
+        String predicate = MODEL + "#predicate";
+        Model classGraph = resourceGraph(RESOURCE, RDFS.Class, "Vanha luokka");
+        Model predicateGraph = resourceGraph(predicate, OWL.DatatypeProperty, "Vanha predikaatti");
+        storeModel(classGraph, predicateGraph);
+
+        Model newClassGraph = resourceGraph(RESOURCE, RDFS.Class, "Uusi luokka");
+        Model newPredicateGraph = resourceGraph(predicate, OWL.DatatypeProperty, "Uusi predikaatti");
+        graphManager.updateResources(MODEL, Arrays.asList(resource(RESOURCE, newClassGraph), resource(predicate, newPredicateGraph)),
+            graphManager.getCoreGraphs(Arrays.asList(RESOURCE, predicate)));
+
+        Model storedClass = storedGraph(RESOURCE);
+        assertEquals("Uusi luokka", label(storedClass, RESOURCE));
+        assertEquals(CREATED, storedClass.getRequiredProperty(ResourceFactory.createResource(RESOURCE), DCTerms.created).getString());
+        assertTrue(storedClass.contains(ResourceFactory.createResource(RESOURCE), DCTerms.modified));
+        assertEquals("Uusi predikaatti", label(storedGraph(predicate), predicate));
+
+        Model export = storedGraph(MODEL + "#ExportGraph");
+        assertEquals("Uusi luokka", label(export, RESOURCE));
+        assertEquals("Uusi predikaatti", label(export, predicate));
+        assertTrue(export.contains(ResourceFactory.createResource(MODEL), RDF.type, OWL.Ontology));
+        assertTrue(storedGraph(MODEL).contains(ResourceFactory.createResource(MODEL), ResourceFactory.createProperty(IOW, "contentModified")));
+    }
+
+    @Test
+    public void rejectedBatchWritesNothing() {
+        Model classGraph = resourceGraph(RESOURCE, RDFS.Class, "Vanha luokka");
+        storeModel(classGraph);
+
+        try {
+            graphManager.updateResources(MODEL, Collections.singletonList(resource(RESOURCE, resourceGraph(RESOURCE, OWL.ObjectProperty, "Uusi"))),
+                graphManager.getCoreGraphs(Collections.singletonList(RESOURCE)));
+            fail("Type change was accepted");
+        } catch (IllegalArgumentException ex) {
+            assertTrue(classGraph.isIsomorphicWith(storedGraph(RESOURCE)));
+        }
+    }
+
+    @Test
+    public void writesPositionsAtExpectedVersion() {
+        storePositions("v1", "0,0");
+
+        String version = graphManager.updatePositions(MODEL, positions("10,20"), true, "v1");
+
+        assertNotNull(version);
+        assertEquals(version, storedVersion());
+        assertEquals(Collections.singletonList("10,20"), storedPoints());
+        assertFalse(stored().contains(null, ResourceFactory.createProperty(IOW, "appliedPositionVersion"), (RDFNode) null));
+    }
+
+    @Test
+    public void rejectsStaleVersion() {
+        storePositions("v2", "0,0");
+
+        assertNull(graphManager.updatePositions(MODEL, positions("10,20"), true, "v1"));
+
+        assertEquals("v2", storedVersion());
+        assertEquals(Collections.singletonList("0,0"), storedPoints());
+    }
+
+    @Test
+    public void replayedRequestIsNotAppliedTwice() {
+        storePositions("v1", "0,0");
+        String version = graphManager.updatePositions(MODEL, positions("10,20"), false, "v1");
+        graphManager.updatePositions(MODEL, positions("30,40"), false, version);
+
+        // The first request is sent again, for example by a client retrying after a timeout
+        assertNull(graphManager.updatePositions(MODEL, positions("10,20"), false, "v1"));
+
+        assertEquals(Collections.singletonList("30,40"), storedPoints());
+    }
+
+    @Test
+    public void replayedUnconditionalReplaceGivesSamePositions() {
+        storePositions("v1", "0,0");
+
+        graphManager.updatePositions(MODEL, positions("10,20"), true, null);
+        Model first = stored();
+        graphManager.updatePositions(MODEL, positions("10,20"), true, null);
+
+        first.removeAll(null, ResourceFactory.createProperty(IOW, "positionVersion"), null);
+        Model second = stored();
+        second.removeAll(null, ResourceFactory.createProperty(IOW, "positionVersion"), null);
+        assertTrue(first.isIsomorphicWith(second));
+    }
+
+    @Test
+    public void oneOfConcurrentWritersWins() throws Exception {
+        storePositions("v1", "0,0");
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<String>> writes = new ArrayList<>();
+        try {
+            for (int i = 0; i < 8; i++) {
+                String point = i + "," + i;
+                writes.add(executor.submit(() -> graphManager.updatePositions(MODEL, positions(point), true, "v1")));
+            }
+            List<String> applied = new ArrayList<>();
+            for (int i = 0; i < writes.size(); i++) {
+                String version = writes.get(i).get(10, TimeUnit.SECONDS);
+                if (version != null) {
+                    applied.add(i + "," + i);
+                    assertEquals(version, storedVersion());
+                }
+            }
+            assertEquals(1, applied.size());
+            assertEquals(applied, storedPoints());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Model positions(String point) {
+        Model positions = ModelFactory.createDefaultModel();
+        positions.createResource(RESOURCE).addProperty(ResourceFactory.createProperty(IOW, "pointXY"), point);
+        return positions;
+    }
+
+    private void storePositions(String version,
+                                String point) {
+        Model graph = positions(point);
+        graph.createResource(POSITION_GRAPH).addProperty(ResourceFactory.createProperty(IOW, "positionVersion"), version);
+        Dataset core = fuseki.getDataset("core");
+        core.begin(ReadWrite.WRITE);
+        core.addNamedModel(POSITION_GRAPH, graph);
+        core.commit();
+        core.end();
+    }
+
+    private Model storedGraph(String graph) {
+        Dataset core = fuseki.getDataset("core");
+        core.begin(ReadWrite.READ);
+        try {
+            return ModelFactory.createDefaultModel().add(core.getNamedModel(graph));
+        } finally {
+            core.end();
+        }
+    }
+
+    private void storeModel(Model... resourceGraphs) {
+        Model model = ModelFactory.createDefaultModel();
+        model.createResource(MODEL).addProperty(RDF.type, OWL.Ontology);
+        Model export = ModelFactory.createDefaultModel().add(model);
+        Dataset core = fuseki.getDataset("core");
+        core.begin(ReadWrite.WRITE);
+        for (Model resourceGraph : resourceGraphs) {
+            Resource resource = resourceGraph.listSubjectsWithProperty(RDF.type).next();
+            core.addNamedModel(resource.getURI(), resourceGraph);
+            export.add(resourceGraph);
+        }
+        core.addNamedModel(MODEL, model);
+        core.addNamedModel(MODEL + "#ExportGraph", export);
+        core.commit();
+        core.end();
+    }
+
+    private static String label(Model graph,
+                                String resource) {
+        List<RDFNode> labels = graph.listObjectsOfProperty(ResourceFactory.createResource(resource), RDFS.label).toList();
+        assertEquals(labels.toString(), 1, labels.size());
+        return labels.get(0).asLiteral().getString();
+    }
+
+    private Model stored() {
+        Dataset core = fuseki.getDataset("core");
+        core.begin(ReadWrite.READ);
+        try {
+            return ModelFactory.createDefaultModel().add(core.getNamedModel(POSITION_GRAPH));
+        } finally {
+            core.end();
+        }
+    }
+
+    private String storedVersion() {
+        return stored().getRequiredProperty(ResourceFactory.createResource(POSITION_GRAPH), ResourceFactory.createProperty(IOW, "positionVersion")).getString();
+    }
+
+    private List<String> storedPoints() {
+        return stored().listObjectsOfProperty(ResourceFactory.createProperty(IOW, "pointXY")).mapWith(point -> point.asLiteral().getString()).toList();
+    }
+
+    private static Model typedGraph(Resource type) {
+        Model graph = ModelFactory.createDefaultModel();
+        graph.createResource(RESOURCE).addProperty(RDF.type, type);
+        return graph;
+    }
+
+    private static Model resourceGraph(String resource,
+                                       Resource type,
+                                       String label) {
+        Model graph = ModelFactory.createDefaultModel();
+        graph.createResource(resource)
+            .addProperty(RDF.type, type)
+            .addProperty(RDFS.isDefinedBy, graph.createResource(MODEL))
+            .addProperty(RDFS.label, label, "fi")
+            .addProperty(DCTerms.created, graph.createTypedLiteral(CREATED, XSDDatatype.XSDdateTime));
+        return graph;
+    }
+
+    private static AbstractResource resource(Model resourceGraph) {
+        return resource(RESOURCE, resourceGraph);
+    }
+
+    private static AbstractResource resource(String resourceId,
+                                             Model resourceGraph) {
+        return new AbstractResource() {{
+            graph = resourceGraph;
+            id = LDHelper.toIRI(resourceId);
+        }};
+    }
+}
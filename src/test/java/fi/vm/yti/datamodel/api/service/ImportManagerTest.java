@@ -0,0 +1,120 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.io.StringReader;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+import fi.vm.yti.datamodel.api.config.UpstreamPolicy;
+import fi.vm.yti.datamodel.api.utils.LDHelper;
+
+import static fi.vm.yti.datamodel.api.service.UpstreamMetrics.FUSEKI;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class ImportManagerTest {
+
+    private static final String MODEL = "http://uri.suomi.fi/datamodel/ns/imp";
+    private static final String PERSON = MODEL + "#Person";
+    private static final String ADDRESS = MODEL + "#Address";
+
+    private static final String MODEL_GRAPH = ""
+        + "@prefix sh: <http://www.w3.org/ns/shacl#> . "
+        + "@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> . "
+        + "@prefix owl: <http://www.w3.org/2002/07/owl#> . "
+        + "<" + MODEL + "> a owl:Ontology ; owl:imports <http://www.w3.org/2004/02/skos/core> . "
+        + "<" + PERSON + "> a sh:NodeShape ; rdfs:label 'Person'@en ; "
+        + "  sh:property [ sh:path <" + MODEL + "#name> ; rdfs:label 'Name'@en ] , "
+        + "              [ sh:path <" + MODEL + "#age> ; rdfs:label 'Age'@en ] , "
+        + "              [ sh:path <" + MODEL + "#address> ; rdfs:label 'Address'@en ] . "
+        + "<" + ADDRESS + "> a sh:NodeShape ; rdfs:label 'Address'@en ; "
+        + "  sh:property [ sh:path <" + MODEL + "#street> ; rdfs:label 'Street'@en ] . ";
+
+    private EmbeddedFuseki fuseki;
+    private ImportManager importManager;
+
+    @Before
+    public void setUp() {
+        // A single Fuseki slot, so a query that is held open while its nested calls run would be rejected
+        UpstreamPolicy policy = new UpstreamPolicy();
+        policy.setMaxConcurrent(1);
+        policy.setAcquireTimeout(500);
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.getUpstreamPolicies().put(FUSEKI, policy);
+
+        fuseki = EmbeddedFuseki.start(properties);
+        importManager = new ImportManager(fuseki.getEndpointServices(), mock(GraphManager.class), fuseki.getJenaClient());
+
+        Model graph = ModelFactory.createDefaultModel();
+        graph.read(new StringReader(MODEL_GRAPH), null, "TURTLE");
+        Dataset core = fuseki.getDataset("core");
+        core.begin(ReadWrite.WRITE);
+        core.addNamedModel(MODEL, graph);
+        core.commit();
+        core.end();
+    }
+
+    @After
+    public void tearDown() {
+        fuseki.close();
+    }
+
+    @Test
+    public void createsResourceGraphsWithOneFusekiSlot() {
+        importManager.createResourceGraphs(MODEL, LDHelper.PREFIX_MAP);
+
+        assertEquals(3, orders(PERSON).size());
+        assertEquals("Address", orders(PERSON).get(1));
+        assertEquals("Age", orders(PERSON).get(2));
+        assertEquals("Name", orders(PERSON).get(3));
+        assertEquals(1, orders(ADDRESS).size());
+        assertEquals("Street", orders(ADDRESS).get(1));
+
+        assertEquals(0L, fuseki.getGuard().getStates().get(FUSEKI).get("rejectedCalls"));
+    }
+
+    @Test
+    public void removesResourcesFromModelGraph() {
+        importManager.createResourceGraphs(MODEL, LDHelper.PREFIX_MAP);
+
+        Dataset core = fuseki.getDataset("core");
+        core.begin(ReadWrite.READ);
+        try {
+            assertTrue(core.containsNamedModel(PERSON));
+            Model model = core.getNamedModel(MODEL);
+            assertTrue(model.listStatements(ResourceFactory.createResource(PERSON), null, (Resource) null).toList().isEmpty());
+        } finally {
+            core.end();
+        }
+    }
+
+    /**
+     * @return Labels of the properties of the resource graph by sh:order
+     */
+    private Map<Integer, String> orders(String resource) {
+        Map<Integer, String> orders = new TreeMap<>();
+        Dataset core = fuseki.getDataset("core");
+        core.begin(ReadWrite.READ);
+        try {
+            Model graph = core.getNamedModel(resource);
+            graph.listStatements(null, graph.createProperty("http://www.w3.org/ns/shacl#order"), (Resource) null).forEachRemaining((Statement order) ->
+                orders.put(order.getInt(), order.getSubject().getProperty(RDFS.label).getString()));
+        } finally {
+            core.end();
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,77 @@
+package fi.vm.yti.datamodel.api.service;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JenaClientTest {
+
+    private static final String GRAPH = "http://uri.suomi.fi/terminology/test/concept-1";
+
+    private EmbeddedFuseki fuseki;
+    private JenaClient jenaClient;
+
+    @Before
+    public void setUp() {
+        fuseki = EmbeddedFuseki.start();
+        jenaClient = fuseki.getJenaClient();
+    }
+
+    @After
+    public void tearDown() {
+        fuseki.close();
+    }
+
+    @Test
+    public void putsAndReadsGraphOfAnyDataset() {
+        String concepts = fuseki.getEndpointServices().getTempConceptReadWriteAddress();
+
+        assertNull(jenaClient.getModelFromService(concepts, GRAPH));
+
+        jenaClient.putModelToService(concepts, GRAPH, label("First"));
+        jenaClient.addModelToService(concepts, GRAPH, label("Second"));
+
+        Model model = jenaClient.getModelFromService(concepts, GRAPH);
+        assertEquals(2, model.size());
+        assertEquals(2, storedSize("concept"));
+
+        jenaClient.putModelToService(concepts, GRAPH, label("Third"));
+        assertEquals(1, storedSize("concept"));
+    }
+
+    @Test
+    public void putsGraphToSchemes() {
+        assertFalse(jenaClient.isInSchemes(GRAPH));
+
+        jenaClient.putModelToSchemes(GRAPH, label("Scheme"));
+
+        assertTrue(jenaClient.isInSchemes(GRAPH));
+        assertEquals(1, storedSize("scheme"));
+    }
+
+    private static Model label(String label) {
+        Model model = ModelFactory.createDefaultModel();
+        model.add(model.createResource(GRAPH), RDFS.label, label);
+        return model;
+    }
+
+    private long storedSize(String dataset) {
+        Dataset ds = fuseki.getDataset(dataset);
+        ds.begin(ReadWrite.READ);
+        try {
+            return ds.getNamedModel(GRAPH).size();
+        } finally {
+            ds.end();
+        }
+    }
+}
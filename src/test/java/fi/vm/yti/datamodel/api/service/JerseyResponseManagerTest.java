@@ -0,0 +1,128 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.vocabulary.RDFS;
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.junit.Test;
+import org.springframework.context.support.GenericApplicationContext;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+import fi.vm.yti.datamodel.api.config.ModelMessageBodyWriter;
+import fi.vm.yti.datamodel.api.utils.ErrorMessage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Content negotiation of responses of resources that produce RDF formats, as the class, predicate, model, usage and
+ * search reads do.
+ */
+public class JerseyResponseManagerTest {
+
+    private static final List<String> FORMATS = Arrays.asList("application/ld+json", "text/turtle", "application/n-triples", "application/rdf+thrift");
+
+    private static final Model MODEL = ModelFactory.createDefaultModel()
+        .add(ModelFactory.createDefaultModel().createResource("http://uri.suomi.fi/datamodel/ns/test#Address"), RDFS.label, "Osoite", "fi");
+
+    private final ApplicationHandler handler = new ApplicationHandler(new ResourceConfig()
+        .register(new RdfResource(new JerseyResponseManager(new ApplicationProperties())))
+        .register(ModelMessageBodyWriter.class)
+        // Spring integration of Jersey is on the classpath and requires a context
+        .property("contextConfig", new GenericApplicationContext()));
+
+    @Test
+    public void modelIsWrittenInNegotiatedFormat() throws Exception {
+        for (String format : FORMATS) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ContainerResponse response = get("/rdf/found", format, out);
+
+            assertEquals(format, 200, response.getStatus());
+            assertEquals(format, MediaType.valueOf(format), response.getMediaType());
+            Model read = ModelFactory.createDefaultModel();
+            Lang lang = format.equals("application/ld+json") ? Lang.JSONLD : RDFLanguages.contentTypeToLang(format);
+            RDFDataMgr.read(read, new ByteArrayInputStream(out.toByteArray()), lang);
+            assertTrue(format, MODEL.isIsomorphicWith(read));
+        }
+    }
+
+    @Test
+    public void errorIsWrittenAsJsonInEveryFormat() throws Exception {
+        for (String format : FORMATS) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ContainerResponse response = get("/rdf/missing", format, out);
+
+            assertEquals(format, 404, response.getStatus());
+            assertEquals(format, MediaType.APPLICATION_JSON_TYPE, response.getMediaType());
+            assertEquals(format, ErrorMessage.NOTFOUND, new String(out.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void serverErrorIsWrittenAsJson() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ContainerResponse response = get("/rdf/failed", "text/turtle", out);
+
+        assertEquals(500, response.getStatus());
+        assertEquals(MediaType.APPLICATION_JSON_TYPE, response.getMediaType());
+    }
+
+    private ContainerResponse get(String path,
+                                  String accept,
+                                  ByteArrayOutputStream out) throws Exception {
+        ContainerRequest request = new ContainerRequest(URI.create("http://localhost/"), URI.create("http://localhost" + path), "GET", null, new MapPropertiesDelegate());
+        request.header("Accept", accept);
+        return handler.apply(request, out).get();
+    }
+
+    @Path("rdf")
+    public static class RdfResource {
+
+        private final JerseyResponseManager jerseyResponseManager;
+
+        RdfResource(JerseyResponseManager jerseyResponseManager) {
+            this.jerseyResponseManager = jerseyResponseManager;
+        }
+
+        @GET
+        @Path("found")
+        @Produces({ "application/ld+json", "text/turtle", "application/n-triples", "application/rdf+thrift" })
+        public Response found() {
+            return jerseyResponseManager.okModel(MODEL);
+        }
+
+        @GET
+        @Path("missing")
+        @Produces({ "application/ld+json", "text/turtle", "application/n-triples", "application/rdf+thrift" })
+        public Response missing() {
+            return jerseyResponseManager.notFound();
+        }
+
+        @GET
+        @Path("failed")
+        @Produces({ "application/ld+json", "text/turtle", "application/n-triples", "application/rdf+thrift" })
+        public Response failed() {
+            return jerseyResponseManager.serverError();
+        }
+    }
+}
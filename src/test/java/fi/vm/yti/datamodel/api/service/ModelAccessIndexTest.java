@@ -0,0 +1,148 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+
+import fi.vm.yti.datamodel.api.model.DataModel;
+import fi.vm.yti.datamodel.api.utils.LDHelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ModelAccessIndexTest {
+
+    private static final String MODEL = "http://uri.suomi.fi/datamodel/ns/acc";
+    private static final UUID ORGANIZATION = UUID.fromString("7d3a3c00-5a6b-489b-a3ed-63bb58c26a63");
+    private static final UUID OTHER_ORGANIZATION = UUID.fromString("74776e94-7f51-48dc-aeec-c084c4defa09");
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private EmbeddedFuseki fuseki;
+    private ModelAccessIndex modelAccessIndex;
+    private GraphManager graphManager;
+
+    @Before
+    public void setUp() {
+        fuseki = EmbeddedFuseki.start();
+        fuseki.getProperties().setModelAccessCacheTtl(60);
+        modelAccessIndex = new ModelAccessIndex(fuseki.getJenaClient(), fuseki.getEndpointServices(), fuseki.getProperties(), new Ticker() {
+            @Override
+            public long read() {
+                return nanos.get();
+            }
+        });
+        graphManager = new GraphManager(fuseki.getEndpointServices(), fuseki.getJenaClient(), null, null, null, fuseki.getProperties(), null,
+            new ModelResolverIndex(fuseki.getJenaClient(), fuseki.getEndpointServices(), fuseki.getProperties()),
+            modelAccessIndex,
+            new ReferenceIndex(fuseki.getJenaClient(), fuseki.getEndpointServices()),
+            new CountManager(fuseki.getJenaClient(), fuseki.getEndpointServices()),
+            fuseki.getReadRouter());
+    }
+
+    @After
+    public void tearDown() {
+        fuseki.close();
+    }
+
+    @Test
+    public void unknownModelIsNotCached() {
+        assertNull(modelAccessIndex.get(MODEL));
+        assertFalse(graphManager.isExistingModel(LDHelper.toIRI(MODEL)));
+
+        // Created by another instance
+        store(model(ORGANIZATION));
+
+        assertEquals(Collections.singletonList(ORGANIZATION), modelAccessIndex.get(MODEL).getOrganizations());
+        assertTrue(graphManager.isExistingModel(LDHelper.toIRI(MODEL)));
+    }
+
+    @Test
+    public void modelWithoutOrganizationsIsFound() {
+        store(model(null));
+
+        assertEquals(Collections.emptyList(), modelAccessIndex.get(MODEL).getOrganizations());
+    }
+
+    @Test
+    public void entryIsKeptUntilTtl() {
+        store(model(ORGANIZATION));
+        assertEquals(Collections.singletonList(ORGANIZATION), modelAccessIndex.get(MODEL).getOrganizations());
+
+        // Changed by another instance
+        store(model(OTHER_ORGANIZATION));
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        assertEquals(Collections.singletonList(ORGANIZATION), modelAccessIndex.get(MODEL).getOrganizations());
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(Collections.singletonList(OTHER_ORGANIZATION), modelAccessIndex.get(MODEL).getOrganizations());
+    }
+
+    @Test
+    public void updatedModelReplacesEntry() {
+        store(model(ORGANIZATION));
+        assertEquals(Collections.singletonList(ORGANIZATION), modelAccessIndex.get(MODEL).getOrganizations());
+
+        RHPOrganizationManager rhpOrganizationManager = mock(RHPOrganizationManager.class);
+        Model organizations = ModelFactory.createDefaultModel();
+        organizations.add(organizations.createResource("urn:uuid:" + OTHER_ORGANIZATION), organizations.createProperty("http://purl.org/dc/terms/title"), "Other");
+        when(rhpOrganizationManager.getOrganizationModel()).thenReturn(organizations);
+
+        DataModel oldModel = new DataModel(LDHelper.toIRI(MODEL), graphManager);
+        DataModel newModel = new DataModel(model(OTHER_ORGANIZATION), graphManager, rhpOrganizationManager);
+        graphManager.updateModel(newModel, oldModel);
+
+        assertEquals(Collections.singletonList(OTHER_ORGANIZATION), modelAccessIndex.get(MODEL).getOrganizations());
+    }
+
+    @Test
+    public void removedModelIsForgotten() {
+        store(model(ORGANIZATION));
+        assertTrue(graphManager.isExistingModel(LDHelper.toIRI(MODEL)));
+
+        graphManager.removeModel(LDHelper.toIRI(MODEL));
+
+        assertNull(modelAccessIndex.get(MODEL));
+        assertFalse(graphManager.isExistingModel(LDHelper.toIRI(MODEL)));
+    }
+
+    private static Model model(UUID organization) {
+        String turtle = "@prefix owl: <http://www.w3.org/2002/07/owl#> . "
+            + "@prefix dcterms: <http://purl.org/dc/terms/> . "
+            + "@prefix xsd: <http://www.w3.org/2001/XMLSchema#> . "
+            + "<" + MODEL + "> a owl:Ontology ; owl:versionInfo 'DRAFT' ; "
+            + "dcterms:identifier 'urn:uuid:2b4c9a44-8e3d-4a8f-9a0b-4f5b2f1d7c3e' ; "
+            + "dcterms:created '2019-01-01T00:00:00Z'^^xsd:dateTime "
+            + (organization != null ? "; dcterms:contributor <urn:uuid:" + organization + "> " : "")
+            + ". ";
+        Model model = ModelFactory.createDefaultModel();
+        model.read(new StringReader(turtle), null, "TURTLE");
+        return model;
+    }
+
+    private void store(Model model) {
+        Dataset core = fuseki.getDataset("core");
+        core.begin(ReadWrite.WRITE);
+        core.replaceNamedModel(MODEL, model);
+        core.replaceNamedModel(MODEL + "#ExportGraph", model);
+        core.commit();
+        core.end();
+    }
+}
@@ -0,0 +1,213 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.vocabulary.DCTerms;
+import org.apache.jena.vocabulary.OWL;
+import org.apache.jena.vocabulary.RDF;
+import org.apache.jena.vocabulary.RDFS;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import fi.vm.yti.datamodel.api.index.SearchIndexManager;
+import fi.vm.yti.datamodel.api.model.ModelDeletionJobDTO;
+import fi.vm.yti.datamodel.api.model.ModelDeletionJobDTO.State;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ModelDeletionManagerTest {
+
+    private static final String MODEL = "http://uri.suomi.fi/datamodel/ns/del";
+    private static final List<String> RESOURCES = Arrays.asList("A", "B", "C", "D", "E").stream()
+        .map(name -> MODEL + "#" + name)
+        .collect(Collectors.toList());
+
+    private EmbeddedFuseki fuseki;
+    private ProvenanceManager provenanceManager;
+    private SearchIndexManager searchIndexManager;
+    private JobStore jobStore;
+    private ModelDeletionManager modelDeletionManager;
+
+    @Before
+    public void setUp() {
+        fuseki = EmbeddedFuseki.start();
+        fuseki.getProperties().setModelDeletionBatchSize(2);
+
+        JenaClient jenaClient = fuseki.getJenaClient();
+        EndpointServices endpointServices = fuseki.getEndpointServices();
+        GraphManager graphManager = new GraphManager(endpointServices, jenaClient, null, null, null, fuseki.getProperties(), null,
+            new ModelResolverIndex(jenaClient, endpointServices, fuseki.getProperties()),
+            new ModelAccessIndex(jenaClient, endpointServices, fuseki.getProperties()),
+            new ReferenceIndex(jenaClient, endpointServices),
+            new CountManager(jenaClient, endpointServices),
+            fuseki.getReadRouter());
+
+        // Provenance queries of each batch are recorded instead of run
+        provenanceManager = mock(ProvenanceManager.class);
+        when(provenanceManager.buildRemoveProvEntityQuery(anyString())).thenAnswer(invocation -> invocation.getArgument(0) + " ");
+        searchIndexManager = mock(SearchIndexManager.class);
+
+        jobStore = new JobStore(jenaClient, endpointServices, ModelDeletionManager.JOBS_GRAPH, "iow:ModelDeletion");
+        modelDeletionManager = new ModelDeletionManager(graphManager, provenanceManager, mock(ServiceDescriptionManager.class), searchIndexManager,
+            jenaClient, endpointServices, fuseki.getProperties(), fuseki.getReadRouter());
+
+        storeModel();
+    }
+
+    @After
+    public void tearDown() {
+        modelDeletionManager.shutdown();
+        fuseki.close();
+    }
+
+    @Test
+    public void deletesResourcesInBatches() throws InterruptedException {
+        ModelDeletionJobDTO job = awaitFinished(modelDeletionManager.deleteModel(MODEL).getId());
+
+        assertEquals(State.DONE, job.getState());
+        assertEquals(RESOURCES.size(), job.getDeletedResources());
+        assertModelDeleted();
+
+        ArgumentCaptor<String> batches = ArgumentCaptor.forClass(String.class);
+        verify(provenanceManager, atLeastOnce()).deleteProvenance(eq(MODEL), batches.capture());
+        assertEquals(3, batches.getAllValues().size());
+        for (String batch : batches.getAllValues()) {
+            assertTrue(batch, batch.trim().split(" ").length <= 2);
+        }
+        verify(searchIndexManager).removeModel(MODEL);
+    }
+
+    @Test
+    public void resumesInterruptedJob() throws InterruptedException {
+        // Deletion stopped after the first batch
+        dropGraphs(RESOURCES.subList(0, 2));
+        putJob("0f0e7f5e-3c1f-4b8e-9d7a-6a0c0f7f1e10", State.RUNNING, 2, new Date());
+
+        modelDeletionManager.resumeUnfinishedJobs();
+
+        ModelDeletionJobDTO job = awaitFinished("0f0e7f5e-3c1f-4b8e-9d7a-6a0c0f7f1e10");
+        assertEquals(State.DONE, job.getState());
+        assertEquals(RESOURCES.size(), job.getDeletedResources());
+        assertModelDeleted();
+    }
+
+    @Test
+    public void deleteReturnsUnfinishedJobOfTheModel() {
+        putJob("5a3f1d2e-1b6c-4f0a-8f55-2c7b1e0d9a01", State.QUEUED, 0, new Date());
+
+        assertEquals("5a3f1d2e-1b6c-4f0a-8f55-2c7b1e0d9a01", modelDeletionManager.deleteModel(MODEL).getId());
+    }
+
+    @Test
+    public void removesExpiredFinishedJobs() {
+        Date expired = new Date(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(fuseki.getProperties().getModelDeletionJobRetention() + 60));
+        putJob("a0000000-0000-4000-8000-000000000001", State.DONE, 5, expired);
+        putJob("a0000000-0000-4000-8000-000000000002", State.FAILED, 1, expired);
+        putJob("a0000000-0000-4000-8000-000000000003", State.RUNNING, 1, expired);
+        putJob("a0000000-0000-4000-8000-000000000004", State.DONE, 5, new Date());
+
+        modelDeletionManager.removeExpiredJobs();
+
+        assertNull(modelDeletionManager.getJob("a0000000-0000-4000-8000-000000000001"));
+        assertNull(modelDeletionManager.getJob("a0000000-0000-4000-8000-000000000002"));
+        assertNotNull(modelDeletionManager.getJob("a0000000-0000-4000-8000-000000000003"));
+        assertNotNull(modelDeletionManager.getJob("a0000000-0000-4000-8000-000000000004"));
+        assertEquals(2, modelDeletionManager.getJobs(MODEL).size());
+    }
+
+    private ModelDeletionJobDTO awaitFinished(String id) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        ModelDeletionJobDTO job;
+        while (!(job = modelDeletionManager.getJob(id)).isFinished()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Job " + id + " is " + job.getState());
+            }
+            Thread.sleep(20);
+        }
+        return job;
+    }
+
+    private void putJob(String id,
+                        State state,
+                        int deletedResources,
+                        Date modified) {
+        Map<String, RDFNode> properties = new LinkedHashMap<>();
+        properties.put("iow:model", ResourceFactory.createResource(MODEL));
+        properties.put("iow:state", ResourceFactory.createPlainLiteral(state.name()));
+        properties.put("iow:deletedResources", ResourceFactory.createTypedLiteral(deletedResources));
+        jobStore.put("urn:uuid:" + id, properties, modified, modified, null);
+    }
+
+    private void storeModel() {
+        Dataset core = fuseki.getDataset("core");
+        core.begin(ReadWrite.WRITE);
+        try {
+            Model model = ModelFactory.createDefaultModel();
+            model.add(model.createResource(MODEL), RDF.type, OWL.Ontology);
+            core.addNamedModel(MODEL, model);
+            core.addNamedModel(MODEL + "#ExportGraph", model);
+
+            Model hasPart = ModelFactory.createDefaultModel();
+            for (String resource : RESOURCES) {
+                hasPart.add(hasPart.createResource(MODEL), DCTerms.hasPart, hasPart.createResource(resource));
+                Model graph = ModelFactory.createDefaultModel();
+                graph.add(graph.createResource(resource), RDF.type, RDFS.Class);
+                graph.add(graph.createResource(resource), RDFS.isDefinedBy, graph.createResource(MODEL));
+                core.addNamedModel(resource, graph);
+            }
+            core.addNamedModel(MODEL + "#HasPartGraph", hasPart);
+            core.commit();
+        } finally {
+            core.end();
+        }
+    }
+
+    private void dropGraphs(List<String> graphs) {
+        Dataset core = fuseki.getDataset("core");
+        core.begin(ReadWrite.WRITE);
+        try {
+            graphs.forEach(core::removeNamedModel);
+            core.commit();
+        } finally {
+            core.end();
+        }
+    }
+
+    private void assertModelDeleted() {
+        Dataset core = fuseki.getDataset("core");
+        core.begin(ReadWrite.READ);
+        try {
+            assertFalse(core.containsNamedModel(MODEL));
+            assertFalse(core.containsNamedModel(MODEL + "#HasPartGraph"));
+            for (String resource : RESOURCES) {
+                assertFalse(resource, core.containsNamedModel(resource));
+            }
+        } finally {
+            core.end();
+        }
+    }
+}
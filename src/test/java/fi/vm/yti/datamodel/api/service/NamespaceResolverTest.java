@@ -0,0 +1,209 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class NamespaceResolverTest {
+
+    private static final String ETAG = "\"v1\"";
+    private static final String VOCABULARY = "@prefix ex: <http://example.org/ns#> .\n"
+        + "@prefix rdfs: <http://www.w3.org/2000/01/rdf-schema#> .\n"
+        + "ex:Thing a rdfs:Class ; rdfs:label \"Thing\"@en .\n";
+    private static final String NAMESPACE = "http://example.org/ns#";
+
+    private final AtomicInteger slowRequests = new AtomicInteger();
+    private final CountDownLatch slowResponse = new CountDownLatch(1);
+
+    private HttpServer server;
+    private EmbeddedFuseki fuseki;
+    private NamespaceResolver resolver;
+    private String baseUrl;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/vocab.ttl", exchange -> {
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                byte[] body = VOCABULARY.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "text/turtle");
+                exchange.getResponseHeaders().add("ETag", ETAG);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+        // Answers only after the test releases it
+        server.createContext("/slow.ttl", exchange -> {
+            slowRequests.incrementAndGet();
+            try {
+                slowResponse.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = VOCABULARY.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/turtle");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+            exchange.close();
+        });
+        server.createContext("/broken", exchange -> {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.setNamespaceResolverThreads(4);
+        properties.setNamespaceRetryBackoff(60);
+        properties.setNamespaceRevalidateAfter(60);
+        fuseki = EmbeddedFuseki.start(properties);
+        resolver = new NamespaceResolver(fuseki.getJenaClient(), fuseki.getEndpointServices(), mock(ExternalCatalogue.class), properties);
+    }
+
+    @After
+    public void tearDown() {
+        slowResponse.countDown();
+        resolver.shutdown();
+        server.stop(0);
+        fuseki.close();
+    }
+
+    @Test
+    public void concurrentResolvesShareOneFetch() {
+        List<CompletableFuture<Boolean>> resolutions = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            resolutions.add(resolver.resolveAsync(NAMESPACE, baseUrl + "/slow.ttl", false));
+        }
+        for (CompletableFuture<Boolean> resolution : resolutions) {
+            assertSame(resolutions.get(0), resolution);
+        }
+
+        slowResponse.countDown();
+
+        assertTrue(resolutions.get(0).join());
+        assertEquals(1, slowRequests.get());
+        assertTrue(fuseki.getJenaClient().containsSchemaModel(NAMESPACE));
+    }
+
+    @Test
+    public void revalidationDoesNotBlockReaders() throws InterruptedException {
+        slowResponse.countDown();
+        assertTrue(resolver.resolve(NAMESPACE, baseUrl + "/slow.ttl", true));
+        NamespaceResolver.Validators stale = new NamespaceResolver.Validators(new Date(0), baseUrl + "/slow.ttl", null, null);
+        resolver.putValidators(NAMESPACE, stale);
+        slowRequests.set(0);
+
+        // Next revalidation hangs until released
+        CountDownLatch revalidation = new CountDownLatch(1);
+        server.removeContext("/slow.ttl");
+        server.createContext("/slow.ttl", exchange -> {
+            slowRequests.incrementAndGet();
+            try {
+                revalidation.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+        });
+
+        try {
+            // Stored vocabulary is returned while the revalidation is running and only one revalidation is started
+            for (int i = 0; i < 4; i++) {
+                assertTrue(resolver.resolveAsync(NAMESPACE, null, false).get(5, TimeUnit.SECONDS));
+            }
+            awaitRequests(1);
+            assertEquals(1, slowRequests.get());
+        } catch (Exception ex) {
+            throw new AssertionError("Reader waited for revalidation", ex);
+        } finally {
+            revalidation.countDown();
+        }
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (resolver.getValidators(NAMESPACE).getFetched().getTime() == 0) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Vocabulary was not revalidated");
+            }
+            Thread.sleep(20);
+        }
+        assertEquals(1, slowRequests.get());
+    }
+
+    private void awaitRequests(int requests) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (slowRequests.get() < requests) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Got " + slowRequests.get() + " requests, expected " + requests);
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    public void fetchReturnsModelAndValidators() throws IOException {
+        NamespaceResolver.FetchResult result = resolver.fetch("http://example.org/ns#", new URL(baseUrl + "/vocab.ttl"), null);
+        assertFalse(result.isFailed());
+        assertEquals(2, result.getModel().size());
+        assertEquals(ETAG, result.getEtag());
+    }
+
+    @Test
+    public void conditionalFetchReturnsNotModified() throws IOException {
+        NamespaceResolver.Validators validators = new NamespaceResolver.Validators(new Date(), null, ETAG, null);
+        NamespaceResolver.FetchResult result = resolver.fetch("http://example.org/ns#", new URL(baseUrl + "/vocab.ttl"), validators);
+        assertTrue(result.isNotModified());
+    }
+
+    @Test
+    public void serverErrorFails() throws IOException {
+        NamespaceResolver.FetchResult result = resolver.fetch("http://example.org/broken#", new URL(baseUrl + "/broken"), null);
+        assertTrue(result.isFailed());
+    }
+
+    @Test
+    public void failuresBackOffExponentially() {
+        String namespace = "http://example.org/broken#";
+        long now = 0;
+        assertFalse(resolver.isBackedOff(namespace, now));
+        resolver.recordFailure(namespace, now);
+        assertTrue(resolver.isBackedOff(namespace, now + 59_000));
+        assertFalse(resolver.isBackedOff(namespace, now + 60_000));
+        resolver.recordFailure(namespace, now);
+        assertTrue(resolver.isBackedOff(namespace, now + 119_000));
+        assertFalse(resolver.isBackedOff(namespace, now + 120_000));
+    }
+}
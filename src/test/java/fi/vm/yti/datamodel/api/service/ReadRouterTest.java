@@ -0,0 +1,117 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.http.impl.client.HttpClients;
+import org.junit.Before;
+import org.junit.Test;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+import fi.vm.yti.datamodel.api.config.ReadRouting;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReadRouterTest {
+
+    private static final String PRIMARY = "http://primary:3030";
+    private static final String REPLICA = "http://replica:3030";
+
+    private ApplicationProperties properties;
+    private UUID user;
+
+    @Before
+    public void setUp() {
+        ReadRouting routing = new ReadRouting();
+        routing.setReplicas(Collections.singletonMap("core", Arrays.asList(REPLICA)));
+        routing.setBulk(ReadRouting.Target.PRIMARY);
+
+        properties = new ApplicationProperties();
+        properties.setEndpoint(PRIMARY);
+        properties.setReadRouting(routing);
+    }
+
+    @Test
+    public void routesInteractiveReadsOfConfiguredDatasetsToReplicas() {
+        ReadRouter router = createRouter();
+        assertEquals(REPLICA + "/core/sparql", router.route(PRIMARY + "/core/sparql"));
+        assertEquals(PRIMARY + "/imports/sparql", router.route(PRIMARY + "/imports/sparql"));
+        assertEquals(PRIMARY + "/core/sparql", router.route(PRIMARY + "/core/sparql", ReadRouter.OperationClass.WRITE));
+    }
+
+    @Test
+    @SuppressWarnings("try")
+    public void routesBulkReadsByConfiguration() {
+        ReadRouter router = createRouter();
+        try (ReadRouter.Scope scope = router.bulkReads()) {
+            assertEquals(PRIMARY + "/core/sparql", router.route(PRIMARY + "/core/sparql"));
+        }
+        assertEquals(REPLICA + "/core/sparql", router.route(PRIMARY + "/core/sparql"));
+    }
+
+    @Test
+    public void failsOverToPrimaryWhenReplicaFails() {
+        ReadRouter router = createRouter();
+        String result = router.read(PRIMARY + "/core/sparql", address -> {
+            if (address.startsWith(REPLICA)) {
+                throw new IllegalStateException("Down");
+            }
+            return address;
+        });
+        assertEquals(PRIMARY + "/core/sparql", result);
+        assertEquals(PRIMARY + "/core/sparql", router.route(PRIMARY + "/core/sparql"));
+    }
+
+    @Test
+    public void routesReadsOfRecentWritersToPrimary() {
+        ReadRouter router = createRouter();
+        user = UUID.randomUUID();
+        router.written();
+        assertEquals(PRIMARY + "/core/sparql", router.route(PRIMARY + "/core/sparql"));
+
+        user = UUID.randomUUID();
+        assertEquals(REPLICA + "/core/sparql", router.route(PRIMARY + "/core/sparql"));
+    }
+
+    @Test
+    public void doesNotStickWritesWithoutUser() {
+        ReadRouter router = createRouter();
+        router.written();
+        assertEquals(REPLICA + "/core/sparql", router.route(PRIMARY + "/core/sparql"));
+    }
+
+    @Test
+    @SuppressWarnings("try")
+    public void routesPrimaryReadsToPrimary() {
+        properties.getReadRouting().setBulk(ReadRouting.Target.REPLICA);
+        ReadRouter router = createRouter();
+        try (ReadRouter.Scope scope = router.primaryReads()) {
+            assertEquals(PRIMARY + "/core/sparql", router.route(PRIMARY + "/core/sparql"));
+            try (ReadRouter.Scope bulkScope = router.bulkReads()) {
+                assertEquals(PRIMARY + "/core/sparql", router.route(PRIMARY + "/core/sparql"));
+            }
+            assertEquals(PRIMARY + "/core/sparql", router.route(PRIMARY + "/core/sparql"));
+        }
+        assertEquals(REPLICA + "/core/sparql", router.route(PRIMARY + "/core/sparql"));
+    }
+
+    @Test
+    @SuppressWarnings("try")
+    public void scopesPrimaryReadsToCurrentThread() throws InterruptedException {
+        ReadRouter router = createRouter();
+        AtomicReference<String> otherThread = new AtomicReference<>();
+        try (ReadRouter.Scope scope = router.primaryReads()) {
+            Thread thread = new Thread(() -> otherThread.set(router.route(PRIMARY + "/core/sparql")));
+            thread.start();
+            thread.join();
+            assertEquals(PRIMARY + "/core/sparql", router.route(PRIMARY + "/core/sparql"));
+        }
+        assertEquals(REPLICA + "/core/sparql", otherThread.get());
+    }
+
+    private ReadRouter createRouter() {
+        return new ReadRouter(new EndpointServices(properties), () -> user, properties, HttpClients.createDefault());
+    }
+}
@@ -0,0 +1,99 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+import fi.vm.yti.datamodel.api.model.SparqlQueryStatisticsDTO;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+public class SparqlQueryLogTest {
+
+    private static final String LABEL_QUERY = "PREFIX rdfs: <http://www.w3.org/2000/01/rdf-schema#>\n"
+        + "SELECT ?label WHERE { GRAPH <%s> { <%s> rdfs:label ?label . FILTER(langMatches(lang(?label), %s)) } } LIMIT %d";
+
+    private SparqlQueryLog queryLog;
+
+    @Before
+    public void setUp() {
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.setSlowQueryThreshold(100);
+        properties.setQueryStatisticsSize(10);
+        queryLog = new SparqlQueryLog(properties);
+    }
+
+    @Test
+    public void parametersAreStrippedFromTemplate() {
+        String query = String.format(LABEL_QUERY, "http://uri.suomi.fi/datamodel/ns/test", "http://uri.suomi.fi/datamodel/ns/test#Address", "\"fi\"", 10);
+
+        assertEquals("SELECT ?label WHERE { GRAPH <?> { <?> rdfs:label ?label . FILTER(langMatches(lang(?label), \"?\")) } } LIMIT ?",
+            SparqlQueryLog.normalize(query));
+    }
+
+    @Test
+    public void literalsOfAllFormsAreStripped() {
+        assertEquals("?s ?p \"?\" , \"?\" , \"?\" , \"?\" , ? , ?",
+            SparqlQueryLog.normalize("?s ?p 'osoite'@fi , \"say \\\"hi\\\"\" , \"\"\"two\nlines\"\"\" , '''x''' , -1.5e3 , 42"));
+    }
+
+    @Test
+    public void variablesAndPrefixedNamesAreKept() {
+        assertEquals("?o1 ex:a1 $x2 ?", SparqlQueryLog.normalize("?o1 ex:a1 $x2 7"));
+    }
+
+    @Test
+    public void sameShapeHasSameFingerprint() {
+        String first = String.format(LABEL_QUERY, "http://uri.suomi.fi/datamodel/ns/a", "http://uri.suomi.fi/datamodel/ns/a#A", "\"fi\"", 10);
+        String second = String.format(LABEL_QUERY, "http://uri.suomi.fi/datamodel/ns/b", "http://uri.suomi.fi/datamodel/ns/b#B", "'en'", 200)
+            .replace("\n", "\n\n  ");
+        String otherShape = first.replace("rdfs:label", "rdfs:comment");
+
+        assertEquals(fingerprint(first), fingerprint(second));
+        assertNotEquals(fingerprint(first), fingerprint(otherShape));
+    }
+
+    @Test
+    public void executionsAreGroupedByTemplate() {
+        queryLog.record("core", "select", String.format(LABEL_QUERY, "urn:a", "urn:a#A", "\"fi\"", 10), millis(10), 3, false);
+        queryLog.record("core", "select", String.format(LABEL_QUERY, "urn:b", "urn:b#B", "\"en\"", 20), millis(30), 1, true);
+
+        List<SparqlQueryStatisticsDTO> top = queryLog.getTopQueries(10, "total");
+        assertEquals(1, top.size());
+        assertEquals(2, top.get(0).getCount());
+        assertEquals(1, top.get(0).getErrors());
+        assertEquals(40, top.get(0).getTotalTime());
+        assertEquals(30, top.get(0).getMaxTime());
+        assertEquals(4, top.get(0).getTotalResults());
+    }
+
+    @Test
+    public void slowestQueryIsKeptFromThreshold() {
+        String fast = String.format(LABEL_QUERY, "urn:fast", "urn:fast#A", "\"fi\"", 10);
+        String slow = String.format(LABEL_QUERY, "urn:slow", "urn:slow#A", "\"fi\"", 10);
+        String slower = String.format(LABEL_QUERY, "urn:slower", "urn:slower#A", "\"fi\"", 10);
+
+        queryLog.record("core", "select", fast, millis(99), 1, false);
+        assertNull(queryLog.getTopQueries(1, "total").get(0).getSlowestQuery());
+
+        queryLog.record("core", "select", slow, millis(100), 1, false);
+        assertEquals(slow, queryLog.getTopQueries(1, "total").get(0).getSlowestQuery());
+
+        queryLog.record("core", "select", slower, millis(500), 1, false);
+        queryLog.record("core", "select", slow, millis(200), 1, false);
+        assertEquals(slower, queryLog.getTopQueries(1, "total").get(0).getSlowestQuery());
+    }
+
+    private static String fingerprint(String query) {
+        return SparqlQueryLog.fingerprint(SparqlQueryLog.normalize(query));
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+}
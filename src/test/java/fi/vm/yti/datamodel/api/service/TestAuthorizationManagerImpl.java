@@ -35,6 +35,11 @@ public class TestAuthorizationManagerImpl implements AuthorizationManager {
         return true;
     }
 
+    @Override
+    public boolean hasRightToEditModel(final IRI modelIRI) {
+        return true;
+    }
+
     @Override
     public boolean hasRightToCreateNewVersion(final AbstractModel model) {
         return true;
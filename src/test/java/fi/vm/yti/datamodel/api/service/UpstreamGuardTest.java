@@ -0,0 +1,136 @@
+package fi.vm.yti.datamodel.api.service;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.util.Collections;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import fi.vm.yti.datamodel.api.config.ApplicationProperties;
+import fi.vm.yti.datamodel.api.config.UpstreamPolicy;
+import fi.vm.yti.datamodel.api.service.UpstreamGuard.CircuitState;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class UpstreamGuardTest {
+
+    private static final String UPSTREAM = "test";
+
+    private SimpleMeterRegistry registry;
+    private UpstreamGuard guard;
+
+    @Before
+    public void setUp() {
+        UpstreamPolicy policy = new UpstreamPolicy();
+        policy.setMaxConcurrent(1);
+        policy.setAcquireTimeout(10);
+        policy.setFailureThreshold(2);
+        policy.setOpenDuration(0);
+
+        ApplicationProperties properties = new ApplicationProperties();
+        properties.setUpstreamPolicies(Collections.singletonMap(UPSTREAM, policy));
+        registry = new SimpleMeterRegistry();
+        guard = new UpstreamGuard(properties, registry);
+    }
+
+    @Test
+    public void rejectsCallsWhenAllSlotsAreInUse() {
+        UpstreamGuard.Permit permit = guard.acquire(UPSTREAM);
+        try {
+            guard.acquire(UPSTREAM);
+            fail("Expected rejection");
+        } catch (UpstreamUnavailableException ex) {
+            assertEquals(UPSTREAM, ex.getUpstream());
+        }
+        permit.success();
+        guard.acquire(UPSTREAM).success();
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailuresAndClosesAfterSuccessfulTrial() {
+        failCalls(2);
+        assertEquals(CircuitState.OPEN, guard.getState(UPSTREAM));
+
+        assertEquals("ok", guard.call(UPSTREAM, () -> "ok"));
+        assertEquals(CircuitState.CLOSED, guard.getState(UPSTREAM));
+    }
+
+    @Test
+    public void failedTrialOpensCircuitAgain() {
+        failCalls(2);
+        failCalls(1);
+        assertEquals(CircuitState.OPEN, guard.getState(UPSTREAM));
+    }
+
+    @Test
+    public void clientErrorsDoNotOpenCircuit() {
+        for (int i = 0; i < 3; i++) {
+            try {
+                guard.call(UPSTREAM, () -> {
+                    throw new IllegalArgumentException("Invalid input");
+                });
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+        assertEquals(CircuitState.CLOSED, guard.getState(UPSTREAM));
+    }
+
+    @Test
+    public void fallbackIsUsedWhenCallFails() {
+        String value = guard.call(UPSTREAM, () -> {
+            throw new IllegalStateException("Down");
+        }, () -> "stale");
+        assertEquals("stale", value);
+    }
+
+    @Test
+    public void refusedConnectionIsRecordedAsError() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Client client = ClientBuilder.newBuilder()
+            .register(new UpstreamMetrics(registry).clientFilter(UPSTREAM))
+            .build();
+        try {
+            guard.request(UPSTREAM, () -> client.target("http://localhost:" + port).request().get());
+            fail("Expected connection failure");
+        } catch (ProcessingException ex) {
+            // expected
+        } finally {
+            client.close();
+        }
+
+        Counter errors = registry.find(UpstreamMetrics.ERROR_COUNTER_NAME)
+            .tag("upstream", UPSTREAM)
+            .tag("target", "localhost")
+            .tag("operation", "GET")
+            .tag("exception", ConnectException.class.getSimpleName())
+            .counter();
+        assertEquals(1.0, errors.count(), 0.0);
+        assertEquals(1L, registry.find(UpstreamMetrics.TIMER_NAME).tag("outcome", "ERROR").timer().count());
+    }
+
+    private void failCalls(int times) {
+        for (int i = 0; i < times; i++) {
+            try {
+                guard.call(UPSTREAM, () -> {
+                    throw new IllegalStateException("Down");
+                });
+            } catch (IllegalStateException ex) {
+                // expected
+            }
+        }
+    }
+}